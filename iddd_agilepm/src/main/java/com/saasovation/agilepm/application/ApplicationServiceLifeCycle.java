@@ -22,8 +22,12 @@ import com.saasovation.common.domain.model.DomainEvent;
 import com.saasovation.common.domain.model.DomainEventPublisher;
 import com.saasovation.common.domain.model.DomainEventSubscriber;
 import com.saasovation.common.event.EventStore;
+import com.saasovation.common.event.EventTypeRegistry;
 import com.saasovation.common.notification.NotificationPublisher;
+import com.saasovation.common.notification.NotificationPublishingMetrics;
+import com.saasovation.common.notification.NotificationPublishingScheduler;
 import com.saasovation.common.notification.PublishedNotificationTrackerStore;
+import com.saasovation.common.notification.SignalingEventStore;
 import com.saasovation.common.port.adapter.messaging.Exchanges;
 import com.saasovation.common.port.adapter.notification.SlothMQNotificationPublisher;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBEventStore;
@@ -41,15 +45,17 @@ public class ApplicationServiceLifeCycle {
     private static final EventStore eventStore;
     private static NotificationApplicationService notificationApplicationService;
     private static NotificationPublisher notificationPublisher;
-    private static NotificationPublisherTimer timer;
+    private static NotificationPublishingScheduler notificationPublishingScheduler;
     private static PublishedNotificationTrackerStore publishedNotificationTrackerStore;
 
     static {
         database = LevelDBProvider.instance().databaseFrom(LevelDBDatabasePath.agilePMPath());
 
-        eventStore = new LevelDBEventStore(LevelDBDatabasePath.agilePMPath());
+        // resolves stored event types without loading them by name
 
-        timer = new NotificationPublisherTimer();
+        EventTypeRegistry.instance().registerAll("com.saasovation.agilepm.domain.model");
+
+        EventStore levelDBEventStore = new LevelDBEventStore(LevelDBDatabasePath.agilePMPath());
 
         publishedNotificationTrackerStore = new LevelDBPublishedNotificationTrackerStore(LevelDBDatabasePath.agilePMPath(), "saasovation.agilepm");
 
@@ -59,11 +65,34 @@ public class ApplicationServiceLifeCycle {
 //                        publishedNotificationTrackerStore,
 //                        Exchanges.AGILEPM_EXCHANGE_NAME);
 
-        notificationPublisher = new SlothMQNotificationPublisher(eventStore, publishedNotificationTrackerStore, Exchanges.AGILEPM_EXCHANGE_NAME);
+        notificationPublisher = new SlothMQNotificationPublisher(levelDBEventStore, publishedNotificationTrackerStore, Exchanges.AGILEPM_EXCHANGE_NAME);
 
         notificationApplicationService = new NotificationApplicationService(notificationPublisher);
 
-        timer.start();
+        // publishes when events are appended, each run in its own unit of work
+
+        notificationPublishingScheduler = new NotificationPublishingScheduler(new NotificationPublisher() {
+            @Override
+            public void publishNotifications() {
+                notificationApplicationService.publishNotifications();
+            }
+
+            @Override
+            public boolean internalOnlyTestConfirmation() {
+                return notificationPublisher.internalOnlyTestConfirmation();
+            }
+        }, publishedNotificationTrackerStore);
+
+        // signals again once each event's unit of work has committed
+
+        eventStore = new SignalingEventStore(levelDBEventStore, notificationPublishingScheduler) {
+            @Override
+            protected void afterCommit(Runnable aSignal) {
+                LevelDBUnitOfWork.current().afterCommit(aSignal);
+            }
+        };
+
+        notificationPublishingScheduler.start();
     }
 
     public static void begin() {
@@ -78,6 +107,10 @@ public class ApplicationServiceLifeCycle {
         LevelDBUnitOfWork.start(database);
     }
 
+    public static NotificationPublishingMetrics notificationPublishingMetrics() {
+        return notificationPublishingScheduler.metrics();
+    }
+
     public static void fail() {
         LevelDBUnitOfWork.current().rollback();
     }
@@ -114,29 +147,4 @@ public class ApplicationServiceLifeCycle {
                 }
             });
     }
-
-    // TODO: need to monitor this...
-
-    private static class NotificationPublisherTimer extends Thread {
-        public NotificationPublisherTimer() {
-            super();
-        }
-
-        @Override
-        public void run() {
-            while (true) {
-                try {
-                    notificationApplicationService.publishNotifications();
-                } catch (Exception e) {
-                    System.out.println("Problem publishing notifications from ApplicationServiceLifeCycle.");
-                }
-
-                try {
-                    Thread.sleep(100L);
-                } catch (Exception e) {
-                    // ignore
-                }
-            }
-        }
-    }
 }
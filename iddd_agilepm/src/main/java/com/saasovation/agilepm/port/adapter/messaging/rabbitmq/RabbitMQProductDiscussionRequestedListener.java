@@ -24,6 +24,7 @@ import com.saasovation.common.notification.NotificationReader;
 import com.saasovation.common.port.adapter.messaging.Exchanges;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.ConnectionSettings;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.Exchange;
+import com.saasovation.common.port.adapter.messaging.rabbitmq.ExchangeRouting;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.ExchangeListener;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.MessageParameters;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.MessageProducer;
@@ -73,6 +74,7 @@ public class RabbitMQProductDiscussionRequestedListener
 
         this.messageProducer()
             .send(
+                ExchangeRouting.configured().routingKeyOf(COMMAND),
                 serialization,
                 MessageParameters
                     .durableTextParameters(
@@ -101,7 +103,7 @@ public class RabbitMQProductDiscussionRequestedListener
 
     private MessageProducer messageProducer() {
         Exchange exchange =
-            Exchange.fanOutInstance(
+            ExchangeRouting.configured().exchangeInstance(
                     ConnectionSettings.instance(),
                     Exchanges.COLLABORATION_EXCHANGE_NAME,
                     true);
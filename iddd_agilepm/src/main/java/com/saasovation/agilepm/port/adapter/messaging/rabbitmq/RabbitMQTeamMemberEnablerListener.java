@@ -86,6 +86,22 @@ public class RabbitMQTeamMemberEnablerListener extends ExchangeListener {
                 };
     }
 
+    @Override
+    protected int partitionCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    protected String partitionKeyOf(String aType, String aTextMessage) {
+
+        // each team member's messages are handled in order
+
+        NotificationReader reader = new NotificationReader(aTextMessage);
+
+        return reader.eventStringValue("tenantId.id")
+                + ":" + reader.eventStringValue("username");
+    }
+
     private TeamApplicationService teamApplicationService() {
         return this.teamApplicationService;
     }
@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -28,6 +27,7 @@ import com.saasovation.agilepm.domain.model.product.release.ReleaseId;
 import com.saasovation.agilepm.domain.model.product.sprint.SprintId;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -43,46 +43,33 @@ public class LevelDBBacklogItemRepository
 
     public LevelDBBacklogItemRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                PRODUCT_BACKLOG_ITEMS,
+                RELEASE_BACKLOG_ITEMS,
+                SPRINT_BACKLOG_ITEMS)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<BacklogItem> allBacklogItemsComittedTo(TenantId aTenantId, SprintId aSprintId) {
-        List<BacklogItem> backlogItems = new ArrayList<BacklogItem>();
-
         LevelDBKey sprintBacklogItems = new LevelDBKey(SPRINT_BACKLOG_ITEMS, aTenantId.id(), aSprintId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(sprintBacklogItems);
-
-        for (Object backlogItemId : keys) {
-            BacklogItem backlogItem = uow.readObject(backlogItemId.toString().getBytes(), BacklogItem.class);
-
-            if (backlogItem != null) {
-                backlogItems.add(backlogItem);
-            }
-        }
+        List<BacklogItem> backlogItems =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(sprintBacklogItems, BacklogItem.class);
 
         return backlogItems;
     }
 
     @Override
     public Collection<BacklogItem> allBacklogItemsScheduledFor(TenantId aTenantId, ReleaseId aReleaseId) {
-        List<BacklogItem> backlogItems = new ArrayList<BacklogItem>();
-
         LevelDBKey releaseBacklogItems = new LevelDBKey(RELEASE_BACKLOG_ITEMS, aTenantId.id(), aReleaseId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(releaseBacklogItems);
-
-        for (Object backlogItemId : keys) {
-            BacklogItem backlogItem = uow.readObject(backlogItemId.toString().getBytes(), BacklogItem.class);
-
-            if (backlogItem != null) {
-                backlogItems.add(backlogItem);
-            }
-        }
+        List<BacklogItem> backlogItems =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(releaseBacklogItems, BacklogItem.class);
 
         return backlogItems;
     }
@@ -93,7 +80,7 @@ public class LevelDBBacklogItemRepository
 
         Iterator<BacklogItem> iterator = productBacklogItems.listIterator();
 
-        if (iterator.hasNext()) {
+        while (iterator.hasNext()) {
             BacklogItem backlogItem = iterator.next();
 
             if (backlogItem.isDone() || backlogItem.isRemoved()) {
@@ -127,90 +114,49 @@ public class LevelDBBacklogItemRepository
 
     @Override
     public void remove(BacklogItem aBacklogItem) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aBacklogItem.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aBacklogItem, uow);
+        this.remove(aBacklogItem, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<BacklogItem> aBacklogItemCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (BacklogItem backlogItem : aBacklogItemCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, backlogItem.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(backlogItem, uow);
         }
     }
 
     @Override
     public void save(BacklogItem aBacklogItem) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aBacklogItem.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aBacklogItem, uow);
+        this.save(aBacklogItem, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<BacklogItem> aBacklogItemCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (BacklogItem backlogItem : aBacklogItemCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, backlogItem.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(backlogItem, uow);
         }
     }
 
     private List<BacklogItem> listProductBacklogItems(TenantId aTenantId, ProductId aProductId) {
-        List<BacklogItem> backlogItems = new ArrayList<BacklogItem>();
-
         LevelDBKey productBacklogItems = new LevelDBKey(PRODUCT_BACKLOG_ITEMS, aTenantId.id(), aProductId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(productBacklogItems);
-
-        for (Object backlogItemId : keys) {
-            BacklogItem backlogItem = uow.readObject(backlogItemId.toString().getBytes(), BacklogItem.class);
-
-            if (backlogItem != null) {
-                backlogItems.add(backlogItem);
-            }
-        }
+        List<BacklogItem> backlogItems =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(productBacklogItems, BacklogItem.class);
 
         return backlogItems;
     }
 
     private void remove(BacklogItem aBacklogItem, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aBacklogItem.tenantId().id(), aBacklogItem.backlogItemId().id());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey productBacklogItems = new LevelDBKey(primaryKey, PRODUCT_BACKLOG_ITEMS, aBacklogItem.tenantId().id(), aBacklogItem.productId().id());
-        aUoW.removeKeyReference(productBacklogItems);
+        aUoW.removeIndexEntry(productBacklogItems);
 
 //        if (aBacklogItem.discussionInitiationId() != null) {
 //            LevelDBKey backlogItemsOfDiscussion = new LevelDBKey(primaryKey, BACKLOG_ITEM_OF_DISCUSSION, aBacklogItem.tenantId().id(), aBacklogItem.discussionInitiationId());
@@ -220,20 +166,22 @@ public class LevelDBBacklogItemRepository
 
     private void save(BacklogItem aBacklogItem, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aBacklogItem.tenantId().id(), aBacklogItem.backlogItemId().id());
-        aUoW.write(primaryKey, aBacklogItem);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aBacklogItem);
 
         LevelDBKey productBacklogItems = new LevelDBKey(primaryKey, PRODUCT_BACKLOG_ITEMS, aBacklogItem.tenantId().id(), aBacklogItem.productId().id());
-        aUoW.updateKeyReference(productBacklogItems);
+        aUoW.updateIndexEntry(productBacklogItems);
 
         if (aBacklogItem.isScheduledForRelease()) {
             LevelDBKey releaseBacklogItems = new LevelDBKey(primaryKey, RELEASE_BACKLOG_ITEMS, aBacklogItem.tenantId().id(), aBacklogItem.releaseId().id());
-            aUoW.updateKeyReference(releaseBacklogItems);
+            aUoW.updateIndexEntry(releaseBacklogItems);
 
         }
 
         if (aBacklogItem.isCommittedToSprint()) {
             LevelDBKey sprintBacklogItems = new LevelDBKey(primaryKey, SPRINT_BACKLOG_ITEMS, aBacklogItem.tenantId().id(), aBacklogItem.sprintId().id());
-            aUoW.updateKeyReference(sprintBacklogItems);
+            aUoW.updateIndexEntry(sprintBacklogItems);
         }
 
         // RELEASE_BACKLOG_ITEMS
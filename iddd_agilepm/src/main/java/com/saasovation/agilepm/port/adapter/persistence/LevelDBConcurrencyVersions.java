@@ -0,0 +1,81 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.agilepm.port.adapter.persistence;
+
+import java.lang.reflect.Field;
+
+import com.saasovation.agilepm.domain.model.Entity;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
+
+/**
+ * I write an Entity as of its next concurrency version, and advance
+ * the version of the Entity itself only once the unit of work has
+ * committed, so that a save that rolls back leaves it as it was read.
+ * As the version has no public setter, I set its field as a mapping
+ * with field access would.
+ */
+final class LevelDBConcurrencyVersions {
+
+    private static final Field concurrencyVersionField;
+
+    static {
+        try {
+            concurrencyVersionField = Entity.class.getDeclaredField("concurrencyVersion");
+            concurrencyVersionField.setAccessible(true);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot access the concurrency version of Entity.", e);
+        }
+    }
+
+    static void writeVersioned(
+            LevelDBUnitOfWork aUoW,
+            LevelDBKey aPrimaryKey,
+            final Entity anEntity) {
+
+        int readVersion = anEntity.concurrencyVersion();
+        final int newVersion = readVersion + 1;
+
+        // serialized as of the new version, which the entity
+        // itself holds only while it is being written
+
+        setConcurrencyVersion(anEntity, newVersion);
+
+        try {
+            aUoW.writeVersioned(aPrimaryKey, anEntity, readVersion, newVersion);
+        } finally {
+            setConcurrencyVersion(anEntity, readVersion);
+        }
+
+        aUoW.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                setConcurrencyVersion(anEntity, newVersion);
+            }
+        });
+    }
+
+    private static void setConcurrencyVersion(Entity anEntity, int aConcurrencyVersion) {
+        try {
+            concurrencyVersionField.setInt(anEntity, aConcurrencyVersion);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot set the concurrency version of Entity.", e);
+        }
+    }
+
+    private LevelDBConcurrencyVersions() {
+        super();
+    }
+}
@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,6 +21,7 @@ import com.saasovation.agilepm.domain.model.team.ProductOwner;
 import com.saasovation.agilepm.domain.model.team.ProductOwnerRepository;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -34,25 +34,20 @@ public class LevelDBProductOwnerRepository
 
     public LevelDBProductOwnerRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                PRODUCT_OWNER_OF_TENANT)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<ProductOwner> allProductOwnersOfTenant(TenantId aTenantId) {
-        List<ProductOwner> productOwners = new ArrayList<ProductOwner>();
-
         LevelDBKey productOwnersOfTenant = new LevelDBKey(PRODUCT_OWNER_OF_TENANT, aTenantId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(productOwnersOfTenant);
-
-        for (Object productOwnerId : keys) {
-            ProductOwner productOwner = uow.readObject(productOwnerId.toString().getBytes(), ProductOwner.class);
-
-            if (productOwner != null) {
-                productOwners.add(productOwner);
-            }
-        }
+        List<ProductOwner> productOwners =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(productOwnersOfTenant, ProductOwner.class);
 
         return productOwners;
     }
@@ -70,77 +65,48 @@ public class LevelDBProductOwnerRepository
 
     @Override
     public void remove(ProductOwner aProductOwner) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aProductOwner.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aProductOwner, uow);
+        this.remove(aProductOwner, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<ProductOwner> aProductOwnerCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (ProductOwner productOwner : aProductOwnerCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, productOwner.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(productOwner, uow);
         }
     }
 
     @Override
     public void save(ProductOwner aProductOwner) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aProductOwner.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aProductOwner, uow);
+        this.save(aProductOwner, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<ProductOwner> aProductOwnerCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (ProductOwner productOwner : aProductOwnerCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, productOwner.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(productOwner, uow);
         }
     }
 
     private void remove(ProductOwner aProductOwner, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aProductOwner.tenantId().id(), aProductOwner.username());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey teamMemberOfTenant = new LevelDBKey(primaryKey, PRODUCT_OWNER_OF_TENANT, aProductOwner.tenantId().id());
-        aUoW.removeKeyReference(teamMemberOfTenant);
+        aUoW.removeIndexEntry(teamMemberOfTenant);
     }
 
     private void save(ProductOwner aProductOwner, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aProductOwner.tenantId().id(), aProductOwner.username());
-        aUoW.write(primaryKey, aProductOwner);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aProductOwner);
 
         LevelDBKey productOwnersOfTenant = new LevelDBKey(primaryKey, PRODUCT_OWNER_OF_TENANT, aProductOwner.tenantId().id());
-        aUoW.updateKeyReference(productOwnersOfTenant);
+        aUoW.updateIndexEntry(productOwnersOfTenant);
     }
 }
@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -24,6 +23,7 @@ import com.saasovation.agilepm.domain.model.product.ProductId;
 import com.saasovation.agilepm.domain.model.product.ProductRepository;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -37,25 +37,20 @@ public class LevelDBProductRepository
 
     public LevelDBProductRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                PRODUCTS_OF_TENANT)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<Product> allProductsOfTenant(TenantId aTenantId) {
-        List<Product> products = new ArrayList<Product>();
-
         LevelDBKey productsOfTenant = new LevelDBKey(PRODUCTS_OF_TENANT, aTenantId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(productsOfTenant);
-
-        for (Object productId : keys) {
-            Product product = uow.readObject(productId.toString().getBytes(), Product.class);
-
-            if (product != null) {
-                products.add(product);
-            }
-        }
+        List<Product> products =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(productsOfTenant, Product.class);
 
         return products;
     }
@@ -102,70 +97,39 @@ public class LevelDBProductRepository
 
     @Override
     public void remove(Product aProduct) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aProduct.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aProduct, uow);
+        this.remove(aProduct, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<Product> aProductCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Product product : aProductCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, product.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(product, uow);
         }
     }
 
     @Override
     public void save(Product aProduct) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aProduct.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aProduct, uow);
+        this.save(aProduct, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<Product> aProductCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Product product : aProductCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, product.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(product, uow);
         }
     }
 
     private void remove(Product aProduct, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aProduct.tenantId().id(), aProduct.productId().id());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey productsOfTenant = new LevelDBKey(primaryKey, PRODUCTS_OF_TENANT, aProduct.tenantId().id());
-        aUoW.removeKeyReference(productsOfTenant);
+        aUoW.removeIndexEntry(productsOfTenant);
 
         if (aProduct.discussionInitiationId() != null) {
             LevelDBKey productsOfDiscussion = new LevelDBKey(primaryKey, PRODUCT_OF_DISCUSSION, aProduct.tenantId().id(), aProduct.discussionInitiationId());
@@ -175,10 +139,12 @@ public class LevelDBProductRepository
 
     private void save(Product aProduct, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aProduct.tenantId().id(), aProduct.productId().id());
-        aUoW.write(primaryKey, aProduct);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aProduct);
 
         LevelDBKey productsOfTenant = new LevelDBKey(primaryKey, PRODUCTS_OF_TENANT, aProduct.tenantId().id());
-        aUoW.updateKeyReference(productsOfTenant);
+        aUoW.updateIndexEntry(productsOfTenant);
 
         if (aProduct.discussionInitiationId() != null) {
             LevelDBKey productsOfDiscussion = new LevelDBKey(primaryKey, PRODUCT_OF_DISCUSSION, aProduct.tenantId().id(), aProduct.discussionInitiationId());
@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -25,6 +24,7 @@ import com.saasovation.agilepm.domain.model.product.release.ReleaseId;
 import com.saasovation.agilepm.domain.model.product.release.ReleaseRepository;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -37,25 +37,20 @@ public class LevelDBReleaseRepository
 
     public LevelDBReleaseRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                PRODUCT_RELEASES)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<Release> allProductReleases(TenantId aTenantId, ProductId aProductId) {
-        List<Release> releases = new ArrayList<Release>();
-
         LevelDBKey productReleases = new LevelDBKey(PRODUCT_RELEASES, aTenantId.id(), aProductId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(productReleases);
-
-        for (Object releaseId : keys) {
-            Release release = uow.readObject(releaseId.toString().getBytes(), Release.class);
-
-            if (release != null) {
-                releases.add(release);
-            }
-        }
+        List<Release> releases =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(productReleases, Release.class);
 
         return releases;
     }
@@ -78,77 +73,48 @@ public class LevelDBReleaseRepository
 
     @Override
     public void remove(Release aRelease) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aRelease.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aRelease, uow);
+        this.remove(aRelease, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<Release> aReleaseCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Release release : aReleaseCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, release.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(release, uow);
         }
     }
 
     @Override
     public void save(Release aRelease) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aRelease.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aRelease, uow);
+        this.save(aRelease, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<Release> aReleaseCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Release release : aReleaseCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, release.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(release, uow);
         }
     }
 
     private void remove(Release aRelease, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aRelease.tenantId().id(), aRelease.releaseId().id());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey productReleases = new LevelDBKey(primaryKey, PRODUCT_RELEASES, aRelease.tenantId().id(), aRelease.productId().id());
-        aUoW.removeKeyReference(productReleases);
+        aUoW.removeIndexEntry(productReleases);
     }
 
     private void save(Release aRelease, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aRelease.tenantId().id(), aRelease.releaseId().id());
-        aUoW.write(primaryKey, aRelease);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aRelease);
 
         LevelDBKey productReleases = new LevelDBKey(primaryKey, PRODUCT_RELEASES, aRelease.tenantId().id(), aRelease.productId().id());
-        aUoW.updateKeyReference(productReleases);
+        aUoW.updateIndexEntry(productReleases);
     }
 }
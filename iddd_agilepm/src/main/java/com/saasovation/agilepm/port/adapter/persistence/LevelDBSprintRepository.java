@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -25,6 +24,7 @@ import com.saasovation.agilepm.domain.model.product.sprint.SprintId;
 import com.saasovation.agilepm.domain.model.product.sprint.SprintRepository;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -37,25 +37,20 @@ public class LevelDBSprintRepository
 
     public LevelDBSprintRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                PRODUCT_RELEASES)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<Sprint> allProductSprints(TenantId aTenantId, ProductId aProductId) {
-        List<Sprint> sprints = new ArrayList<Sprint>();
-
         LevelDBKey productSprints = new LevelDBKey(PRODUCT_RELEASES, aTenantId.id(), aProductId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(productSprints);
-
-        for (Object sprintId : keys) {
-            Sprint sprint = uow.readObject(sprintId.toString().getBytes(), Sprint.class);
-
-            if (sprint != null) {
-                sprints.add(sprint);
-            }
-        }
+        List<Sprint> sprints =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(productSprints, Sprint.class);
 
         return sprints;
     }
@@ -78,77 +73,48 @@ public class LevelDBSprintRepository
 
     @Override
     public void remove(Sprint aSprint) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aSprint.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aSprint, uow);
+        this.remove(aSprint, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<Sprint> aSprintCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Sprint sprint : aSprintCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, sprint.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(sprint, uow);
         }
     }
 
     @Override
     public void save(Sprint aSprint) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aSprint.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aSprint, uow);
+        this.save(aSprint, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<Sprint> aSprintCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Sprint sprint : aSprintCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, sprint.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(sprint, uow);
         }
     }
 
     private void remove(Sprint aSprint, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aSprint.tenantId().id(), aSprint.sprintId().id());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey productSprints = new LevelDBKey(primaryKey, PRODUCT_RELEASES, aSprint.tenantId().id(), aSprint.productId().id());
-        aUoW.removeKeyReference(productSprints);
+        aUoW.removeIndexEntry(productSprints);
     }
 
     private void save(Sprint aSprint, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aSprint.tenantId().id(), aSprint.sprintId().id());
-        aUoW.write(primaryKey, aSprint);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aSprint);
 
         LevelDBKey productSprints = new LevelDBKey(primaryKey, PRODUCT_RELEASES, aSprint.tenantId().id(), aSprint.productId().id());
-        aUoW.updateKeyReference(productSprints);
+        aUoW.updateIndexEntry(productSprints);
     }
 }
@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,6 +21,7 @@ import com.saasovation.agilepm.domain.model.team.TeamMember;
 import com.saasovation.agilepm.domain.model.team.TeamMemberRepository;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -34,85 +34,48 @@ public class LevelDBTeamMemberRepository
 
     public LevelDBTeamMemberRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                TEAM_MEMBER_OF_TENANT)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<TeamMember> allTeamMembersOfTenant(TenantId aTenantId) {
-        List<TeamMember> teamMembers = new ArrayList<TeamMember>();
-
         LevelDBKey teamMembersOfTenant = new LevelDBKey(TEAM_MEMBER_OF_TENANT, aTenantId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(teamMembersOfTenant);
-
-        for (Object teamMemberId : keys) {
-            TeamMember teamMember = uow.readObject(teamMemberId.toString().getBytes(), TeamMember.class);
-
-            if (teamMember != null) {
-                teamMembers.add(teamMember);
-            }
-        }
+        List<TeamMember> teamMembers =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(teamMembersOfTenant, TeamMember.class);
 
         return teamMembers;
     }
 
     @Override
     public void remove(TeamMember aTeamMember) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aTeamMember.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aTeamMember, uow);
+        this.remove(aTeamMember, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<TeamMember> aTeamMemberCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (TeamMember teamMember : aTeamMemberCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, teamMember.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(teamMember, uow);
         }
     }
 
     @Override
     public void save(TeamMember aTeamMember) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aTeamMember.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aTeamMember, uow);
+        this.save(aTeamMember, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<TeamMember> aTeamMemberCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (TeamMember teamMember : aTeamMemberCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, teamMember.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(teamMember, uow);
         }
     }
@@ -130,17 +93,20 @@ public class LevelDBTeamMemberRepository
 
     private void remove(TeamMember aTeamMember, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aTeamMember.tenantId().id(), aTeamMember.username());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey teamMemberOfTenant = new LevelDBKey(primaryKey, TEAM_MEMBER_OF_TENANT, aTeamMember.tenantId().id());
-        aUoW.removeKeyReference(teamMemberOfTenant);
+        aUoW.removeIndexEntry(teamMemberOfTenant);
     }
 
     private void save(TeamMember aTeamMember, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aTeamMember.tenantId().id(), aTeamMember.username());
-        aUoW.write(primaryKey, aTeamMember);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aTeamMember);
 
         LevelDBKey teamMembersOfTenant = new LevelDBKey(primaryKey, TEAM_MEMBER_OF_TENANT, aTeamMember.tenantId().id());
-        aUoW.updateKeyReference(teamMembersOfTenant);
+        aUoW.updateIndexEntry(teamMembersOfTenant);
     }
 }
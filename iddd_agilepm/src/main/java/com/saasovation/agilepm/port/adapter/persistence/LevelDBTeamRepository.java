@@ -14,7 +14,6 @@
 
 package com.saasovation.agilepm.port.adapter.persistence;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,6 +21,7 @@ import com.saasovation.agilepm.domain.model.team.Team;
 import com.saasovation.agilepm.domain.model.team.TeamRepository;
 import com.saasovation.agilepm.domain.model.tenant.TenantId;
 import com.saasovation.common.port.adapter.persistence.leveldb.AbstractLevelDBRepository;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBIndexMigrationTool;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
 import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
 
@@ -34,85 +34,48 @@ public class LevelDBTeamRepository
 
     public LevelDBTeamRepository() {
         super(LevelDBDatabasePath.agilePMPath());
+
+        new LevelDBIndexMigrationTool(
+                this.database(),
+                TEAM_OF_TENANT)
+            .migrateDatabase();
     }
 
     @Override
     public Collection<Team> allTeamsOfTenant(TenantId aTenantId) {
-        List<Team> teams = new ArrayList<Team>();
-
         LevelDBKey teamsOfTenant = new LevelDBKey(TEAM_OF_TENANT, aTenantId.id());
 
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        List<Object> keys = uow.readKeys(teamsOfTenant);
-
-        for (Object teamId : keys) {
-            Team team = uow.readObject(teamId.toString().getBytes(), Team.class);
-
-            if (team != null) {
-                teams.add(team);
-            }
-        }
+        List<Team> teams =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(teamsOfTenant, Team.class);
 
         return teams;
     }
 
     @Override
     public void remove(Team aTeam) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aTeam.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.remove(aTeam, uow);
+        this.remove(aTeam, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void removeAll(Collection<Team> aTeamCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Team team : aTeamCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, team.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.remove(team, uow);
         }
     }
 
     @Override
     public void save(Team aTeam) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY, aTeam.tenantId().id());
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
-
-        uow.lock(lockKey.key());
-
-        this.save(aTeam, uow);
+        this.save(aTeam, LevelDBUnitOfWork.current());
     }
 
     @Override
     public void saveAll(Collection<Team> aTeamCollection) {
-        boolean locked = false;
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.current();
 
         for (Team team : aTeamCollection) {
-            if (!locked) {
-                LevelDBKey lockKey = new LevelDBKey(PRIMARY, team.tenantId().id());
-
-                uow.lock(lockKey.key());
-
-                locked = true;
-            }
-
             this.save(team, uow);
         }
     }
@@ -130,17 +93,20 @@ public class LevelDBTeamRepository
 
     private void remove(Team aTeam, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aTeam.tenantId().id(), aTeam.name());
+        aUoW.lock(primaryKey.key());
         aUoW.remove(primaryKey);
 
         LevelDBKey teamOfTenant = new LevelDBKey(primaryKey, TEAM_OF_TENANT, aTeam.tenantId().id());
-        aUoW.removeKeyReference(teamOfTenant);
+        aUoW.removeIndexEntry(teamOfTenant);
     }
 
     private void save(Team aTeam, LevelDBUnitOfWork aUoW) {
         LevelDBKey primaryKey = new LevelDBKey(PRIMARY, aTeam.tenantId().id(), aTeam.name());
-        aUoW.write(primaryKey, aTeam);
+        aUoW.lock(primaryKey.key());
+
+        LevelDBConcurrencyVersions.writeVersioned(aUoW, primaryKey, aTeam);
 
         LevelDBKey teamOfTenant = new LevelDBKey(primaryKey, TEAM_OF_TENANT, aTeam.tenantId().id());
-        aUoW.updateKeyReference(teamOfTenant);
+        aUoW.updateIndexEntry(teamOfTenant);
     }
 }
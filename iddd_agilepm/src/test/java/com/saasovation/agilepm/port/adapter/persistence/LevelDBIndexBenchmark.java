@@ -0,0 +1,188 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.agilepm.port.adapter.persistence;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.iq80.leveldb.DB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.agilepm.domain.model.product.ProductId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItem;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemStatus;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemType;
+import com.saasovation.agilepm.domain.model.product.backlogitem.StoryPoints;
+import com.saasovation.agilepm.domain.model.tenant.TenantId;
+import com.saasovation.common.domain.model.DomainEventPublisher;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBProvider;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
+
+/**
+ * Saves one backlog item of a product, and lists all backlog items
+ * of the product, with its index kept either as a single key holding
+ * the set of all primary keys ("set") or as one key per entry read
+ * by prefix ("entry").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LevelDBIndexBenchmark {
+
+    private static final String PRIMARY = "BLI#PK";
+    private static final String PRODUCT_BACKLOG_ITEMS = "BLI#PROD";
+
+    @Param({ "50000" })
+    public int backlogItemCount;
+
+    @Param({ "set", "entry" })
+    public String index;
+
+    private DB database;
+    private int nextBacklogItem;
+    private ProductId productId;
+    private TenantId tenantId;
+
+    @Setup
+    public void setUp() {
+        DomainEventPublisher.instance().reset();
+
+        this.database = LevelDBProvider.instance().databaseFrom(LevelDBDatabasePath.agilePMPath());
+
+        LevelDBProvider.instance().purge(this.database);
+
+        this.tenantId = new TenantId("T12345");
+        this.productId = new ProductId("P12345");
+
+        Set<Object> primaryKeys = new HashSet<Object>();
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database);
+
+        for (int idx = 0; idx < this.backlogItemCount; ++idx) {
+            LevelDBKey primaryKey = this.write(uow, this.backlogItemOf(idx));
+
+            if (this.isSetIndex()) {
+                primaryKeys.add(primaryKey.key());
+            } else {
+                this.index(uow, primaryKey);
+            }
+        }
+
+        if (this.isSetIndex()) {
+
+            // written whole, rather than grown one key at a time
+
+            uow.write(this.productBacklogItems(), primaryKeys);
+        }
+
+        uow.commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        LevelDBProvider.instance().purge(this.database);
+    }
+
+    @Benchmark
+    public int listBacklogItems() {
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database);
+
+        if (!this.isSetIndex()) {
+            return uow.readIndexedObjects(this.productBacklogItems(), BacklogItem.class).size();
+        }
+
+        List<Object> keys = uow.readKeys(this.productBacklogItems());
+
+        int count = 0;
+
+        for (Object backlogItemId : keys) {
+            if (uow.readObject(backlogItemId.toString().getBytes(), BacklogItem.class) != null) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public LevelDBKey saveBacklogItem() {
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database);
+
+        LevelDBKey primaryKey =
+                this.write(uow, this.backlogItemOf(this.nextBacklogItem++ % this.backlogItemCount));
+
+        this.index(uow, primaryKey);
+
+        uow.commit();
+
+        return primaryKey;
+    }
+
+    private BacklogItem backlogItemOf(int anIndex) {
+        return new BacklogItem(
+                this.tenantId,
+                this.productId,
+                new BacklogItemId("bli" + anIndex),
+                "Backlog item " + anIndex,
+                "Domain Model",
+                BacklogItemType.FEATURE,
+                BacklogItemStatus.PLANNED,
+                StoryPoints.FIVE);
+    }
+
+    private void index(LevelDBUnitOfWork aUoW, LevelDBKey aPrimaryKey) {
+        LevelDBKey productBacklogItems = new LevelDBKey(aPrimaryKey, PRODUCT_BACKLOG_ITEMS, this.tenantId.id(), this.productId.id());
+
+        if (this.isSetIndex()) {
+            aUoW.updateKeyReference(productBacklogItems);
+        } else {
+            aUoW.updateIndexEntry(productBacklogItems);
+        }
+    }
+
+    private boolean isSetIndex() {
+        return "set".equals(this.index);
+    }
+
+    private LevelDBKey productBacklogItems() {
+        return new LevelDBKey(PRODUCT_BACKLOG_ITEMS, this.tenantId.id(), this.productId.id());
+    }
+
+    private LevelDBKey write(LevelDBUnitOfWork aUoW, BacklogItem aBacklogItem) {
+        LevelDBKey primaryKey = new LevelDBKey(PRIMARY, this.tenantId.id(), aBacklogItem.backlogItemId().id());
+        aUoW.write(primaryKey, aBacklogItem);
+
+        return primaryKey;
+    }
+}
@@ -0,0 +1,120 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.agilepm.port.adapter.persistence;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.iq80.leveldb.DB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.agilepm.domain.model.product.ProductId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItem;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemStatus;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemType;
+import com.saasovation.agilepm.domain.model.product.backlogitem.StoryPoints;
+import com.saasovation.agilepm.domain.model.tenant.TenantId;
+import com.saasovation.common.domain.model.DomainEventPublisher;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBKey;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBProvider;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
+
+/**
+ * Saves backlog items of many tenants and products from several
+ * threads at once. Each unit of work locks the backlog item it saves,
+ * and with a lockScope of "tenant" also its whole tenant, as all
+ * saves did before, so that the two may be compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(8)
+@Fork(1)
+public class LevelDBLockContentionBenchmark {
+
+    @Param({ "tenant", "aggregate" })
+    public String lockScope;
+
+    @Param({ "4" })
+    public int tenantCount;
+
+    @Param({ "16" })
+    public int productCount;
+
+    private LevelDBBacklogItemRepository backlogItemRepository;
+    private DB database;
+
+    @Setup
+    public void setUp() {
+        DomainEventPublisher.instance().reset();
+
+        this.database = LevelDBProvider.instance().databaseFrom(LevelDBDatabasePath.agilePMPath());
+
+        LevelDBProvider.instance().purge(this.database);
+
+        this.backlogItemRepository = new LevelDBBacklogItemRepository();
+    }
+
+    @TearDown
+    public void tearDown() {
+        LevelDBProvider.instance().purge(this.database);
+    }
+
+    @Benchmark
+    public BacklogItem saveBacklogItem() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        TenantId tenantId = new TenantId("T" + random.nextInt(this.tenantCount));
+
+        BacklogItem backlogItem =
+                new BacklogItem(
+                        tenantId,
+                        new ProductId("P" + random.nextInt(this.productCount)),
+                        new BacklogItemId("bli" + random.nextInt(1000)),
+                        "Backlog item",
+                        "Domain Model",
+                        BacklogItemType.FEATURE,
+                        BacklogItemStatus.PLANNED,
+                        StoryPoints.FIVE);
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database);
+
+        if ("tenant".equals(this.lockScope)) {
+            uow.lock(new LevelDBKey("BLI#PK", tenantId.id()).key());
+        }
+
+        this.backlogItemRepository.save(backlogItem);
+
+        uow.commit();
+
+        return backlogItem;
+    }
+}
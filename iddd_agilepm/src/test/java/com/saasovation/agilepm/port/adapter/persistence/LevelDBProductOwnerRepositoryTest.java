@@ -210,9 +210,10 @@ public class LevelDBProductOwnerRepositoryTest extends TestCase {
         LevelDBUnitOfWork.current().commit();
         orderOfCommits.add(1);
 
-        for (int idx = 0; idx < orderOfCommits.size(); ++idx) {
-            assertEquals(idx + 1, orderOfCommits.get(idx).intValue());
-        }
+        // each aggregate is locked by itself, so the other unit
+        // of work commits without waiting on this one
+
+        assertEquals(Arrays.asList(2, 1), orderOfCommits);
 
         Thread.sleep(250L);
 
@@ -122,6 +122,38 @@ public class LevelDBTeamRepositoryTest extends TestCase {
         assertTrue(savedTeams.isEmpty());
     }
 
+    public void testRolledBackSaveKeepsVersion() throws Exception {
+        Team team = new Team(new TenantId("12345"), "team1");
+
+        LevelDBUnitOfWork.start(this.database);
+        teamRepository.save(team);
+
+        // the version advances only once the save commits
+
+        assertEquals(0, team.concurrencyVersion());
+
+        LevelDBUnitOfWork.current().commit();
+
+        assertEquals(1, team.concurrencyVersion());
+
+        LevelDBUnitOfWork.start(this.database);
+        teamRepository.save(team);
+        LevelDBUnitOfWork.current().rollback();
+
+        assertEquals(1, team.concurrencyVersion());
+
+        Team savedTeam = teamRepository.teamNamed(team.tenantId(), team.name());
+
+        assertEquals(1, savedTeam.concurrencyVersion());
+
+        LevelDBUnitOfWork.start(this.database);
+        teamRepository.save(savedTeam);
+        LevelDBUnitOfWork.current().commit();
+
+        assertEquals(2, savedTeam.concurrencyVersion());
+        assertEquals(2, teamRepository.teamNamed(team.tenantId(), team.name()).concurrencyVersion());
+    }
+
     public void testConcurrentTransactions() throws Exception {
         final List<Integer> orderOfCommits = new ArrayList<Integer>();
 
@@ -147,9 +179,10 @@ public class LevelDBTeamRepositoryTest extends TestCase {
         LevelDBUnitOfWork.current().commit();
         orderOfCommits.add(1);
 
-        for (int idx = 0; idx < orderOfCommits.size(); ++idx) {
-            assertEquals(idx + 1, orderOfCommits.get(idx).intValue());
-        }
+        // each aggregate is locked by itself, so the other unit
+        // of work commits without waiting on this one
+
+        assertEquals(Arrays.asList(2, 1), orderOfCommits);
 
         Thread.sleep(250L);
 
@@ -0,0 +1,153 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.agilepm.port.adapter.persistence;
+
+import java.util.concurrent.TimeUnit;
+
+import org.iq80.leveldb.DB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.agilepm.domain.model.discussion.DiscussionAvailability;
+import com.saasovation.agilepm.domain.model.product.Product;
+import com.saasovation.agilepm.domain.model.product.ProductId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItem;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemStatus;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemType;
+import com.saasovation.agilepm.domain.model.product.backlogitem.StoryPoints;
+import com.saasovation.agilepm.domain.model.team.ProductOwnerId;
+import com.saasovation.agilepm.domain.model.tenant.TenantId;
+import com.saasovation.common.domain.model.DomainEventPublisher;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBProvider;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBUnitOfWork;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBValueCache;
+
+/**
+ * Runs a backlog item command as an application service would: in
+ * one unit of work it reads the product, lists its backlog items,
+ * reads the one commanded twice more, changes and saves it, and
+ * commits. The shared cache is disabled with a size of 0, leaving
+ * only the identity map of each unit of work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LevelDBUnitOfWorkCacheBenchmark {
+
+    @Param({ "0", "16777216" })
+    public long cacheBytes;
+
+    @Param({ "20" })
+    public int backlogItemCount;
+
+    private BacklogItemId[] backlogItemIds;
+    private LevelDBBacklogItemRepository backlogItemRepository;
+    private DB database;
+    private int nextBacklogItem;
+    private ProductId productId;
+    private LevelDBProductRepository productRepository;
+    private TenantId tenantId;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(LevelDBValueCache.PROPERTY_NAME, Long.toString(this.cacheBytes));
+
+        DomainEventPublisher.instance().reset();
+
+        this.database = LevelDBProvider.instance().databaseFrom(LevelDBDatabasePath.agilePMPath());
+
+        LevelDBProvider.instance().purge(this.database);
+
+        this.backlogItemRepository = new LevelDBBacklogItemRepository();
+        this.productRepository = new LevelDBProductRepository();
+        this.tenantId = new TenantId("T12345");
+        this.productId = new ProductId("P12345");
+        this.backlogItemIds = new BacklogItemId[this.backlogItemCount];
+
+        LevelDBUnitOfWork.start(this.database);
+
+        this.productRepository.save(
+                new Product(
+                        this.tenantId,
+                        this.productId,
+                        new ProductOwnerId(this.tenantId, "thepm"),
+                        "My Product",
+                        "My product, which is my product.",
+                        DiscussionAvailability.NOT_REQUESTED));
+
+        for (int idx = 0; idx < this.backlogItemCount; ++idx) {
+            this.backlogItemIds[idx] = new BacklogItemId("bli" + idx);
+
+            this.backlogItemRepository.save(
+                    new BacklogItem(
+                            this.tenantId,
+                            this.productId,
+                            this.backlogItemIds[idx],
+                            "Backlog item " + idx,
+                            "Domain Model",
+                            BacklogItemType.FEATURE,
+                            BacklogItemStatus.PLANNED,
+                            StoryPoints.FIVE));
+        }
+
+        LevelDBUnitOfWork.current().commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("\n" + LevelDBValueCache.of(this.database));
+
+        LevelDBProvider.instance().purge(this.database);
+    }
+
+    @Benchmark
+    public BacklogItem summarizeBacklogItem() {
+        BacklogItemId backlogItemId =
+                this.backlogItemIds[this.nextBacklogItem++ % this.backlogItemIds.length];
+
+        LevelDBUnitOfWork.start(this.database);
+
+        this.productRepository.productOfId(this.tenantId, this.productId);
+
+        this.backlogItemRepository.allProductBacklogItems(this.tenantId, this.productId);
+
+        this.backlogItemRepository.backlogItemOfId(this.tenantId, backlogItemId);
+
+        BacklogItem backlogItem =
+                this.backlogItemRepository.backlogItemOfId(this.tenantId, backlogItemId);
+
+        backlogItem.summarize("Backlog item summarized " + this.nextBacklogItem);
+
+        this.backlogItemRepository.save(backlogItem);
+
+        LevelDBUnitOfWork.current().commit();
+
+        return backlogItem;
+    }
+}
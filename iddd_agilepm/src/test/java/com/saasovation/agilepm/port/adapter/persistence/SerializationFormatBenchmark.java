@@ -0,0 +1,125 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.agilepm.port.adapter.persistence;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.agilepm.domain.model.product.ProductId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItem;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemCommitted;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemId;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemStatus;
+import com.saasovation.agilepm.domain.model.product.backlogitem.BacklogItemType;
+import com.saasovation.agilepm.domain.model.product.backlogitem.StoryPoints;
+import com.saasovation.agilepm.domain.model.product.sprint.SprintId;
+import com.saasovation.agilepm.domain.model.team.TeamMember;
+import com.saasovation.agilepm.domain.model.tenant.TenantId;
+import com.saasovation.common.serializer.BinarySerializationFormat;
+import com.saasovation.common.serializer.FormattedSerializer;
+import com.saasovation.common.serializer.JSONSerializationFormat;
+
+/**
+ * Serializes and deserializes an event as the LevelDB event store
+ * and journal keep it after its type name, and an aggregate as the
+ * LevelDBUnitOfWork stores it, in each SerializationFormat. The
+ * size of each serialization is printed by setUp().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializationFormatBenchmark {
+
+    @Param({ "json", "binary" })
+    public String format;
+
+    @Param({ "BacklogItemCommitted", "BacklogItem" })
+    public String type;
+
+    private Object object;
+    private byte[] serialization;
+    private FormattedSerializer serializer;
+
+    @Setup
+    public void setUp() {
+        TenantId tenantId = new TenantId("8c1f9e5a-6c2b-4b5e-9d3f-0e1a2b3c4d5e");
+        BacklogItemId backlogItemId = new BacklogItemId("2f9a3c1e-7d4b-4e8a-b6c5-1a2b3c4d5e6f");
+
+        if (this.type.equals("BacklogItem")) {
+            BacklogItem backlogItem =
+                    new BacklogItem(
+                            tenantId,
+                            new ProductId("5a6b7c8d-9e0f-4a1b-8c2d-3e4f5a6b7c8d"),
+                            backlogItemId,
+                            "Allow users to browse the product backlog.",
+                            "Backlog",
+                            BacklogItemType.FEATURE,
+                            BacklogItemStatus.PLANNED,
+                            StoryPoints.EIGHT);
+
+            TeamMember teamMember =
+                    new TeamMember(tenantId, "zoe", "Zoe", "Doe", "zoe@saasovation.com", new Date());
+
+            for (int idx = 1; idx <= 4; ++idx) {
+                backlogItem.defineTask(teamMember, "Task " + idx, "Description of task " + idx, idx * 4);
+            }
+
+            this.object = backlogItem;
+        } else {
+            this.object =
+                    new BacklogItemCommitted(
+                            tenantId,
+                            backlogItemId,
+                            new SprintId("0e1f2a3b-4c5d-4e6f-8a7b-9c0d1e2f3a4b"));
+        }
+
+        this.serializer =
+                new FormattedSerializer(
+                        this.format.equals("binary")
+                            ? new BinarySerializationFormat()
+                            : new JSONSerializationFormat());
+
+        this.serialization = this.serializer.serialize(this.object);
+
+        System.out.println(
+                "\n" + this.type + " as " + this.format + ": "
+                + this.serialization.length + " bytes");
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return this.serializer.deserialize(this.serialization, this.object.getClass());
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return this.serializer.serialize(this.object);
+    }
+}
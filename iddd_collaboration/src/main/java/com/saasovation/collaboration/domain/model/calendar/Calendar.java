@@ -16,6 +16,7 @@ package com.saasovation.collaboration.domain.model.calendar;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -104,6 +105,17 @@ public class Calendar extends EventSourcedRootEntity {
         super(anEventStream, aStreamVersion);
     }
 
+    /**
+     *<h3>根据逐个读取的事件流重建聚合</h3>
+     *<p>用于重放很长的事件流，事件按需读取，不需要将整个事件流读入内存。
+     *事件流必须从版本1开始，重放的事件个数即事件流版本号。
+     *
+     * @param anEventStream
+     */
+    public Calendar(Iterator<DomainEvent> anEventStream) {
+        super(anEventStream);
+    }
+
     /**
      *<h3>获取日历（接收）共享者</h3>
      *<p>“日历（接收）共享者”状态的获取方法，作用同getter，但是更具有领域（业务）含义。
@@ -14,6 +14,7 @@
 
 package com.saasovation.collaboration.domain.model.forum;
 
+import java.util.Iterator;
 import java.util.List;
 
 import com.saasovation.collaboration.domain.model.collaborator.Author;
@@ -56,6 +57,17 @@ public class Discussion extends EventSourcedRootEntity {
         super(anEventStream, aStreamVersion);
     }
 
+    /**
+     *<h3>根据逐个读取的事件流重建聚合</h3>
+     *<p>用于重放很长的事件流，事件按需读取，不需要将整个事件流读入内存。
+     *事件流必须从版本1开始，重放的事件个数即事件流版本号。
+     *
+     * @param anEventStream
+     */
+    public Discussion(Iterator<DomainEvent> anEventStream) {
+        super(anEventStream);
+    }
+
     public Author author() {
         return this.author;
     }
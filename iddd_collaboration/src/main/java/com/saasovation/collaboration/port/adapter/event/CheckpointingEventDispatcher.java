@@ -0,0 +1,28 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.event;
+
+import com.saasovation.common.event.sourcing.EventDispatcher;
+
+/**
+ * An EventDispatcher that may keep a checkpoint for each dispatcher
+ * registered with it, under the name given at registration. A name
+ * must be unique among the registered dispatchers and stable across
+ * restarts, whatever the class of its dispatcher is named.
+ */
+public interface CheckpointingEventDispatcher extends EventDispatcher {
+
+    public void registerEventDispatcher(String aName, EventDispatcher anEventDispatcher);
+}
@@ -0,0 +1,149 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.event;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lag and latency of a FollowStoreEventDispatcher.
+ *
+ * The lag of a dispatcher is the number of event ids between the
+ * head of the event store, as the follower last read it before a
+ * batch, and the dispatcher's checkpoint.
+ *
+ * The dispatch latency of an event is the time from its occurrence
+ * until every dispatcher that follows it has checkpointed it.
+ */
+public class DispatchMetrics {
+
+    private Map<String, Long> checkpoints;
+    private AtomicLong dispatchedEvents;
+    private AtomicLong failedDispatches;
+    private AtomicLong headEventId;
+    private AtomicLong lastDispatchLatency;
+    private AtomicLong maximumDispatchLatency;
+    private AtomicLong totalDispatchLatency;
+
+    public DispatchMetrics() {
+        super();
+
+        this.checkpoints = new ConcurrentHashMap<String, Long>();
+        this.dispatchedEvents = new AtomicLong();
+        this.failedDispatches = new AtomicLong();
+        this.headEventId = new AtomicLong();
+        this.lastDispatchLatency = new AtomicLong();
+        this.maximumDispatchLatency = new AtomicLong();
+        this.totalDispatchLatency = new AtomicLong();
+    }
+
+    public Map<String, Long> checkpoints() {
+        return Collections.unmodifiableMap(new HashMap<String, Long>(this.checkpoints));
+    }
+
+    public long dispatchedEvents() {
+        return this.dispatchedEvents.get();
+    }
+
+    public long failedDispatches() {
+        return this.failedDispatches.get();
+    }
+
+    public long headEventId() {
+        return this.headEventId.get();
+    }
+
+    public long lag() {
+        long lag = 0;
+
+        for (String dispatcherName : this.checkpoints.keySet()) {
+            lag = Math.max(lag, this.lagOf(dispatcherName));
+        }
+
+        return lag;
+    }
+
+    public long lagOf(String aDispatcherName) {
+        Long checkpoint = this.checkpoints.get(aDispatcherName);
+
+        if (checkpoint == null) {
+            return this.headEventId();
+        }
+
+        return Math.max(0, this.headEventId() - checkpoint.longValue());
+    }
+
+    public long lastDispatchLatencyMillis() {
+        return this.lastDispatchLatency.get();
+    }
+
+    public long maximumDispatchLatencyMillis() {
+        return this.maximumDispatchLatency.get();
+    }
+
+    public long meanDispatchLatencyMillis() {
+        long dispatchedEvents = this.dispatchedEvents();
+
+        if (dispatchedEvents == 0) {
+            return 0;
+        }
+
+        return this.totalDispatchLatency.get() / dispatchedEvents;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchMetrics [headEventId=" + this.headEventId()
+                + " lag=" + this.lag()
+                + " dispatchedEvents=" + this.dispatchedEvents()
+                + " failedDispatches=" + this.failedDispatches()
+                + " lastDispatchLatencyMillis=" + this.lastDispatchLatencyMillis()
+                + " meanDispatchLatencyMillis=" + this.meanDispatchLatencyMillis()
+                + " maximumDispatchLatencyMillis=" + this.maximumDispatchLatencyMillis()
+                + "]";
+    }
+
+    void checkpointed(String aDispatcherName, long anEventId) {
+        this.checkpoints.put(aDispatcherName, anEventId);
+    }
+
+    void dispatched(long aDispatchLatencyMillis) {
+        this.dispatchedEvents.incrementAndGet();
+        this.lastDispatchLatency.set(aDispatchLatencyMillis);
+        this.totalDispatchLatency.addAndGet(aDispatchLatencyMillis);
+
+        long maximum = this.maximumDispatchLatency.get();
+
+        while (aDispatchLatencyMillis > maximum
+                && !this.maximumDispatchLatency.compareAndSet(maximum, aDispatchLatencyMillis)) {
+            maximum = this.maximumDispatchLatency.get();
+        }
+    }
+
+    void failed() {
+        this.failedDispatches.incrementAndGet();
+    }
+
+    void observedHead(long anEventId) {
+        long head = this.headEventId.get();
+
+        while (anEventId > head && !this.headEventId.compareAndSet(head, anEventId)) {
+            head = this.headEventId.get();
+        }
+    }
+}
@@ -19,7 +19,19 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
@@ -28,19 +40,89 @@ import com.saasovation.common.domain.model.DomainEventPublisher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.event.sourcing.EventNotifiable;
+import com.saasovation.common.port.adapter.persistence.AbstractProjection;
 import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
+import com.saasovation.common.port.adapter.persistence.ProjectionUnitOfWork;
 
-public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifiable {
+/**
+ * Follows the event store and dispatches its events to the
+ * registered EventDispatchers.
+ *
+ * Constructed with only a DataSource I dispatch synchronously on
+ * the appending thread, committing all dispatcher work together
+ * with the single last dispatched event id.
+ *
+ * Constructed with a partition count and batch size I dispatch
+ * asynchronously: an append only signals my dispatcher thread,
+ * which reads bounded batches and hands them to a worker pool.
+ * Each projection receives its events partitioned by stream name,
+ * so different streams are projected in parallel while the events
+ * of a single stream stay in order. Any other dispatcher, such as
+ * one publishing to the message bus, receives each batch whole and
+ * in event id order. Every dispatcher keeps its own checkpoint in
+ * tbl_dispatcher_checkpoint, under the name it was registered by,
+ * and reads its batches from there, sharing each read with those
+ * at the same checkpoint. One that fails is parked for a while and
+ * then retried from its checkpoint, while the others keep reading
+ * past it, and delivery is at least once. The
+ * tbl_dispatcher_last_event row holds the lowest checkpoint. The
+ * thread bound DomainEventPublisher is published to only when
+ * dispatching synchronously.
+ *
+ * Projections rebuilt elsewhere are handed back to me between two
+ * batches, from the event id at which their rebuild stopped.
+ */
+public class FollowStoreEventDispatcher implements CheckpointingEventDispatcher, EventNotifiable {
 
+    private static final long IDLE_POLL_MILLIS = 1000L;
+
+    private boolean asynchronous;
+    private int batchSize;
+    private volatile boolean closed;
+    private final Object dispatchLock = new Object();
     private DataSource collaborationDataSource;
-    private long lastDispatchedEventId;
-    private List<EventDispatcher> registeredDispatchers;
+    private Thread dispatcherThread;
+    private List<Follower> followers;
+    private volatile long lastDispatchedEventId;
+    private DispatchMetrics metrics;
+    private int partitionCount;
+    private boolean signaled;
+    private final Object signalLock = new Object();
+    private ExecutorService workers;
 
     public FollowStoreEventDispatcher(DataSource aDataSource) {
+        this(aDataSource, 1, 1, false);
+    }
+
+    public FollowStoreEventDispatcher(
+            DataSource aDataSource,
+            int aPartitionCount,
+            int aBatchSize) {
+
+        this(aDataSource, aPartitionCount, aBatchSize, true);
+    }
+
+    private FollowStoreEventDispatcher(
+            DataSource aDataSource,
+            int aPartitionCount,
+            int aBatchSize,
+            boolean isAsynchronous) {
+
         super();
 
+        if (aPartitionCount < 1) {
+            throw new IllegalArgumentException("The partition count must be at least 1.");
+        }
+        if (aBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be at least 1.");
+        }
+
+        this.setAsynchronous(isAsynchronous);
+        this.setBatchSize(aBatchSize);
         this.setCollaborationDataSource(aDataSource);
-        this.setRegisteredDispatchers(new ArrayList<EventDispatcher>());
+        this.setFollowers(new CopyOnWriteArrayList<Follower>());
+        this.setMetrics(new DispatchMetrics());
+        this.setPartitionCount(aPartitionCount);
 
         EventStoreProvider
             .instance()
@@ -48,33 +130,416 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
 
         this.setLastDispatchedEventId(this.queryLastDispatchedEventId());
 
+        if (this.isAsynchronous()) {
+            this.startDispatching();
+        }
+
         this.notifyDispatchableEvents();
     }
 
+    public void close() {
+        if (!this.isAsynchronous() || this.closed) {
+            return;
+        }
+
+        this.closed = true;
+
+        this.signal();
+
+        try {
+            this.dispatcherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.workers.shutdown();
+    }
+
     @Override
     public void dispatch(DispatchableDomainEvent aDispatchableDomainEvent) {
         DomainEventPublisher.instance().publish(aDispatchableDomainEvent.domainEvent());
 
-        for (EventDispatcher eventDispatcher : this.registeredDispatchers()) {
-           eventDispatcher.dispatch(aDispatchableDomainEvent);
+        for (Follower follower : this.followers()) {
+           follower.dispatcher().dispatch(aDispatchableDomainEvent);
+        }
+    }
+
+    /**
+     * Hands aProjections over to their rebuilt tables. While no batch
+     * is being dispatched, aHandOff completes the rebuild and answers
+     * the id of the last event it projected. I then continue each of
+     * aProjections just after that event id, checkpointing it when I
+     * dispatch asynchronously. Dispatching synchronously I first
+     * dispatch all stored events, so only events appended during the
+     * hand off reach the rebuilt tables a second time.
+     */
+    public void handOffProjections(
+            Collection<? extends EventDispatcher> aProjections,
+            Callable<Long> aHandOff) {
+
+        synchronized (this.dispatchLock) {
+            if (!this.isAsynchronous()) {
+                this.dispatchSynchronously();
+            }
+
+            long handOffEventId = 0;
+
+            try {
+                handOffEventId = aHandOff.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        "Cannot hand off projections because: "
+                            + e.getMessage(),
+                        e);
+            }
+
+            if (!this.isAsynchronous()) {
+                return;
+            }
+
+            List<Follower> handedOff = new ArrayList<Follower>();
+
+            for (Follower follower : this.followers()) {
+                if (aProjections.contains(follower.dispatcher())) {
+                    handedOff.add(follower);
+                }
+            }
+
+            Connection connection = this.connection();
+
+            try {
+                for (Follower follower : handedOff) {
+                    this.saveCheckpoint(connection, follower.name(), handOffEventId);
+                }
+
+                connection.commit();
+
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        "Cannot save hand off checkpoints because: "
+                            + e.getMessage(),
+                        e);
+            } finally {
+                ConnectionProvider.closeConnection();
+            }
+
+            for (Follower follower : handedOff) {
+                follower.setCheckpoint(handOffEventId);
+                follower.unpark();
+
+                this.metrics().checkpointed(follower.name(), handOffEventId);
+            }
         }
+
+        this.signal();
+    }
+
+    public DispatchMetrics metrics() {
+        return this.metrics;
     }
 
     @Override
     public void notifyDispatchableEvents() {
+        if (this.isAsynchronous()) {
+            this.signal();
+        } else {
+            synchronized (this.dispatchLock) {
+                this.dispatchSynchronously();
+            }
+        }
+    }
+
+    /**
+     * Registers anEventDispatcher by the name of its class, which is
+     * only allowed when I dispatch synchronously, as I then keep no
+     * checkpoint of its own.
+     */
+    @Override
+    public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
+        if (this.isAsynchronous()) {
+            throw new IllegalArgumentException(
+                    "An asynchronously dispatched "
+                        + anEventDispatcher.getClass().getName()
+                        + " must be registered by name.");
+        }
+
+        this.registerEventDispatcher(anEventDispatcher.getClass().getName(), anEventDispatcher);
+    }
+
+    /**
+     * Registers anEventDispatcher by aName, under which I keep its
+     * checkpoint when I dispatch asynchronously.
+     */
+    @Override
+    public void registerEventDispatcher(String aName, EventDispatcher anEventDispatcher) {
+        if (aName == null || aName.trim().isEmpty()) {
+            throw new IllegalArgumentException("The dispatcher name must be provided.");
+        }
+
+        Follower follower =
+                new Follower(
+                        aName,
+                        anEventDispatcher,
+                        anEventDispatcher instanceof AbstractProjection);
+
+        synchronized (this.followers()) {
+            if (this.isAsynchronous()) {
+                for (Follower registered : this.followers()) {
+                    if (registered.name().equals(aName)) {
+                        throw new IllegalArgumentException(
+                                "A dispatcher is already registered as: " + aName);
+                    }
+                }
+
+                follower.setCheckpoint(this.queryCheckpoint(aName));
+            } else {
+                follower.setCheckpoint(this.lastDispatchedEventId());
+            }
+
+            this.metrics().checkpointed(aName, follower.checkpoint());
+
+            this.followers().add(follower);
+        }
+
+        if (this.isAsynchronous()) {
+            this.signal();
+        }
+    }
+
+    @Override
+    public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
+        return true;
+    }
+
+    private List<Follower> awaitCompletionOf(Map<Follower, List<Future<Void>>> aDispatches) {
+        List<Follower> completed = new ArrayList<Follower>();
+
+        for (Map.Entry<Follower, List<Future<Void>>> dispatch : aDispatches.entrySet()) {
+            boolean failed = false;
+
+            for (Future<Void> partitionDispatch : dispatch.getValue()) {
+                try {
+                    partitionDispatch.get();
+                } catch (ExecutionException e) {
+                    failed = true;
+
+                    System.out.println(
+                            "FollowStoreEventDispatcher: "
+                            + dispatch.getKey().name()
+                            + " will be retried from event "
+                            + dispatch.getKey().checkpoint()
+                            + " because: "
+                            + e.getCause());
+                } catch (InterruptedException e) {
+                    failed = true;
+
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (failed) {
+                dispatch.getKey().park(IDLE_POLL_MILLIS);
+
+                this.metrics().failed();
+            } else {
+                completed.add(dispatch.getKey());
+            }
+        }
+
+        return completed;
+    }
+
+    private void awaitSignal(long aTimeoutMillis) {
+        synchronized (this.signalLock) {
+            try {
+                if (!this.signaled && !this.closed) {
+                    this.signalLock.wait(aTimeoutMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            this.signaled = false;
+        }
+    }
+
+    private void checkpoint(
+            List<Follower> aCompletedFollowers,
+            List<Follower> aFollowers,
+            Map<Follower, List<DispatchableDomainEvent>> aBatches) {
+
+        long lowestCheckpoint = this.lowestCheckpointOf(aFollowers);
+        long nextLowestCheckpoint = Long.MAX_VALUE;
+
+        for (Follower follower : aFollowers) {
+            long checkpoint = follower.checkpoint();
+
+            if (aCompletedFollowers.contains(follower)) {
+                checkpoint = Math.max(checkpoint, this.lastEventIdOf(aBatches.get(follower)));
+            }
+
+            nextLowestCheckpoint = Math.min(nextLowestCheckpoint, checkpoint);
+        }
+
+        Connection connection = this.connection();
+
+        try {
+            for (Follower follower : aCompletedFollowers) {
+                long batchEnd = this.lastEventIdOf(aBatches.get(follower));
+
+                if (follower.checkpoint() < batchEnd) {
+                    this.saveCheckpoint(connection, follower.name(), batchEnd);
+                }
+            }
+
+            if (nextLowestCheckpoint > this.lastDispatchedEventId()) {
+                this.saveLastDispatchedEventId(connection, nextLowestCheckpoint);
+            }
+
+            connection.commit();
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot save dispatcher checkpoints because: "
+                        + e.getMessage(),
+                    e);
+        } finally {
+            ConnectionProvider.closeConnection();
+        }
+
+        // the events through the new lowest checkpoint are now
+        // dispatched by all, and all are in the batch of the
+        // follower that was lowest, unless it was parked
+
+        List<DispatchableDomainEvent> dispatched = new ArrayList<DispatchableDomainEvent>();
+
+        for (Map.Entry<Follower, List<DispatchableDomainEvent>> batch : aBatches.entrySet()) {
+            if (batch.getKey().checkpoint() == lowestCheckpoint) {
+                for (DispatchableDomainEvent event : batch.getValue()) {
+                    if (event.eventId() <= nextLowestCheckpoint) {
+                        dispatched.add(event);
+                    }
+                }
+
+                break;
+            }
+        }
+
+        for (Follower follower : aCompletedFollowers) {
+            long batchEnd = this.lastEventIdOf(aBatches.get(follower));
+
+            if (follower.checkpoint() < batchEnd) {
+                follower.setCheckpoint(batchEnd);
+
+                this.metrics().checkpointed(follower.name(), batchEnd);
+            }
+        }
+
+        this.setLastDispatchedEventId(Math.max(this.lastDispatchedEventId(), nextLowestCheckpoint));
 
-        // this could be multi-threaded from here,
-        // but is not for simplicity
+        this.recordDispatched(dispatched);
+    }
+
+    private void dispatchAsynchronously() {
+        List<Follower> followers = new ArrayList<Follower>(this.followers());
+
+        List<Follower> dispatching = new ArrayList<Follower>();
+
+        for (Follower follower : followers) {
+            if (!follower.isParked()) {
+                dispatching.add(follower);
+            }
+        }
+
+        // each follower reads its batch from its own checkpoint, and
+        // followers at one checkpoint share one read. a follower that
+        // fails is parked, and the others continue without it.
+
+        Map<Long, List<DispatchableDomainEvent>> batchesByCheckpoint =
+                new HashMap<Long, List<DispatchableDomainEvent>>();
+
+        while (!dispatching.isEmpty() && !this.closed) {
+            Map<Follower, List<DispatchableDomainEvent>> batches =
+                    new LinkedHashMap<Follower, List<DispatchableDomainEvent>>();
+
+            for (Follower follower : dispatching) {
+                List<DispatchableDomainEvent> batch = batchesByCheckpoint.get(follower.checkpoint());
+
+                if (batch == null) {
+                    batch = this.eventsSince(follower.checkpoint());
+
+                    batchesByCheckpoint.put(follower.checkpoint(), batch);
+                }
+
+                if (!batch.isEmpty()) {
+                    batches.put(follower, batch);
+                }
+            }
+
+            // the head is read after the batches, so it is never below them
+
+            this.metrics().observedHead(this.headEventId());
+
+            if (batches.isEmpty()) {
+                break;
+            }
+
+            Map<Long, List<DispatchableDomainEvent>> nextBatchesByCheckpoint =
+                    new HashMap<Long, List<DispatchableDomainEvent>>();
+
+            List<Follower> completed = null;
+
+            // projections are handed off only between batches
+
+            synchronized (this.dispatchLock) {
+                Map<Follower, List<Future<Void>>> dispatches = this.submit(batches);
+
+                // read ahead while the workers dispatch these batches; a
+                // short batch means the head was reached when it was read
+
+                for (List<DispatchableDomainEvent> batch : batches.values()) {
+                    long batchEnd = this.lastEventIdOf(batch);
+
+                    if (batch.size() == this.batchSize()
+                            && !nextBatchesByCheckpoint.containsKey(batchEnd)) {
+
+                        nextBatchesByCheckpoint.put(batchEnd, this.eventsSince(batchEnd));
+                    }
+                }
+
+                completed = this.awaitCompletionOf(dispatches);
+
+                this.checkpoint(completed, followers, batches);
+            }
+
+            dispatching = new ArrayList<Follower>();
+
+            for (Follower follower : completed) {
+                if (batches.get(follower).size() == this.batchSize()) {
+                    dispatching.add(follower);
+                }
+            }
+
+            batchesByCheckpoint = nextBatchesByCheckpoint;
+        }
+    }
+
+    private void dispatchSynchronously() {
 
         // child EventDispatchers should use only
         // ConnectionProvider.connection() and
-        // not commit. i will commit and close the
+        // not commit. i will flush the projection
+        // unit of work, commit and close the
         // connection here
 
         Connection connection =
                 ConnectionProvider
                     .connection(this.collaborationDataSource());
 
+        ProjectionUnitOfWork unitOfWork = ProjectionUnitOfWork.start(connection);
+
         try {
             List<DispatchableDomainEvent> undispatchedEvents =
                     EventStoreProvider
@@ -88,6 +553,8 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
                     this.dispatch(event);
                 }
 
+                unitOfWork.flush();
+
                 DispatchableDomainEvent withLastEventId =
                         undispatchedEvents.get(undispatchedEvents.size() - 1);
 
@@ -96,6 +563,16 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
                 this.setLastDispatchedEventId(lastDispatchedEventId);
 
                 this.saveLastDispatchedEventId(connection, lastDispatchedEventId);
+
+                this.metrics().observedHead(lastDispatchedEventId);
+
+                for (Follower follower : this.followers()) {
+                    follower.setCheckpoint(lastDispatchedEventId);
+
+                    this.metrics().checkpointed(follower.name(), lastDispatchedEventId);
+                }
+
+                this.recordDispatched(undispatchedEvents);
             }
 
             connection.commit();
@@ -103,18 +580,134 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
         } catch (Throwable t) {
             throw new IllegalStateException("Cannot dispatch events because: " + t.getMessage(), t);
         } finally {
+            ProjectionUnitOfWork.end();
+
             ConnectionProvider.closeConnection();
         }
     }
 
-    @Override
-    public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
-        this.registeredDispatchers().add(anEventDispatcher);
+    private List<DispatchableDomainEvent> eventsSince(long anEventId) {
+        return EventStoreProvider
+                .instance()
+                .eventStore()
+                .eventsSince(anEventId, this.batchSize());
     }
 
-    @Override
-    public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
-        return true;
+    private long headEventId() {
+        return EventStoreProvider
+                .instance()
+                .eventStore()
+                .lastEventId();
+    }
+
+    private long lastEventIdOf(List<DispatchableDomainEvent> aBatch) {
+        return aBatch.get(aBatch.size() - 1).eventId();
+    }
+
+    private long lowestCheckpointOf(List<Follower> aFollowers) {
+        long lowestCheckpoint = Long.MAX_VALUE;
+
+        for (Follower follower : aFollowers) {
+            lowestCheckpoint = Math.min(lowestCheckpoint, follower.checkpoint());
+        }
+
+        return lowestCheckpoint;
+    }
+
+    private List<List<DispatchableDomainEvent>> partition(
+            Follower aFollower,
+            List<DispatchableDomainEvent> aBatch) {
+
+        int partitionCount = aFollower.isPartitioned() ? this.partitionCount() : 1;
+
+        List<List<DispatchableDomainEvent>> partitions =
+                new ArrayList<List<DispatchableDomainEvent>>(partitionCount);
+
+        for (int idx = 0; idx < partitionCount; ++idx) {
+            partitions.add(new ArrayList<DispatchableDomainEvent>());
+        }
+
+        for (DispatchableDomainEvent event : aBatch) {
+            if (event.eventId() > aFollower.checkpoint()
+                    && aFollower.dispatcher().understands(event)) {
+
+                String streamName = event.streamName();
+
+                int partition =
+                        streamName == null ?
+                                0 :
+                                (streamName.hashCode() & Integer.MAX_VALUE) % partitionCount;
+
+                partitions.get(partition).add(event);
+            }
+        }
+
+        return partitions;
+    }
+
+    private void recordDispatched(List<DispatchableDomainEvent> anEvents) {
+        long now = System.currentTimeMillis();
+
+        for (DispatchableDomainEvent event : anEvents) {
+            this.metrics().dispatched(
+                    Math.max(0, now - event.domainEvent().occurredOn().getTime()));
+        }
+    }
+
+    private void signal() {
+        synchronized (this.signalLock) {
+            this.signaled = true;
+
+            this.signalLock.notifyAll();
+        }
+    }
+
+    private void startDispatching() {
+        final AtomicInteger workerCount = new AtomicInteger();
+
+        this.workers =
+                Executors.newFixedThreadPool(
+                        this.partitionCount(),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable aRunnable) {
+                                Thread thread =
+                                        new Thread(
+                                                aRunnable,
+                                                "follow-store-dispatch-worker-"
+                                                    + workerCount.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+
+        this.dispatcherThread = new Thread(new DispatchLoop(), "follow-store-dispatcher");
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    private Map<Follower, List<Future<Void>>> submit(
+            Map<Follower, List<DispatchableDomainEvent>> aBatches) {
+
+        Map<Follower, List<Future<Void>>> dispatches =
+                new LinkedHashMap<Follower, List<Future<Void>>>();
+
+        for (Map.Entry<Follower, List<DispatchableDomainEvent>> batch : aBatches.entrySet()) {
+            Follower follower = batch.getKey();
+
+            List<Future<Void>> partitionDispatches = new ArrayList<Future<Void>>();
+
+            for (List<DispatchableDomainEvent> events : this.partition(follower, batch.getValue())) {
+                if (!events.isEmpty()) {
+                    partitionDispatches.add(
+                            this.workers.submit(new PartitionDispatch(follower, events)));
+                }
+            }
+
+            dispatches.put(follower, partitionDispatches);
+        }
+
+        return dispatches;
     }
 
     private void close(Statement aStatement, ResultSet aResultSet) {
@@ -178,6 +771,47 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
         this.lastDispatchedEventId = aLastDispatchedEventId;
     }
 
+    private long queryCheckpoint(String aDispatcherName) {
+
+        // a dispatcher without a checkpoint of its own
+        // starts from the lowest checkpoint of all
+
+        long checkpoint = this.lastDispatchedEventId();
+
+        Connection connection = this.connection();
+        ResultSet result = null;
+        PreparedStatement statement = null;
+
+        try {
+            statement =
+                    connection.prepareStatement(
+                            "select event_id from tbl_dispatcher_checkpoint "
+                            + "where dispatcher_name = ?");
+
+            statement.setString(1, aDispatcherName);
+
+            result = statement.executeQuery();
+
+            if (result.next()) {
+                checkpoint = result.getLong(1);
+            }
+
+            connection.commit();
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot query checkpoint of "
+                        + aDispatcherName
+                        + " because: "
+                        + e.getMessage(),
+                    e);
+        } finally {
+            this.close(statement, result);
+        }
+
+        return checkpoint;
+    }
+
     private long queryLastDispatchedEventId() {
 
         long lastHandledEventId = 0;
@@ -213,6 +847,46 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
         return lastHandledEventId;
     }
 
+    private void saveCheckpoint(
+            Connection aConnection,
+            String aDispatcherName,
+            long aCheckpoint)
+    throws Exception {
+
+        int updated = 0;
+
+        PreparedStatement statement = null;
+
+        try {
+            statement = aConnection.prepareStatement(
+                    "update tbl_dispatcher_checkpoint set event_id=? where dispatcher_name=?");
+            statement.setLong(1, aCheckpoint);
+            statement.setString(2, aDispatcherName);
+            updated = statement.executeUpdate();
+
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot update dispatcher checkpoint.");
+        } finally {
+            this.closeStatement(statement);
+        }
+
+        if (updated == 0) {
+
+            try {
+                statement = aConnection.prepareStatement(
+                        "insert into tbl_dispatcher_checkpoint values(?, ?)");
+                statement.setString(1, aDispatcherName);
+                statement.setLong(2, aCheckpoint);
+                statement.executeUpdate();
+
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot insert dispatcher checkpoint.");
+            } finally {
+                this.closeStatement(statement);
+            }
+        }
+    }
+
     private void saveLastDispatchedEventId(
             Connection aConnection,
             long aLastDispatchedEventId)
@@ -250,11 +924,184 @@ public class FollowStoreEventDispatcher implements EventDispatcher, EventNotifia
         }
     }
 
-    private List<EventDispatcher> registeredDispatchers() {
-        return this.registeredDispatchers;
+    private int batchSize() {
+        return this.batchSize;
+    }
+
+    private void setBatchSize(int aBatchSize) {
+        this.batchSize = aBatchSize;
+    }
+
+    private List<Follower> followers() {
+        return this.followers;
+    }
+
+    private void setFollowers(List<Follower> aFollowers) {
+        this.followers = aFollowers;
+    }
+
+    private boolean isAsynchronous() {
+        return this.asynchronous;
+    }
+
+    private void setAsynchronous(boolean isAsynchronous) {
+        this.asynchronous = isAsynchronous;
+    }
+
+    private void setMetrics(DispatchMetrics aMetrics) {
+        this.metrics = aMetrics;
+    }
+
+    private int partitionCount() {
+        return this.partitionCount;
+    }
+
+    private void setPartitionCount(int aPartitionCount) {
+        this.partitionCount = aPartitionCount;
+    }
+
+    private class DispatchLoop implements Runnable {
+
+        @Override
+        public void run() {
+            long waitMillis = IDLE_POLL_MILLIS;
+
+            while (!closed) {
+
+                // the timeout also picks up events appended
+                // by other processes, which cannot signal me
+
+                awaitSignal(waitMillis);
+
+                if (closed) {
+                    break;
+                }
+
+                boolean completed = false;
+
+                try {
+                    dispatchAsynchronously();
+
+                    completed = true;
+
+                } catch (Throwable t) {
+                    System.out.println(
+                            "FollowStoreEventDispatcher: cannot dispatch events because: "
+                            + t.getMessage());
+                }
+
+                if (!completed) {
+                    // back off before retrying from the checkpoints
+
+                    try {
+                        Thread.sleep(IDLE_POLL_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
     }
 
-    private void setRegisteredDispatchers(List<EventDispatcher> aDispatchers) {
-        this.registeredDispatchers = aDispatchers;
+    private static class Follower {
+
+        private volatile long checkpoint;
+        private EventDispatcher dispatcher;
+        private String name;
+        private volatile long parkedUntil;
+        private boolean partitioned;
+
+        Follower(String aName, EventDispatcher aDispatcher, boolean isPartitioned) {
+            super();
+
+            this.dispatcher = aDispatcher;
+            this.name = aName;
+            this.partitioned = isPartitioned;
+        }
+
+        long checkpoint() {
+            return this.checkpoint;
+        }
+
+        void setCheckpoint(long aCheckpoint) {
+            this.checkpoint = aCheckpoint;
+        }
+
+        EventDispatcher dispatcher() {
+            return this.dispatcher;
+        }
+
+        boolean isParked() {
+            return this.parkedUntil > System.currentTimeMillis();
+        }
+
+        boolean isPartitioned() {
+            return this.partitioned;
+        }
+
+        String name() {
+            return this.name;
+        }
+
+        void park(long aMillis) {
+            this.parkedUntil = System.currentTimeMillis() + aMillis;
+        }
+
+        void unpark() {
+            this.parkedUntil = 0L;
+        }
+    }
+
+    private class PartitionDispatch implements Callable<Void> {
+
+        private List<DispatchableDomainEvent> events;
+        private Follower follower;
+
+        PartitionDispatch(Follower aFollower, List<DispatchableDomainEvent> anEvents) {
+            super();
+
+            this.events = anEvents;
+            this.follower = aFollower;
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            // as when dispatching synchronously, the dispatcher
+            // uses only ConnectionProvider.connection() and i
+            // flush and commit, here once per partition of a batch
+
+            Connection connection =
+                    ConnectionProvider
+                        .connection(collaborationDataSource());
+
+            ProjectionUnitOfWork unitOfWork = ProjectionUnitOfWork.start(connection);
+
+            try {
+                for (DispatchableDomainEvent event : this.events) {
+                    this.follower.dispatcher().dispatch(event);
+                }
+
+                unitOfWork.flush();
+
+                connection.commit();
+
+            } catch (Exception e) {
+                try {
+                    connection.rollback();
+                } catch (Exception re) {
+                    // ignore
+                }
+
+                throw e;
+
+            } finally {
+                ProjectionUnitOfWork.end();
+
+                ConnectionProvider.closeConnection();
+            }
+
+            return null;
+        }
     }
 }
@@ -0,0 +1,614 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.event;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
+import com.saasovation.collaboration.port.adapter.persistence.view.MySQLProjectionDispatcher;
+import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
+import com.saasovation.common.event.sourcing.EventDispatcher;
+import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
+import com.saasovation.common.port.adapter.persistence.ProjectionUnitOfWork;
+
+/**
+ * Rebuilds the MySQL views from the event store.
+ *
+ * All stored events are replayed into shadow copies of the view
+ * tables, named with a _rebuild suffix, while the live views keep
+ * being projected. The replay is partitioned by stream name across
+ * a pool of workers, so the events of a single stream stay in order,
+ * and each worker batches its writes through a ProjectionUnitOfWork
+ * that redirects them to the shadow tables. My checkpoint is saved
+ * in tbl_projection_rebuild after every batch, and a rebuild that
+ * failed or was stopped resumes from it. Replaying again what was
+ * projected after the checkpoint is harmless, as the projections
+ * are idempotent.
+ *
+ * Once the head of the store is reached, the FollowStoreEventDispatcher
+ * pauses between two batches while I replay the last few events,
+ * swap the shadow tables for the live ones in a single rename and
+ * answer the id of the last event replayed. The dispatcher continues
+ * every projection just after that id, in the rebuilt tables.
+ *
+ * Within a running application use the projectionRebuilder bean.
+ * The main() rebuilds while the application is stopped.
+ */
+public class ProjectionRebuilder {
+
+    private static final long PROGRESS_REPORT_MILLIS = 10000L;
+    private static final String REBUILD_TABLE_SUFFIX = "_rebuild";
+    private static final String RETIRED_TABLE_SUFFIX = "_retired";
+
+    private int batchSize;
+    private DataSource collaborationDataSource;
+    private FollowStoreEventDispatcher followStoreEventDispatcher;
+    private long lastReportedOn;
+    private MySQLProjectionDispatcher projectionDispatcher;
+    private RebuildProgress progress;
+    private int workerCount;
+
+    public static void main(String anArguments[]) throws Exception {
+        ClassPathXmlApplicationContext applicationContext =
+                new ClassPathXmlApplicationContext("applicationContext-collaboration.xml");
+
+        try {
+            ProjectionRebuilder rebuilder =
+                    (ProjectionRebuilder) applicationContext.getBean("projectionRebuilder");
+
+            rebuilder.rebuild();
+
+        } finally {
+            applicationContext.close();
+        }
+    }
+
+    public ProjectionRebuilder(
+            DataSource aDataSource,
+            FollowStoreEventDispatcher aFollowStoreEventDispatcher,
+            MySQLProjectionDispatcher aProjectionDispatcher,
+            int aWorkerCount,
+            int aBatchSize) {
+
+        super();
+
+        if (aWorkerCount < 1) {
+            throw new IllegalArgumentException("The worker count must be at least 1.");
+        }
+        if (aBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be at least 1.");
+        }
+
+        this.setBatchSize(aBatchSize);
+        this.setCollaborationDataSource(aDataSource);
+        this.setFollowStoreEventDispatcher(aFollowStoreEventDispatcher);
+        this.setProgress(new RebuildProgress());
+        this.setProjectionDispatcher(aProjectionDispatcher);
+        this.setWorkerCount(aWorkerCount);
+    }
+
+    public RebuildProgress progress() {
+        return this.progress;
+    }
+
+    public synchronized RebuildProgress rebuild() {
+        long checkpoint = this.prepareRebuildTables();
+
+        this.progress().started(checkpoint);
+
+        this.report();
+
+        final ExecutorService workers = this.startWorkers();
+
+        try {
+            final long replayedEventId = this.replay(checkpoint, workers);
+
+            this.followStoreEventDispatcher().handOffProjections(
+                    this.projectionDispatcher().projections(),
+                    new Callable<Long>() {
+                        @Override
+                        public Long call() throws Exception {
+                            long handOffEventId = replay(replayedEventId, workers);
+
+                            swapTables();
+
+                            progress().handedOff(handOffEventId);
+
+                            return handOffEventId;
+                        }
+                    });
+
+        } finally {
+            workers.shutdown();
+        }
+
+        this.report();
+
+        return this.progress();
+    }
+
+    private void awaitCompletionOf(List<Future<Void>> aReplays) {
+        Throwable failure = null;
+
+        for (Future<Void> replay : aReplays) {
+            try {
+                replay.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException(
+                    "Cannot replay events after "
+                        + this.progress().replayedEventId()
+                        + " because: "
+                        + failure.getMessage(),
+                    failure);
+        }
+    }
+
+    private List<DispatchableDomainEvent> eventsSince(long anEventId) {
+        return EventStoreProvider
+                .instance()
+                .eventStore()
+                .eventsSince(anEventId, this.batchSize());
+    }
+
+    private List<List<DispatchableDomainEvent>> partition(List<DispatchableDomainEvent> aBatch) {
+        List<List<DispatchableDomainEvent>> partitions =
+                new ArrayList<List<DispatchableDomainEvent>>(this.workerCount());
+
+        for (int idx = 0; idx < this.workerCount(); ++idx) {
+            partitions.add(new ArrayList<DispatchableDomainEvent>());
+        }
+
+        for (DispatchableDomainEvent event : aBatch) {
+            if (this.isProjected(event)) {
+                String streamName = event.streamName();
+
+                int partition =
+                        streamName == null ?
+                                0 :
+                                (streamName.hashCode() & Integer.MAX_VALUE) % this.workerCount();
+
+                partitions.get(partition).add(event);
+            }
+        }
+
+        return partitions;
+    }
+
+    private boolean isProjected(DispatchableDomainEvent anEvent) {
+        for (EventDispatcher projection : this.projectionDispatcher().projections()) {
+            if (projection.understands(anEvent)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private long prepareRebuildTables() {
+        Long checkpoint = this.queryCheckpoint();
+
+        if (checkpoint != null) {
+            System.out.println(
+                    "ProjectionRebuilder: resuming rebuild after event "
+                    + checkpoint);
+
+            return checkpoint.longValue();
+        }
+
+        Connection connection = this.connection();
+
+        try {
+            for (String tableName : this.projectionDispatcher().viewTableNames()) {
+                this.execute(connection, "drop table if exists " + tableName + RETIRED_TABLE_SUFFIX);
+                this.execute(connection, "drop table if exists " + tableName + REBUILD_TABLE_SUFFIX);
+                this.execute(connection,
+                        "create table " + tableName + REBUILD_TABLE_SUFFIX
+                        + " like " + tableName);
+            }
+
+            // saved only once every rebuild table exists
+
+            this.saveCheckpoint(connection, 0);
+
+            connection.commit();
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot prepare rebuild tables because: "
+                        + e.getMessage(),
+                    e);
+        } finally {
+            ConnectionProvider.closeConnection();
+        }
+
+        return 0;
+    }
+
+    private Long queryCheckpoint() {
+        Long checkpoint = null;
+
+        Connection connection = this.connection();
+        ResultSet result = null;
+        PreparedStatement statement = null;
+
+        try {
+            statement =
+                    connection.prepareStatement(
+                            "select event_id from tbl_projection_rebuild "
+                            + "where rebuild_name = ?");
+
+            statement.setString(1, this.rebuildName());
+
+            result = statement.executeQuery();
+
+            if (result.next()) {
+                checkpoint = result.getLong(1);
+            }
+
+            connection.commit();
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot query rebuild checkpoint because: "
+                        + e.getMessage(),
+                    e);
+        } finally {
+            this.close(statement, result);
+        }
+
+        return checkpoint;
+    }
+
+    private Map<String, String> rebuildTableNames() {
+        Map<String, String> rebuildTableNames = new HashMap<String, String>();
+
+        for (String tableName : this.projectionDispatcher().viewTableNames()) {
+            rebuildTableNames.put(tableName, tableName + REBUILD_TABLE_SUFFIX);
+        }
+
+        return rebuildTableNames;
+    }
+
+    private String rebuildName() {
+        return this.getClass().getName();
+    }
+
+    private long replay(long anEventId, ExecutorService aWorkers) {
+        long replayedEventId = anEventId;
+
+        Map<String, String> rebuildTableNames = this.rebuildTableNames();
+
+        List<DispatchableDomainEvent> batch = this.eventsSince(replayedEventId);
+
+        while (!batch.isEmpty()) {
+            long batchEnd = batch.get(batch.size() - 1).eventId();
+
+            List<Future<Void>> replays = new ArrayList<Future<Void>>();
+
+            for (List<DispatchableDomainEvent> events : this.partition(batch)) {
+                if (!events.isEmpty()) {
+                    replays.add(aWorkers.submit(new PartitionReplay(events, rebuildTableNames)));
+                }
+            }
+
+            // read ahead while the workers replay this batch
+
+            List<DispatchableDomainEvent> nextBatch =
+                    batch.size() < this.batchSize() ?
+                            Collections.<DispatchableDomainEvent>emptyList() :
+                            this.eventsSince(batchEnd);
+
+            this.awaitCompletionOf(replays);
+
+            Connection connection = this.connection();
+
+            try {
+                this.saveCheckpoint(connection, batchEnd);
+
+                connection.commit();
+
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        "Cannot save rebuild checkpoint because: "
+                            + e.getMessage(),
+                        e);
+            } finally {
+                ConnectionProvider.closeConnection();
+            }
+
+            replayedEventId = batchEnd;
+
+            this.progress().replayed(batch.size(), replayedEventId);
+            this.progress().observedHead(this.followStoreEventDispatcher().metrics().headEventId());
+
+            if (System.currentTimeMillis() - this.lastReportedOn >= PROGRESS_REPORT_MILLIS) {
+                this.report();
+            }
+
+            batch = nextBatch;
+        }
+
+        return replayedEventId;
+    }
+
+    private void report() {
+        this.lastReportedOn = System.currentTimeMillis();
+
+        System.out.println("ProjectionRebuilder: " + this.progress());
+    }
+
+    private ExecutorService startWorkers() {
+        final AtomicInteger workerCount = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(
+                this.workerCount(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable aRunnable) {
+                        Thread thread =
+                                new Thread(
+                                        aRunnable,
+                                        "projection-rebuild-worker-"
+                                            + workerCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    private void swapTables() {
+
+        // the checkpoint goes first: a rebuild stopped before the
+        // rename starts over, rather than resuming without tables.
+        // a rename implicitly commits, and renames all at once
+
+        StringBuilder rename = new StringBuilder("rename table ");
+
+        for (String tableName : this.projectionDispatcher().viewTableNames()) {
+            if (rename.length() > "rename table ".length()) {
+                rename.append(", ");
+            }
+
+            rename
+                .append(tableName).append(" to ").append(tableName).append(RETIRED_TABLE_SUFFIX)
+                .append(", ")
+                .append(tableName).append(REBUILD_TABLE_SUFFIX).append(" to ").append(tableName);
+        }
+
+        Connection connection = this.connection();
+
+        try {
+            PreparedStatement statement =
+                    connection.prepareStatement(
+                            "delete from tbl_projection_rebuild where rebuild_name = ?");
+
+            try {
+                statement.setString(1, this.rebuildName());
+                statement.executeUpdate();
+            } finally {
+                this.closeStatement(statement);
+            }
+
+            connection.commit();
+
+            this.execute(connection, rename.toString());
+
+            for (String tableName : this.projectionDispatcher().viewTableNames()) {
+                this.execute(connection, "drop table " + tableName + RETIRED_TABLE_SUFFIX);
+            }
+
+            connection.commit();
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot swap rebuilt tables because: "
+                        + e.getMessage(),
+                    e);
+        } finally {
+            ConnectionProvider.closeConnection();
+        }
+    }
+
+    private void close(Statement aStatement, ResultSet aResultSet) {
+        this.closeStatement(aStatement);
+
+        if (aResultSet != null) {
+            try {
+                aResultSet.close();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+
+        ConnectionProvider.closeConnection();
+    }
+
+    private void closeStatement(Statement aStatement) {
+        if (aStatement != null) {
+            try {
+                aStatement.close();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+    }
+
+    private Connection connection() {
+        Connection connection = null;
+
+        try {
+            connection =
+                    ConnectionProvider
+                        .connection(this.collaborationDataSource());
+        } catch (Throwable t) {
+            throw new IllegalStateException(
+                    "Cannot acquire database connection because: "
+                            + t.getMessage(),
+                    t);
+        }
+
+        return connection;
+    }
+
+    private void execute(Connection aConnection, String aStatement) throws Exception {
+        Statement statement = aConnection.createStatement();
+
+        try {
+            statement.execute(aStatement);
+        } finally {
+            this.closeStatement(statement);
+        }
+    }
+
+    private void saveCheckpoint(Connection aConnection, long anEventId) throws Exception {
+        PreparedStatement statement =
+                aConnection.prepareStatement(
+                        "insert into tbl_projection_rebuild values(?, ?) "
+                        + "on duplicate key update event_id=?");
+
+        try {
+            statement.setString(1, this.rebuildName());
+            statement.setLong(2, anEventId);
+            statement.setLong(3, anEventId);
+            statement.executeUpdate();
+        } finally {
+            this.closeStatement(statement);
+        }
+    }
+
+    private int batchSize() {
+        return this.batchSize;
+    }
+
+    private void setBatchSize(int aBatchSize) {
+        this.batchSize = aBatchSize;
+    }
+
+    private DataSource collaborationDataSource() {
+        return this.collaborationDataSource;
+    }
+
+    private void setCollaborationDataSource(DataSource aDataSource) {
+        this.collaborationDataSource = aDataSource;
+    }
+
+    private FollowStoreEventDispatcher followStoreEventDispatcher() {
+        return this.followStoreEventDispatcher;
+    }
+
+    private void setFollowStoreEventDispatcher(FollowStoreEventDispatcher aFollowStoreEventDispatcher) {
+        this.followStoreEventDispatcher = aFollowStoreEventDispatcher;
+    }
+
+    private void setProgress(RebuildProgress aProgress) {
+        this.progress = aProgress;
+    }
+
+    private MySQLProjectionDispatcher projectionDispatcher() {
+        return this.projectionDispatcher;
+    }
+
+    private void setProjectionDispatcher(MySQLProjectionDispatcher aProjectionDispatcher) {
+        this.projectionDispatcher = aProjectionDispatcher;
+    }
+
+    private int workerCount() {
+        return this.workerCount;
+    }
+
+    private void setWorkerCount(int aWorkerCount) {
+        this.workerCount = aWorkerCount;
+    }
+
+    private class PartitionReplay implements Callable<Void> {
+
+        private List<DispatchableDomainEvent> events;
+        private Map<String, String> rebuildTableNames;
+
+        PartitionReplay(
+                List<DispatchableDomainEvent> anEvents,
+                Map<String, String> aRebuildTableNames) {
+
+            super();
+
+            this.events = anEvents;
+            this.rebuildTableNames = aRebuildTableNames;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            Connection connection = connection();
+
+            ProjectionUnitOfWork unitOfWork =
+                    ProjectionUnitOfWork.start(connection, this.rebuildTableNames);
+
+            try {
+                for (DispatchableDomainEvent event : this.events) {
+                    for (EventDispatcher projection : projectionDispatcher().projections()) {
+                        projection.dispatch(event);
+                    }
+                }
+
+                unitOfWork.flush();
+
+                connection.commit();
+
+            } catch (Exception e) {
+                try {
+                    connection.rollback();
+                } catch (Exception re) {
+                    // ignore
+                }
+
+                throw e;
+
+            } finally {
+                ProjectionUnitOfWork.end();
+
+                ConnectionProvider.closeConnection();
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.event;
+
+/**
+ * Progress of a ProjectionRebuilder.
+ *
+ * The head event id is the one last observed by the live
+ * FollowStoreEventDispatcher, so the percentage complete is an
+ * estimate until the rebuild is handed off. A resumed rebuild
+ * counts only the events it replayed itself.
+ */
+public class RebuildProgress {
+
+    private volatile boolean handedOff;
+    private volatile long handOffEventId;
+    private volatile long headEventId;
+    private volatile long replayedEventId;
+    private volatile long replayedEvents;
+    private volatile long resumedFromEventId;
+    private volatile long startedOn;
+
+    public RebuildProgress() {
+        super();
+    }
+
+    public long eventsPerSecond() {
+        long elapsedMillis = this.elapsedMillis();
+
+        return elapsedMillis == 0 ? 0 : this.replayedEvents() * 1000L / elapsedMillis;
+    }
+
+    public long elapsedMillis() {
+        return this.startedOn == 0 ? 0 : System.currentTimeMillis() - this.startedOn;
+    }
+
+    public long handOffEventId() {
+        return this.handOffEventId;
+    }
+
+    public long headEventId() {
+        return this.headEventId;
+    }
+
+    public boolean isHandedOff() {
+        return this.handedOff;
+    }
+
+    public int percentComplete() {
+        if (this.isHandedOff()) {
+            return 100;
+        }
+
+        long headEventId = Math.max(this.headEventId(), this.replayedEventId());
+
+        return headEventId == 0 ? 0 : (int) (this.replayedEventId() * 100L / headEventId);
+    }
+
+    public long replayedEventId() {
+        return this.replayedEventId;
+    }
+
+    public long replayedEvents() {
+        return this.replayedEvents;
+    }
+
+    public long resumedFromEventId() {
+        return this.resumedFromEventId;
+    }
+
+    @Override
+    public String toString() {
+        return "RebuildProgress [replayedEventId=" + this.replayedEventId()
+                + " headEventId=" + this.headEventId()
+                + " percentComplete=" + this.percentComplete()
+                + " replayedEvents=" + this.replayedEvents()
+                + " eventsPerSecond=" + this.eventsPerSecond()
+                + " resumedFromEventId=" + this.resumedFromEventId()
+                + " handOffEventId=" + this.handOffEventId()
+                + "]";
+    }
+
+    void handedOff(long anEventId) {
+        this.handOffEventId = anEventId;
+        this.handedOff = true;
+    }
+
+    void observedHead(long anEventId) {
+        this.headEventId = Math.max(this.headEventId, anEventId);
+    }
+
+    void replayed(int anEventCount, long aLastEventId) {
+        this.replayedEvents += anEventCount;
+        this.replayedEventId = aLastEventId;
+    }
+
+    void started(long aResumedFromEventId) {
+        this.handedOff = false;
+        this.handOffEventId = 0;
+        this.headEventId = 0;
+        this.replayedEventId = aResumedFromEventId;
+        this.replayedEvents = 0;
+        this.resumedFromEventId = aResumedFromEventId;
+        this.startedOn = System.currentTimeMillis();
+    }
+}
@@ -14,6 +14,7 @@
 
 package com.saasovation.collaboration.port.adapter.messaging;
 
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.notification.Notification;
@@ -21,18 +22,22 @@ import com.saasovation.common.notification.NotificationSerializer;
 import com.saasovation.common.port.adapter.messaging.Exchanges;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.ConnectionSettings;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.Exchange;
+import com.saasovation.common.port.adapter.messaging.rabbitmq.ExchangeRouting;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.MessageParameters;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.MessageProducer;
 
 public class RabbitMQEventDispatcher implements EventDispatcher {
 
+    private static final String DISPATCHER_NAME = "rabbitmq.notifications";
+
     private MessageProducer messageProducer;
+    private ExchangeRouting routing;
 
-    public RabbitMQEventDispatcher(EventDispatcher aParentEventDispatcher) {
+    public RabbitMQEventDispatcher(CheckpointingEventDispatcher aParentEventDispatcher) {
         super();
 
         this.initializeMessageProducer();
-        aParentEventDispatcher.registerEventDispatcher(this);
+        aParentEventDispatcher.registerEventDispatcher(DISPATCHER_NAME, this);
     }
 
     @Override
@@ -51,7 +56,10 @@ public class RabbitMQEventDispatcher implements EventDispatcher {
         String serializedNotification =
                 NotificationSerializer.instance().serialize(notification);
 
-        this.messageProducer.send(serializedNotification, messageParameters);
+        this.messageProducer.send(
+                this.routing.routingKeyOf(notification.typeName()),
+                serializedNotification,
+                messageParameters);
     }
 
     @Override
@@ -65,8 +73,10 @@ public class RabbitMQEventDispatcher implements EventDispatcher {
     }
 
     private void initializeMessageProducer() {
+        this.routing = ExchangeRouting.configured();
+
         Exchange exchange =
-                Exchange.fanOutInstance(
+                this.routing.exchangeInstance(
                         ConnectionSettings.instance(),
                         Exchanges.COLLABORATION_EXCHANGE_NAME,
                         true);
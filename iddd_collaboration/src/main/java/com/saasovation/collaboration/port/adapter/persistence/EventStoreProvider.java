@@ -14,16 +14,25 @@
 
 package com.saasovation.collaboration.port.adapter.persistence;
 
+import com.saasovation.common.event.sourcing.AggregateSnapshotter;
 import com.saasovation.common.event.sourcing.EventStore;
+import com.saasovation.common.event.sourcing.SnapshotStore;
 import com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb.LevelDBEventStore;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb.LevelDBSnapshotStore;
 import com.saasovation.common.port.adapter.persistence.eventsourcing.mysql.MySQLJDBCEventStore;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.mysql.MySQLJDBCSnapshotStore;
 
 public class EventStoreProvider {
 
     private static final boolean FOR_LEVELDB = true;
     private static final boolean FOR_MYSQL = false;
 
+    private static final int SNAPSHOT_INTERVAL = 100;
+
+    private static AggregateSnapshotter snapshotter;
+
     private EventStore eventStore;
+    private SnapshotStore snapshotStore;
 
     public static EventStoreProvider instance() {
         return new EventStoreProvider();
@@ -33,6 +42,10 @@ public class EventStoreProvider {
         return this.eventStore;
     }
 
+    public SnapshotStore snapshotStore() {
+        return this.snapshotStore;
+    }
+
     protected EventStoreProvider() {
         super();
 
@@ -41,17 +54,33 @@ public class EventStoreProvider {
         this.initializeMySQL();
     }
 
+    protected AggregateSnapshotter snapshotter() {
+        synchronized (EventStoreProvider.class) {
+            if (snapshotter == null) {
+                snapshotter = new AggregateSnapshotter(this.snapshotStore(), SNAPSHOT_INTERVAL);
+            }
+
+            return snapshotter;
+        }
+    }
+
     private void initializeLevelDB() {
         if (FOR_LEVELDB) {
             this.eventStore =
                     LevelDBEventStore
                             .instance(this.getClass().getResource("/").getPath() + "/data/leveldb/iddd_collaboration_es");
+
+            this.snapshotStore =
+                    LevelDBSnapshotStore
+                            .instance(this.getClass().getResource("/").getPath() + "/data/leveldb/iddd_collaboration_ss");
         }
     }
 
     private void initializeMySQL() {
         if (FOR_MYSQL) {
             this.eventStore = MySQLJDBCEventStore.instance();
+
+            this.snapshotStore = MySQLJDBCSnapshotStore.instance();
         }
     }
 }
@@ -21,7 +21,7 @@ import com.saasovation.collaboration.domain.model.calendar.CalendarEntryId;
 import com.saasovation.collaboration.domain.model.calendar.CalendarEntryRepository;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
 import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
-import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
 
 public class EventStoreCalendarEntryRepository
@@ -34,13 +34,21 @@ public class EventStoreCalendarEntryRepository
 
     @Override
     public CalendarEntry calendarEntryOfId(Tenant aTenant, CalendarEntryId aCalendarEntryId) {
-        // snapshots not currently supported; always use version 1
-
         EventStreamId eventId = new EventStreamId(aTenant.id(), aCalendarEntryId.id());
 
-        EventStream eventStream = this.eventStore().eventStreamSince(eventId);
+        CalendarEntry calendarEntry =
+                this.snapshotter()
+                    .aggregateFromLatestSnapshot(CalendarEntry.class, this.eventStore(), eventId);
+
+        if (calendarEntry == null) {
+            EventStreamCursor eventStream = this.eventStore().fullEventStreamCursorFor(eventId);
 
-        CalendarEntry calendarEntry = new CalendarEntry(eventStream.events(), eventStream.version());
+            try {
+                calendarEntry = new CalendarEntry(eventStream);
+            } finally {
+                eventStream.close();
+            }
+        }
 
         return calendarEntry;
     }
@@ -59,5 +67,7 @@ public class EventStoreCalendarEntryRepository
                         aCalendarEntry.mutatedVersion());
 
         this.eventStore().appendWith(eventId, aCalendarEntry.mutatingEvents());
+
+        this.snapshotter().snapshotIfDue(eventId, aCalendarEntry);
     }
 }
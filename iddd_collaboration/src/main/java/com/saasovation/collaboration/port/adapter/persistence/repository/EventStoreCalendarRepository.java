@@ -21,7 +21,7 @@ import com.saasovation.collaboration.domain.model.calendar.CalendarId;
 import com.saasovation.collaboration.domain.model.calendar.CalendarRepository;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
 import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
-import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
 
 public class EventStoreCalendarRepository extends EventStoreProvider implements CalendarRepository {
@@ -32,13 +32,21 @@ public class EventStoreCalendarRepository extends EventStoreProvider implements
 
     @Override
     public Calendar calendarOfId(Tenant aTenant, CalendarId aCalendarId) {
-        // snapshots not currently supported; always use version 1
-
         EventStreamId eventId = new EventStreamId(aTenant.id(), aCalendarId.id());
 
-        EventStream eventStream = this.eventStore().eventStreamSince(eventId);
+        Calendar calendar =
+                this.snapshotter()
+                    .aggregateFromLatestSnapshot(Calendar.class, this.eventStore(), eventId);
+
+        if (calendar == null) {
+            EventStreamCursor eventStream = this.eventStore().fullEventStreamCursorFor(eventId);
 
-        Calendar calendar = new Calendar(eventStream.events(), eventStream.version());
+            try {
+                calendar = new Calendar(eventStream);
+            } finally {
+                eventStream.close();
+            }
+        }
 
         return calendar;
     }
@@ -57,5 +65,7 @@ public class EventStoreCalendarRepository extends EventStoreProvider implements
                         aCalendar.mutatedVersion());
 
         this.eventStore().appendWith(eventId, aCalendar.mutatingEvents());
+
+        this.snapshotter().snapshotIfDue(eventId, aCalendar);
     }
 }
@@ -21,7 +21,7 @@ import com.saasovation.collaboration.domain.model.forum.DiscussionId;
 import com.saasovation.collaboration.domain.model.forum.DiscussionRepository;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
 import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
-import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
 
 public class EventStoreDiscussionRepository
@@ -34,15 +34,23 @@ public class EventStoreDiscussionRepository
 
     @Override
     public Discussion discussionOfId(Tenant aTenant, DiscussionId aDiscussionId) {
-        // snapshots not currently supported; always use version 1
-
         EventStreamId eventId = new EventStreamId(aTenant.id(), aDiscussionId.id());
 
-        EventStream eventStream = this.eventStore().eventStreamSince(eventId);
+        Discussion discussion =
+                this.snapshotter()
+                    .aggregateFromLatestSnapshot(Discussion.class, this.eventStore(), eventId);
+
+        if (discussion == null) {
+            EventStreamCursor eventStream = this.eventStore().fullEventStreamCursorFor(eventId);
 
-        Discussion Discussion = new Discussion(eventStream.events(), eventStream.version());
+            try {
+                discussion = new Discussion(eventStream);
+            } finally {
+                eventStream.close();
+            }
+        }
 
-        return Discussion;
+        return discussion;
     }
 
     @Override
@@ -59,5 +67,7 @@ public class EventStoreDiscussionRepository
                         aDiscussion.mutatedVersion());
 
         this.eventStore().appendWith(eventId, aDiscussion.mutatingEvents());
+
+        this.snapshotter().snapshotIfDue(eventId, aDiscussion);
     }
 }
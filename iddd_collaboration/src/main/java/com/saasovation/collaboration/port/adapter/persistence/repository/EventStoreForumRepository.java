@@ -21,7 +21,7 @@ import com.saasovation.collaboration.domain.model.forum.ForumId;
 import com.saasovation.collaboration.domain.model.forum.ForumRepository;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
 import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
-import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
 
 public class EventStoreForumRepository
@@ -34,13 +34,21 @@ public class EventStoreForumRepository
 
     @Override
     public Forum forumOfId(Tenant aTenant, ForumId aForumId) {
-        // snapshots not currently supported; always use version 1
-
         EventStreamId eventId = new EventStreamId(aTenant.id(), aForumId.id());
 
-        EventStream eventStream = this.eventStore().eventStreamSince(eventId);
+        Forum forum =
+                this.snapshotter()
+                    .aggregateFromLatestSnapshot(Forum.class, this.eventStore(), eventId);
+
+        if (forum == null) {
+            EventStreamCursor eventStream = this.eventStore().fullEventStreamCursorFor(eventId);
 
-        Forum forum = new Forum(eventStream.events(), eventStream.version());
+            try {
+                forum = new Forum(eventStream);
+            } finally {
+                eventStream.close();
+            }
+        }
 
         return forum;
     }
@@ -59,5 +67,7 @@ public class EventStoreForumRepository
                         aForum.mutatedVersion());
 
         this.eventStore().appendWith(eventId, aForum.mutatingEvents());
+
+        this.snapshotter().snapshotIfDue(eventId, aForum);
     }
 }
@@ -21,7 +21,7 @@ import com.saasovation.collaboration.domain.model.forum.PostId;
 import com.saasovation.collaboration.domain.model.forum.PostRepository;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
 import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
-import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
 
 public class EventStorePostRepository
@@ -34,15 +34,23 @@ public class EventStorePostRepository
 
     @Override
     public Post postOfId(Tenant aTenantId, PostId aPostId) {
-        // snapshots not currently supported; always use version 1
-
         EventStreamId eventId = new EventStreamId(aTenantId.id(), aPostId.id());
 
-        EventStream eventStream = this.eventStore().eventStreamSince(eventId);
+        Post post =
+                this.snapshotter()
+                    .aggregateFromLatestSnapshot(Post.class, this.eventStore(), eventId);
+
+        if (post == null) {
+            EventStreamCursor eventStream = this.eventStore().fullEventStreamCursorFor(eventId);
 
-        Post Post = new Post(eventStream.events(), eventStream.version());
+            try {
+                post = new Post(eventStream);
+            } finally {
+                eventStream.close();
+            }
+        }
 
-        return Post;
+        return post;
     }
 
     @Override
@@ -59,5 +67,7 @@ public class EventStorePostRepository
                         aPost.mutatedVersion());
 
         this.eventStore().appendWith(eventId, aPost.mutatingEvents());
+
+        this.snapshotter().snapshotIfDue(eventId, aPost);
     }
 }
@@ -14,7 +14,6 @@
 
 package com.saasovation.collaboration.port.adapter.persistence.view;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 
 import com.saasovation.collaboration.domain.model.calendar.CalendarEntryDescriptionChanged;
@@ -26,15 +25,17 @@ import com.saasovation.collaboration.domain.model.calendar.CalendarEntryReschedu
 import com.saasovation.collaboration.domain.model.calendar.CalendarEntryScheduled;
 import com.saasovation.collaboration.domain.model.collaborator.Participant;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.port.adapter.persistence.AbstractProjection;
-import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
 
 public class MySQLCalendarEntryProjection
         extends AbstractProjection
         implements EventDispatcher {
 
+    private static final String DISPATCHER_NAME = "mysql.projection.calendarEntry";
+
     private static final Class<?> understoodEventTypes[] = {
         CalendarEntryDescriptionChanged.class,
         CalendarEntryParticipantInvited.class,
@@ -44,10 +45,10 @@ public class MySQLCalendarEntryProjection
         CalendarEntryScheduled.class
     };
 
-    public MySQLCalendarEntryProjection(EventDispatcher aParentEventDispatcher) {
+    public MySQLCalendarEntryProjection(CheckpointingEventDispatcher aParentEventDispatcher) {
         super();
 
-        aParentEventDispatcher.registerEventDispatcher(this);
+        aParentEventDispatcher.registerEventDispatcher(DISPATCHER_NAME, this);
     }
 
     @Override
@@ -68,17 +69,15 @@ public class MySQLCalendarEntryProjection
     }
 
     protected void when(CalendarEntryDescriptionChanged anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_calendar_entry set description=? "
                         + " where calendar_entry_id = ?");
 
         statement.setString(1, anEvent.description());
         statement.setString(2, anEvent.calendarEntryId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.calendarEntryId().id());
     }
 
     protected void when(CalendarEntryParticipantInvited anEvent) throws Exception {
@@ -86,10 +85,8 @@ public class MySQLCalendarEntryProjection
     }
 
     protected void when(CalendarEntryParticipantUninvited anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "delete from tbl_vw_calendar_entry_invitee "
                         + "where tenant_id = ? and calendar_entry_id = ? and participant_identity = ?");
 
@@ -97,28 +94,24 @@ public class MySQLCalendarEntryProjection
         statement.setString(2, anEvent.calendarEntryId().id());
         statement.setString(3, anEvent.participant().identity());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.calendarEntryId().id() + ":" + anEvent.participant().identity());
     }
 
     protected void when(CalendarEntryRelocated anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_calendar_entry set location=? "
                         + " where calendar_entry_id = ?");
 
         statement.setString(1, anEvent.location());
         statement.setString(2, anEvent.calendarEntryId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.calendarEntryId().id());
     }
 
     protected void when(CalendarEntryRescheduled anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_calendar_entry "
                         + "set alarm_alarm_units = ?, alarm_alarm_units_type = ?, "
                         + "repetition_ends = ?, repetition_type = ?, "
@@ -134,30 +127,21 @@ public class MySQLCalendarEntryProjection
         statement.setString(7, anEvent.tenant().id());
         statement.setString(8, anEvent.calendarEntryId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.calendarEntryId().id());
     }
 
     protected void when(CalendarEntryScheduled anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         // idempotent operation
-        if (this.exists(
-                "select calendar_entry_id from tbl_vw_calendar_entry "
-                    + "where tenant_id = ? and calendar_entry_id = ?",
-                anEvent.tenant().id(),
-                anEvent.calendarEntryId().id())) {
-            return;
-        }
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "insert into tbl_vw_calendar_entry( "
                         + "calendar_entry_id, alarm_alarm_units, alarm_alarm_units_type, "
                         + "calendar_id, description, location, "
                         + "owner_email_address, owner_identity, owner_name, "
                         + "repetition_ends, repetition_type, "
                         + "tenant_id, time_span_begins, time_span_ends"
-                        + ") values(?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+                        + ") values(?,?,?,?,?,?,?,?,?,?,?,?,?,?) "
+                        + "on duplicate key update calendar_entry_id=calendar_entry_id");
 
         statement.setString(1, anEvent.calendarEntryId().id());
         statement.setInt(2, anEvent.alarm().alarmUnits());
@@ -174,7 +158,7 @@ public class MySQLCalendarEntryProjection
         statement.setDate(13, new java.sql.Date(anEvent.timeSpan().begins().getTime()));
         statement.setDate(14, new java.sql.Date(anEvent.timeSpan().ends().getTime()));
 
-        this.execute(statement);
+        this.execute(statement, anEvent.calendarEntryId().id());
 
         for (Participant participant : anEvent.invitees()) {
             this.insertInvitee(anEvent.tenant(), anEvent.calendarEntryId(), participant);
@@ -187,25 +171,15 @@ public class MySQLCalendarEntryProjection
             Participant aParticipant)
     throws Exception {
 
-        Connection connection = ConnectionProvider.connection();
-
         // idempotent operation
-        if (this.exists(
-                "select id from tbl_vw_calendar_entry_invitee "
-                    + "where tenant_id = ? and calendar_entry_id = ? and participant_identity = ?",
-                aTenant.id(),
-                aCalendarEntryId.id(),
-                aParticipant.identity())) {
-            return;
-        }
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "insert into tbl_vw_calendar_entry_invitee( "
                         + "id, calendar_entry_id, "
                         + "participant_email_address, participant_identity, participant_name, "
                         + "tenant_id"
-                        + ") values(?,?,?,?,?,?)");
+                        + ") values(?,?,?,?,?,?) "
+                        + "on duplicate key update id=id");
 
         statement.setLong(1, 0);
         statement.setString(2, aCalendarEntryId.id());
@@ -214,6 +188,6 @@ public class MySQLCalendarEntryProjection
         statement.setString(5, aParticipant.name());
         statement.setString(6, aTenant.id());
 
-        this.execute(statement);
+        this.execute(statement, aCalendarEntryId.id() + ":" + aParticipant.identity());
     }
 }
@@ -14,7 +14,6 @@
 
 package com.saasovation.collaboration.port.adapter.persistence.view;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 
 import com.saasovation.collaboration.domain.model.calendar.CalendarCreated;
@@ -25,21 +24,23 @@ import com.saasovation.collaboration.domain.model.calendar.CalendarShared;
 import com.saasovation.collaboration.domain.model.calendar.CalendarSharer;
 import com.saasovation.collaboration.domain.model.calendar.CalendarUnshared;
 import com.saasovation.collaboration.domain.model.tenant.Tenant;
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.port.adapter.persistence.AbstractProjection;
-import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
 
 public class MySQLCalendarProjection extends AbstractProjection implements EventDispatcher {
 
+	private static final String DISPATCHER_NAME = "mysql.projection.calendar";
+
 	private static final Class<?> understoodEventTypes[] = {
 			CalendarCreated.class, CalendarDescriptionChanged.class,
 			CalendarRenamed.class, CalendarShared.class, CalendarUnshared.class };
 
-	public MySQLCalendarProjection(EventDispatcher aParentEventDispatcher) {
+	public MySQLCalendarProjection(CheckpointingEventDispatcher aParentEventDispatcher) {
 		super();
 
-		aParentEventDispatcher.registerEventDispatcher(this);
+		aParentEventDispatcher.registerEventDispatcher(DISPATCHER_NAME, this);
 	}
 
 	@Override
@@ -58,20 +59,12 @@ public class MySQLCalendarProjection extends AbstractProjection implements Event
 	}
 
 	protected void when(CalendarCreated anEvent) throws Exception {
-		Connection connection = ConnectionProvider.connection();
-
 		// idempotent operation
-		if (this.exists("select calendar_id from tbl_vw_calendar "
-				+ "where tenant_id = ? and calendar_id = ?", anEvent.tenant()
-				.id(), anEvent.calendarId().id())) {
-			return;
-		}
-
-		PreparedStatement statement = connection
-				.prepareStatement("insert into tbl_vw_calendar("
+		PreparedStatement statement = this.prepare("insert into tbl_vw_calendar("
 						+ "calendar_id, description, name, "
 						+ "owner_email_address, owner_identity, owner_name, "
-						+ "tenant_id" + ") values(?,?,?,?,?,?,?)");
+						+ "tenant_id" + ") values(?,?,?,?,?,?,?) "
+						+ "on duplicate key update calendar_id=calendar_id");
 
 		statement.setString(1, anEvent.calendarId().id());
 		statement.setString(2, anEvent.description());
@@ -81,7 +74,7 @@ public class MySQLCalendarProjection extends AbstractProjection implements Event
 		statement.setString(6, anEvent.owner().name());
 		statement.setString(7, anEvent.tenant().id());
 
-		this.execute(statement);
+		this.execute(statement, anEvent.calendarId().id());
 
 		for (CalendarSharer sharer : anEvent.sharedWith()) {
 			this.insertCalendarSharer(anEvent.tenant(), anEvent.calendarId(), sharer);
@@ -89,25 +82,21 @@ public class MySQLCalendarProjection extends AbstractProjection implements Event
 	}
 
 	protected void when(CalendarDescriptionChanged anEvent) throws Exception {
-		Connection connection = ConnectionProvider.connection();
-
-		PreparedStatement statement = connection.prepareStatement("update tbl_vw_calendar set description=?  where calendar_id = ?");
+		PreparedStatement statement = this.prepare("update tbl_vw_calendar set description=?  where calendar_id = ?");
 
 		statement.setString(1, anEvent.description());
 		statement.setString(2, anEvent.calendarId().id());
 
-		this.execute(statement);
+		this.execute(statement, anEvent.calendarId().id());
 	}
 
 	protected void when(CalendarRenamed anEvent) throws Exception {
-		Connection connection = ConnectionProvider.connection();
-
-		PreparedStatement statement = connection.prepareStatement("update tbl_vw_calendar set name=? where calendar_id = ?");
+		PreparedStatement statement = this.prepare("update tbl_vw_calendar set name=? where calendar_id = ?");
 
 		statement.setString(1, anEvent.name());
 		statement.setString(2, anEvent.calendarId().id());
 
-		this.execute(statement);
+		this.execute(statement, anEvent.calendarId().id());
 	}
 
 	protected void when(CalendarShared anEvent) throws Exception {
@@ -115,32 +104,24 @@ public class MySQLCalendarProjection extends AbstractProjection implements Event
 	}
 
 	protected void when(CalendarUnshared anEvent) throws Exception {
-		Connection connection = ConnectionProvider.connection();
-
-		PreparedStatement statement = connection.prepareStatement("delete from tbl_vw_calendar_sharer where tenant_id=? and calendar_id=? and participant_identity=?");
+		PreparedStatement statement = this.prepare("delete from tbl_vw_calendar_sharer where tenant_id=? and calendar_id=? and participant_identity=?");
 
 		statement.setString(1, anEvent.tenant().id());
 		statement.setString(2, anEvent.calendarId().id());
 		statement.setString(3, anEvent.calendarSharer().participant().identity());
 
-		this.execute(statement);
+		this.execute(statement, anEvent.calendarId().id() + ":" + anEvent.calendarSharer().participant().identity());
 	}
 
 	private void insertCalendarSharer(Tenant aTenant, CalendarId aCalendarId,
 			CalendarSharer aCalendarSharer) throws Exception {
 
-		Connection connection = ConnectionProvider.connection();
-
 		// idempotent operation
-		if (this.exists("select id from tbl_vw_calendar_sharer where tenant_id = ? and calendar_id = ? and participant_identity = ?"
-				, aTenant.id(), aCalendarId.id(), aCalendarSharer.participant().identity())) {
-			return;
-		}
-
-		PreparedStatement statement = connection.prepareStatement("insert into tbl_vw_calendar_sharer("
+		PreparedStatement statement = this.prepare("insert into tbl_vw_calendar_sharer("
 						+ "id, calendar_id, "
 						+ "participant_email_address, participant_identity, participant_name, "
-						+ "tenant_id" + ") values(?,?,?,?,?,?)");
+						+ "tenant_id" + ") values(?,?,?,?,?,?) "
+						+ "on duplicate key update id=id");
 
 		statement.setLong(1, 0);
 		statement.setString(2, aCalendarId.id());
@@ -149,6 +130,6 @@ public class MySQLCalendarProjection extends AbstractProjection implements Event
 		statement.setString(5, aCalendarSharer.participant().name());
 		statement.setString(6, aTenant.id());
 
-		this.execute(statement);
+		this.execute(statement, aCalendarId.id() + ":" + aCalendarSharer.participant().identity());
 	}
 }
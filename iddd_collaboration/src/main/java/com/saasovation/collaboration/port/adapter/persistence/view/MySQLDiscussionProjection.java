@@ -14,31 +14,32 @@
 
 package com.saasovation.collaboration.port.adapter.persistence.view;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 
 import com.saasovation.collaboration.domain.model.forum.DiscussionClosed;
 import com.saasovation.collaboration.domain.model.forum.DiscussionReopened;
 import com.saasovation.collaboration.domain.model.forum.DiscussionStarted;
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.port.adapter.persistence.AbstractProjection;
-import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
 
 public class MySQLDiscussionProjection
         extends AbstractProjection
         implements EventDispatcher {
 
+    private static final String DISPATCHER_NAME = "mysql.projection.discussion";
+
     private static final Class<?> understoodEventTypes[] = {
         DiscussionClosed.class,
         DiscussionReopened.class,
         DiscussionStarted.class
     };
 
-    public MySQLDiscussionProjection(EventDispatcher aParentEventDispatcher) {
+    public MySQLDiscussionProjection(CheckpointingEventDispatcher aParentEventDispatcher) {
         super();
 
-        aParentEventDispatcher.registerEventDispatcher(this);
+        aParentEventDispatcher.registerEventDispatcher(DISPATCHER_NAME, this);
     }
 
     @Override
@@ -59,10 +60,8 @@ public class MySQLDiscussionProjection
     }
 
     protected void when(DiscussionClosed anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_discussion "
                         + "set closed=1 "
                         + "where tenant_id = ? and discussion_id = ?");
@@ -70,14 +69,12 @@ public class MySQLDiscussionProjection
         statement.setString(1, anEvent.tenant().id());
         statement.setString(2, anEvent.discussionId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.discussionId().id());
     }
 
     protected void when(DiscussionReopened anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_discussion "
                         + "set closed=0 "
                         + "where tenant_id = ? and discussion_id = ?");
@@ -85,28 +82,19 @@ public class MySQLDiscussionProjection
         statement.setString(1, anEvent.tenant().id());
         statement.setString(2, anEvent.discussionId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.discussionId().id());
     }
 
     protected void when(DiscussionStarted anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         // idempotent operation
-        if (this.exists(
-                "select discussion_id from tbl_vw_discussion "
-                    + "where tenant_id = ? and discussion_id = ?",
-                anEvent.tenant().id(),
-                anEvent.discussionId().id())) {
-            return;
-        }
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "insert into tbl_vw_discussion( "
                         + "discussion_id, author_email_address, author_identity, author_name, "
                         + "closed, exclusive_owner, forum_id, "
                         + "subject, tenant_id"
-                        + ") values(?,?,?,?,?,?,?,?,?)");
+                        + ") values(?,?,?,?,?,?,?,?,?) "
+                        + "on duplicate key update discussion_id=discussion_id");
 
         statement.setString(1, anEvent.discussionId().id());
         statement.setString(2, anEvent.author().emailAddress());
@@ -118,6 +106,6 @@ public class MySQLDiscussionProjection
         statement.setString(8, anEvent.subject());
         statement.setString(9, anEvent.tenant().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.discussionId().id());
     }
 }
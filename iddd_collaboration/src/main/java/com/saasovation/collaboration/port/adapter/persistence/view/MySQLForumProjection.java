@@ -14,7 +14,6 @@
 
 package com.saasovation.collaboration.port.adapter.persistence.view;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 
 import com.saasovation.collaboration.domain.model.forum.ForumClosed;
@@ -23,15 +22,17 @@ import com.saasovation.collaboration.domain.model.forum.ForumModeratorChanged;
 import com.saasovation.collaboration.domain.model.forum.ForumReopened;
 import com.saasovation.collaboration.domain.model.forum.ForumStarted;
 import com.saasovation.collaboration.domain.model.forum.ForumSubjectChanged;
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.port.adapter.persistence.AbstractProjection;
-import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
 
 public class MySQLForumProjection
         extends AbstractProjection
         implements EventDispatcher {
 
+    private static final String DISPATCHER_NAME = "mysql.projection.forum";
+
     private static final Class<?> understoodEventTypes[] = {
         ForumClosed.class,
         ForumDescriptionChanged.class,
@@ -41,10 +42,10 @@ public class MySQLForumProjection
         ForumSubjectChanged.class
     };
 
-    public MySQLForumProjection(EventDispatcher aParentEventDispatcher) {
+    public MySQLForumProjection(CheckpointingEventDispatcher aParentEventDispatcher) {
         super();
 
-        aParentEventDispatcher.registerEventDispatcher(this);
+        aParentEventDispatcher.registerEventDispatcher(DISPATCHER_NAME, this);
     }
 
     @Override
@@ -65,10 +66,8 @@ public class MySQLForumProjection
     }
 
     protected void when(ForumClosed anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_forum "
                         + "set closed=1 "
                         + "where tenant_id = ? and forum_id = ?");
@@ -76,14 +75,12 @@ public class MySQLForumProjection
         statement.setString(1, anEvent.tenant().id());
         statement.setString(2, anEvent.forumId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.forumId().id());
     }
 
     protected void when(ForumDescriptionChanged anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_forum "
                         + "set description=? "
                         + "where tenant_id = ? and forum_id = ?");
@@ -92,14 +89,12 @@ public class MySQLForumProjection
         statement.setString(2, anEvent.tenant().id());
         statement.setString(3, anEvent.forumId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.forumId().id());
     }
 
     protected void when(ForumModeratorChanged anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_forum "
                         + "set moderator_email_address=?, moderator_identity=?, moderator_name=?  "
                         + "where tenant_id = ? and forum_id = ?");
@@ -110,14 +105,12 @@ public class MySQLForumProjection
         statement.setString(4, anEvent.tenant().id());
         statement.setString(5, anEvent.forumId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.forumId().id());
     }
 
     protected void when(ForumReopened anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_forum "
                         + "set closed=0 "
                         + "where tenant_id = ? and forum_id = ?");
@@ -125,30 +118,21 @@ public class MySQLForumProjection
         statement.setString(1, anEvent.tenant().id());
         statement.setString(2, anEvent.forumId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.forumId().id());
     }
 
     protected void when(ForumStarted anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         // idempotent operation
-        if (this.exists(
-                "select forum_id from tbl_vw_forum "
-                    + "where tenant_id = ? and forum_id = ?",
-                anEvent.tenant().id(),
-                anEvent.forumId().id())) {
-            return;
-        }
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "insert into tbl_vw_forum( "
                         + "forum_id, closed, "
                         + "creator_email_address, creator_identity, creator_name, "
                         + "description, exclusive_owner, "
                         + "moderator_email_address, moderator_identity, moderator_name, "
                         + "subject, tenant_id"
-                        + ") values(?,?,?,?,?,?,?,?,?,?,?,?)");
+                        + ") values(?,?,?,?,?,?,?,?,?,?,?,?) "
+                        + "on duplicate key update forum_id=forum_id");
 
         statement.setString(1, anEvent.forumId().id());
         statement.setInt(2, 0);
@@ -163,14 +147,12 @@ public class MySQLForumProjection
         statement.setString(11, anEvent.subject());
         statement.setString(12, anEvent.tenant().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.forumId().id());
     }
 
     protected void when(ForumSubjectChanged anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_forum "
                         + "set subject=? "
                         + "where tenant_id = ? and forum_id = ?");
@@ -179,6 +161,6 @@ public class MySQLForumProjection
         statement.setString(2, anEvent.tenant().id());
         statement.setString(3, anEvent.forumId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.forumId().id());
     }
 }
@@ -14,27 +14,28 @@
 
 package com.saasovation.collaboration.port.adapter.persistence.view;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 
 import com.saasovation.collaboration.domain.model.forum.PostContentAltered;
 import com.saasovation.collaboration.domain.model.forum.PostedToDiscussion;
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 import com.saasovation.common.port.adapter.persistence.AbstractProjection;
-import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
 
 public class MySQLPostProjection extends AbstractProjection implements EventDispatcher {
 
+    private static final String DISPATCHER_NAME = "mysql.projection.post";
+
     private static final Class<?> understoodEventTypes[] = {
         PostContentAltered.class,
         PostedToDiscussion.class
     };
 
-    public MySQLPostProjection(EventDispatcher aParentEventDispatcher) {
+    public MySQLPostProjection(CheckpointingEventDispatcher aParentEventDispatcher) {
         super();
 
-        aParentEventDispatcher.registerEventDispatcher(this);
+        aParentEventDispatcher.registerEventDispatcher(DISPATCHER_NAME, this);
     }
 
     @Override
@@ -55,10 +56,8 @@ public class MySQLPostProjection extends AbstractProjection implements EventDisp
     }
 
     protected void when(PostContentAltered anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "update tbl_vw_post "
                         + "set body_text=?, subject=?, changed_on=? "
                         + "where tenant_id = ? and forum_id = ?");
@@ -69,30 +68,21 @@ public class MySQLPostProjection extends AbstractProjection implements EventDisp
         statement.setString(4, anEvent.tenant().id());
         statement.setString(5, anEvent.postId().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.postId().id());
     }
 
     protected void when(PostedToDiscussion anEvent) throws Exception {
-        Connection connection = ConnectionProvider.connection();
-
         // idempotent operation
-        if (this.exists(
-                "select post_id from tbl_vw_post "
-                    + "where tenant_id = ? and post_id = ?",
-                anEvent.tenant().id(),
-                anEvent.postId().id())) {
-            return;
-        }
-
         PreparedStatement statement =
-                connection.prepareStatement(
+                this.prepare(
                         "insert into tbl_vw_post( "
                         + "post_id, "
                         + "author_email_address, author_identity, author_name, "
                         + "body_text, changed_on, created_on, "
                         + "discussion_id, forum_id, reply_to_post_id, "
                         + "subject, tenant_id"
-                        + ") values(?,?,?,?,?,?,?,?,?,?,?,?)");
+                        + ") values(?,?,?,?,?,?,?,?,?,?,?,?) "
+                        + "on duplicate key update post_id=post_id");
 
         statement.setString(1, anEvent.postId().id());
         statement.setString(2, anEvent.author().emailAddress());
@@ -107,6 +97,6 @@ public class MySQLPostProjection extends AbstractProjection implements EventDisp
         statement.setString(11, anEvent.subject());
         statement.setString(12, anEvent.tenant().id());
 
-        this.execute(statement);
+        this.execute(statement, anEvent.postId().id());
     }
 }
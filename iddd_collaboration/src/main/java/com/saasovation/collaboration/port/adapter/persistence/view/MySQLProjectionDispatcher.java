@@ -14,22 +14,42 @@
 
 package com.saasovation.collaboration.port.adapter.persistence.view;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 
-public class MySQLProjectionDispatcher implements EventDispatcher {
+/**
+ * Groups the MySQL projections. Each projection is registered
+ * with my parent dispatcher on its own, and by its name when my
+ * parent keeps checkpoints, so that the parent can dispatch to
+ * and checkpoint every projection independently.
+ */
+public class MySQLProjectionDispatcher implements CheckpointingEventDispatcher {
 
+    private static final String[] VIEW_TABLE_NAMES = {
+        "tbl_vw_calendar",
+        "tbl_vw_calendar_entry",
+        "tbl_vw_calendar_entry_invitee",
+        "tbl_vw_calendar_sharer",
+        "tbl_vw_discussion",
+        "tbl_vw_forum",
+        "tbl_vw_post"
+    };
+
+    private EventDispatcher parentEventDispatcher;
     private List<EventDispatcher> registeredProjections;
 
     public MySQLProjectionDispatcher(EventDispatcher aParentEventDispatcher) {
         super();
 
-        aParentEventDispatcher.registerEventDispatcher(this);
+        this.parentEventDispatcher = aParentEventDispatcher;
 
-        this.setRegisteredProjections(new ArrayList<EventDispatcher>());
+        this.setRegisteredProjections(new CopyOnWriteArrayList<EventDispatcher>());
     }
 
     @Override
@@ -39,9 +59,27 @@ public class MySQLProjectionDispatcher implements EventDispatcher {
         }
     }
 
+    public List<EventDispatcher> projections() {
+        return Collections.unmodifiableList(this.registeredProjections());
+    }
+
     @Override
     public void registerEventDispatcher(EventDispatcher aProjection) {
         this.registeredProjections().add(aProjection);
+
+        this.parentEventDispatcher.registerEventDispatcher(aProjection);
+    }
+
+    @Override
+    public void registerEventDispatcher(String aName, EventDispatcher aProjection) {
+        this.registeredProjections().add(aProjection);
+
+        if (this.parentEventDispatcher instanceof CheckpointingEventDispatcher) {
+            ((CheckpointingEventDispatcher) this.parentEventDispatcher)
+                .registerEventDispatcher(aName, aProjection);
+        } else {
+            this.parentEventDispatcher.registerEventDispatcher(aProjection);
+        }
     }
 
     @Override
@@ -49,6 +87,10 @@ public class MySQLProjectionDispatcher implements EventDispatcher {
         return true;
     }
 
+    public List<String> viewTableNames() {
+        return Arrays.asList(VIEW_TABLE_NAMES);
+    }
+
     private List<EventDispatcher> registeredProjections() {
         return this.registeredProjections;
     }
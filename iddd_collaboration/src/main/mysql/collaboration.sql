@@ -3,6 +3,12 @@ CREATE DATABASE iddd_collaboration;
 USE iddd_collaboration;
 SET FOREIGN_KEY_CHECKS=0;
 
+CREATE TABLE `tbl_dispatcher_checkpoint` (
+    `dispatcher_name` varchar(250) NOT NULL,
+    `event_id` bigint(20) NOT NULL,
+    PRIMARY KEY (`dispatcher_name`)
+) ENGINE=InnoDB;
+
 CREATE TABLE `tbl_dispatcher_last_event` (
     `event_id` bigint(20) NOT NULL,
     PRIMARY KEY (`event_id`)
@@ -19,6 +25,20 @@ CREATE TABLE `tbl_es_event_store` (
     PRIMARY KEY (`event_id`)
 ) ENGINE=InnoDB;
 
+CREATE TABLE `tbl_es_snapshot_store` (
+    `stream_name` varchar(250) NOT NULL,
+    `stream_version` int(11) NOT NULL,
+    `snapshot_type` varchar(250) NOT NULL,
+    `snapshot_state` mediumtext NOT NULL,
+    PRIMARY KEY (`stream_name`)
+) ENGINE=InnoDB;
+
+CREATE TABLE `tbl_projection_rebuild` (
+    `rebuild_name` varchar(250) NOT NULL,
+    `event_id` bigint(20) NOT NULL,
+    PRIMARY KEY (`rebuild_name`)
+) ENGINE=InnoDB;
+
 CREATE TABLE `tbl_vw_calendar` (
     `calendar_id` varchar(36) NOT NULL,
     `description` varchar(500),
@@ -66,6 +86,7 @@ CREATE TABLE `tbl_vw_calendar_entry_invitee` (
     KEY `k_calendar_entry_id` (`calendar_entry_id`),
     KEY `k_participant_identity` (`participant_identity`),
     KEY `k_tenant_id` (`tenant_id`),
+    UNIQUE KEY `k_participant` (`tenant_id`,`calendar_entry_id`,`participant_identity`),
     PRIMARY KEY (`id`)
 ) ENGINE=InnoDB;
 
@@ -79,6 +100,7 @@ CREATE TABLE `tbl_vw_calendar_sharer` (
     KEY `k_calendar_id` (`calendar_id`),
     KEY `k_participant_identity` (`participant_identity`),
     KEY `k_tenant_id` (`tenant_id`),
+    UNIQUE KEY `k_participant` (`tenant_id`,`calendar_id`,`participant_identity`),
     PRIMARY KEY (`id`)
 ) ENGINE=InnoDB;
 
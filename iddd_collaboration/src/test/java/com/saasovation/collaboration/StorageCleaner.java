@@ -25,8 +25,10 @@ import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
 public class StorageCleaner extends EventStoreProvider {
 
     private static final String[] tablesToClean = {
+        "tbl_dispatcher_checkpoint",
         "tbl_dispatcher_last_event",
         "tbl_es_event_store",
+        "tbl_projection_rebuild",
         "tbl_vw_calendar",
         "tbl_vw_calendar_sharer",
         "tbl_vw_calendar_entry",
@@ -47,6 +49,8 @@ public class StorageCleaner extends EventStoreProvider {
     public void clean() {
         this.eventStore().purge();
 
+        this.snapshotStore().purge();
+
         Connection connection = ConnectionProvider.connection(this.dataSource);
         PreparedStatement statement = null;
 
@@ -0,0 +1,189 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.application.calendar;
+
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.saasovation.collaboration.application.calendar.data.CalendarEntryData;
+import com.saasovation.common.port.adapter.persistence.JoinOn;
+import com.saasovation.common.port.adapter.persistence.ResultSetObjectMapper;
+
+/**
+ * Maps the result of CalendarEntryQueryService's calendar entry
+ * query, entries outer joined with their invitees, from an in-memory
+ * CachedRowSet. Every tenth entry has no invitees, the others two.
+ * The mapper is either created per entry, as queryObject() does,
+ * or once for the whole result, as queryObjects() does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CalendarEntryDataMappingBenchmark {
+
+    private static final String[] COLUMN_LABELS = {
+        "calendar_entry_id", "alarm_alarm_units", "alarm_alarm_units_type",
+        "calendar_id", "description", "location",
+        "owner_email_address", "owner_identity", "owner_name",
+        "repetition_ends", "repetition_type", "tenant_id",
+        "time_span_begins", "time_span_ends",
+        "o_invitees_calendar_entry_id",
+        "o_invitees_participant_email_address",
+        "o_invitees_participant_identity",
+        "o_invitees_participant_name",
+        "o_invitees_tenant_id"
+    };
+
+    private static final int INVITEES_PER_ENTRY = 2;
+
+    @Param({ "10000" })
+    public int entryCount;
+
+    private CachedRowSet result;
+
+    @Setup
+    public void setUp() throws Exception {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+
+        metaData.setColumnCount(COLUMN_LABELS.length);
+
+        for (int idx = 0; idx < COLUMN_LABELS.length; ++idx) {
+            String label = COLUMN_LABELS[idx];
+
+            metaData.setColumnName(idx + 1, label);
+            metaData.setColumnLabel(idx + 1, label);
+            metaData.setNullable(idx + 1, ResultSetMetaData.columnNullable);
+            metaData.setColumnType(
+                    idx + 1,
+                    label.equals("alarm_alarm_units") ?
+                            Types.INTEGER :
+                            (label.startsWith("repetition_ends") || label.startsWith("time_span_") ?
+                                    Types.TIMESTAMP :
+                                    Types.VARCHAR));
+        }
+
+        this.result = RowSetProvider.newFactory().createCachedRowSet();
+
+        this.result.setMetaData(metaData);
+
+        Timestamp begins = new Timestamp(System.currentTimeMillis());
+        Timestamp ends = new Timestamp(begins.getTime() + 3600000L);
+
+        for (int entry = 0; entry < this.entryCount; ++entry) {
+
+            // the last entry has no invitees, as a CachedRowSet
+            // cannot move next() once after its last row
+
+            boolean hasInvitees = entry % 10 != 9 && entry < this.entryCount - 1;
+
+            for (int invitee = 0; invitee < (hasInvitees ? INVITEES_PER_ENTRY : 1); ++invitee) {
+                String entryId = "entry-" + entry;
+
+                this.result.moveToInsertRow();
+
+                this.result.updateString(1, entryId);
+                this.result.updateInt(2, 10);
+                this.result.updateString(3, "Minutes");
+                this.result.updateString(4, "calendar-1");
+                this.result.updateString(5, "An entry.");
+                this.result.updateString(6, "Room 1");
+                this.result.updateString(7, "jdoe@saasovation.com");
+                this.result.updateString(8, "jdoe");
+                this.result.updateString(9, "John Doe");
+                this.result.updateTimestamp(10, ends);
+                this.result.updateString(11, "DoesNotRepeat");
+                this.result.updateString(12, "tenant-1");
+                this.result.updateTimestamp(13, begins);
+                this.result.updateTimestamp(14, ends);
+
+                if (hasInvitees) {
+                    this.result.updateString(15, entryId);
+                    this.result.updateString(16, "invitee" + invitee + "@saasovation.com");
+                    this.result.updateString(17, "invitee" + invitee);
+                    this.result.updateString(18, "Invitee " + invitee);
+                    this.result.updateString(19, "tenant-1");
+                } else {
+                    for (int column = 15; column <= 19; ++column) {
+                        this.result.updateNull(column);
+                    }
+                }
+
+                this.result.insertRow();
+                this.result.moveToCurrentRow();
+                this.result.last();
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapperPerEntry(Blackhole aBlackhole) throws Exception {
+        JoinOn joinOn = this.joinOn();
+
+        this.result.beforeFirst();
+
+        while (this.result.next()) {
+            ResultSetObjectMapper<CalendarEntryData> mapper =
+                    new ResultSetObjectMapper<CalendarEntryData>(
+                            this.result,
+                            CalendarEntryData.class,
+                            joinOn);
+
+            aBlackhole.consume(mapper.mapResultToType());
+        }
+    }
+
+    @Benchmark
+    public void mapperPerResult(Blackhole aBlackhole) throws Exception {
+        JoinOn joinOn = this.joinOn();
+
+        this.result.beforeFirst();
+
+        ResultSetObjectMapper<CalendarEntryData> mapper =
+                new ResultSetObjectMapper<CalendarEntryData>(
+                        this.result,
+                        CalendarEntryData.class,
+                        joinOn);
+
+        while (this.result.next()) {
+            aBlackhole.consume(mapper.mapResultToType());
+        }
+    }
+
+    private JoinOn joinOn() {
+        return new JoinOn("calendar_entry_id", "o_invitees_calendar_entry_id");
+    }
+}
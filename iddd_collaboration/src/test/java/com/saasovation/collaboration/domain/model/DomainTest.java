@@ -36,10 +36,14 @@ public abstract class DomainTest extends EventTrackingTestCase {
 
     protected void setUp() throws Exception {
         if (applicationContext == null) {
+            // the test beans in applicationContext-collaboration-test.xml
+            // replace the standard ones, dispatching events synchronously
+
             applicationContext =
                     new ClassPathXmlApplicationContext(
                             new String[] {
-                                    "applicationContext-collaboration.xml" });
+                                    "applicationContext-collaboration.xml",
+                                    "applicationContext-collaboration-test.xml" });
         }
 
         if (dataSource == null) {
@@ -0,0 +1,121 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.collaboration.domain.model.forum;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.collaboration.domain.model.collaborator.Creator;
+import com.saasovation.collaboration.domain.model.collaborator.Moderator;
+import com.saasovation.collaboration.domain.model.tenant.Tenant;
+import com.saasovation.common.domain.model.DomainEvent;
+
+/**
+ * Replays a 10k event Forum stream through the dispatch table of
+ * EventSourcedRootEntity, and through the former string-keyed,
+ * reflective Method.invoke dispatch for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForumReplayBenchmark {
+
+    private static final int EVENT_COUNT = 10000;
+
+    private static Map<String, Method> reflectiveMutatorMethods =
+            new HashMap<String, Method>();
+
+    private List<DomainEvent> events;
+
+    @Setup
+    public void setUp() {
+        Tenant tenant = new Tenant("01234567");
+        ForumId forumId = new ForumId("F-0001");
+
+        this.events = new ArrayList<DomainEvent>(EVENT_COUNT);
+
+        this.events.add(
+                new ForumStarted(
+                        tenant,
+                        forumId,
+                        new Creator("jdoe", "John Doe", "jdoe@saasovation.com"),
+                        new Moderator("jdoe", "John Doe", "jdoe@saasovation.com"),
+                        "John Doe Does DDD",
+                        "A set of discussions about DDD for anonymous developers.",
+                        null));
+
+        for (int idx = 1; idx < EVENT_COUNT; ++idx) {
+            if (idx % 2 == 0) {
+                this.events.add(new ForumSubjectChanged(tenant, forumId, "Subject " + idx, null));
+            } else {
+                this.events.add(new ForumDescriptionChanged(tenant, forumId, "Description " + idx, null));
+            }
+        }
+    }
+
+    @Benchmark
+    public Forum dispatchTableReplay() {
+        return new Forum(this.events, EVENT_COUNT);
+    }
+
+    @Benchmark
+    public Forum reflectiveReplay() throws Exception {
+        Forum forum = new Forum(this.events.subList(0, 1), 1);
+
+        for (DomainEvent event : this.events.subList(1, EVENT_COUNT)) {
+            this.reflectiveMutateWhen(forum, event);
+        }
+
+        return forum;
+    }
+
+    private void reflectiveMutateWhen(Forum aForum, DomainEvent aDomainEvent) throws Exception {
+        Class<?> rootType = aForum.getClass();
+        Class<?> eventType = aDomainEvent.getClass();
+
+        String key = rootType.getName() + ":" + eventType.getName();
+
+        Method mutatorMethod = reflectiveMutatorMethods.get(key);
+
+        if (mutatorMethod == null) {
+            synchronized (reflectiveMutatorMethods) {
+                mutatorMethod = rootType.getDeclaredMethod("when", eventType);
+
+                mutatorMethod.setAccessible(true);
+
+                reflectiveMutatorMethods.put(key, mutatorMethod);
+            }
+        }
+
+        mutatorMethod.invoke(aForum, aDomainEvent);
+    }
+}
@@ -0,0 +1,356 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.TestableDomainEvent;
+import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
+import com.saasovation.common.event.sourcing.EventDispatcher;
+import com.saasovation.common.event.sourcing.EventStore;
+import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.port.adapter.persistence.AbstractProjection;
+import com.saasovation.common.port.adapter.persistence.RoundTripSimulatingDataSource;
+
+public class FollowStoreEventDispatcherTest extends TestCase {
+
+    private static final int EVENTS_PER_STREAM = 20;
+    private static final int STREAMS = 10;
+
+    private FollowStoreEventDispatcher dispatcher;
+    private EventStore eventStore;
+
+    public FollowStoreEventDispatcherTest() {
+        super();
+    }
+
+    public void testAsynchronousDispatchKeepsStreamOrder() throws Exception {
+        RecordingProjection projection = new RecordingProjection();
+
+        this.dispatcher.registerEventDispatcher("recording", projection);
+
+        this.appendStreams();
+
+        this.awaitDispatched(STREAMS * EVENTS_PER_STREAM);
+
+        this.assertStreamOrder(projection);
+
+        DispatchMetrics metrics = this.dispatcher.metrics();
+
+        assertEquals(STREAMS * EVENTS_PER_STREAM, metrics.headEventId());
+        assertEquals(0, metrics.lag());
+        assertEquals(
+                Long.valueOf(STREAMS * EVENTS_PER_STREAM),
+                metrics.checkpoints().get("recording"));
+        assertEquals(0, metrics.failedDispatches());
+    }
+
+    public void testFailedProjectionIsRetriedFromItsCheckpoint() throws Exception {
+        RecordingProjection projection = new RecordingProjection();
+        FailingOnceProjection failingProjection = new FailingOnceProjection(57);
+
+        this.dispatcher.registerEventDispatcher("recording", projection);
+        this.dispatcher.registerEventDispatcher("failingOnce", failingProjection);
+
+        this.appendStreams();
+
+        this.awaitDispatched(STREAMS * EVENTS_PER_STREAM);
+
+        // the healthy projection saw every event exactly once
+
+        this.assertStreamOrder(projection);
+
+        DispatchMetrics metrics = this.dispatcher.metrics();
+
+        assertEquals(1, metrics.failedDispatches());
+        assertEquals(0, metrics.lag());
+        assertEquals(0, metrics.lagOf("failingOnce"));
+        assertTrue(failingProjection.hasFailed());
+        assertTrue(failingProjection.dispatchedEventIds().contains(57L));
+    }
+
+    public void testFailingProjectionHoldsBackNoOther() throws Exception {
+        RecordingProjection projection = new RecordingProjection();
+        FailingProjection failingProjection = new FailingProjection(57);
+
+        this.dispatcher.registerEventDispatcher("recording", projection);
+        this.dispatcher.registerEventDispatcher("failing", failingProjection);
+
+        this.appendStreams();
+
+        // the healthy projection reaches the head past the failing event
+
+        this.awaitCheckpoint("recording", STREAMS * EVENTS_PER_STREAM);
+
+        this.assertStreamOrder(projection);
+
+        DispatchMetrics metrics = this.dispatcher.metrics();
+
+        long failingCheckpoint = metrics.checkpoints().get("failing");
+
+        assertTrue(failingCheckpoint < 57);
+        assertTrue(metrics.failedDispatches() >= 1);
+        assertEquals(0, metrics.lagOf("recording"));
+
+        // the lag is measured from the head, not from the end of a batch
+
+        assertEquals(STREAMS * EVENTS_PER_STREAM - failingCheckpoint, metrics.lagOf("failing"));
+        assertTrue(metrics.lag() > 25);
+    }
+
+    public void testDispatchersOfOneClassCheckpointedByName() throws Exception {
+        RecordingProjection projection1 = new RecordingProjection();
+        RecordingProjection projection2 = new RecordingProjection();
+
+        this.dispatcher.registerEventDispatcher("recording1", projection1);
+        this.dispatcher.registerEventDispatcher("recording2", projection2);
+
+        this.appendStreams();
+
+        this.awaitDispatched(STREAMS * EVENTS_PER_STREAM);
+
+        this.assertStreamOrder(projection1);
+        this.assertStreamOrder(projection2);
+
+        Map<String, Long> checkpoints = this.dispatcher.metrics().checkpoints();
+
+        assertEquals(Long.valueOf(STREAMS * EVENTS_PER_STREAM), checkpoints.get("recording1"));
+        assertEquals(Long.valueOf(STREAMS * EVENTS_PER_STREAM), checkpoints.get("recording2"));
+        assertFalse(checkpoints.containsKey(RecordingProjection.class.getName()));
+    }
+
+    public void testDispatcherNamesAreRequiredAndUnique() throws Exception {
+        this.dispatcher.registerEventDispatcher("recording", new RecordingProjection());
+
+        try {
+            this.dispatcher.registerEventDispatcher(new RecordingProjection());
+
+            fail("An asynchronously dispatched projection must be named.");
+
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            this.dispatcher.registerEventDispatcher("recording", new RecordingProjection());
+
+            fail("A name must not be registered twice.");
+
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        this.eventStore = EventStoreProvider.instance().eventStore();
+
+        this.eventStore.purge();
+
+        this.dispatcher =
+                new FollowStoreEventDispatcher(
+                        new RoundTripSimulatingDataSource(0),
+                        4,
+                        25);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.dispatcher.close();
+
+        this.eventStore.purge();
+
+        super.tearDown();
+    }
+
+    private void appendStreams() {
+        for (int stream = 1; stream <= STREAMS; ++stream) {
+            EventStreamId streamId = new EventStreamId("stream-" + stream);
+
+            List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+            for (int idx = 1; idx <= EVENTS_PER_STREAM; ++idx) {
+                events.add(new TestableDomainEvent(idx, "Name: " + idx));
+            }
+
+            this.eventStore.appendWith(streamId, events);
+        }
+    }
+
+    private void assertStreamOrder(RecordingProjection aProjection) {
+        Map<String, List<Long>> dispatched = aProjection.dispatchedByStream();
+
+        assertEquals(STREAMS, dispatched.size());
+
+        for (List<Long> streamEvents : dispatched.values()) {
+            assertEquals(EVENTS_PER_STREAM, streamEvents.size());
+
+            for (int idx = 0; idx < streamEvents.size(); ++idx) {
+                assertEquals(idx + 1, streamEvents.get(idx).longValue());
+            }
+        }
+    }
+
+    private void awaitCheckpoint(String aDispatcherName, long anEventId) throws Exception {
+        for (int wait = 0; wait < 100; ++wait) {
+            DispatchMetrics metrics = this.dispatcher.metrics();
+
+            Long checkpoint = metrics.checkpoints().get(aDispatcherName);
+
+            if (checkpoint != null
+                    && checkpoint.longValue() >= anEventId
+                    && metrics.headEventId() >= anEventId) {
+                return;
+            }
+
+            Thread.sleep(100L);
+        }
+
+        fail("Not checkpointed: " + this.dispatcher.metrics());
+    }
+
+    private void awaitDispatched(long anEventCount) throws Exception {
+        for (int wait = 0; wait < 100; ++wait) {
+            if (this.dispatcher.metrics().dispatchedEvents() >= anEventCount) {
+                return;
+            }
+
+            Thread.sleep(100L);
+        }
+
+        fail("Not dispatched: " + this.dispatcher.metrics());
+    }
+
+    private static class FailingProjection extends AbstractProjection {
+
+        private long failingEventId;
+
+        FailingProjection(long aFailingEventId) {
+            super();
+
+            this.failingEventId = aFailingEventId;
+        }
+
+        @Override
+        public void dispatch(DispatchableDomainEvent aDispatchableDomainEvent) {
+            if (aDispatchableDomainEvent.eventId() == this.failingEventId) {
+                throw new IllegalStateException("Failing on: " + this.failingEventId);
+            }
+        }
+
+        @Override
+        public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
+            throw new UnsupportedOperationException("Cannot register additional dispatchers.");
+        }
+
+        @Override
+        public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
+            return true;
+        }
+    }
+
+    private static class FailingOnceProjection extends AbstractProjection {
+
+        private List<Long> dispatchedEventIds;
+        private long failingEventId;
+        private boolean failed;
+
+        FailingOnceProjection(long aFailingEventId) {
+            super();
+
+            this.dispatchedEventIds = new ArrayList<Long>();
+            this.failingEventId = aFailingEventId;
+        }
+
+        @Override
+        public synchronized void dispatch(DispatchableDomainEvent aDispatchableDomainEvent) {
+            if (!this.failed && aDispatchableDomainEvent.eventId() == this.failingEventId) {
+                this.failed = true;
+
+                throw new IllegalStateException("Failing once on: " + this.failingEventId);
+            }
+
+            this.dispatchedEventIds.add(aDispatchableDomainEvent.eventId());
+        }
+
+        @Override
+        public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
+            throw new UnsupportedOperationException("Cannot register additional dispatchers.");
+        }
+
+        @Override
+        public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
+            return true;
+        }
+
+        synchronized List<Long> dispatchedEventIds() {
+            return new ArrayList<Long>(this.dispatchedEventIds);
+        }
+
+        synchronized boolean hasFailed() {
+            return this.failed;
+        }
+    }
+
+    private static class RecordingProjection extends AbstractProjection {
+
+        private Map<String, List<Long>> dispatchedByStream;
+
+        RecordingProjection() {
+            super();
+
+            this.dispatchedByStream = new HashMap<String, List<Long>>();
+        }
+
+        @Override
+        public synchronized void dispatch(DispatchableDomainEvent aDispatchableDomainEvent) {
+            List<Long> streamEvents =
+                    this.dispatchedByStream.get(aDispatchableDomainEvent.streamName());
+
+            if (streamEvents == null) {
+                streamEvents = new ArrayList<Long>();
+
+                this.dispatchedByStream.put(aDispatchableDomainEvent.streamName(), streamEvents);
+            }
+
+            TestableDomainEvent event = (TestableDomainEvent) aDispatchableDomainEvent.domainEvent();
+
+            streamEvents.add(event.id());
+        }
+
+        @Override
+        public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
+            throw new UnsupportedOperationException("Cannot register additional dispatchers.");
+        }
+
+        @Override
+        public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
+            return true;
+        }
+
+        synchronized Map<String, List<Long>> dispatchedByStream() {
+            return new HashMap<String, List<Long>>(this.dispatchedByStream);
+        }
+    }
+}
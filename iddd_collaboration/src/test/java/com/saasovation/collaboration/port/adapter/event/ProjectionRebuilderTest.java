@@ -0,0 +1,225 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.saasovation.collaboration.port.adapter.persistence.EventStoreProvider;
+import com.saasovation.collaboration.port.adapter.persistence.view.MySQLProjectionDispatcher;
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.TestableDomainEvent;
+import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
+import com.saasovation.common.event.sourcing.EventDispatcher;
+import com.saasovation.common.event.sourcing.EventStore;
+import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.port.adapter.persistence.AbstractProjection;
+import com.saasovation.common.port.adapter.persistence.RoundTripSimulatingDataSource;
+
+public class ProjectionRebuilderTest extends TestCase {
+
+    private static final int EVENTS_PER_STREAM = 20;
+    private static final int STREAMS = 10;
+
+    private FollowStoreEventDispatcher dispatcher;
+    private EventStore eventStore;
+    private RecordingProjection projection;
+    private ProjectionRebuilder rebuilder;
+
+    public ProjectionRebuilderTest() {
+        super();
+    }
+
+    public void testRebuildReplaysEveryStreamInOrder() throws Exception {
+        this.appendStreams(1);
+
+        RebuildProgress progress = this.rebuilder.rebuild();
+
+        long head = STREAMS * EVENTS_PER_STREAM;
+
+        assertTrue(progress.isHandedOff());
+        assertEquals(head, progress.handOffEventId());
+        assertEquals(head, progress.replayedEventId());
+        assertEquals(head, progress.replayedEvents());
+        assertEquals(100, progress.percentComplete());
+
+        Map<String, List<Long>> rebuilt = this.projection.rebuiltByStream();
+
+        assertEquals(STREAMS, rebuilt.size());
+
+        for (List<Long> streamEvents : rebuilt.values()) {
+            assertEquals(EVENTS_PER_STREAM, streamEvents.size());
+
+            for (int idx = 0; idx < streamEvents.size(); ++idx) {
+                assertEquals(idx + 1, streamEvents.get(idx).longValue());
+            }
+        }
+    }
+
+    public void testLiveDispatchContinuesAfterHandOff() throws Exception {
+        this.appendStreams(1);
+
+        long handOffEventId = this.rebuilder.rebuild().handOffEventId();
+
+        assertEquals(
+                Long.valueOf(handOffEventId),
+                this.dispatcher.metrics().checkpoints().get("recording"));
+
+        this.appendStreams(EVENTS_PER_STREAM + 1);
+
+        long head = 2 * STREAMS * EVENTS_PER_STREAM;
+
+        // the head is read with each batch, so until the appended
+        // events are read the lag may still be that of the head before
+
+        for (int wait = 0;
+                wait < 100
+                    && (this.dispatcher.metrics().lag() > 0
+                        || this.dispatcher.metrics().headEventId() < head);
+                ++wait) {
+
+            Thread.sleep(100L);
+        }
+
+        assertEquals(0, this.dispatcher.metrics().lag());
+        assertEquals(head, this.dispatcher.metrics().headEventId());
+
+        // every event after the hand off reached the live tables,
+        // and none of them was replayed by the rebuild
+
+        List<Long> liveEventIds = this.projection.liveEventIds();
+
+        for (long eventId = handOffEventId + 1; eventId <= head; ++eventId) {
+            assertTrue(liveEventIds.contains(eventId));
+        }
+
+        assertEquals(handOffEventId, this.projection.rebuiltEventCount());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        this.eventStore = EventStoreProvider.instance().eventStore();
+
+        this.eventStore.purge();
+
+        RoundTripSimulatingDataSource dataSource = new RoundTripSimulatingDataSource(0);
+
+        this.dispatcher = new FollowStoreEventDispatcher(dataSource, 4, 25);
+
+        MySQLProjectionDispatcher projectionDispatcher =
+                new MySQLProjectionDispatcher(this.dispatcher);
+
+        this.projection = new RecordingProjection();
+
+        projectionDispatcher.registerEventDispatcher("recording", this.projection);
+
+        this.rebuilder =
+                new ProjectionRebuilder(
+                        dataSource,
+                        this.dispatcher,
+                        projectionDispatcher,
+                        4,
+                        30);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.dispatcher.close();
+
+        this.eventStore.purge();
+
+        super.tearDown();
+    }
+
+    private void appendStreams(int aFirstStreamVersion) {
+        for (int stream = 1; stream <= STREAMS; ++stream) {
+            EventStreamId streamId = new EventStreamId("stream-" + stream, aFirstStreamVersion);
+
+            List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+            for (int idx = 1; idx <= EVENTS_PER_STREAM; ++idx) {
+                events.add(new TestableDomainEvent(idx, "Name: " + idx));
+            }
+
+            this.eventStore.appendWith(streamId, events);
+        }
+    }
+
+    private static class RecordingProjection extends AbstractProjection {
+
+        private List<Long> liveEventIds;
+        private Map<String, List<Long>> rebuiltByStream;
+        private long rebuiltEventCount;
+
+        RecordingProjection() {
+            super();
+
+            this.liveEventIds = new ArrayList<Long>();
+            this.rebuiltByStream = new HashMap<String, List<Long>>();
+        }
+
+        @Override
+        public synchronized void dispatch(DispatchableDomainEvent aDispatchableDomainEvent) {
+            if (!Thread.currentThread().getName().startsWith("projection-rebuild-worker-")) {
+                this.liveEventIds.add(aDispatchableDomainEvent.eventId());
+
+                return;
+            }
+
+            List<Long> streamEvents =
+                    this.rebuiltByStream.get(aDispatchableDomainEvent.streamName());
+
+            if (streamEvents == null) {
+                streamEvents = new ArrayList<Long>();
+
+                this.rebuiltByStream.put(aDispatchableDomainEvent.streamName(), streamEvents);
+            }
+
+            TestableDomainEvent event = (TestableDomainEvent) aDispatchableDomainEvent.domainEvent();
+
+            streamEvents.add(event.id());
+
+            ++this.rebuiltEventCount;
+        }
+
+        @Override
+        public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
+            throw new UnsupportedOperationException("Cannot register additional dispatchers.");
+        }
+
+        @Override
+        public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
+            return true;
+        }
+
+        synchronized List<Long> liveEventIds() {
+            return new ArrayList<Long>(this.liveEventIds);
+        }
+
+        synchronized Map<String, List<Long>> rebuiltByStream() {
+            return new HashMap<String, List<Long>>(this.rebuiltByStream);
+        }
+
+        synchronized long rebuiltEventCount() {
+            return this.rebuiltEventCount;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.collaboration.port.adapter.persistence.view;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.collaboration.domain.model.calendar.Alarm;
+import com.saasovation.collaboration.domain.model.calendar.AlarmUnitsType;
+import com.saasovation.collaboration.domain.model.calendar.CalendarCreated;
+import com.saasovation.collaboration.domain.model.calendar.CalendarEntryId;
+import com.saasovation.collaboration.domain.model.calendar.CalendarEntryScheduled;
+import com.saasovation.collaboration.domain.model.calendar.CalendarId;
+import com.saasovation.collaboration.domain.model.calendar.CalendarSharer;
+import com.saasovation.collaboration.domain.model.calendar.Repetition;
+import com.saasovation.collaboration.domain.model.calendar.TimeSpan;
+import com.saasovation.collaboration.domain.model.collaborator.Author;
+import com.saasovation.collaboration.domain.model.collaborator.Creator;
+import com.saasovation.collaboration.domain.model.collaborator.Moderator;
+import com.saasovation.collaboration.domain.model.collaborator.Owner;
+import com.saasovation.collaboration.domain.model.collaborator.Participant;
+import com.saasovation.collaboration.domain.model.forum.DiscussionId;
+import com.saasovation.collaboration.domain.model.forum.DiscussionStarted;
+import com.saasovation.collaboration.domain.model.forum.ForumId;
+import com.saasovation.collaboration.domain.model.forum.ForumStarted;
+import com.saasovation.collaboration.domain.model.forum.ForumSubjectChanged;
+import com.saasovation.collaboration.domain.model.forum.PostContentAltered;
+import com.saasovation.collaboration.domain.model.forum.PostId;
+import com.saasovation.collaboration.domain.model.forum.PostedToDiscussion;
+import com.saasovation.collaboration.domain.model.tenant.Tenant;
+import com.saasovation.collaboration.port.adapter.event.CheckpointingEventDispatcher;
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
+import com.saasovation.common.event.sourcing.EventDispatcher;
+import com.saasovation.common.event.sourcing.EventStore;
+import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.port.adapter.persistence.ConnectionProvider;
+import com.saasovation.common.port.adapter.persistence.ProjectionUnitOfWork;
+import com.saasovation.common.port.adapter.persistence.RoundTripSimulatingDataSource;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb.LevelDBEventStore;
+
+/**
+ * Replays stored collaboration events into the five MySQL views,
+ * once with a statement per event and once through the projection
+ * unit of work, committing every dispatch batch. The JDBC stand-in
+ * charges a simulated round trip per server call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ProjectionReplayBenchmark {
+
+    private static final int EVENTS_PER_ROUND = 10;
+
+    @Param({ "100000" })
+    public int eventCount;
+
+    @Param({ "500" })
+    public int batchSize;
+
+    @Param({ "50000" })
+    public long roundTripNanos;
+
+    private RoundTripSimulatingDataSource dataSource;
+    private EventStore eventStore;
+    private List<EventDispatcher> projections;
+
+    @Setup
+    public void setUp() {
+        this.dataSource = new RoundTripSimulatingDataSource(this.roundTripNanos);
+
+        this.eventStore =
+                LevelDBEventStore.instance(
+                        System.getProperty("java.io.tmpdir")
+                        + File.separator
+                        + "iddd_collaboration_replay_benchmark");
+
+        this.eventStore.purge();
+
+        for (int round = 0; round < this.eventCount / EVENTS_PER_ROUND; ++round) {
+            this.appendRound(round);
+        }
+
+        ProjectionRegistry registry = new ProjectionRegistry();
+
+        new MySQLCalendarEntryProjection(registry);
+        new MySQLCalendarProjection(registry);
+        new MySQLDiscussionProjection(registry);
+        new MySQLForumProjection(registry);
+        new MySQLPostProjection(registry);
+
+        this.projections = registry.projections();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.eventStore.purge();
+    }
+
+    @Benchmark
+    public long statementPerEventReplay() throws Exception {
+        return this.replay(false);
+    }
+
+    @Benchmark
+    public long unitOfWorkReplay() throws Exception {
+        return this.replay(true);
+    }
+
+    private void append(String aStreamName, int aStreamVersion, DomainEvent anEvent) {
+        this.eventStore.appendWith(
+                new EventStreamId(aStreamName, aStreamVersion),
+                Collections.singletonList(anEvent));
+    }
+
+    private void appendRound(int aRound) {
+        Tenant tenant = new Tenant("tenant-" + (aRound % 10));
+        ForumId forumId = new ForumId("forum-" + aRound);
+        DiscussionId discussionId = new DiscussionId("discussion-" + aRound);
+        CalendarId calendarId = new CalendarId("calendar-" + aRound);
+        CalendarEntryId calendarEntryId = new CalendarEntryId("entry-" + aRound);
+
+        this.append(
+                forumId.id(), 1,
+                new ForumStarted(
+                        tenant, forumId,
+                        new Creator("jdoe", "John Doe", "jdoe@saasovation.com"),
+                        new Moderator("zoe", "Zoe Doe", "zoe@saasovation.com"),
+                        "Forum " + aRound, "A forum.", null));
+
+        this.append(
+                forumId.id(), 2,
+                new ForumSubjectChanged(tenant, forumId, "Subject " + aRound, null));
+
+        this.append(
+                discussionId.id(), 1,
+                new DiscussionStarted(
+                        tenant, forumId, discussionId,
+                        new Author("jdoe", "John Doe", "jdoe@saasovation.com"),
+                        "Discussion " + aRound, null));
+
+        for (int post = 1; post <= 4; ++post) {
+            PostId postId = new PostId("post-" + aRound + "-" + post);
+
+            this.append(
+                    postId.id(), 1,
+                    new PostedToDiscussion(
+                            tenant, forumId, discussionId, null, postId,
+                            new Author("zoe", "Zoe Doe", "zoe@saasovation.com"),
+                            "Post " + post, "The body of post " + post + "."));
+
+            if (post == 4) {
+                this.append(
+                        postId.id(), 2,
+                        new PostContentAltered(
+                                tenant, forumId, discussionId, postId,
+                                "Post " + post, "The altered body."));
+            }
+        }
+
+        Owner owner = new Owner("jdoe", "John Doe", "jdoe@saasovation.com");
+
+        this.append(
+                calendarId.id(), 1,
+                new CalendarCreated(
+                        tenant, calendarId, "Calendar " + aRound, "A calendar.",
+                        owner, new HashSet<CalendarSharer>()));
+
+        Set<Participant> invitees = new HashSet<Participant>();
+        invitees.add(new Participant("zoe", "Zoe Doe", "zoe@saasovation.com"));
+        invitees.add(new Participant("joe", "Joe Doe", "joe@saasovation.com"));
+
+        Date begins = new Date();
+        Date ends = new Date(begins.getTime() + 3600000L);
+
+        this.append(
+                calendarEntryId.id(), 1,
+                new CalendarEntryScheduled(
+                        tenant, calendarId, calendarEntryId,
+                        "An entry.", "Room 1", owner,
+                        new TimeSpan(begins, ends),
+                        Repetition.doesNotRepeatInstance(ends),
+                        new Alarm(AlarmUnitsType.Minutes, 10),
+                        invitees));
+    }
+
+    private long replay(boolean isUnitOfWork) throws Exception {
+        long lastEventId = 0;
+
+        List<DispatchableDomainEvent> batch =
+                this.eventStore.eventsSince(lastEventId, this.batchSize);
+
+        while (!batch.isEmpty()) {
+            Connection connection = ConnectionProvider.connection(this.dataSource);
+
+            ProjectionUnitOfWork unitOfWork =
+                    isUnitOfWork ? ProjectionUnitOfWork.start(connection) : null;
+
+            try {
+                for (DispatchableDomainEvent event : batch) {
+                    for (EventDispatcher projection : this.projections) {
+                        projection.dispatch(event);
+                    }
+                }
+
+                if (unitOfWork != null) {
+                    unitOfWork.flush();
+                }
+
+                connection.commit();
+
+            } finally {
+                ProjectionUnitOfWork.end();
+
+                ConnectionProvider.closeConnection();
+            }
+
+            lastEventId = batch.get(batch.size() - 1).eventId();
+
+            batch = this.eventStore.eventsSince(lastEventId, this.batchSize);
+        }
+
+        return this.dataSource.roundTrips();
+    }
+
+    private static class ProjectionRegistry implements CheckpointingEventDispatcher {
+
+        private List<EventDispatcher> projections = new ArrayList<EventDispatcher>();
+
+        @Override
+        public void dispatch(DispatchableDomainEvent aDispatchableDomainEvent) {
+            throw new UnsupportedOperationException("Only registers projections.");
+        }
+
+        @Override
+        public void registerEventDispatcher(EventDispatcher anEventDispatcher) {
+            this.projections.add(anEventDispatcher);
+        }
+
+        @Override
+        public void registerEventDispatcher(String aName, EventDispatcher anEventDispatcher) {
+            this.projections.add(anEventDispatcher);
+        }
+
+        @Override
+        public boolean understands(DispatchableDomainEvent aDispatchableDomainEvent) {
+            return false;
+        }
+
+        List<EventDispatcher> projections() {
+            return this.projections;
+        }
+    }
+}
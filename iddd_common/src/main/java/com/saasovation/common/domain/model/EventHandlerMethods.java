@@ -0,0 +1,176 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.domain.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>按名称（如 "when"）查找并分派事件处理方法的分派表。
+ * <p>每个聚合或投影类型的分派表只在第一次使用时构建一次，由 {@link ClassValue}
+ * 按类型保存，以事件类型作为键，值是 {@link MethodHandle}。之后的分派不需要拼接
+ * 字符串作为键，也不需要加锁。
+ * <p>与原来的反射查找一致：先是类型自身声明的方法（无论可见性），然后是公共方法
+ * （包括继承的），参数类型必须与事件类型完全相同。
+ */
+public class EventHandlerMethods {
+
+    private static final MethodType DISPATCH_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+    private ClassValue<Map<Class<?>, MethodHandle>> dispatchTables;
+    private String methodName;
+
+    public EventHandlerMethods(String aMethodName) {
+        super();
+
+        this.setMethodName(aMethodName);
+
+        this.setDispatchTables(new ClassValue<Map<Class<?>, MethodHandle>>() {
+            @Override
+            protected Map<Class<?>, MethodHandle> computeValue(Class<?> aHandlerType) {
+                return dispatchTableFor(aHandlerType);
+            }
+        });
+    }
+
+    /**
+     * <p>将事件分派给处理者的事件处理方法。
+     * @param aHandler 聚合或投影对象
+     * @param anEvent 事件
+     */
+    public void dispatch(Object aHandler, Object anEvent) {
+
+        Class<?> eventType = anEvent.getClass();
+
+        MethodHandle handle =
+                this.dispatchTables()
+                    .get(aHandler.getClass())
+                    .get(eventType);
+
+        if (handle == null) {
+            throw new IllegalArgumentException(
+                    "I do not understand "
+                            + this.methodName()
+                            + "("
+                            + eventType.getSimpleName()
+                            + ") because: NoSuchMethodException>>>"
+                            + aHandler.getClass().getName()
+                            + "."
+                            + this.methodName()
+                            + "("
+                            + eventType.getName()
+                            + ")");
+        }
+
+        try {
+            handle.invokeExact(aHandler, anEvent);
+
+        } catch (Throwable t) {
+            throw new RuntimeException(
+                    "Method "
+                            + this.methodName()
+                            + "("
+                            + eventType.getSimpleName()
+                            + ") failed. See cause: "
+                            + t.getMessage(),
+                    t);
+        }
+    }
+
+    private Map<Class<?>, MethodHandle> dispatchTableFor(Class<?> aHandlerType) {
+
+        Map<Class<?>, MethodHandle> dispatchTable = new HashMap<Class<?>, MethodHandle>();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        try {
+            // assume protected or private...
+
+            for (Method method : aHandlerType.getDeclaredMethods()) {
+                this.addHandle(dispatchTable, lookup, method);
+            }
+
+            // then public...
+
+            for (Method method : aHandlerType.getMethods()) {
+                this.addHandle(dispatchTable, lookup, method);
+            }
+
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(
+                    "Cannot access "
+                            + this.methodName()
+                            + " methods of "
+                            + aHandlerType.getSimpleName()
+                            + " because: "
+                            + e.getMessage(),
+                    e);
+        }
+
+        return Collections.unmodifiableMap(dispatchTable);
+    }
+
+    private void addHandle(
+            Map<Class<?>, MethodHandle> aDispatchTable,
+            MethodHandles.Lookup aLookup,
+            Method aMethod)
+    throws IllegalAccessException {
+
+        if (!aMethod.getName().equals(this.methodName())
+                || aMethod.getParameterTypes().length != 1
+                || aMethod.isBridge()
+                || Modifier.isStatic(aMethod.getModifiers())) {
+            return;
+        }
+
+        if (aDispatchTable.containsKey(this.eventTypeOf(aMethod))) {
+            return;
+        }
+
+        // method may be private
+
+        aMethod.setAccessible(true);
+
+        MethodHandle handle = aLookup.unreflect(aMethod).asType(DISPATCH_TYPE);
+
+        aDispatchTable.put(this.eventTypeOf(aMethod), handle);
+    }
+
+    private ClassValue<Map<Class<?>, MethodHandle>> dispatchTables() {
+        return this.dispatchTables;
+    }
+
+    private void setDispatchTables(ClassValue<Map<Class<?>, MethodHandle>> aDispatchTables) {
+        this.dispatchTables = aDispatchTables;
+    }
+
+    private Class<?> eventTypeOf(Method aMethod) {
+        return aMethod.getParameterTypes()[0];
+    }
+
+    private String methodName() {
+        return this.methodName;
+    }
+
+    private void setMethodName(String aMethodName) {
+        this.methodName = aMethodName;
+    }
+}
@@ -14,12 +14,9 @@
 
 package com.saasovation.common.domain.model;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import com.saasovation.common.AssertionConcern;
 
@@ -37,16 +34,16 @@ public abstract class EventSourcedRootEntity extends AssertionConcern {
     private static final String MUTATOR_METHOD_NAME = "when";
 
     /**
-     * <p>保存重建聚合状态方法的Method对象的缓存。
+     * <p>重建聚合状态的方法的分派表，每个聚合类型只构建一次。
      */
-    private static Map<String, Method> mutatorMethods =
-            new HashMap<String, Method>();
+    private static final EventHandlerMethods mutatorMethods =
+            new EventHandlerMethods(MUTATOR_METHOD_NAME);
 
     /**
      * <p>重建聚合的事件流。
-     * 
+     * <p>这是瞬态的，聚合的快照中不包含它。
      */
-    private List<DomainEvent> mutatingEvents;
+    private transient List<DomainEvent> mutatingEvents;
     
     /**
      * <p>事件流的版本。
@@ -66,10 +63,38 @@ public abstract class EventSourcedRootEntity extends AssertionConcern {
         return this.mutatingEvents;
     }
 
+    /**
+     * <p>在由快照恢复的聚合状态之上，重放快照之后的事件流，将聚合恢复到最新版本。
+     * @param anEventStreamTail 快照版本之后的事件流，逐个读取，可以为空。
+     * @param aSnapshotVersion 快照的事件流版本。
+     */
+    public void mutateSinceSnapshot(
+            Iterator<DomainEvent> anEventStreamTail,
+            int aSnapshotVersion) {
+
+        int streamVersion = aSnapshotVersion;
+
+        while (anEventStreamTail.hasNext()) {
+            this.mutateWhen(anEventStreamTail.next());
+
+            ++streamVersion;
+        }
+
+        this.setUnmutatedVersion(streamVersion);
+    }
+
+    /**
+     * <p>获取包含了本聚合所有已应用事件的事件流版本，即保存后事件流的最新版本。
+     * @return
+     */
+    public int snapshotVersion() {
+        return this.unmutatedVersion() + this.mutatingEvents().size();
+    }
+
     /**
      * <p>获取以事件源方式构建聚合时使用的事件流的版本。
      * <p>注意：这是获取数据的方法，领域模型的风格，不是POJO风格，
-     * 也没有公共的修改此数据的方法。
+     * 除了从快照恢复聚合的 {@link #mutateSinceSnapshot(Iterator, int)}，没有公共的修改此数据的方法。
      * @return
      */
     public int unmutatedVersion() {
@@ -96,6 +121,27 @@ public abstract class EventSourcedRootEntity extends AssertionConcern {
         this.setUnmutatedVersion(aStreamVersion);
     }
 
+    /**
+     * <p>根据逐个读取的事件流重建聚合，事件流必须从版本1开始且连续。
+     * <p>与 {@link #EventSourcedRootEntity(List, int)} 不同，不需要事先把整个事件流读入内存，
+     * 重放过程中只持有当前的事件，事件流的版本即重放的事件个数。
+     * @param anEventStream
+     */
+    protected EventSourcedRootEntity(Iterator<DomainEvent> anEventStream) {
+
+        this();
+
+        int streamVersion = 0;
+
+        while (anEventStream.hasNext()) {
+            this.mutateWhen(anEventStream.next());
+
+            ++streamVersion;
+        }
+
+        this.setUnmutatedVersion(streamVersion);
+    }
+
     protected EventSourcedRootEntity() {
         super();
 
@@ -119,141 +165,12 @@ public abstract class EventSourcedRootEntity extends AssertionConcern {
 
     /**
      * <p>自动重放指定的事件，重建当前聚合的状态。
+     * <p>由 {@link #mutatorMethods} 按当前类的类型和事件的类型分派给重建聚合状态的方法。
      * @param aDomainEvent
      */
     protected void mutateWhen(DomainEvent aDomainEvent) {
 
-    	// 得到当前类的类型。
-        Class<? extends EventSourcedRootEntity> rootType = this.getClass();
-
-        // 得到事件的类型。
-        Class<? extends DomainEvent> eventType = aDomainEvent.getClass();
-
-        // 组织出一个Key，这个Key在mutatorMethods（Map<String, Method>缓存）中对应一个Method对象。
-        String key = rootType.getName() + ":" + eventType.getName();
-
-        // 从mutatorMethods缓存中得到用于重放eventType事件的方法的Method对象。
-        Method mutatorMethod = mutatorMethods.get(key);
-
-        if (mutatorMethod == null) {
-        	// 如果mutatorMethods缓存没有这个Method对象，则查找它并缓存。
-            mutatorMethod = this.cacheMutatorMethodFor(key, rootType, eventType);
-        }
-
-        try {
-        	// 使用反射执行这个方法。
-            mutatorMethod.invoke(this, aDomainEvent);
-
-        } catch (InvocationTargetException e) {
-            if (e.getCause() != null) {
-                throw new RuntimeException(
-                        "Method "
-                                + MUTATOR_METHOD_NAME
-                                + "("
-                                + eventType.getSimpleName()
-                                + ") failed. See cause: "
-                                + e.getMessage(),
-                        e.getCause());
-            }
-
-            throw new RuntimeException(
-                    "Method "
-                            + MUTATOR_METHOD_NAME
-                            + "("
-                            + eventType.getSimpleName()
-                            + ") failed. See cause: "
-                            + e.getMessage(),
-                    e);
-
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(
-                    "Method "
-                            + MUTATOR_METHOD_NAME
-                            + "("
-                            + eventType.getSimpleName()
-                            + ") failed because of illegal access. See cause: "
-                            + e.getMessage(),
-                    e);
-        }
-    }
-
-    /**
-     * <p>反射得到用于重建聚合状态的方法的 {@link Method} 对象，并将其缓存。
-     * <p>如果未找到将抛出 {@link IllegalArgumentException} 异常。
-     * @param aKey
-     * @param aRootType
-     * @param anEventType
-     * @return
-     */
-    private Method cacheMutatorMethodFor(
-            String aKey,
-            Class<? extends EventSourcedRootEntity> aRootType,
-            Class<? extends DomainEvent> anEventType) {
-
-    	// 并发保护
-        synchronized (mutatorMethods) {
-            try {
-            	// 反射得到方法的Method对象。
-                Method method = this.hiddenOrPublicMethod(aRootType, anEventType);
-
-                // method可能是私有的，需要对它设置可访问性，才可以正常使用。
-                method.setAccessible(true);
-
-                // 将method缓存到mutatorMethods中。
-                mutatorMethods.put(aKey, method);
-
-                return method;
-
-            } catch (Exception e) {
-                throw new IllegalArgumentException(
-                        "I do not understand "
-                                + MUTATOR_METHOD_NAME
-                                + "("
-                                + anEventType.getSimpleName()
-                                + ") because: "
-                                + e.getClass().getSimpleName() + ">>>" + e.getMessage(),
-                        e);
-            }
-        }
-    }
-
-    /**
-     * <p>利用反射获取重建聚合状态的方法的 {@link Method} 对象。
-     * <p>反射中使用的除了 aRootType 和 anEventType 这两个参数外，还用到了
-     * {@link #MUTATOR_METHOD_NAME} 所指定的方法名称。
-     **
-     * @param aRootType 聚合类的类型。
-     * @param anEventType 参数类的类型。
-     * @return
-     * @throws Exception
-     */
-    private Method hiddenOrPublicMethod(
-            Class<? extends EventSourcedRootEntity> aRootType,
-            Class<? extends DomainEvent> anEventType)
-    throws Exception {
-
-        Method method = null;
-
-        try {
-
-            // assume protected or private...
-        	// 得到aRootType类自身声明的方法的Method对象，无论这个方法是公共的、保护的、私有的，
-        	// 方法名称为MUTATOR_METHOD_NAME，参数为anEventType类型。
-        	// XXX 这里无法获取父类中的方法。
-            method = aRootType.getDeclaredMethod(
-                    MUTATOR_METHOD_NAME,
-                    anEventType);
-
-        } catch (Exception e) {
-
-            // then public...
-        	// FIXME 之前getDeclaredMethod应该是能获得到公共方法的，不明为何多此一步。
-            method = aRootType.getMethod(
-                    MUTATOR_METHOD_NAME,
-                    anEventType);
-        }
-
-        return method;
+        mutatorMethods.dispatch(this, aDomainEvent);
     }
 
     /**
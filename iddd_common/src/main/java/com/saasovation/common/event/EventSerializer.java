@@ -14,6 +14,15 @@
 
 package com.saasovation.common.event;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 import com.saasovation.common.domain.model.DomainEvent;
 import com.saasovation.common.serializer.AbstractSerializer;
 
@@ -21,6 +30,8 @@ public class EventSerializer extends AbstractSerializer {
 
     private static EventSerializer eventSerializer;
 
+    private ConcurrentMap<Class<?>, TypeAdapter<?>> typeAdapters;
+
     public static synchronized EventSerializer instance() {
         if (EventSerializer.eventSerializer == null) {
             EventSerializer.eventSerializer = new EventSerializer();
@@ -35,6 +46,8 @@ public class EventSerializer extends AbstractSerializer {
 
     public EventSerializer(boolean isPretty, boolean isCompact) {
         super(isPretty, isCompact);
+
+        this.typeAdapters = new ConcurrentHashMap<Class<?>, TypeAdapter<?>>();
     }
 
     public String serialize(DomainEvent aDomainEvent) {
@@ -44,12 +57,58 @@ public class EventSerializer extends AbstractSerializer {
     }
 
     public <T extends DomainEvent> T deserialize(String aSerialization, final Class<T> aType) {
-        T domainEvent = this.gson().fromJson(aSerialization, aType);
+        JsonReader reader = new JsonReader(new StringReader(aSerialization));
+
+        reader.setLenient(true);
+
+        boolean isEmpty = true;
 
-        return domainEvent;
+        try {
+            reader.peek();
+
+            isEmpty = false;
+
+            T domainEvent = this.typeAdapterOf(aType).read(reader);
+
+            return domainEvent;
+
+        } catch (EOFException e) {
+            if (isEmpty) {
+                return null;
+            }
+            throw new JsonSyntaxException(e);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    public <T extends DomainEvent> T deserialize(String aSerialization, String aTypeName) {
+        Class<T> domainEventType = EventTypeRegistry.instance().typeOf(aTypeName);
+
+        return this.deserialize(aSerialization, domainEventType);
     }
 
     private EventSerializer() {
         this(false, false);
     }
+
+    /**
+     * Answers the TypeAdapter of aType, which my Gson builds by
+     * reflection the first time only, so later deserializations
+     * need not look it up again.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> TypeAdapter<T> typeAdapterOf(Class<T> aType) {
+        TypeAdapter<?> typeAdapter = this.typeAdapters.get(aType);
+
+        if (typeAdapter == null) {
+            typeAdapter = this.gson().getAdapter(aType);
+
+            this.typeAdapters.putIfAbsent(aType, typeAdapter);
+        }
+
+        return (TypeAdapter<T>) typeAdapter;
+    }
 }
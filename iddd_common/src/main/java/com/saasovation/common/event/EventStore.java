@@ -28,6 +28,13 @@ public interface EventStore {
 
     public List<StoredEvent> allStoredEventsSince(long aStoredEventId);
 
+    /**
+     * Answers at most aMaximumCount of the events stored after
+     * aStoredEventId, in order. Pass the id of the last one to
+     * read the next page.
+     */
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount);
+
     public StoredEvent append(DomainEvent aDomainEvent);
 
     public void close();
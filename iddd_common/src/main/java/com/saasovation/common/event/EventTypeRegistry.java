@@ -0,0 +1,203 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.saasovation.common.domain.model.DomainEvent;
+
+/**
+ * I resolve the type names of stored events to their DomainEvent
+ * classes, loading each class only the first time its name is
+ * resolved. I may be warmed at startup by registering all of the
+ * DomainEvent classes found in a package and its subpackages.
+ */
+public class EventTypeRegistry {
+
+    private static EventTypeRegistry eventTypeRegistry;
+
+    private ConcurrentMap<String, Class<? extends DomainEvent>> types;
+
+    public static synchronized EventTypeRegistry instance() {
+        if (EventTypeRegistry.eventTypeRegistry == null) {
+            EventTypeRegistry.eventTypeRegistry = new EventTypeRegistry();
+        }
+
+        return EventTypeRegistry.eventTypeRegistry;
+    }
+
+    public boolean isRegistered(String aTypeName) {
+        return this.types.containsKey(aTypeName);
+    }
+
+    public void register(Class<? extends DomainEvent> aDomainEventType) {
+        this.types.putIfAbsent(aDomainEventType.getName(), aDomainEventType);
+    }
+
+    /**
+     * Registers every concrete DomainEvent class of aPackageName and
+     * its subpackages, found in class path directories and jars, and
+     * answers how many were found.
+     */
+    public int registerAll(String aPackageName) {
+        String path = aPackageName.replace('.', '/');
+
+        int registeredCount = 0;
+
+        try {
+            Enumeration<URL> resources = this.classLoader().getResources(path);
+
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+
+                if (resource.getProtocol().equals("file")) {
+                    registeredCount +=
+                        this.registerAllIn(
+                                new File(URLDecoder.decode(resource.getPath(), "UTF-8")),
+                                aPackageName);
+
+                } else if (resource.getProtocol().equals("jar")) {
+                    URLConnection connection = resource.openConnection();
+
+                    registeredCount +=
+                        this.registerAllIn(
+                                ((JarURLConnection) connection).getJarFile(),
+                                path);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Cannot scan package " + aPackageName + ", because: "
+                    + e.getMessage());
+        }
+
+        return registeredCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends DomainEvent> Class<T> typeOf(String aTypeName) {
+        Class<? extends DomainEvent> domainEventType = this.types.get(aTypeName);
+
+        if (domainEventType == null) {
+            try {
+                domainEventType = Class.forName(aTypeName).asSubclass(DomainEvent.class);
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        "Class load error, because: "
+                        + e.getMessage());
+            }
+
+            this.register(domainEventType);
+        }
+
+        return (Class<T>) domainEventType;
+    }
+
+    private EventTypeRegistry() {
+        super();
+
+        this.types = new ConcurrentHashMap<String, Class<? extends DomainEvent>>();
+    }
+
+    private ClassLoader classLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        if (classLoader == null) {
+            classLoader = EventTypeRegistry.class.getClassLoader();
+        }
+
+        return classLoader;
+    }
+
+    private int registerAllIn(File aDirectory, String aPackageName) {
+        int registeredCount = 0;
+
+        File[] files = aDirectory.listFiles();
+
+        if (files == null) {
+            return 0;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+
+            if (file.isDirectory()) {
+                registeredCount += this.registerAllIn(file, aPackageName + "." + name);
+            } else if (name.endsWith(".class")) {
+                registeredCount +=
+                    this.registerIfDomainEvent(
+                            aPackageName + "." + name.substring(0, name.length() - 6));
+            }
+        }
+
+        return registeredCount;
+    }
+
+    private int registerAllIn(JarFile aJarFile, String aPath) {
+        int registeredCount = 0;
+
+        Enumeration<JarEntry> entries = aJarFile.entries();
+
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+
+            if (name.startsWith(aPath + "/") && name.endsWith(".class")) {
+                registeredCount +=
+                    this.registerIfDomainEvent(
+                            name.substring(0, name.length() - 6).replace('/', '.'));
+            }
+        }
+
+        return registeredCount;
+    }
+
+    private int registerIfDomainEvent(String aClassName) {
+
+        // nested classes, such as anonymous ones, are not events
+
+        if (aClassName.indexOf('$') >= 0) {
+            return 0;
+        }
+
+        Class<?> type = null;
+
+        try {
+            type = Class.forName(aClassName, false, this.classLoader());
+        } catch (Throwable t) {
+            return 0;
+        }
+
+        if (!DomainEvent.class.isAssignableFrom(type)
+                || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers())) {
+            return 0;
+        }
+
+        this.register(type.asSubclass(DomainEvent.class));
+
+        return 1;
+    }
+}
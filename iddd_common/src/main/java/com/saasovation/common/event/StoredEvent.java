@@ -21,6 +21,7 @@ import com.saasovation.common.domain.model.DomainEvent;
 
 public class StoredEvent extends AssertionConcern {
 
+    private transient DomainEvent domainEvent;
     private String eventBody;
     private long eventId;
     private Date occurredOn;
@@ -40,7 +41,26 @@ public class StoredEvent extends AssertionConcern {
         this.setEventId(anEventId);
     }
 
+    /**
+     * Constructs me of aDomainEvent itself, as appended to or read
+     * from a store that keeps events in its own format, so that my
+     * JSON body is serialized only if it is asked for.
+     */
+    public StoredEvent(DomainEvent aDomainEvent, long anEventId) {
+        this();
+
+        this.domainEvent = aDomainEvent;
+
+        this.setEventId(anEventId);
+        this.setOccurredOn(aDomainEvent.occurredOn());
+        this.setTypeName(aDomainEvent.getClass().getName());
+    }
+
     public String eventBody() {
+        if (this.eventBody == null && this.domainEvent != null) {
+            this.setEventBody(EventSerializer.instance().serialize(this.domainEvent));
+        }
+
         return this.eventBody;
     }
 
@@ -54,20 +74,14 @@ public class StoredEvent extends AssertionConcern {
 
     @SuppressWarnings("unchecked")
     public <T extends DomainEvent> T toDomainEvent() {
-        Class<T> domainEventClass = null;
-
-        try {
-            domainEventClass = (Class<T>) Class.forName(this.typeName());
-        } catch (Exception e) {
-            throw new IllegalStateException(
-                    "Class load error, because: "
-                    + e.getMessage());
+        if (this.domainEvent != null) {
+            return (T) this.domainEvent;
         }
 
         T domainEvent =
             EventSerializer
                 .instance()
-                .deserialize(this.eventBody(), domainEventClass);
+                .deserialize(this.eventBody(), this.typeName());
 
         return domainEvent;
     }
@@ -99,7 +113,7 @@ public class StoredEvent extends AssertionConcern {
 
     @Override
     public String toString() {
-        return "StoredEvent [eventBody=" + eventBody + ", eventId=" + eventId + ", occurredOn=" + occurredOn + ", typeName="
+        return "StoredEvent [eventBody=" + this.eventBody() + ", eventId=" + eventId + ", occurredOn=" + occurredOn + ", typeName="
                 + typeName + "]";
     }
 
@@ -0,0 +1,164 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.event.sourcing;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.saasovation.common.domain.model.EventSourcedRootEntity;
+import com.saasovation.common.serializer.ObjectSerializer;
+
+/**
+ * I take a snapshot of an event-sourced aggregate each time its
+ * stream crosses a multiple of my snapshot interval, and restore
+ * aggregates from their latest snapshot plus the events appended
+ * since. The aggregate state is serialized on the caller's thread
+ * so that it is consistent; only the store write happens in the
+ * background. A lost snapshot only costs replay time.
+ */
+public class AggregateSnapshotter {
+
+    private ExecutorService executor;
+    private ObjectSerializer serializer;
+    private int snapshotInterval;
+    private SnapshotStore snapshotStore;
+
+    public AggregateSnapshotter(SnapshotStore aSnapshotStore, int aSnapshotInterval) {
+        super();
+
+        if (aSnapshotInterval < 1) {
+            throw new IllegalArgumentException("The snapshot interval must be at least 1.");
+        }
+
+        this.setExecutor(Executors.newSingleThreadExecutor(new SnapshotThreadFactory()));
+        this.setSerializer(ObjectSerializer.instance());
+        this.setSnapshotInterval(aSnapshotInterval);
+        this.setSnapshotStore(aSnapshotStore);
+    }
+
+    public <T extends EventSourcedRootEntity> T aggregateFromLatestSnapshot(
+            Class<T> anAggregateType,
+            EventStore anEventStore,
+            EventStreamId anIdentity) {
+
+        Snapshot snapshot = this.snapshotStore().latestSnapshotOf(anIdentity);
+
+        if (snapshot == null || !snapshot.snapshotType().equals(anAggregateType.getName())) {
+            return null;
+        }
+
+        T aggregate =
+                this.serializer().deserialize(
+                        snapshot.snapshotState(),
+                        anAggregateType);
+
+        EventStreamCursor eventStreamTail =
+                anEventStore.eventStreamCursorSince(
+                        anIdentity.withStreamVersion(snapshot.streamVersion() + 1));
+
+        try {
+            aggregate.mutateSinceSnapshot(eventStreamTail, snapshot.streamVersion());
+        } finally {
+            eventStreamTail.close();
+        }
+
+        return aggregate;
+    }
+
+    public void close() {
+        this.executor().shutdown();
+
+        try {
+            this.executor().awaitTermination(5L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            // ignore
+        }
+    }
+
+    public void snapshotIfDue(
+            EventStreamId anIdentity,
+            EventSourcedRootEntity anAggregate) {
+
+        int fromVersion = anAggregate.unmutatedVersion();
+        int toVersion = anAggregate.snapshotVersion();
+
+        if (toVersion / this.snapshotInterval() <= fromVersion / this.snapshotInterval()) {
+            return;
+        }
+
+        final Snapshot snapshot =
+                new Snapshot(
+                        anIdentity.streamName(),
+                        toVersion,
+                        anAggregate.getClass().getName(),
+                        this.serializer().serialize(anAggregate));
+
+        this.executor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshotStore().save(snapshot);
+                } catch (Throwable t) {
+                    // ignore; the next interval takes another
+                }
+            }
+        });
+    }
+
+    private ExecutorService executor() {
+        return this.executor;
+    }
+
+    private void setExecutor(ExecutorService anExecutor) {
+        this.executor = anExecutor;
+    }
+
+    private ObjectSerializer serializer() {
+        return this.serializer;
+    }
+
+    private void setSerializer(ObjectSerializer aSerializer) {
+        this.serializer = aSerializer;
+    }
+
+    private int snapshotInterval() {
+        return this.snapshotInterval;
+    }
+
+    private void setSnapshotInterval(int aSnapshotInterval) {
+        this.snapshotInterval = aSnapshotInterval;
+    }
+
+    private SnapshotStore snapshotStore() {
+        return this.snapshotStore;
+    }
+
+    private void setSnapshotStore(SnapshotStore aSnapshotStore) {
+        this.snapshotStore = aSnapshotStore;
+    }
+
+    private static class SnapshotThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(Runnable aRunnable) {
+            Thread thread = new Thread(aRunnable, "aggregate-snapshotter");
+
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -20,12 +20,22 @@ public class DispatchableDomainEvent {
 
     private DomainEvent domainEvent;
     private long eventId;
+    private String streamName;
 
     public DispatchableDomainEvent(long anEventId, DomainEvent aDomainEvent) {
+        this(anEventId, null, aDomainEvent);
+    }
+
+    public DispatchableDomainEvent(
+            long anEventId,
+            String aStreamName,
+            DomainEvent aDomainEvent) {
+
         super();
 
         this.domainEvent = aDomainEvent;
         this.eventId = anEventId;
+        this.streamName = aStreamName;
     }
 
     public DomainEvent domainEvent() {
@@ -35,4 +45,8 @@ public class DispatchableDomainEvent {
     public long eventId() {
         return this.eventId;
     }
+
+    public String streamName() {
+        return this.streamName; // may be null when the store does not report it
+    }
 }
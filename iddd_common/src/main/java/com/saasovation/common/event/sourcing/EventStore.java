@@ -26,10 +26,18 @@ public interface EventStore {
 
     public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent);
 
+    public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent, int aMaximumEvents);
+
+    public EventStreamCursor eventStreamCursorSince(EventStreamId anIdentity); // may be empty
+
     public EventStream eventStreamSince(EventStreamId anIdentity);
 
+    public EventStreamCursor fullEventStreamCursorFor(EventStreamId anIdentity);
+
     public EventStream fullEventStreamFor(EventStreamId anIdentity);
 
+    public long lastEventId(); // 0 when empty
+
     public void purge(); // mainly used for testing
 
     public void registerEventNotifiable(EventNotifiable anEventNotifiable);
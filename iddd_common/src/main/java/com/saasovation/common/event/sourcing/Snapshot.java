@@ -0,0 +1,68 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.event.sourcing;
+
+public final class Snapshot {
+
+    private String snapshotState;
+    private String snapshotType;
+    private String streamName;
+    private int streamVersion;
+
+    public Snapshot(
+            String aStreamName,
+            int aStreamVersion,
+            String aSnapshotType,
+            String aSnapshotState) {
+
+        super();
+
+        this.setSnapshotState(aSnapshotState);
+        this.setSnapshotType(aSnapshotType);
+        this.setStreamName(aStreamName);
+        this.setStreamVersion(aStreamVersion);
+    }
+
+    public String snapshotState() {
+        return this.snapshotState;
+    }
+
+    public String snapshotType() {
+        return this.snapshotType;
+    }
+
+    public String streamName() {
+        return this.streamName;
+    }
+
+    public int streamVersion() {
+        return this.streamVersion;
+    }
+
+    private void setSnapshotState(String aSnapshotState) {
+        this.snapshotState = aSnapshotState;
+    }
+
+    private void setSnapshotType(String aSnapshotType) {
+        this.snapshotType = aSnapshotType;
+    }
+
+    private void setStreamName(String aStreamName) {
+        this.streamName = aStreamName;
+    }
+
+    private void setStreamVersion(int aStreamVersion) {
+        this.streamVersion = aStreamVersion;
+    }
+}
@@ -14,11 +14,45 @@
 
 package com.saasovation.common.media.canonical;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
-// TODO: this is incomplete
-
+/**
+ * I format objects to and parse them from a compact binary form.
+ *
+ * An object is its Begin marker and field count followed by the
+ * tag and value of each of its fields in the order of its
+ * CanonicalSchema. A tag is a hash of the field name rather than
+ * the name itself. Since the field types are known on parsing, values
+ * carry only their markers: strings, enums and big numbers are
+ * UTF-8 text, dates are their milliseconds, and collections, arrays
+ * and maps are their elements following a count. A field declared
+ * as Object may hold only strings, booleans and numbers.
+ *
+ * Fields are matched by tag on parsing, so a class may change
+ * after its objects have been formatted: a value whose field has
+ * been removed or renamed is skipped, and a field that has been
+ * added or renamed keeps the value its class gives it.
+ */
 public class CanonicalDataFormatter {
 
     public CanonicalDataFormatter() {
@@ -26,53 +60,364 @@ public class CanonicalDataFormatter {
     }
 
     public byte[] format(Object anObject) {
-        for (Field field : anObject.getClass().getFields()) {
-            field.setAccessible(true);
-            byte[] formattedField = this.formatField(field, anObject);
-            if (formattedField.length > 0)
-                ; // TODO
+        Encoder encoder = new Encoder(128);
+
+        this.formatValue(encoder, anObject == null ? Object.class : anObject.getClass(), anObject);
+
+        return encoder.toBytes();
+    }
+
+    public <T> T parse(byte[] aFormatted, Type aType) {
+        return this.parse(aFormatted, 0, aType);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T parse(byte[] aFormatted, int anOffset, Type aType) {
+        Decoder decoder = new Decoder(aFormatted, anOffset);
+
+        return (T) this.parseValue(decoder, aType);
+    }
+
+    private void formatObject(Encoder anEncoder, Object anObject) {
+        CanonicalSchema schema = CanonicalSchema.schemaOf(anObject.getClass());
+
+        Field[] fields = schema.fields();
+        Type[] fieldTypes = schema.fieldTypes();
+        int[] tags = schema.tags();
+
+        anEncoder.begin(fields.length);
+
+        for (int idx = 0; idx < fields.length; ++idx) {
+            Object value;
+
+            try {
+                value = fields[idx].get(anObject);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(
+                        "The object cannot be formatted: " + fields[idx], e);
+            }
+
+            anEncoder.tag(tags[idx]);
+
+            this.formatValue(anEncoder, fieldTypes[idx], value);
+        }
+    }
+
+    private void formatValue(Encoder anEncoder, Type aType, Object aValue) {
+        if (aValue == null) {
+            anEncoder.encodeNull();
+            return;
+        }
+
+        Class<?> type = rawTypeOf(aType);
+
+        if (type == Object.class) {
+            this.formatUntyped(anEncoder, aValue);
+        } else if (aValue instanceof String) {
+            anEncoder.encode((String) aValue);
+        } else if (aValue instanceof Boolean) {
+            anEncoder.encode(((Boolean) aValue).booleanValue());
+        } else if (aValue instanceof Double) {
+            anEncoder.encode(((Double) aValue).doubleValue());
+        } else if (aValue instanceof Float) {
+            anEncoder.encode(((Float) aValue).floatValue());
+        } else if (aValue instanceof Long
+                || aValue instanceof Integer
+                || aValue instanceof Short
+                || aValue instanceof Byte) {
+            anEncoder.encode(((Number) aValue).longValue());
+        } else if (aValue instanceof Character) {
+            anEncoder.encode((long) ((Character) aValue).charValue());
+        } else if (aValue instanceof Enum) {
+            anEncoder.encode(((Enum<?>) aValue).name());
+        } else if (aValue instanceof BigDecimal || aValue instanceof BigInteger) {
+            anEncoder.encode(aValue.toString());
+        } else if (aValue instanceof Date) {
+            anEncoder.encode(((Date) aValue).getTime());
+        } else if (aValue instanceof Collection) {
+            Collection<?> collection = (Collection<?>) aValue;
+            Type elementType = this.typeArgumentOf(aType, 0);
+
+            anEncoder.beginArray(collection.size());
+
+            for (Object element : collection) {
+                this.formatValue(anEncoder, elementType, element);
+            }
+        } else if (aValue instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) aValue;
+            Type keyType = this.typeArgumentOf(aType, 0);
+            Type valueType = this.typeArgumentOf(aType, 1);
+
+            anEncoder.beginMap(map.size());
+
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                this.formatValue(anEncoder, keyType, entry.getKey());
+                this.formatValue(anEncoder, valueType, entry.getValue());
+            }
+        } else if (type.isArray()) {
+            int length = Array.getLength(aValue);
+            Type componentType = componentTypeOf(aType);
+
+            anEncoder.beginArray(length);
+
+            for (int idx = 0; idx < length; ++idx) {
+                this.formatValue(anEncoder, componentType, Array.get(aValue, idx));
+            }
+        } else {
+            this.formatObject(anEncoder, aValue);
+        }
+    }
+
+    private void formatUntyped(Encoder anEncoder, Object aValue) {
+        if (aValue instanceof String) {
+            anEncoder.encode((String) aValue);
+        } else if (aValue instanceof Boolean) {
+            anEncoder.encode(((Boolean) aValue).booleanValue());
+        } else if (aValue instanceof Double || aValue instanceof Float) {
+            anEncoder.encode(((Number) aValue).doubleValue());
+        } else if (aValue instanceof Long
+                || aValue instanceof Integer
+                || aValue instanceof Short
+                || aValue instanceof Byte) {
+            anEncoder.encode(((Number) aValue).longValue());
+        } else {
+            throw new IllegalArgumentException(
+                    "Cannot format by Object type: " + aValue.getClass().getName());
+        }
+    }
+
+    private Collection<Object> newCollectionOf(Class<?> aType, int aSize) {
+        Collection<Object> collection;
+
+        if (!isAbstract(aType)) {
+            collection = this.newInstanceOf(aType);
+        } else if (SortedSet.class.isAssignableFrom(aType)) {
+            collection = new TreeSet<Object>();
+        } else if (Set.class.isAssignableFrom(aType)) {
+            collection = new LinkedHashSet<Object>(aSize * 2);
+        } else if (Queue.class.isAssignableFrom(aType)) {
+            collection = new LinkedList<Object>();
+        } else {
+            collection = new ArrayList<Object>(aSize);
+        }
+
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T newInstanceOf(Class<?> aType) {
+
+        // collections and maps are constructed rather than
+        // allocated, as their fields are not mine to set
+
+        try {
+            return (T) aType.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot create instance of: " + aType.getName(), e);
+        }
+    }
+
+    private Map<Object, Object> newMapOf(Class<?> aType, int aSize) {
+        Map<Object, Object> map;
+
+        if (!isAbstract(aType)) {
+            map = this.newInstanceOf(aType);
+        } else if (SortedMap.class.isAssignableFrom(aType)) {
+            map = new TreeMap<Object, Object>();
+        } else {
+            map = new LinkedHashMap<Object, Object>(aSize * 2);
+        }
+
+        return map;
+    }
+
+    private Object parseObject(Decoder aDecoder, Class<?> aType) {
+        CanonicalSchema schema = CanonicalSchema.schemaOf(aType);
+
+        Field[] fields = schema.fields();
+        Type[] fieldTypes = schema.fieldTypes();
+
+        int fieldCount = aDecoder.count();
+
+        Object object = schema.newInstance();
+
+        for (int encoded = 0; encoded < fieldCount; ++encoded) {
+            int idx = schema.indexOf(aDecoder.tag(), encoded);
+
+            if (idx < 0) {
+                aDecoder.skip(aDecoder.marker());
+                continue;
+            }
+
+            Object value = this.parseValue(aDecoder, fieldTypes[idx]);
+
+            if (value == null && fields[idx].getType().isPrimitive()) {
+                continue;
+            }
+
+            try {
+                fields[idx].set(object, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(
+                        "The object cannot be parsed: " + fields[idx], e);
+            }
         }
 
-        return null;
+        return object;
     }
 
-    private byte[] formatField(Field aField, Object anObject) {
-        byte[] formatted = null;
+    private Object parseValue(Decoder aDecoder, Type aType) {
+        EncodingMarker marker = aDecoder.marker();
+
+        switch (marker) {
+        case Null:
+            return null;
+        case True:
+            return Boolean.TRUE;
+        case False:
+            return Boolean.FALSE;
+        case Int8:
+        case Int16:
+        case Int32:
+        case Int64:
+            return this.toIntegral(rawTypeOf(aType), aDecoder.decodeLong(marker));
+        case Float32:
+            return this.toFloating(rawTypeOf(aType), aDecoder.decodeFloat());
+        case Float64:
+            return this.toFloating(rawTypeOf(aType), aDecoder.decodeDouble());
+        case String:
+            return this.toTextual(rawTypeOf(aType), aDecoder.decodeString());
+        case Array:
+            return this.parseArray(aDecoder, aType);
+        case Map:
+            return this.parseMap(aDecoder, aType);
+        case Begin:
+            return this.parseObject(aDecoder, rawTypeOf(aType));
+        default:
+            throw new IllegalStateException("Unexpected encoding marker: " + marker);
+        }
+    }
+
+    private Object parseArray(Decoder aDecoder, Type aType) {
+        Class<?> type = rawTypeOf(aType);
+
+        int length = aDecoder.count();
 
-        if ((aField.getModifiers() & Modifier.STATIC) == 0) {
-            if (aField.getType().isPrimitive()) {
-                formatted = this.formatPrimitive(aField, anObject);
-            } else {
-                formatted = this.formatObject(aField, anObject);
+        if (type.isArray()) {
+            Type componentType = componentTypeOf(aType);
+
+            Object array = Array.newInstance(rawTypeOf(componentType), length);
+
+            for (int idx = 0; idx < length; ++idx) {
+                Array.set(array, idx, this.parseValue(aDecoder, componentType));
             }
+
+            return array;
+        }
+
+        Type elementType = this.typeArgumentOf(aType, 0);
+
+        Collection<Object> collection = this.newCollectionOf(type, length);
+
+        for (int idx = 0; idx < length; ++idx) {
+            collection.add(this.parseValue(aDecoder, elementType));
         }
 
-        return formatted;
+        return collection;
     }
 
-    private byte[] formatObject(Field aField, Object anObject) {
-//        String name = aField.getName();
-//        Object value;
-//
-//        try {
-//            value = aField.get(anObject);
-//        } catch (Throwable t) {
-//            throw new IllegalArgumentException("The object cannot be formatted.", t);
-//        }
+    private Object parseMap(Decoder aDecoder, Type aType) {
+        Type keyType = this.typeArgumentOf(aType, 0);
+        Type valueType = this.typeArgumentOf(aType, 1);
+
+        int size = aDecoder.count();
+
+        Map<Object, Object> map = this.newMapOf(rawTypeOf(aType), size);
+
+        for (int idx = 0; idx < size; ++idx) {
+            Object key = this.parseValue(aDecoder, keyType);
 
-        return null;
+            map.put(key, this.parseValue(aDecoder, valueType));
+        }
+
+        return map;
     }
 
-    private byte[] formatPrimitive(Field aField, Object anObject) {
-//        String name = aField.getName();
-//        Object value;
-//
-//        try {
-//            value = aField.get(anObject);
-//        } catch (Throwable t) {
-//            throw new IllegalArgumentException("An object primitive cannot be formatted.", t);
-//        }
+    private Object toFloating(Class<?> aType, double aValue) {
+        if (aType == float.class || aType == Float.class) {
+            return Float.valueOf((float) aValue);
+        }
+
+        return Double.valueOf(aValue);
+    }
+
+    private Object toIntegral(Class<?> aType, long aValue) {
+        if (aType == int.class || aType == Integer.class) {
+            return Integer.valueOf((int) aValue);
+        } else if (aType == short.class || aType == Short.class) {
+            return Short.valueOf((short) aValue);
+        } else if (aType == byte.class || aType == Byte.class) {
+            return Byte.valueOf((byte) aValue);
+        } else if (aType == char.class || aType == Character.class) {
+            return Character.valueOf((char) aValue);
+        } else if (Date.class.isAssignableFrom(aType)) {
+            return new Date(aValue);
+        }
+
+        return Long.valueOf(aValue);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object toTextual(Class<?> aType, String aValue) {
+        if (aType.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) aType, aValue);
+        } else if (aType == BigDecimal.class) {
+            return new BigDecimal(aValue);
+        } else if (aType == BigInteger.class) {
+            return new BigInteger(aValue);
+        }
+
+        return aValue;
+    }
+
+    private Type typeArgumentOf(Type aType, int anIndex) {
+        if (aType instanceof ParameterizedType) {
+            Type[] typeArguments = ((ParameterizedType) aType).getActualTypeArguments();
+
+            if (anIndex < typeArguments.length) {
+                return typeArguments[anIndex];
+            }
+        }
+
+        return Object.class;
+    }
+
+    private static Type componentTypeOf(Type anArrayType) {
+        if (anArrayType instanceof GenericArrayType) {
+            return ((GenericArrayType) anArrayType).getGenericComponentType();
+        }
+
+        return rawTypeOf(anArrayType).getComponentType();
+    }
+
+    private static boolean isAbstract(Class<?> aType) {
+        return aType.isInterface() || Modifier.isAbstract(aType.getModifiers());
+    }
+
+    private static Class<?> rawTypeOf(Type aType) {
+        if (aType instanceof Class) {
+            return (Class<?>) aType;
+        } else if (aType instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) aType).getRawType();
+        } else if (aType instanceof GenericArrayType) {
+            Class<?> componentType =
+                    rawTypeOf(((GenericArrayType) aType).getGenericComponentType());
+
+            return Array.newInstance(componentType, 0).getClass();
+        }
+
+        // type variables and wildcards are taken by their bounds as Object
 
-        return null;
+        return Object.class;
     }
 }
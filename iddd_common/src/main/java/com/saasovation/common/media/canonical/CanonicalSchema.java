@@ -0,0 +1,214 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.media.canonical;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The fields of one class in the order they are encoded: those of
+ * its superclasses first, and those of each class by name. Static,
+ * transient and synthetic fields are not encoded. Each field has a
+ * tag, a 21-bit hash of its name, that is encoded before its value,
+ * and no two fields of a class may share one. A schema is computed
+ * once per class and then shared.
+ */
+class CanonicalSchema {
+
+    private static final ClassValue<CanonicalSchema> schemas =
+            new ClassValue<CanonicalSchema>() {
+                @Override
+                protected CanonicalSchema computeValue(Class<?> aType) {
+                    return new CanonicalSchema(aType);
+                }
+            };
+
+    private static final Comparator<Field> byName =
+            new Comparator<Field>() {
+                @Override
+                public int compare(Field aField1, Field aField2) {
+                    return aField1.getName().compareTo(aField2.getName());
+                }
+            };
+
+    private static final Object unsafe;
+    private static final Method allocateInstance;
+
+    static {
+        Object theUnsafeInstance = null;
+        Method allocateInstanceMethod = null;
+
+        try {
+            Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+
+            Field theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+
+            theUnsafe.setAccessible(true);
+
+            theUnsafeInstance = theUnsafe.get(null);
+            allocateInstanceMethod = unsafeType.getMethod("allocateInstance", Class.class);
+
+        } catch (Exception e) {
+            // only types with a no-argument constructor can be decoded
+        }
+
+        unsafe = theUnsafeInstance;
+        allocateInstance = allocateInstanceMethod;
+    }
+
+    private Constructor<?> constructor;
+    private Field[] fields;
+    private Type[] fieldTypes;
+    private int[] tags;
+    private Class<?> type;
+
+    static CanonicalSchema schemaOf(Class<?> aType) {
+        return schemas.get(aType);
+    }
+
+    Field[] fields() {
+        return this.fields;
+    }
+
+    Type[] fieldTypes() {
+        return this.fieldTypes;
+    }
+
+    int[] tags() {
+        return this.tags;
+    }
+
+    /**
+     * Answers the index of the field tagged aTag, looking first
+     * at anExpectedIndex, or -1 if I have no such field.
+     */
+    int indexOf(int aTag, int anExpectedIndex) {
+        if (anExpectedIndex < this.tags.length && this.tags[anExpectedIndex] == aTag) {
+            return anExpectedIndex;
+        }
+
+        for (int idx = 0; idx < this.tags.length; ++idx) {
+            if (this.tags[idx] == aTag) {
+                return idx;
+            }
+        }
+
+        return -1;
+    }
+
+    Object newInstance() {
+        try {
+            if (this.constructor != null) {
+                return this.constructor.newInstance();
+            }
+
+            return allocateInstanceOf(this.type);
+
+        } catch (Exception e) {
+            throw new IllegalArgumentException(
+                    "Cannot create instance of: " + this.type.getName(), e);
+        }
+    }
+
+    private CanonicalSchema(Class<?> aType) {
+        super();
+
+        if (aType.isInterface() || Modifier.isAbstract(aType.getModifiers())) {
+            throw new IllegalArgumentException(
+                    "Cannot encode by abstract type: " + aType.getName());
+        }
+
+        this.type = aType;
+
+        LinkedList<Class<?>> hierarchy = new LinkedList<Class<?>>();
+
+        for (Class<?> type = aType; type != null && type != Object.class; type = type.getSuperclass()) {
+            hierarchy.addFirst(type);
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+
+        for (Class<?> type : hierarchy) {
+            Field[] declaredFields = type.getDeclaredFields();
+
+            Arrays.sort(declaredFields, byName);
+
+            for (Field field : declaredFields) {
+                int modifiers = field.getModifiers();
+
+                if (Modifier.isStatic(modifiers)
+                        || Modifier.isTransient(modifiers)
+                        || field.isSynthetic()) {
+                    continue;
+                }
+
+                field.setAccessible(true);
+
+                fields.add(field);
+            }
+        }
+
+        this.fields = fields.toArray(new Field[fields.size()]);
+        this.fieldTypes = new Type[this.fields.length];
+        this.tags = new int[this.fields.length];
+
+        for (int idx = 0; idx < this.fields.length; ++idx) {
+            this.fieldTypes[idx] = this.fields[idx].getGenericType();
+            this.tags[idx] = tagOf(this.fields[idx]);
+
+            for (int prior = 0; prior < idx; ++prior) {
+                if (this.tags[prior] == this.tags[idx]) {
+                    throw new IllegalArgumentException(
+                            "Cannot encode " + aType.getName() + ": fields "
+                            + this.fields[prior].getName() + " and "
+                            + this.fields[idx].getName() + " have the same tag.");
+                }
+            }
+        }
+
+        try {
+            this.constructor = aType.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            // allocated without a constructor, as Gson does
+        }
+    }
+
+    private static int tagOf(Field aField) {
+
+        // String.hashCode() is specified, so tags are stable
+        // across virtual machines; 21 bits encode in 3 bytes
+
+        int hash = aField.getName().hashCode();
+
+        return (hash ^ (hash >>> 21) ^ (hash >>> 11)) & 0x1fffff;
+    }
+
+    private static Object allocateInstanceOf(Class<?> aType) throws Exception {
+        if (allocateInstance == null) {
+            throw new IllegalStateException("No means to allocate without a constructor.");
+        }
+
+        return allocateInstance.invoke(unsafe, aType);
+    }
+}
@@ -0,0 +1,183 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.media.canonical;
+
+/**
+ * I decode the values an Encoder encoded, reading the marker of
+ * each before its value.
+ */
+public class Decoder {
+
+    private byte[] bytes;
+    private int position;
+
+    public Decoder(byte[] aBytes, int anOffset) {
+        super();
+
+        this.bytes = aBytes;
+        this.position = anOffset;
+    }
+
+    public int count() {
+        int count = 0;
+        int shift = 0;
+
+        while (true) {
+            byte next = this.next();
+
+            count |= (next & 0x7f) << shift;
+
+            if ((next & 0x80) == 0) {
+                return count;
+            }
+
+            shift += 7;
+        }
+    }
+
+    public double decodeDouble() {
+        return Double.longBitsToDouble(this.fixed(8));
+    }
+
+    public float decodeFloat() {
+        return Float.intBitsToFloat((int) this.fixed(4));
+    }
+
+    /**
+     * Answers the integer that follows anIntegerMarker, which
+     * must have been read as one of Int8, Int16, Int32 or Int64.
+     */
+    public long decodeLong(EncodingMarker anIntegerMarker) {
+        switch (anIntegerMarker) {
+        case Int8:
+            return (byte) this.fixed(1);
+        case Int16:
+            return (short) this.fixed(2);
+        case Int32:
+            return (int) this.fixed(4);
+        case Int64:
+            return this.fixed(8);
+        default:
+            throw new IllegalStateException("Not an integer marker: " + anIntegerMarker);
+        }
+    }
+
+    public String decodeString() {
+        int length = this.count();
+
+        this.require(length);
+
+        String value = new String(this.bytes, this.position, length, Encoder.UTF_8);
+
+        this.position += length;
+
+        return value;
+    }
+
+    public boolean hasMore() {
+        return this.position < this.bytes.length;
+    }
+
+    public EncodingMarker marker() {
+        EncodingMarker marker = EncodingMarker.of(this.next());
+
+        if (marker == EncodingMarker.Undefined) {
+            throw new IllegalStateException(
+                    "Undefined encoding marker at " + (this.position - 1) + ".");
+        }
+
+        return marker;
+    }
+
+    /**
+     * Skips the value that follows aMarker, which has just been
+     * read, including any values nested within it.
+     */
+    public void skip(EncodingMarker aMarker) {
+        switch (aMarker) {
+        case Null:
+        case True:
+        case False:
+            break;
+        case Int8:
+        case Int16:
+        case Int32:
+        case Int64:
+            this.decodeLong(aMarker);
+            break;
+        case Float32:
+            this.skipBytes(4);
+            break;
+        case Float64:
+            this.skipBytes(8);
+            break;
+        case String:
+            this.skipBytes(this.count());
+            break;
+        case Array:
+            for (int count = this.count(); count > 0; --count) {
+                this.skip(this.marker());
+            }
+            break;
+        case Map:
+            for (int count = this.count() * 2; count > 0; --count) {
+                this.skip(this.marker());
+            }
+            break;
+        case Begin:
+            for (int count = this.count(); count > 0; --count) {
+                this.tag();
+                this.skip(this.marker());
+            }
+            break;
+        default:
+            throw new IllegalStateException("Unexpected encoding marker: " + aMarker);
+        }
+    }
+
+    public int tag() {
+        return this.count();
+    }
+
+    private long fixed(int aByteCount) {
+        this.require(aByteCount);
+
+        long value = 0L;
+
+        for (int idx = 0; idx < aByteCount; ++idx) {
+            value = (value << 8) | (this.bytes[this.position++] & 0xffL);
+        }
+
+        return value;
+    }
+
+    private byte next() {
+        this.require(1);
+
+        return this.bytes[this.position++];
+    }
+
+    private void skipBytes(int aByteCount) {
+        this.require(aByteCount);
+
+        this.position += aByteCount;
+    }
+
+    private void require(int aByteCount) {
+        if (this.position + aByteCount > this.bytes.length) {
+            throw new IllegalStateException("The encoding ends unexpectedly.");
+        }
+    }
+}
@@ -14,29 +14,168 @@
 
 package com.saasovation.common.media.canonical;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * I encode values, each led by its EncodingMarker, into a growing
+ * byte array. Integers take the fewest bytes that hold them, and
+ * lengths and counts are unsigned variable-length integers.
+ */
 public class Encoder {
 
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private byte[] bytes;
+    private int length;
+
     public Encoder() {
+        this(64);
+    }
+
+    public Encoder(int anInitialCapacity) {
         super();
+
+        this.bytes = new byte[anInitialCapacity];
     }
 
-    public byte[] encode(String aFieldName, boolean aValue) {
+    public Encoder begin(int aFieldCount) {
+        this.marker(EncodingMarker.Begin);
+        this.count(aFieldCount);
 
-        return null;
+        return this;
     }
 
-    public byte[] encode(String aFieldName, int aValue) {
+    public Encoder beginArray(int anElementCount) {
+        this.marker(EncodingMarker.Array);
+        this.count(anElementCount);
 
-        return null;
+        return this;
     }
 
-    public byte[] encode(String aFieldName, long aValue) {
+    public Encoder beginMap(int anEntryCount) {
+        this.marker(EncodingMarker.Map);
+        this.count(anEntryCount);
 
-        return null;
+        return this;
     }
 
-    public byte[] encode(String aFieldName, String aValue) {
+    public Encoder encode(boolean aValue) {
+        return this.marker(aValue ? EncodingMarker.True : EncodingMarker.False);
+    }
+
+    public Encoder encode(double aValue) {
+        this.marker(EncodingMarker.Float64);
+        this.fixed(Double.doubleToLongBits(aValue), 8);
+
+        return this;
+    }
+
+    public Encoder encode(float aValue) {
+        this.marker(EncodingMarker.Float32);
+        this.fixed(Float.floatToIntBits(aValue), 4);
+
+        return this;
+    }
+
+    public Encoder encode(long aValue) {
+        if (aValue >= Byte.MIN_VALUE && aValue <= Byte.MAX_VALUE) {
+            this.marker(EncodingMarker.Int8);
+            this.fixed(aValue, 1);
+        } else if (aValue >= Short.MIN_VALUE && aValue <= Short.MAX_VALUE) {
+            this.marker(EncodingMarker.Int16);
+            this.fixed(aValue, 2);
+        } else if (aValue >= Integer.MIN_VALUE && aValue <= Integer.MAX_VALUE) {
+            this.marker(EncodingMarker.Int32);
+            this.fixed(aValue, 4);
+        } else {
+            this.marker(EncodingMarker.Int64);
+            this.fixed(aValue, 8);
+        }
+
+        return this;
+    }
+
+    public Encoder encode(String aValue) {
+        if (aValue == null) {
+            return this.encodeNull();
+        }
+
+        byte[] encoded = aValue.getBytes(UTF_8);
+
+        this.marker(EncodingMarker.String);
+        this.count(encoded.length);
+        this.ensureCapacity(encoded.length);
+
+        System.arraycopy(encoded, 0, this.bytes, this.length, encoded.length);
+
+        this.length += encoded.length;
+
+        return this;
+    }
+
+    public Encoder encodeNull() {
+        return this.marker(EncodingMarker.Null);
+    }
+
+    public Encoder encodeRaw(byte aByte) {
+        this.ensureCapacity(1);
+
+        this.bytes[this.length++] = aByte;
+
+        return this;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public Encoder tag(int aTag) {
+        this.count(aTag);
+
+        return this;
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(this.bytes, this.length);
+    }
+
+    private void count(int aCount) {
+        this.ensureCapacity(5);
+
+        int value = aCount;
+
+        while ((value & ~0x7f) != 0) {
+            this.bytes[this.length++] = (byte) ((value & 0x7f) | 0x80);
+
+            value >>>= 7;
+        }
+
+        this.bytes[this.length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int aByteCount) {
+        if (this.length + aByteCount > this.bytes.length) {
+            this.bytes =
+                Arrays.copyOf(
+                        this.bytes,
+                        Math.max(this.bytes.length * 2, this.length + aByteCount));
+        }
+    }
+
+    private void fixed(long aValue, int aByteCount) {
+        this.ensureCapacity(aByteCount);
+
+        for (int shift = (aByteCount - 1) * 8; shift >= 0; shift -= 8) {
+            this.bytes[this.length++] = (byte) (aValue >>> shift);
+        }
+    }
+
+    private Encoder marker(EncodingMarker anEncodingMarker) {
+        this.ensureCapacity(1);
+
+        this.bytes[this.length++] = anEncodingMarker.marker();
 
-        return null;
+        return this;
     }
 }
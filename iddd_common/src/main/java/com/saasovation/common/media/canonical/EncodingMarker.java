@@ -27,9 +27,20 @@ public enum EncodingMarker {
     Int64(0xc6),
     Array(0xc7),
     Map(0xc8),
+    String(0xc9),
+    Float32(0xca),
+    Float64(0xcb),
 
     Undefined(0xcf);
 
+    private static final EncodingMarker[] markers = new EncodingMarker[256];
+
+    static {
+        for (EncodingMarker encodingMarker : EncodingMarker.values()) {
+            markers[encodingMarker.marker & 0xff] = encodingMarker;
+        }
+    }
+
     private int marker;
 
     EncodingMarker(int aMarker) {
@@ -39,4 +50,10 @@ public enum EncodingMarker {
     public byte marker() {
         return (byte) this.marker;
     }
+
+    public static EncodingMarker of(byte aMarker) {
+        EncodingMarker encodingMarker = markers[aMarker & 0xff];
+
+        return encodingMarker == null ? Undefined : encodingMarker;
+    }
 }
@@ -0,0 +1,30 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.notification;
+
+/**
+ * Decides, after each page of notifications a NotificationPublisher
+ * has published and tracked, whether it reads another page in the
+ * same run. A policy may also block for a while, slowing publishing
+ * down while consumers catch up.
+ */
+public interface NotificationBackpressurePolicy {
+
+    public boolean continueAfter(
+            int aPublishedPageCount,
+            int aPublishedNotificationCount,
+            long anElapsedMillis);
+}
@@ -0,0 +1,184 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.notification;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Health and lag of a NotificationPublishingScheduler.
+ *
+ * The lag is the number of event ids between the last one committed,
+ * as signaled to the scheduler, and the last one published, as read
+ * from the publisher's tracker after a successful run. The lag millis
+ * are the time since the oldest signal that has not been published
+ * through by a successful run.
+ */
+public class NotificationPublishingMetrics {
+
+    private AtomicLong appendedEventId;
+    private AtomicLong consecutiveFailures;
+    private AtomicLong failedRuns;
+    private volatile String lastFailure;
+    private AtomicLong lastRunMillis;
+    private AtomicLong lastSignaledAt;
+    private AtomicLong lastSucceededAt;
+    private AtomicLong pendingSince;
+    private AtomicLong publishedThroughEventId;
+    private volatile boolean running;
+    private AtomicLong runs;
+    private AtomicLong signals;
+
+    public NotificationPublishingMetrics() {
+        super();
+
+        this.appendedEventId = new AtomicLong();
+        this.consecutiveFailures = new AtomicLong();
+        this.failedRuns = new AtomicLong();
+        this.lastRunMillis = new AtomicLong();
+        this.lastSignaledAt = new AtomicLong();
+        this.lastSucceededAt = new AtomicLong();
+        this.pendingSince = new AtomicLong();
+        this.publishedThroughEventId = new AtomicLong();
+        this.runs = new AtomicLong();
+        this.signals = new AtomicLong();
+    }
+
+    public long appendedEventId() {
+        return this.appendedEventId.get();
+    }
+
+    public long consecutiveFailures() {
+        return this.consecutiveFailures.get();
+    }
+
+    public long failedRuns() {
+        return this.failedRuns.get();
+    }
+
+    public boolean isHealthy() {
+        return this.isRunning() && this.consecutiveFailures() == 0;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    public long lag() {
+        return Math.max(0, this.appendedEventId() - this.publishedThroughEventId());
+    }
+
+    public long lagMillis() {
+        long pendingSince = this.pendingSince.get();
+
+        if (pendingSince == 0) {
+            return 0;
+        }
+
+        return Math.max(0, System.currentTimeMillis() - pendingSince);
+    }
+
+    public String lastFailure() {
+        return this.lastFailure;
+    }
+
+    public long lastRunMillis() {
+        return this.lastRunMillis.get();
+    }
+
+    public long lastSucceededAt() {
+        return this.lastSucceededAt.get();
+    }
+
+    public long publishedThroughEventId() {
+        return this.publishedThroughEventId.get();
+    }
+
+    public long runs() {
+        return this.runs.get();
+    }
+
+    public long signals() {
+        return this.signals.get();
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationPublishingMetrics [running=" + this.isRunning()
+                + " appendedEventId=" + this.appendedEventId()
+                + " lag=" + this.lag()
+                + " lagMillis=" + this.lagMillis()
+                + " signals=" + this.signals()
+                + " runs=" + this.runs()
+                + " failedRuns=" + this.failedRuns()
+                + " consecutiveFailures=" + this.consecutiveFailures()
+                + " lastRunMillis=" + this.lastRunMillis()
+                + " lastFailure=" + this.lastFailure()
+                + "]";
+    }
+
+    void failed(RuntimeException anException, long aRunMillis) {
+        this.runs.incrementAndGet();
+        this.failedRuns.incrementAndGet();
+        this.consecutiveFailures.incrementAndGet();
+        this.lastRunMillis.set(aRunMillis);
+
+        this.lastFailure = anException.getClass().getName() + ": " + anException.getMessage();
+    }
+
+    void running(boolean isRunning) {
+        this.running = isRunning;
+    }
+
+    void signaled(long aStoredEventId) {
+        long now = System.currentTimeMillis();
+
+        this.signals.incrementAndGet();
+        this.lastSignaledAt.set(now);
+
+        this.pendingSince.compareAndSet(0, now);
+
+        long appended = this.appendedEventId.get();
+
+        while (aStoredEventId > appended && !this.appendedEventId.compareAndSet(appended, aStoredEventId)) {
+            appended = this.appendedEventId.get();
+        }
+    }
+
+    void succeeded(long aPublishedThroughEventId, long aStartedAt, long aRunMillis) {
+        this.runs.incrementAndGet();
+        this.consecutiveFailures.set(0);
+        this.lastRunMillis.set(aRunMillis);
+        this.lastSucceededAt.set(aStartedAt + aRunMillis);
+
+        long publishedThrough = this.publishedThroughEventId.get();
+
+        while (aPublishedThroughEventId > publishedThrough
+                && !this.publishedThroughEventId.compareAndSet(publishedThrough, aPublishedThroughEventId)) {
+            publishedThrough = this.publishedThroughEventId.get();
+        }
+
+        // a signal since the run began, or one whose event the run
+        // did not publish, is still pending
+
+        long pendingSince = this.pendingSince.get();
+
+        if (pendingSince != 0 && pendingSince <= aStartedAt && this.lag() == 0) {
+            long lastSignaledAt = this.lastSignaledAt.get();
+
+            this.pendingSince.compareAndSet(pendingSince, lastSignaledAt > aStartedAt ? lastSignaledAt : 0);
+        }
+    }
+}
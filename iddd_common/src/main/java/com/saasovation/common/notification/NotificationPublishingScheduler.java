@@ -0,0 +1,269 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.notification;
+
+/**
+ * Runs a NotificationPublisher on its own thread when events are
+ * committed, rather than polling for them.
+ *
+ * A commit only signals my publisher thread. It waits coalesceMillis
+ * for the rest of a burst before publishing all of them at once. An
+ * append signals too, as a hint that may come before its transaction
+ * commits; a run that follows signals is followed by one settling
+ * run shortly after, which picks up events whose transactions
+ * committed after the first run read the store, but it is the commit
+ * signal that publishes an event whose transaction outlasts the
+ * settling run. Without signals I publish every
+ * idleTimeoutMillis, so events appended elsewhere, or by stores
+ * that cannot signal, are still published. A failing run is retried
+ * with a backoff that doubles up to idleTimeoutMillis. After each run
+ * I read the id published through from my
+ * publishedNotificationTrackerStore, for my metrics. An interrupt of
+ * my publisher thread closes me.
+ */
+public class NotificationPublishingScheduler {
+
+    private static final long DEFAULT_COALESCE_MILLIS = 5L;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5000L;
+    private static final long SETTLE_MILLIS = 50L;
+
+    private volatile boolean closed;
+    private long coalesceMillis;
+    private long idleTimeoutMillis;
+    private NotificationPublishingMetrics metrics;
+    private NotificationPublisher notificationPublisher;
+    private PublishedNotificationTrackerStore publishedNotificationTrackerStore;
+    private Thread publisherThread;
+    private boolean signaled;
+    private final Object signalLock = new Object();
+
+    public NotificationPublishingScheduler(
+            NotificationPublisher aNotificationPublisher,
+            PublishedNotificationTrackerStore aPublishedNotificationTrackerStore) {
+
+        this(
+            aNotificationPublisher,
+            aPublishedNotificationTrackerStore,
+            DEFAULT_COALESCE_MILLIS,
+            DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public NotificationPublishingScheduler(
+            NotificationPublisher aNotificationPublisher,
+            PublishedNotificationTrackerStore aPublishedNotificationTrackerStore,
+            long aCoalesceMillis,
+            long anIdleTimeoutMillis) {
+
+        super();
+
+        if (aNotificationPublisher == null) {
+            throw new IllegalArgumentException("The notification publisher must be provided.");
+        }
+
+        if (aPublishedNotificationTrackerStore == null) {
+            throw new IllegalArgumentException("The published notification tracker store must be provided.");
+        }
+
+        if (aCoalesceMillis < 0L) {
+            throw new IllegalArgumentException("The coalesce millis must not be negative.");
+        }
+
+        if (anIdleTimeoutMillis < 1L) {
+            throw new IllegalArgumentException("The idle timeout millis must be at least 1.");
+        }
+
+        this.coalesceMillis = aCoalesceMillis;
+        this.idleTimeoutMillis = anIdleTimeoutMillis;
+        this.metrics = new NotificationPublishingMetrics();
+        this.notificationPublisher = aNotificationPublisher;
+        this.publishedNotificationTrackerStore = aPublishedNotificationTrackerStore;
+    }
+
+    /**
+     * Stops my publisher thread once its current run, if any, has
+     * finished, and waits for it.
+     */
+    public void close() {
+        Thread publisherThread = null;
+
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+
+            publisherThread = this.publisherThread;
+        }
+
+        this.signal();
+
+        if (publisherThread != null && publisherThread != Thread.currentThread()) {
+            try {
+                publisherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void eventAppended(long aStoredEventId) {
+        this.signal();
+    }
+
+    public void eventCommitted(long aStoredEventId) {
+
+        // only a committed id is ever published, so one rolled
+        // back is not counted as lag
+
+        this.metrics.signaled(aStoredEventId);
+
+        this.signal();
+    }
+
+    public NotificationPublishingMetrics metrics() {
+        return this.metrics;
+    }
+
+    public synchronized void start() {
+        if (this.closed) {
+            throw new IllegalStateException("The scheduler is closed.");
+        }
+
+        if (this.publisherThread != null) {
+            return;
+        }
+
+        this.publisherThread = new Thread("notification-publisher") {
+            @Override
+            public void run() {
+                publishUntilClosed();
+            }
+        };
+
+        this.publisherThread.setDaemon(true);
+
+        this.metrics.running(true);
+
+        this.publisherThread.start();
+    }
+
+    /**
+     * Publishes soon, as if an event had been appended.
+     */
+    public void wake() {
+        this.signal();
+    }
+
+    private boolean awaitSignal(long aTimeoutMillis) throws InterruptedException {
+        synchronized (this.signalLock) {
+            if (!this.signaled && !this.closed) {
+                this.signalLock.wait(aTimeoutMillis);
+            }
+
+            boolean signaled = this.signaled;
+
+            this.signaled = false;
+
+            return signaled;
+        }
+    }
+
+    private void clearSignal() {
+        synchronized (this.signalLock) {
+            this.signaled = false;
+        }
+    }
+
+    private void publishUntilClosed() {
+        long waitMillis = this.idleTimeoutMillis;
+
+        try {
+            while (!this.closed) {
+                boolean signaled = this.awaitSignal(waitMillis);
+
+                if (this.closed) {
+                    break;
+                }
+
+                if (signaled && this.coalesceMillis > 0) {
+
+                    // let the rest of a burst arrive; its signals
+                    // are answered by this same run
+
+                    Thread.sleep(this.coalesceMillis);
+
+                    this.clearSignal();
+                }
+
+                long startedAt = System.currentTimeMillis();
+
+                try {
+                    this.notificationPublisher.publishNotifications();
+
+                    long publishedThroughEventId =
+                            this.publishedNotificationTrackerStore
+                                .publishedNotificationTracker()
+                                .mostRecentPublishedNotificationId();
+
+                    this.metrics.succeeded(
+                            publishedThroughEventId,
+                            startedAt,
+                            System.currentTimeMillis() - startedAt);
+
+                    waitMillis = signaled ? SETTLE_MILLIS : this.idleTimeoutMillis;
+
+                } catch (RuntimeException e) {
+                    this.metrics.failed(e, System.currentTimeMillis() - startedAt);
+
+                    System.out.println("NOTIFICATION PUBLISHER: Failed to publish because: " + e.getMessage() + ": Retrying...");
+
+                    waitMillis = this.retryMillis(this.metrics.consecutiveFailures());
+                }
+            }
+        } catch (InterruptedException e) {
+
+            // waiting again would only be interrupted again, so
+            // rather than spin until closed i stop publishing
+
+            this.closed = true;
+
+            Thread.currentThread().interrupt();
+
+        } finally {
+            this.metrics.running(false);
+        }
+    }
+
+    private long retryMillis(long aConsecutiveFailures) {
+        long retryMillis = Math.max(SETTLE_MILLIS, this.coalesceMillis);
+
+        for (long failure = 1; failure < aConsecutiveFailures && retryMillis < this.idleTimeoutMillis; ++failure) {
+            retryMillis *= 2;
+        }
+
+        return Math.min(retryMillis, this.idleTimeoutMillis);
+    }
+
+    private void signal() {
+        synchronized (this.signalLock) {
+            this.signaled = true;
+
+            this.signalLock.notifyAll();
+        }
+    }
+
+}
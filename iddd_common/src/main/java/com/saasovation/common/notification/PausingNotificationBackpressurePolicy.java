@@ -0,0 +1,77 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.notification;
+
+/**
+ * Lets a publishing run go on for at most maximumPages pages,
+ * pausing for pauseMillis between them. What a run leaves behind is
+ * published by the next one.
+ */
+public class PausingNotificationBackpressurePolicy implements NotificationBackpressurePolicy {
+
+    private int maximumPages;
+    private long pauseMillis;
+
+    public static PausingNotificationBackpressurePolicy unbounded() {
+        return new PausingNotificationBackpressurePolicy(Integer.MAX_VALUE, 0L);
+    }
+
+    public PausingNotificationBackpressurePolicy(int aMaximumPages, long aPauseMillis) {
+        super();
+
+        if (aMaximumPages < 1) {
+            throw new IllegalArgumentException("The maximum pages must be at least 1.");
+        }
+
+        if (aPauseMillis < 0L) {
+            throw new IllegalArgumentException("The pause must not be negative.");
+        }
+
+        this.maximumPages = aMaximumPages;
+        this.pauseMillis = aPauseMillis;
+    }
+
+    @Override
+    public boolean continueAfter(
+            int aPublishedPageCount,
+            int aPublishedNotificationCount,
+            long anElapsedMillis) {
+
+        if (aPublishedPageCount >= this.maximumPages()) {
+            return false;
+        }
+
+        if (this.pauseMillis() > 0L) {
+            try {
+                Thread.sleep(this.pauseMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public int maximumPages() {
+        return this.maximumPages;
+    }
+
+    public long pauseMillis() {
+        return this.pauseMillis;
+    }
+}
@@ -0,0 +1,100 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.notification;
+
+import java.util.List;
+
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.EventStore;
+import com.saasovation.common.event.StoredEvent;
+
+/**
+ * An EventStore that signals a NotificationPublishingScheduler of
+ * each event appended to the EventStore it decorates, whichever
+ * store that is.
+ *
+ * The signal on append is only a hint, as the transaction of the
+ * event may not yet have committed. The event is signaled again
+ * once committed, by way of afterCommit(), which a subclass for a
+ * transactional store answers with the commit hook of its
+ * transaction. By default the event is taken as committed when
+ * appended.
+ */
+public class SignalingEventStore implements EventStore {
+
+    private EventStore eventStore;
+    private NotificationPublishingScheduler scheduler;
+
+    public SignalingEventStore(
+            EventStore anEventStore,
+            NotificationPublishingScheduler aScheduler) {
+
+        super();
+
+        this.eventStore = anEventStore;
+        this.scheduler = aScheduler;
+    }
+
+    @Override
+    public List<StoredEvent> allStoredEventsBetween(long aLowStoredEventId, long aHighStoredEventId) {
+        return this.eventStore.allStoredEventsBetween(aLowStoredEventId, aHighStoredEventId);
+    }
+
+    @Override
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId) {
+        return this.eventStore.allStoredEventsSince(aStoredEventId);
+    }
+
+    @Override
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount) {
+        return this.eventStore.allStoredEventsSince(aStoredEventId, aMaximumCount);
+    }
+
+    @Override
+    public StoredEvent append(DomainEvent aDomainEvent) {
+        final StoredEvent storedEvent = this.eventStore.append(aDomainEvent);
+
+        this.scheduler.eventAppended(storedEvent.eventId());
+
+        this.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.eventCommitted(storedEvent.eventId());
+            }
+        });
+
+        return storedEvent;
+    }
+
+    @Override
+    public void close() {
+        this.eventStore.close();
+    }
+
+    @Override
+    public long countStoredEvents() {
+        return this.eventStore.countStoredEvents();
+    }
+
+    /**
+     * Runs aSignal once the transaction of the event just appended
+     * has committed, and not if it rolls back.
+     * @param aSignal the Runnable that signals the commit
+     */
+    protected void afterCommit(Runnable aSignal) {
+        aSignal.run();
+    }
+}
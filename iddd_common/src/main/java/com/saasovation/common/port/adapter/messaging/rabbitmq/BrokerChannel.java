@@ -95,6 +95,20 @@ public abstract class BrokerChannel {
         }
     }
 
+    /**
+     * Constructs my default state on aChannel, which is already
+     * open and whose connection is not mine to manage.
+     * @param aChannel the Channel to use
+     * @param aName the String name of my implementor
+     */
+    protected BrokerChannel(Channel aChannel, String aName) {
+
+        super();
+
+        this.setName(aName);
+        this.setChannel(aChannel);
+    }
+
     /**
      * Constructs my default state.
      * @param aBrokerChannel the BrokerChannel to initialize with
@@ -0,0 +1,237 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.saasovation.common.port.adapter.messaging.MessageException;
+
+/**
+ * I am a message producer whose channel is in publisher confirm
+ * mode. Each message I send answers its publish sequence number,
+ * and the broker later confirms (acks) or rejects (nacks) it. I
+ * collect those outcomes so that my client can wait for them and
+ * learn which of its messages the broker has taken responsibility
+ * for, rather than sending and forgetting.
+ */
+public class ConfirmingMessageProducer extends MessageProducer {
+
+    /** My outcomes not yet answered, by sequence number, true if acked. */
+    private Map<Long, Boolean> confirmations;
+
+    /** My lock, which guards my confirmations and unconfirmed. */
+    private Object lock;
+
+    /** My shutdown cause, if my channel has been shut down. */
+    private ShutdownSignalException shutdownCause;
+
+    /** My sequence numbers sent but neither acked nor nacked. */
+    private NavigableSet<Long> unconfirmed;
+
+    /**
+     * Answers a new instance of a ConfirmingMessageProducer, which
+     * puts the channel of aBrokerChannel in publisher confirm mode.
+     * @param aBrokerChannel the BrokerChannel where messages are to be sent
+     * @return ConfirmingMessageProducer
+     */
+    public static ConfirmingMessageProducer confirmingInstance(BrokerChannel aBrokerChannel) {
+        return new ConfirmingMessageProducer(aBrokerChannel);
+    }
+
+    /**
+     * Answers the outcomes of my messages confirmed since last
+     * asked, by sequence number and true if acked or false if
+     * nacked, waiting up to aTimeoutMillis for at least one.
+     * Answers an empty Map if none arrived in time.
+     * @param aTimeoutMillis the long number of milliseconds to wait
+     * @return Map<Long, Boolean>
+     * @throws MessageException if my channel was shut down
+     */
+    public Map<Long, Boolean> awaitConfirmations(long aTimeoutMillis) {
+        long deadline = System.currentTimeMillis() + aTimeoutMillis;
+
+        synchronized (this.lock) {
+            while (this.confirmations.isEmpty()) {
+                if (this.shutdownCause != null) {
+                    throw new MessageException(
+                            "Channel shut down with unconfirmed messages.",
+                            this.shutdownCause,
+                            true);
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    break;
+                }
+
+                try {
+                    this.lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    break;
+                }
+            }
+
+            Map<Long, Boolean> confirmed = this.confirmations;
+
+            this.confirmations = new TreeMap<Long, Boolean>();
+
+            return confirmed;
+        }
+    }
+
+    /**
+     * Answers whether or not my channel is open to send.
+     * @return boolean
+     */
+    public boolean isOpen() {
+        return this.brokerChannel().channel() != null
+                && this.brokerChannel().channel().isOpen();
+    }
+
+    /**
+     * Answers the publish sequence number of aTextMessage after
+     * sending it to my channel with aMessageParameters as the
+     * message basic properties.
+     * @param aTextMessage the String text message to send
+     * @param aMessageParameters the MessageParameters
+     * @return long
+     */
+    public long sendConfirmable(
+            String aTextMessage,
+            MessageParameters aMessageParameters) {
+
+        return this.sendConfirmable(
+                this.brokerChannel().queueName(),
+                aTextMessage,
+                aMessageParameters);
+    }
+
+    /**
+     * Answers the publish sequence number of aTextMessage after
+     * sending it to my channel with aRoutingKey and aMessageParameters
+     * as the message basic properties.
+     * @param aRoutingKey the String routing key
+     * @param aTextMessage the String text message to send
+     * @param aMessageParameters the MessageParameters
+     * @return long
+     */
+    public long sendConfirmable(
+            String aRoutingKey,
+            String aTextMessage,
+            MessageParameters aMessageParameters) {
+
+        synchronized (this.lock) {
+
+            // the sequence number is taken and the message sent
+            // under my lock so an ack cannot precede its record
+
+            long sequenceNumber = this.brokerChannel().channel().getNextPublishSeqNo();
+
+            this.send(aRoutingKey, aTextMessage, aMessageParameters);
+
+            this.unconfirmed.add(sequenceNumber);
+
+            return sequenceNumber;
+        }
+    }
+
+    /**
+     * Answers the number of my messages not yet acked or nacked.
+     * @return int
+     */
+    public int unconfirmedCount() {
+        synchronized (this.lock) {
+            return this.unconfirmed.size();
+        }
+    }
+
+    /**
+     * Constructs my default state.
+     * @param aBrokerChannel the BrokerChannel to which I send messages
+     */
+    protected ConfirmingMessageProducer(BrokerChannel aBrokerChannel) {
+        super(aBrokerChannel);
+
+        this.confirmations = new TreeMap<Long, Boolean>();
+        this.lock = new Object();
+        this.unconfirmed = new TreeSet<Long>();
+
+        try {
+            aBrokerChannel.channel().confirmSelect();
+
+        } catch (IOException e) {
+            throw new MessageException("Failed to select publisher confirms.", e);
+        }
+
+        aBrokerChannel.channel().addConfirmListener(new ConfirmListener() {
+            @Override
+            public void handleAck(long aDeliveryTag, boolean isMultiple) {
+                confirm(aDeliveryTag, isMultiple, true);
+            }
+
+            @Override
+            public void handleNack(long aDeliveryTag, boolean isMultiple) {
+                confirm(aDeliveryTag, isMultiple, false);
+            }
+        });
+
+        aBrokerChannel.channel().addShutdownListener(new ShutdownListener() {
+            @Override
+            public void shutdownCompleted(ShutdownSignalException aCause) {
+                synchronized (lock) {
+                    shutdownCause = aCause;
+
+                    lock.notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Records the outcome of aDeliveryTag, and of all before it
+     * when isMultiple, and wakes any waiting for confirmations.
+     * @param aDeliveryTag the long delivery tag the broker answered
+     * @param isMultiple the boolean indicating all up to aDeliveryTag
+     * @param isAcked the boolean indicating ack rather than nack
+     */
+    private void confirm(long aDeliveryTag, boolean isMultiple, boolean isAcked) {
+        synchronized (this.lock) {
+            if (isMultiple) {
+                Iterator<Long> iterator = this.unconfirmed.headSet(aDeliveryTag, true).iterator();
+
+                while (iterator.hasNext()) {
+                    this.confirmations.put(iterator.next(), isAcked);
+
+                    iterator.remove();
+                }
+            } else if (this.unconfirmed.remove(aDeliveryTag)) {
+                this.confirmations.put(aDeliveryTag, isAcked);
+            }
+
+            this.lock.notifyAll();
+        }
+    }
+}
@@ -41,10 +41,10 @@ public abstract class ExchangeListener {
     }
 
     /**
-     * Closes my queue.
+     * Closes my message consumer, which closes my queue.
      */
     public void close() {
-        this.queue().close();
+        this.messageConsumer.close();
     }
 
     /**
@@ -66,6 +66,44 @@ public abstract class ExchangeListener {
      */
     protected abstract String[] listensTo();
 
+    /**
+     * Answers the number of threads that handle my messages in
+     * parallel. By default it is 1, and all of my messages are
+     * handled in the order received on the broker client's thread.
+     * When more than 1, partitionKeyOf() decides which thread
+     * handles each message. May be overridden to change the count.
+     * @return int
+     */
+    protected int partitionCount() {
+        return 1;
+    }
+
+    /**
+     * Answers the partition key of aTextMessage, such as the
+     * identities of its tenant and aggregate, which is used only if
+     * my partitionCount() is more than 1. Messages of equal keys are
+     * handled in the order received. By default it is null, which
+     * handles all messages on one thread. May be overridden to
+     * answer a key taken from the message.
+     * @param aType the String message type
+     * @param aTextMessage the String raw text message
+     * @return String
+     */
+    protected String partitionKeyOf(String aType, String aTextMessage) {
+        return null;
+    }
+
+    /**
+     * Answers the most messages delivered to me but not yet
+     * acknowledged, which is used only if my partitionCount() is
+     * more than 1. By default it is 16 per partition. May be
+     * overridden to change the count.
+     * @return int
+     */
+    protected int prefetchCount() {
+        return this.partitionCount() * 16;
+    }
+
     /**
      * Answers the String name of the queue I listen to. By
      * default it is the simple name of my concrete class.
@@ -77,19 +115,24 @@ public abstract class ExchangeListener {
     }
 
     /**
-     * Attaches to the queues I listen to for messages.
+     * Attaches to the queues I listen to for messages. Unless the
+     * configured ExchangeRouting is FANOUT, my queue is bound only
+     * to the types I listen to, so the broker filters for me.
      */
     private void attachToQueue() {
+        ExchangeRouting routing = ExchangeRouting.configured();
+
         Exchange exchange =
-                Exchange.fanOutInstance(
+                routing.exchangeInstance(
                         ConnectionSettings.instance(),
                         this.exchangeName(),
                         true);
 
         this.queue =
-                Queue.individualExchangeSubscriberInstance(
+                routing.individualExchangeSubscriberInstance(
                         exchange,
-                        this.exchangeName() + "." + this.queueName());
+                        this.exchangeName() + "." + this.queueName(),
+                        this.listensTo());
     }
 
     /**
@@ -104,7 +147,27 @@ public abstract class ExchangeListener {
      * Registers my listener for queue messages and dispatching.
      */
     private void registerConsumer() {
-        this.messageConsumer = MessageConsumer.instance(this.queue(), false);
+        int partitionCount = this.partitionCount();
+
+        if (partitionCount > 1) {
+            int prefetchCount = this.prefetchCount();
+
+            this.messageConsumer =
+                    MessageConsumer.partitionedInstance(
+                            this.queue(),
+                            partitionCount,
+                            prefetchCount,
+                            Math.max(1, prefetchCount / 4),
+                            new MessagePartitioner() {
+
+                @Override
+                public String partitionKeyOf(String aType, byte[] aMessage) {
+                    return ExchangeListener.this.partitionKeyOf(aType, new String(aMessage));
+                }
+            });
+        } else {
+            this.messageConsumer = MessageConsumer.instance(this.queue(), false);
+        }
 
         this.messageConsumer.receiveOnly(
                 this.listensTo(),
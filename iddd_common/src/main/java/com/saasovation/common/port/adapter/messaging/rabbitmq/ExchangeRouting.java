@@ -0,0 +1,151 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+/**
+ * I am the way messages are routed from the exchanges that the
+ * bounded contexts publish their notifications to. Messages are
+ * always sent with their type as the routing key.
+ *
+ * FANOUT delivers every message to every queue bound to the exchange,
+ * leaving each consumer to discard the types it does not listen to.
+ * DIRECT and TOPIC bind each queue with the types its listener listens
+ * to, so the broker delivers only those. A TOPIC binding may also be
+ * a pattern, such as "com.saasovation.identityaccess.#".
+ *
+ * Publishers and listeners of one exchange must use the same routing,
+ * as the broker refuses to declare an existing exchange with another
+ * type. Changing it requires deleting the exchange first.
+ */
+public enum ExchangeRouting {
+
+    FANOUT {
+        @Override
+        public Exchange exchangeInstance(
+                ConnectionSettings aConnectionSettings,
+                String aName,
+                boolean isDurable) {
+
+            return Exchange.fanOutInstance(aConnectionSettings, aName, isDurable);
+        }
+
+        @Override
+        public String[] bindingKeysFor(String[] aMessageTypes) {
+            return new String[] { "" };
+        }
+    },
+
+    DIRECT {
+        @Override
+        public Exchange exchangeInstance(
+                ConnectionSettings aConnectionSettings,
+                String aName,
+                boolean isDurable) {
+
+            return Exchange.directInstance(aConnectionSettings, aName, isDurable);
+        }
+
+        @Override
+        public String[] bindingKeysFor(String[] aMessageTypes) {
+            if (aMessageTypes == null || aMessageTypes.length == 0) {
+                throw new IllegalArgumentException(
+                        "A direct exchange subscriber must listen to at least one message type.");
+            }
+
+            return aMessageTypes;
+        }
+    },
+
+    TOPIC {
+        @Override
+        public Exchange exchangeInstance(
+                ConnectionSettings aConnectionSettings,
+                String aName,
+                boolean isDurable) {
+
+            return Exchange.topicInstance(aConnectionSettings, aName, isDurable);
+        }
+
+        @Override
+        public String[] bindingKeysFor(String[] aMessageTypes) {
+            if (aMessageTypes == null || aMessageTypes.length == 0) {
+                return new String[] { "#" };
+            }
+
+            return aMessageTypes;
+        }
+    };
+
+    public static final String PROPERTY_NAME = "rabbitmq.exchange.routing";
+
+    /**
+     * Answers the ExchangeRouting named by the system property
+     * rabbitmq.exchange.routing, which is FANOUT by default.
+     * @return ExchangeRouting
+     */
+    public static ExchangeRouting configured() {
+        String routing = System.getProperty(PROPERTY_NAME, FANOUT.name());
+
+        return ExchangeRouting.valueOf(routing.trim().toUpperCase());
+    }
+
+    /**
+     * Answers the routing keys a queue is bound with to receive
+     * messages of aMessageTypes, all types if empty or null.
+     * @param aMessageTypes the String[] types of the messages to receive
+     * @return String[]
+     */
+    public abstract String[] bindingKeysFor(String[] aMessageTypes);
+
+    /**
+     * Answers a new Exchange of my type with the name aName.
+     * @param aConnectionSettings the ConnectionSettings
+     * @param aName the String name of the exchange
+     * @param isDurable the boolean indicating whether or not it is durable
+     * @return Exchange
+     */
+    public abstract Exchange exchangeInstance(
+            ConnectionSettings aConnectionSettings,
+            String aName,
+            boolean isDurable);
+
+    /**
+     * Answers a new durable Queue named aName bound to anExchange,
+     * which I answered, to receive messages of aMessageTypes.
+     * @param anExchange the Exchange to bind the queue to
+     * @param aName the String name of the queue, which must be unique, non-empty
+     * @param aMessageTypes the String[] types of the messages to receive, all if empty or null
+     * @return Queue
+     */
+    public Queue individualExchangeSubscriberInstance(
+            Exchange anExchange,
+            String aName,
+            String[] aMessageTypes) {
+
+        return Queue.individualExchangeSubscriberInstance(
+                anExchange,
+                aName,
+                this.bindingKeysFor(aMessageTypes));
+    }
+
+    /**
+     * Answers the routing key of a message of aMessageType.
+     * @param aMessageType the String type of the message
+     * @return String
+     */
+    public String routingKeyOf(String aMessageType) {
+        return aMessageType == null ? "" : aMessageType;
+    }
+}
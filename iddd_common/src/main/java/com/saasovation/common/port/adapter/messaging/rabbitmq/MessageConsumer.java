@@ -39,12 +39,27 @@ public class MessageConsumer {
     /** My autoAcknowledged property. */
     private boolean autoAcknowledged;
 
+    /** My acknowledgementBatchSize, used when my messages are partitioned. */
+    private int acknowledgementBatchSize;
+
     /** My closed property, which indicates I have been closed. */
-    private boolean closed;
+    private volatile boolean closed;
+
+    /** My messagePartitioner, which is null unless my messages are partitioned. */
+    private MessagePartitioner messagePartitioner;
 
     /** My messageTypes, which indicates the messages of types I accept. */
     private Set<String> messageTypes;
 
+    /** My partitionCount, the number of threads that handle partitioned messages. */
+    private int partitionCount;
+
+    /** My partitionedDispatcher, which is created when partitioned messages are received. */
+    private PartitionedDispatcher partitionedDispatcher;
+
+    /** My prefetchCount, the most messages unacknowledged when partitioned. */
+    private int prefetchCount;
+
     /** My queue, which is where my messages come from. */
     private Queue queue;
 
@@ -85,11 +100,60 @@ public class MessageConsumer {
     }
 
     /**
-     * Closes me, which closes my queue.
+     * Answers a new MessageConsumer with manual acknowledgment whose
+     * messages are handled in parallel on aPartitionCount threads.
+     * Each message is handled on the thread of its partition key, as
+     * answered by aMessagePartitioner, so that messages of equal keys
+     * are handled in the order received. Up to aPrefetchCount messages
+     * may be unacknowledged at a time, and handled messages are
+     * acknowledged cumulatively, anAcknowledgementBatchSize at most
+     * in each basicAck. My queue's channel must be used by me alone.
+     * @param aQueue the Queue from which messages are received
+     * @param aPartitionCount the int number of threads that handle messages
+     * @param aPrefetchCount the int most messages unacknowledged at a time
+     * @param anAcknowledgementBatchSize the int most messages acknowledged at a time
+     * @param aMessagePartitioner the MessagePartitioner that answers partition keys
+     * @return MessageConsumer
+     */
+    public static MessageConsumer partitionedInstance(
+            Queue aQueue,
+            int aPartitionCount,
+            int aPrefetchCount,
+            int anAcknowledgementBatchSize,
+            MessagePartitioner aMessagePartitioner) {
+
+        if (aPartitionCount < 1) {
+            throw new IllegalArgumentException("The partition count must be at least 1.");
+        }
+        if (anAcknowledgementBatchSize < 1 || anAcknowledgementBatchSize > aPrefetchCount) {
+            throw new IllegalArgumentException(
+                    "The acknowledgement batch size must be at least 1 and at most the prefetch count.");
+        }
+        if (aMessagePartitioner == null) {
+            throw new IllegalArgumentException("The message partitioner must be provided.");
+        }
+
+        MessageConsumer messageConsumer = new MessageConsumer(aQueue, false);
+
+        messageConsumer.acknowledgementBatchSize = anAcknowledgementBatchSize;
+        messageConsumer.messagePartitioner = aMessagePartitioner;
+        messageConsumer.partitionCount = aPartitionCount;
+        messageConsumer.prefetchCount = aPrefetchCount;
+
+        return messageConsumer;
+    }
+
+    /**
+     * Closes me, which closes my queue. Partitioned messages not yet
+     * handled are left to the broker to deliver again.
      */
     public void close() {
         this.setClosed(true);
 
+        if (this.partitionedDispatcher != null) {
+            this.partitionedDispatcher.close();
+        }
+
         this.queue().close();
     }
 
@@ -106,8 +170,17 @@ public class MessageConsumer {
      * across all consumers of this queue.
      */
     public void equalizeMessageDistribution() {
+        this.equalizeMessageDistribution(1);
+    }
+
+    /**
+     * Limits to aPrefetchCount the messages the broker delivers
+     * to me before they are acknowledged.
+     * @param aPrefetchCount the int most messages unacknowledged at a time
+     */
+    public void equalizeMessageDistribution(int aPrefetchCount) {
         try {
-            this.queue().channel().basicQos(1);
+            this.queue().channel().basicQos(aPrefetchCount);
         } catch (IOException e) {
             throw new MessageException("Cannot equalize distribution.", e);
         }
@@ -195,6 +268,14 @@ public class MessageConsumer {
         this.closed = aClosed;
     }
 
+    /**
+     * Answers whether or not my messages are partitioned.
+     * @return boolean
+     */
+    private boolean isPartitioned() {
+        return this.messagePartitioner != null;
+    }
+
     /**
      * Answers my queue.
      * @return Queue
@@ -220,6 +301,17 @@ public class MessageConsumer {
         Queue queue = this.queue();
         Channel channel = queue.channel();
 
+        if (this.isPartitioned()) {
+            this.equalizeMessageDistribution(this.prefetchCount);
+
+            this.partitionedDispatcher =
+                new PartitionedDispatcher(
+                        channel,
+                        queue.name(),
+                        this.partitionCount,
+                        this.acknowledgementBatchSize);
+        }
+
         try {
             String tag =
                 channel.basicConsume(
@@ -276,7 +368,13 @@ public class MessageConsumer {
                 byte[] aBody) throws IOException {
 
             if (!isClosed()) {
-                handle(this.messageListener(), new Delivery(anEnvelope, aProperties, aBody));
+                Delivery delivery = new Delivery(anEnvelope, aProperties, aBody);
+
+                if (isPartitioned()) {
+                    this.dispatch(this.messageListener(), delivery);
+                } else {
+                    this.handle(this.messageListener(), delivery);
+                }
             }
 
             if (isClosed()) {
@@ -292,6 +390,36 @@ public class MessageConsumer {
             close();
         }
 
+        /**
+         * Dispatches aDelivery to be handled on the thread of its
+         * partition, unless it is filtered out.
+         * @param aMessageListener the MessageListener
+         * @param aDelivery the Delivery
+         */
+        private void dispatch(
+                final MessageListener aMessageListener,
+                final Delivery aDelivery) {
+
+            if (this.filteredMessageType(aDelivery)) {
+                partitionedDispatcher.acknowledgeUndispatched(
+                        aDelivery.getEnvelope().getDeliveryTag());
+
+                return;
+            }
+
+            partitionedDispatcher.dispatch(
+                    aDelivery.getEnvelope().getDeliveryTag(),
+                    this.partitionKeyOf(aDelivery),
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!isClosed()) {
+                                handle(aMessageListener, aDelivery);
+                            }
+                        }
+                    });
+        }
+
         private void handle(
                 MessageListener aMessageListener,
                 Delivery aDelivery) {
@@ -330,6 +458,12 @@ public class MessageConsumer {
         }
 
         private void ack(Delivery aDelivery) {
+            if (isPartitioned()) {
+                partitionedDispatcher.acknowledge(aDelivery.getEnvelope().getDeliveryTag());
+
+                return;
+            }
+
             try {
                 if (!isAutoAcknowledged()) {
                     this.getChannel().basicAck(
@@ -342,6 +476,12 @@ public class MessageConsumer {
         }
 
         private void nack(Delivery aDelivery, boolean isRetry) {
+            if (isPartitioned()) {
+                partitionedDispatcher.reject(aDelivery.getEnvelope().getDeliveryTag(), isRetry);
+
+                return;
+            }
+
             try {
                 if (!isAutoAcknowledged()) {
                     this.getChannel().basicNack(
@@ -370,6 +510,23 @@ public class MessageConsumer {
             return filtered;
         }
 
+        /**
+         * Answers the partition key of aDelivery, or null if my
+         * messagePartitioner fails to answer one, in which case the
+         * delivery is handled with other keyless ones.
+         * @param aDelivery the Delivery
+         * @return String
+         */
+        private String partitionKeyOf(Delivery aDelivery) {
+            try {
+                return messagePartitioner.partitionKeyOf(
+                        aDelivery.getProperties().getType(),
+                        aDelivery.getBody());
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
         /**
          * Answers my messageListener.
          * @return MessageListener
@@ -0,0 +1,34 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+/**
+ * I answer the partition key of a message received by a partitioned
+ * MessageConsumer. Messages of equal keys, such as those about one
+ * aggregate of one tenant, are handled one at a time in the order
+ * received, while messages of different keys may be handled in
+ * parallel.
+ */
+public interface MessagePartitioner {
+
+    /**
+     * Answers the partition key of aMessage, or null if it has none,
+     * in which case it is handled along with all other keyless messages.
+     * @param aType the String type of the message, which may be null
+     * @param aMessage the byte[] body of the message
+     * @return String
+     */
+    public String partitionKeyOf(String aType, byte[] aMessage);
+}
@@ -0,0 +1,262 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * I dispatch the deliveries of a channel to a fixed number of
+ * partitions, each handled by a single thread of its own. The
+ * partition of a delivery is chosen by the hash of its partition
+ * key, so deliveries of equal keys are handled in the order
+ * received while those of other keys are handled in parallel.
+ *
+ * Since deliveries are settled out of order across partitions, I
+ * acknowledge them cumulatively: one basicAck with multiple set
+ * covers the longest run of settled deliveries, and is sent once
+ * my acknowledgementBatchSize of them are pending or when none
+ * remain outstanding. Rejections are sent one at a time as they
+ * occur, always before any acknowledgement covering them. My
+ * channel must deliver only to me, as its delivery tags are
+ * expected to be consecutive.
+ */
+class PartitionedDispatcher {
+
+    /** My acknowledgementBatchSize, the most deliveries left pending before acknowledging. */
+    private int acknowledgementBatchSize;
+
+    /** My channel, which I acknowledge and reject deliveries on. */
+    private Channel channel;
+
+    /** My delivery tag through which all deliveries are settled. */
+    private long contiguousThrough;
+
+    /** My highest delivery tag dispatched. */
+    private long deliveredThrough;
+
+    /** My lock, which guards my delivery tags and my channel. */
+    private Object lock;
+
+    /** My highest acknowledgeable delivery tag through contiguousThrough. */
+    private long pendingThrough;
+
+    /** My number of deliveries handled through pendingThrough but not yet acknowledged. */
+    private int pendingCount;
+
+    /** My partitions, each an executor of a single thread. */
+    private ExecutorService[] partitions;
+
+    /** My deliveries settled beyond contiguousThrough, true if handled. */
+    private Map<Long, Boolean> settled;
+
+    /**
+     * Constructs my default state.
+     * @param aChannel the Channel whose deliveries I dispatch
+     * @param aName the String name of my partition threads
+     * @param aPartitionCount the int number of my partitions
+     * @param anAcknowledgementBatchSize the int most deliveries left pending before acknowledging
+     */
+    PartitionedDispatcher(
+            Channel aChannel,
+            String aName,
+            int aPartitionCount,
+            int anAcknowledgementBatchSize) {
+
+        super();
+
+        if (aPartitionCount < 1) {
+            throw new IllegalArgumentException("The partition count must be at least 1.");
+        }
+        if (anAcknowledgementBatchSize < 1) {
+            throw new IllegalArgumentException("The acknowledgement batch size must be at least 1.");
+        }
+
+        this.acknowledgementBatchSize = anAcknowledgementBatchSize;
+        this.channel = aChannel;
+        this.lock = new Object();
+        this.partitions = new ExecutorService[aPartitionCount];
+        this.settled = new TreeMap<Long, Boolean>();
+
+        for (int idx = 0; idx < aPartitionCount; ++idx) {
+            this.partitions[idx] =
+                    Executors.newSingleThreadExecutor(
+                            this.partitionThreadFactory(aName + "-" + idx));
+        }
+    }
+
+    /**
+     * Settles aDeliveryTag as handled, acknowledging it along with
+     * any others pending once no earlier delivery is outstanding.
+     * @param aDeliveryTag the long delivery tag of the handled delivery
+     */
+    void acknowledge(long aDeliveryTag) {
+        synchronized (this.lock) {
+            this.settle(aDeliveryTag, true);
+        }
+    }
+
+    /**
+     * Settles aDeliveryTag as handled without dispatching it, as for
+     * a delivery filtered out. Must be called in delivery order, as
+     * is dispatch(), so that the acknowledgement of the deliveries
+     * pending through it is not held back.
+     * @param aDeliveryTag the long delivery tag of the delivery
+     */
+    void acknowledgeUndispatched(long aDeliveryTag) {
+        synchronized (this.lock) {
+            this.deliver(aDeliveryTag);
+
+            this.settle(aDeliveryTag, true);
+        }
+    }
+
+    /**
+     * Stops my partitions once they have run the deliveries they
+     * were given. Deliveries not yet settled are left to the broker
+     * to deliver again.
+     */
+    void close() {
+        for (ExecutorService partition : this.partitions) {
+            partition.shutdown();
+        }
+    }
+
+    /**
+     * Dispatches aHandling of aDeliveryTag to the partition of
+     * aPartitionKey. Must be called in delivery order.
+     * @param aDeliveryTag the long delivery tag of the delivery
+     * @param aPartitionKey the String partition key of the delivery, which may be null
+     * @param aHandling the Runnable that handles and then settles the delivery
+     */
+    void dispatch(long aDeliveryTag, String aPartitionKey, Runnable aHandling) {
+        synchronized (this.lock) {
+            this.deliver(aDeliveryTag);
+        }
+
+        this.partitions[this.partitionOf(aPartitionKey)].execute(aHandling);
+    }
+
+    /**
+     * Answers the index of the partition that handles deliveries
+     * of aPartitionKey.
+     * @param aPartitionKey the String partition key, which may be null
+     * @return int
+     */
+    int partitionOf(String aPartitionKey) {
+        if (aPartitionKey == null) {
+            return 0;
+        }
+
+        return (aPartitionKey.hashCode() & Integer.MAX_VALUE) % this.partitions.length;
+    }
+
+    /**
+     * Rejects aDeliveryTag at once, requeued if isRequeued, and
+     * settles it so that later deliveries can be acknowledged.
+     * @param aDeliveryTag the long delivery tag of the failed delivery
+     * @param isRequeued the boolean indicating whether the broker is to deliver it again
+     */
+    void reject(long aDeliveryTag, boolean isRequeued) {
+        synchronized (this.lock) {
+            try {
+                this.channel.basicNack(aDeliveryTag, false, isRequeued);
+            } catch (IOException e) {
+                // fall through
+            }
+
+            this.settle(aDeliveryTag, false);
+        }
+    }
+
+    /**
+     * Records aDeliveryTag as my highest delivered. Called while
+     * holding my lock.
+     * @param aDeliveryTag the long delivery tag received
+     */
+    private void deliver(long aDeliveryTag) {
+        if (this.deliveredThrough == 0L) {
+
+            // a channel consumed from before has already
+            // used the delivery tags up to this one
+
+            this.contiguousThrough = aDeliveryTag - 1L;
+            this.pendingThrough = aDeliveryTag - 1L;
+        }
+
+        this.deliveredThrough = aDeliveryTag;
+    }
+
+    /**
+     * Answers a ThreadFactory of one daemon thread named aName.
+     * @param aName the String name of the thread
+     * @return ThreadFactory
+     */
+    private ThreadFactory partitionThreadFactory(final String aName) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable aRunnable) {
+                Thread thread = new Thread(aRunnable, aName);
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Records aDeliveryTag as settled, advances contiguousThrough over
+     * the run of settled deliveries following it, and acknowledges
+     * those pending if enough are or if none are outstanding.
+     * Called while holding my lock.
+     * @param aDeliveryTag the long delivery tag being settled
+     * @param isHandled the boolean indicating handled rather than rejected
+     */
+    private void settle(long aDeliveryTag, boolean isHandled) {
+        this.settled.put(aDeliveryTag, isHandled);
+
+        Boolean handled;
+
+        while ((handled = this.settled.remove(this.contiguousThrough + 1L)) != null) {
+            ++this.contiguousThrough;
+
+            if (handled) {
+                this.pendingThrough = this.contiguousThrough;
+
+                ++this.pendingCount;
+            }
+        }
+
+        if (this.pendingCount > 0
+                && (this.pendingCount >= this.acknowledgementBatchSize
+                        || this.contiguousThrough == this.deliveredThrough)) {
+
+            try {
+                this.channel.basicAck(this.pendingThrough, true);
+            } catch (IOException e) {
+                // fall through
+            }
+
+            this.pendingCount = 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * I keep direct buffers of one size for reuse by connections, as
+ * allocating and freeing direct memory is far costlier than heap.
+ */
+class BufferPool {
+
+	private int bufferSize;
+	private Queue<ByteBuffer> buffers;
+	private int maximumPooled;
+	private AtomicInteger pooled;
+
+	BufferPool(int aBufferSize, int aMaximumPooled) {
+		super();
+
+		this.bufferSize = aBufferSize;
+		this.buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+		this.maximumPooled = aMaximumPooled;
+		this.pooled = new AtomicInteger(0);
+	}
+
+	ByteBuffer acquire() {
+		ByteBuffer buffer = this.buffers.poll();
+
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(this.bufferSize);
+		}
+
+		this.pooled.decrementAndGet();
+
+		return buffer;
+	}
+
+	int bufferSize() {
+		return this.bufferSize;
+	}
+
+	void release(ByteBuffer aBuffer) {
+		if (aBuffer.capacity() != this.bufferSize || !aBuffer.isDirect()) {
+			return;
+		}
+
+		if (this.pooled.incrementAndGet() > this.maximumPooled) {
+			this.pooled.decrementAndGet();
+
+			return;
+		}
+
+		aBuffer.clear();
+
+		this.buffers.offer(aBuffer);
+	}
+}
@@ -16,12 +16,21 @@ package com.saasovation.common.port.adapter.messaging.slothmq;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class ClientRegistration {
 
-	private Set<String> exchanges;
+	private String clientId;
+	private SlothConnection connection;
+	private Map<String,Long> cursors;
+	private Map<String,Set<String>> exchanges;
+	private Map<String,Deque<Long>> inFlightOffsets;
 	private InetAddress ipAddress;
 	private int port;
 
@@ -29,7 +38,9 @@ public class ClientRegistration {
 		super();
 
 		try {
-	        this.exchanges = new HashSet<String>();
+	        this.cursors = new HashMap<String,Long>();
+	        this.exchanges = new HashMap<String,Set<String>>();
+	        this.inFlightOffsets = new HashMap<String,Deque<Long>>();
             this.ipAddress = anIPAddress == null ? InetAddress.getLocalHost() : anIPAddress;
             this.port = aPort;
         } catch (UnknownHostException e) {
@@ -41,9 +52,27 @@ public class ClientRegistration {
         this(null, aPort);
     }
 
+    ClientRegistration(SlothConnection aConnection) {
+        this(aConnection.remoteAddress().getAddress(), aConnection.remoteAddress().getPort());
+
+        this.connection = aConnection;
+    }
+
 	public void addSubscription(String anExchangeName) {
-		System.out.println("ADDING EXCHANGE: " + anExchangeName);
-		this.exchanges.add(anExchangeName);
+		this.addSubscription(anExchangeName, Collections.<String>emptySet());
+	}
+
+	public void addSubscription(String anExchangeName, Set<String> aTypes) {
+		System.out.println("ADDING EXCHANGE: " + anExchangeName + " TYPES: " + (aTypes.isEmpty() ? "all" : aTypes));
+		this.exchanges.put(anExchangeName, new HashSet<String>(aTypes));
+	}
+
+	public String clientId() {
+		return this.clientId;
+	}
+
+	public Set<String> exchangeNames() {
+		return Collections.unmodifiableSet(this.exchanges.keySet());
 	}
 
 	public boolean matches(InetAddress anIPAddress, int aPort) {
@@ -51,7 +80,21 @@ public class ClientRegistration {
 	}
 
 	public boolean isSubscribedTo(String anExchangeName) {
-		return this.exchanges.contains(anExchangeName);
+		return this.exchanges.containsKey(anExchangeName);
+	}
+
+	public boolean isSubscribedTo(String anExchangeName, String aType) {
+		Set<String> types = this.exchanges.get(anExchangeName);
+
+		return types != null && (types.isEmpty() || types.contains(aType));
+	}
+
+	public boolean isConnected() {
+		return this.connection != null;
+	}
+
+	public boolean isDurable() {
+		return this.clientId != null;
 	}
 
 	public InetAddress ipAddress() {
@@ -62,13 +105,70 @@ public class ClientRegistration {
 		return this.port;
 	}
 
+	/**
+	 * Answers whether the record at anOffset of anExchangeName was
+	 * sent to me and is not yet acknowledged, and if so forgets it
+	 * and those sent before it, which it acknowledges with it.
+	 */
+	boolean acknowledge(String anExchangeName, long anOffset) {
+		Deque<Long> offsets = this.inFlightOffsets.get(anExchangeName);
+
+		if (offsets == null || !offsets.contains(anOffset)) {
+			return false;
+		}
+
+		while (!offsets.isEmpty() && offsets.peekFirst() <= anOffset) {
+			offsets.removeFirst();
+		}
+
+		return true;
+	}
+
+	void attachAs(String aClientId) {
+		this.clientId = aClientId;
+	}
+
+	SlothConnection connection() {
+		return this.connection;
+	}
+
+	/**
+	 * Answers the log offset of the next record to send of
+	 * anExchangeName, or null if not durably subscribed to it.
+	 */
+	Long cursorOf(String anExchangeName) {
+		return this.cursors.get(anExchangeName);
+	}
+
+	void moveCursor(String anExchangeName, long anOffset) {
+		this.cursors.put(anExchangeName, anOffset);
+	}
+
 	public void removeSubscription(String anExchangeName) {
+		this.cursors.remove(anExchangeName);
 		this.exchanges.remove(anExchangeName);
+		this.inFlightOffsets.remove(anExchangeName);
+	}
+
+	/**
+	 * Records that the record at anOffset of anExchangeName was sent
+	 * to me, so that I may acknowledge it. Offsets are sent in order.
+	 */
+	void sent(String anExchangeName, long anOffset) {
+		Deque<Long> offsets = this.inFlightOffsets.get(anExchangeName);
+
+		if (offsets == null) {
+			offsets = new ArrayDeque<Long>();
+			this.inFlightOffsets.put(anExchangeName, offsets);
+		}
+
+		offsets.addLast(anOffset);
 	}
 
 	@Override
 	public String toString() {
 		return "ClientRegistration [ipAddress=" + this.ipAddress + ", port="
-				+ this.port + ", exchanges=" + this.exchanges + "]";
+				+ this.port + (this.isDurable() ? ", clientId=" + this.clientId : "")
+				+ ", exchanges=" + this.exchanges + "]";
 	}
 }
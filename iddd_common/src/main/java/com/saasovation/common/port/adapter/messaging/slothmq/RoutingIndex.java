@@ -0,0 +1,202 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * I index subscribers by exchange, and by message type within it,
+ * so that routing a message touches only its matching subscribers.
+ * I am copy-on-write: changes, which are rare, replace the routes
+ * of an exchange under my lock, and routes() reads without one.
+ */
+class RoutingIndex<T> {
+
+	private volatile Map<String,Routes<T>> routes;
+
+	RoutingIndex() {
+		super();
+
+		this.routes = Collections.emptyMap();
+	}
+
+	/**
+	 * Subscribes aSubscriber to anExchangeName for aTypes, or for
+	 * all types when aTypes is empty, replacing the types it was
+	 * subscribed to before.
+	 */
+	synchronized void subscribe(String anExchangeName, Set<String> aTypes, T aSubscriber) {
+		Routes<T> exchangeRoutes = this.without(this.routes(anExchangeName), aSubscriber);
+
+		List<T> allTypes = exchangeRoutes.allTypes;
+		Map<String,List<T>> byType = exchangeRoutes.byType;
+
+		if (aTypes.isEmpty()) {
+			allTypes = with(allTypes, aSubscriber);
+		} else {
+			byType = new HashMap<String,List<T>>(byType);
+
+			for (String type : aTypes) {
+				List<T> subscribers = byType.get(type);
+
+				byType.put(type, with(subscribers == null ? Collections.<T>emptyList() : subscribers, aSubscriber));
+			}
+		}
+
+		this.replace(anExchangeName, new Routes<T>(allTypes, byType));
+	}
+
+	/**
+	 * Answers the types subscribed to on anExchangeName, which is
+	 * empty when any subscriber takes all types, or null when there
+	 * are no subscribers.
+	 */
+	Set<String> interestIn(String anExchangeName) {
+		Routes<T> exchangeRoutes = this.routes.get(anExchangeName);
+
+		if (exchangeRoutes == null) {
+			return null;
+		}
+
+		if (!exchangeRoutes.allTypes.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		return exchangeRoutes.byType.keySet();
+	}
+
+	/**
+	 * Unsubscribes aSubscriber from anExchangeName, for all types.
+	 */
+	synchronized void unsubscribe(String anExchangeName, T aSubscriber) {
+		Routes<T> exchangeRoutes = this.routes.get(anExchangeName);
+
+		if (exchangeRoutes != null) {
+			this.replace(anExchangeName, this.without(exchangeRoutes, aSubscriber));
+		}
+	}
+
+	/**
+	 * Answers the routes of anExchangeName, which are empty if it
+	 * has no subscribers.
+	 */
+	Routes<T> routes(String anExchangeName) {
+		Routes<T> exchangeRoutes = this.routes.get(anExchangeName);
+
+		return exchangeRoutes == null ? Routes.<T>none() : exchangeRoutes;
+	}
+
+	private static <T> List<T> with(List<T> aSubscribers, T aSubscriber) {
+		if (aSubscribers.contains(aSubscriber)) {
+			return aSubscribers;
+		}
+
+		List<T> subscribers = new ArrayList<T>(aSubscribers.size() + 1);
+
+		subscribers.addAll(aSubscribers);
+		subscribers.add(aSubscriber);
+
+		return Collections.unmodifiableList(subscribers);
+	}
+
+	private static <T> List<T> without(List<T> aSubscribers, T aSubscriber) {
+		if (!aSubscribers.contains(aSubscriber)) {
+			return aSubscribers;
+		}
+
+		List<T> subscribers = new ArrayList<T>(aSubscribers);
+
+		subscribers.remove(aSubscriber);
+
+		return subscribers.isEmpty() ?
+				Collections.<T>emptyList() :
+				Collections.unmodifiableList(subscribers);
+	}
+
+	private void replace(String anExchangeName, Routes<T> anExchangeRoutes) {
+		Map<String,Routes<T>> routes = new HashMap<String,Routes<T>>(this.routes);
+
+		if (anExchangeRoutes.isEmpty()) {
+			routes.remove(anExchangeName);
+		} else {
+			routes.put(anExchangeName, anExchangeRoutes);
+		}
+
+		this.routes = Collections.unmodifiableMap(routes);
+	}
+
+	private Routes<T> without(Routes<T> anExchangeRoutes, T aSubscriber) {
+		Map<String,List<T>> byType = new HashMap<String,List<T>>();
+
+		for (Map.Entry<String,List<T>> entry : anExchangeRoutes.byType.entrySet()) {
+			List<T> subscribers = without(entry.getValue(), aSubscriber);
+
+			if (!subscribers.isEmpty()) {
+				byType.put(entry.getKey(), subscribers);
+			}
+		}
+
+		return new Routes<T>(without(anExchangeRoutes.allTypes, aSubscriber), byType);
+	}
+
+	static final class Routes<T> {
+
+		private static final Routes<Object> NONE =
+				new Routes<Object>(
+						Collections.emptyList(),
+						Collections.<String,List<Object>>emptyMap());
+
+		private final List<T> allTypes;
+		private final Map<String,List<T>> byType;
+
+		@SuppressWarnings("unchecked")
+		static <T> Routes<T> none() {
+			return (Routes<T>) NONE;
+		}
+
+		Routes(List<T> anAllTypes, Map<String,List<T>> aByType) {
+			super();
+
+			this.allTypes = anAllTypes;
+			this.byType = Collections.unmodifiableMap(aByType);
+		}
+
+		/**
+		 * Answers the subscribers to all types of the exchange.
+		 */
+		List<T> allTypes() {
+			return this.allTypes;
+		}
+
+		boolean isEmpty() {
+			return this.allTypes.isEmpty() && this.byType.isEmpty();
+		}
+
+		/**
+		 * Answers the subscribers to aType only, not including
+		 * those of allTypes().
+		 */
+		List<T> ofType(String aType) {
+			List<T> subscribers = this.byType.get(aType);
+
+			return subscribers == null ? Collections.<T>emptyList() : subscribers;
+		}
+	}
+}
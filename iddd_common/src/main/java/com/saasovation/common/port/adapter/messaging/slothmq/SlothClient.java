@@ -14,21 +14,42 @@
 
 package com.saasovation.common.port.adapter.messaging.slothmq;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SlothClient extends SlothWorker {
 
+	/**
+	 * Names the FRAMED client to a durable hub, which then keeps the
+	 * offsets it acknowledged, for it to resume from when restarted.
+	 */
+	public static final String CLIENT_ID_PROPERTY_NAME = "slothmq.client.id";
+
+	private static final int CONNECT_ATTEMPTS = 20;
+
 	private static SlothClient instance;
 
+	private String clientId;
+	private SlothConnection connection;
 	private Map<String,ExchangeListener> exchangeListeners;
+	private RoutingIndex<ExchangeListener> listenerRoutes;
 	private Object lock;
+	private Selector selector;
+	private Map<String,Set<String>> subscribedTypes;
 
 	public static synchronized SlothClient instance() {
 		if (instance == null) {
-			instance = new SlothClient();
+			instance = new SlothClient(SlothTransport.configured());
 		}
 
 		return instance;
@@ -37,13 +58,41 @@ public class SlothClient extends SlothWorker {
 	public void close() {
 		System.out.println("SLOTH CLIENT: Closing...");
 
-		super.close();
+		synchronized (SlothClient.class) {
+			if (instance == this) {
+				instance = null;
+			}
+		}
+
+		List<ExchangeListener> listeners = null;
+
+		synchronized (lock) {
+			listeners = new ArrayList<ExchangeListener>(this.exchangeListeners.values());
+		}
+
+		if (this.isFramed()) {
+
+			// the hub drops all subscriptions of a connection that closes
+
+			synchronized (lock) {
+				for (ExchangeListener listener : listeners) {
+					this.listenerRoutes.unsubscribe(listener.exchangeName(), listener);
+				}
+
+				this.exchangeListeners.clear();
+				this.subscribedTypes.clear();
+			}
 
-		List<ExchangeListener> listeners =
-				new ArrayList<ExchangeListener>(this.exchangeListeners.values());
+			super.close();
 
-		for (ExchangeListener listener : listeners) {
-			this.unregister(listener);
+			this.disconnect();
+
+		} else {
+			super.close();
+
+			for (ExchangeListener listener : listeners) {
+				this.unregister(listener);
+			}
 		}
 
 		System.out.println("SLOTH CLIENT: Closed.");
@@ -52,40 +101,75 @@ public class SlothClient extends SlothWorker {
 	public void closeAll() {
 		instance = null;
 
-		this.close();
+		if (this.isFramed()) {
+			this.send(SlothFrame.close());
 
-		this.sendToServer("CLOSE:");
+			this.close();
+		} else {
+			this.close();
+
+			this.sendToServer("CLOSE:");
+		}
 	}
 
 	public void publish(String anExchangeName, String aType, String aMessage) {
-		String encodedMessage = "PUBLISH:" + anExchangeName + "TYPE:" + aType + "MSG:" + aMessage;
+		if (this.isFramed()) {
+			this.send(SlothFrame.publish(anExchangeName, aType, aMessage));
+		} else {
+			String encodedMessage = "PUBLISH:" + anExchangeName + "TYPE:" + aType + "MSG:" + aMessage;
 
-        this.sendToServer(encodedMessage);
+			this.sendToServer(encodedMessage);
+		}
 	}
 
 	public void register(ExchangeListener anExchangeListener) {
 		synchronized (lock) {
-			this.exchangeListeners.put(anExchangeListener.name(), anExchangeListener);
-		}
+			ExchangeListener replaced =
+					this.exchangeListeners.put(anExchangeListener.name(), anExchangeListener);
 
-		this.sendToServer("SUBSCRIBE:" + this.port() + ":" + anExchangeListener.exchangeName());
+			if (replaced != null && replaced != anExchangeListener) {
+				this.listenerRoutes.unsubscribe(replaced.exchangeName(), replaced);
+
+				this.subscribeToHub(replaced.exchangeName());
+			}
+
+			this.listenerRoutes.subscribe(
+					anExchangeListener.exchangeName(),
+					anExchangeListener.listensToMessageTypes(),
+					anExchangeListener);
+
+			this.subscribeToHub(anExchangeListener.exchangeName());
+		}
 	}
 
 	public void unregister(ExchangeListener anExchangeListener) {
 		synchronized (lock) {
-			this.exchangeListeners.remove(anExchangeListener.name());
-		}
+			ExchangeListener removed = this.exchangeListeners.remove(anExchangeListener.name());
 
-		this.sendToServer("UNSUBSCRIBE:" + this.port() + ":" + anExchangeListener.exchangeName());
+			if (removed != null) {
+				this.listenerRoutes.unsubscribe(removed.exchangeName(), removed);
+
+				this.subscribeToHub(removed.exchangeName());
+			}
+		}
 	}
 
-	private SlothClient() {
-		super();
+	private SlothClient(SlothTransport aTransport) {
+		super(aTransport);
 
 		this.exchangeListeners = new HashMap<String,ExchangeListener>();
+		this.listenerRoutes = new RoutingIndex<ExchangeListener>();
 		this.lock = new Object();
+		this.subscribedTypes = new HashMap<String,Set<String>>();
+
+		if (this.isFramed()) {
+			this.clientId = System.getProperty(CLIENT_ID_PROPERTY_NAME);
+
+			this.connect();
+		} else {
+			this.attach();
+		}
 
-		this.attach();
 		this.receiveAll();
 	}
 
@@ -93,6 +177,61 @@ public class SlothClient extends SlothWorker {
         this.sendToServer("ATTACH:" + this.port());
 	}
 
+	private void connect() {
+		IOException lastException = null;
+
+		// a hub started with the client may still be opening
+
+		for (int attempt = 0; attempt < CONNECT_ATTEMPTS; ++attempt) {
+			SocketChannel channel = null;
+
+			try {
+				if (this.selector == null) {
+					this.selector = Selector.open();
+				}
+
+				channel = SocketChannel.open(new InetSocketAddress(FRAMED_HUB_PORT));
+
+				this.connection = new SlothConnection(channel, this.selector);
+
+				System.out.println("SLOTH CLIENT: Connected to hub on port: " + FRAMED_HUB_PORT);
+
+				if (this.clientId != null) {
+					this.send(SlothFrame.attach(this.clientId));
+				}
+
+				return;
+
+			} catch (IOException e) {
+				lastException = e;
+
+				if (channel != null) {
+					try {
+						channel.close();
+					} catch (IOException ce) {
+						// ignore
+					}
+				}
+
+				this.sleepFor(100L);
+			}
+		}
+
+		System.out.println("SLOTH CLIENT: Cannot connect because: " + lastException.getMessage());
+
+		super.close();
+	}
+
+	private void disconnect() {
+		if (this.connection != null) {
+			this.connection.close();
+		}
+
+		if (this.selector != null) {
+			this.selector.wakeup();
+		}
+	}
+
 	private void dispatchMessage(String anEncodedMessage) {
 		int exchangeDivider = anEncodedMessage.indexOf("PUBLISH:");
 		int typeDivider = anEncodedMessage.indexOf("TYPE:", exchangeDivider + 8);
@@ -102,28 +241,79 @@ public class SlothClient extends SlothWorker {
 		String type = anEncodedMessage.substring(typeDivider + 5, msgDivider);
 		String message = anEncodedMessage.substring(msgDivider + 4);
 
-		List<ExchangeListener> listeners = null;
+		System.out.println("SLOTH CLIENT: Dispatching: Exchange: " + exchangeName + " Type: " + type + " Msg: " + message);
 
-		synchronized (lock) {
-			listeners = new ArrayList<ExchangeListener>(this.exchangeListeners.values());
+		this.dispatchMessage(exchangeName, type, message);
+	}
+
+	private void dispatchMessage(String anExchangeName, String aType, String aMessage) {
+		RoutingIndex.Routes<ExchangeListener> routes = this.listenerRoutes.routes(anExchangeName);
+
+		this.dispatchMessage(routes.allTypes(), anExchangeName, aType, aMessage);
+		this.dispatchMessage(routes.ofType(aType), anExchangeName, aType, aMessage);
+	}
+
+	private void dispatchMessage(
+			List<ExchangeListener> aListeners,
+			String anExchangeName,
+			String aType,
+			String aMessage) {
+
+		for (int idx = 0; idx < aListeners.size(); ++idx) {
+			try {
+				aListeners.get(idx).filteredDispatch(aType, aMessage);
+			} catch (Exception e) {
+				System.out.println("SLOTH CLIENT: Exception while dispatching message: "
+						+ e.getMessage() + ": Exchange: " + anExchangeName + " Type: " + aType + " Msg: " + aMessage);
+				e.printStackTrace();
+			}
 		}
+	}
 
-		for (ExchangeListener listener : listeners) {
-			if (listener.exchangeName().equals(exchangeName) && listener.listensTo(type)) {
-				try {
-					System.out.println("SLOTH CLIENT: Dispatching: Exchange: " + exchangeName + " Type: " + type + " Msg: " + message);
+	/**
+	 * Dispatches the publications of aFrames, and when attached to a
+	 * durable hub acknowledges the last of each exchange.
+	 */
+	private void dispatchFrames(List<SlothFrame> aFrames) throws IOException {
+		Map<String,Long> acknowledgements = null;
+
+		for (SlothFrame frame : aFrames) {
+			if (frame.command() != SlothFrame.Command.PUBLISH) {
+				continue;
+			}
+
+			this.dispatchMessage(frame.field(0), frame.field(1), frame.field(2));
 
-					listener.filteredDispatch(type, message);
-				} catch (Exception e) {
-					System.out.println("SLOTH CLIENT: Exception while dispatching message: "
-							+ e.getMessage() + ": " + anEncodedMessage);
-					e.printStackTrace();
+			if (this.clientId != null && frame.fieldCount() > 3) {
+				if (acknowledgements == null) {
+					acknowledgements = new HashMap<String,Long>();
 				}
+
+				acknowledgements.put(frame.field(0), Long.valueOf(frame.field(3)));
+			}
+		}
+
+		if (acknowledgements != null) {
+			for (Map.Entry<String,Long> acknowledgement : acknowledgements.entrySet()) {
+				this.connection.enqueue(
+						SlothFrame.acknowledge(acknowledgement.getKey(), acknowledgement.getValue()).encoded());
 			}
+
+			this.connection.flush();
 		}
 	}
 
+	private boolean isFramed() {
+		return this.transport() == SlothTransport.FRAMED;
+	}
+
 	private void receiveAll() {
+		if (this.isFramed()) {
+			this.receiveAllFramed();
+
+			return;
+		}
+
 		Thread receiverThread = new Thread() {
 			@Override
 			public void run() {
@@ -145,4 +335,121 @@ public class SlothClient extends SlothWorker {
 
 		receiverThread.start();
 	}
+
+	private void receiveAllFramed() {
+		Thread receiverThread = new Thread("sloth-client-receiver") {
+			@Override
+			public void run() {
+				List<SlothFrame> frames = new ArrayList<SlothFrame>();
+
+				while (!isClosed()) {
+					try {
+						selector.select();
+
+						Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+
+						while (selectedKeys.hasNext()) {
+							SelectionKey selectionKey = selectedKeys.next();
+
+							selectedKeys.remove();
+
+							if (selectionKey.isValid() && selectionKey.isReadable()) {
+								frames.clear();
+
+								boolean open = connection.read(frames);
+
+								dispatchFrames(frames);
+
+								if (!open) {
+									System.out.println("SLOTH CLIENT: Hub closed the connection.");
+
+									close();
+								}
+							}
+
+							if (selectionKey.isValid() && selectionKey.isWritable()) {
+								connection.flush();
+							}
+						}
+					} catch (Exception e) {
+						if (!isClosed()) {
+							System.out.println("SLOTH CLIENT: Failed to receive because: " + e.getMessage() + ": Closing...");
+
+							close();
+						}
+					}
+				}
+
+				try {
+					selector.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		};
+
+		receiverThread.setDaemon(true);
+		receiverThread.start();
+	}
+
+	/**
+	 * Tells the hub which types of anExchangeName the listeners now
+	 * take, if that changed, so it sends no others. Only called
+	 * while holding the lock, which keeps the changes in order.
+	 */
+	private void subscribeToHub(String anExchangeName) {
+		Set<String> types = this.listenerRoutes.interestIn(anExchangeName);
+		Set<String> subscribed = this.subscribedTypes.get(anExchangeName);
+
+		if (types == null ? subscribed == null : types.equals(subscribed)) {
+			return;
+		}
+
+		if (types == null) {
+			this.subscribedTypes.remove(anExchangeName);
+
+			if (this.isFramed()) {
+				this.send(SlothFrame.unsubscribe(anExchangeName));
+			} else {
+				this.sendToServer("UNSUBSCRIBE:" + this.port() + ":" + anExchangeName);
+			}
+
+			return;
+		}
+
+		this.subscribedTypes.put(anExchangeName, new HashSet<String>(types));
+
+		if (this.isFramed()) {
+			this.send(SlothFrame.subscribe(anExchangeName, types));
+		} else {
+			StringBuilder encodedMessage =
+					new StringBuilder("SUBSCRIBE:").append(this.port()).append(":").append(anExchangeName);
+
+			String separator = ":";
+
+			for (String type : types) {
+				encodedMessage.append(separator).append(type);
+
+				separator = ",";
+			}
+
+			this.sendToServer(encodedMessage.toString());
+		}
+	}
+
+	private void send(SlothFrame aFrame) {
+		if (this.isClosed()) {
+			System.out.println("SLOTH CLIENT: Not connected; cannot send: " + aFrame);
+
+			return;
+		}
+
+		try {
+			this.connection.enqueue(aFrame.encoded());
+			this.connection.flush();
+
+		} catch (IOException e) {
+			System.out.println("SLOTH CLIENT: Failed to send because: " + e.getMessage() + ": Continuing...");
+		}
+	}
 }
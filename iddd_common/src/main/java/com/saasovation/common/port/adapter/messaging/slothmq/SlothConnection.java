@@ -0,0 +1,223 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * I am one long-lived FRAMED connection between a client and the
+ * hub, registered with the Selector of the event loop that reads
+ * me. Frames to send are gathered in a pooled direct buffer so
+ * that a burst of them goes out in one write, and those that do
+ * not fit wait in order until the socket drains.
+ */
+class SlothConnection {
+
+	private static final BufferPool buffers = new BufferPool(64 * 1024, 256);
+
+	private SocketChannel channel;
+	private ByteBuffer input;
+	private ByteBuffer output;
+	private Deque<ByteBuffer> pending;
+	private int pendingBytes;
+	private InetSocketAddress remoteAddress;
+	private SelectionKey selectionKey;
+
+	SlothConnection(SocketChannel aChannel, Selector aSelector) throws IOException {
+		super();
+
+		this.channel = aChannel;
+		this.input = buffers.acquire();
+		this.output = buffers.acquire();
+		this.pending = new ArrayDeque<ByteBuffer>();
+		this.remoteAddress = (InetSocketAddress) aChannel.socket().getRemoteSocketAddress();
+
+		this.channel.configureBlocking(false);
+		this.channel.socket().setTcpNoDelay(true);
+
+		this.selectionKey = this.channel.register(aSelector, SelectionKey.OP_READ, this);
+	}
+
+	synchronized void close() {
+		if (this.channel == null) {
+			return;
+		}
+
+		this.selectionKey.cancel();
+
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+
+		this.channel = null;
+
+		buffers.release(this.input);
+		buffers.release(this.output);
+
+		this.input = null;
+		this.output = null;
+		this.pending.clear();
+		this.pendingBytes = 0;
+	}
+
+	synchronized boolean isClosed() {
+		return this.channel == null;
+	}
+
+	/**
+	 * Buffers aFrame to be written by the next flush(). The frame
+	 * may be shared by other connections, and so is only read
+	 * through a duplicate.
+	 */
+	synchronized void enqueue(ByteBuffer aFrame) {
+		if (this.channel == null) {
+			return;
+		}
+
+		if (this.pending.isEmpty() && aFrame.remaining() <= this.output.remaining()) {
+			this.output.put(aFrame.duplicate());
+		} else {
+			this.pending.add(aFrame.duplicate());
+
+			this.pendingBytes += aFrame.remaining();
+		}
+	}
+
+	/**
+	 * Writes as much as the socket accepts, and answers whether all
+	 * was written. If not, the event loop is asked to flush again
+	 * when the socket becomes writable.
+	 */
+	synchronized boolean flush() throws IOException {
+		if (this.channel == null) {
+			return true;
+		}
+
+		boolean flushed = this.write();
+
+		int interestOps = flushed ?
+				SelectionKey.OP_READ :
+				SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+
+		if (this.selectionKey.interestOps() != interestOps) {
+			this.selectionKey.interestOps(interestOps);
+
+			if (!flushed) {
+				this.selectionKey.selector().wakeup();
+			}
+		}
+
+		return flushed;
+	}
+
+	/**
+	 * Reads what the socket has and decodes the whole frames of it
+	 * into aFrames, answering false at the end of the stream.
+	 */
+	synchronized boolean read(List<SlothFrame> aFrames) throws IOException {
+		if (this.channel == null || this.channel.read(this.input) == -1) {
+			return false;
+		}
+
+		this.input.flip();
+
+		int requiredCapacity = SlothFrame.decodeAll(this.input, aFrames);
+
+		if (requiredCapacity > this.input.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocateDirect(requiredCapacity);
+
+			larger.put(this.input);
+
+			buffers.release(this.input);
+
+			this.input = larger;
+
+		} else {
+			this.input.compact();
+
+			if (this.input.position() == 0 && this.input.capacity() != buffers.bufferSize()) {
+				this.input = buffers.acquire();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Answers the bytes enqueued but not yet written.
+	 */
+	synchronized int queuedBytes() {
+		return this.channel == null ? 0 : this.output.position() + this.pendingBytes;
+	}
+
+	InetSocketAddress remoteAddress() {
+		return this.remoteAddress;
+	}
+
+	@Override
+	public String toString() {
+		return "SlothConnection [remoteAddress=" + this.remoteAddress + "]";
+	}
+
+	private boolean write() throws IOException {
+		while (true) {
+			if (this.output.position() > 0) {
+				this.output.flip();
+				this.channel.write(this.output);
+				this.output.compact();
+
+				if (this.output.position() > 0) {
+					return false;
+				}
+			}
+
+			ByteBuffer next = this.pending.peek();
+
+			if (next == null) {
+				return true;
+			}
+
+			if (next.remaining() > this.output.capacity()) {
+				this.pendingBytes -= this.channel.write(next);
+
+				if (next.hasRemaining()) {
+					return false;
+				}
+
+				this.pending.poll();
+
+			} else {
+				while (next != null && next.remaining() <= this.output.remaining()) {
+					this.pendingBytes -= next.remaining();
+
+					this.output.put(next);
+					this.pending.poll();
+
+					next = this.pending.peek();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * I am a message of the FRAMED transport. A SUBSCRIBE carries the
+ * exchange name followed by the types wanted, none meaning all. A
+ * durable hub adds the log offset to each PUBLISH, which a client
+ * attached with its id sends back in an ACKNOWLEDGE once handled.
+ * On the wire I am:
+ *
+ *   int    length of all that follows
+ *   byte   command
+ *   byte   field count
+ *   fields each as an int byte length and its UTF-8 bytes
+ */
+class SlothFrame {
+
+	static final int MAXIMUM_LENGTH = 16 * 1024 * 1024;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	enum Command {
+		CLOSE,
+		PUBLISH,
+		SUBSCRIBE,
+		UNSUBSCRIBE,
+		ATTACH,
+		ACKNOWLEDGE
+	}
+
+	private Command command;
+	private String[] fields;
+
+	static SlothFrame acknowledge(String anExchangeName, long anOffset) {
+		return new SlothFrame(Command.ACKNOWLEDGE, anExchangeName, Long.toString(anOffset));
+	}
+
+	static SlothFrame attach(String aClientId) {
+		return new SlothFrame(Command.ATTACH, aClientId);
+	}
+
+	static SlothFrame close() {
+		return new SlothFrame(Command.CLOSE);
+	}
+
+	static SlothFrame publish(String anExchangeName, String aType, String aMessage) {
+		return new SlothFrame(Command.PUBLISH, anExchangeName, aType, aMessage);
+	}
+
+	static SlothFrame publish(String anExchangeName, String aType, String aMessage, long anOffset) {
+		return new SlothFrame(Command.PUBLISH, anExchangeName, aType, aMessage, Long.toString(anOffset));
+	}
+
+	static SlothFrame subscribe(String anExchangeName, Set<String> aTypes) {
+		String[] fields = new String[1 + aTypes.size()];
+
+		fields[0] = anExchangeName;
+
+		int idx = 1;
+
+		for (String type : aTypes) {
+			fields[idx++] = type;
+		}
+
+		return new SlothFrame(Command.SUBSCRIBE, fields);
+	}
+
+	static SlothFrame unsubscribe(String anExchangeName) {
+		return new SlothFrame(Command.UNSUBSCRIBE, anExchangeName);
+	}
+
+	/**
+	 * Answers the length a buffer needs to hold the frame at the
+	 * start of anInput, or 0 when the whole frame is available and
+	 * was added to aFrames. Reads as many frames as anInput holds.
+	 */
+	static int decodeAll(ByteBuffer anInput, List<SlothFrame> aFrames) {
+		while (anInput.remaining() >= 4) {
+			int length = anInput.getInt(anInput.position());
+
+			if (length < 2 || length > MAXIMUM_LENGTH) {
+				throw new IllegalStateException("Invalid frame length: " + length);
+			}
+
+			if (anInput.remaining() < 4 + length) {
+				return 4 + length;
+			}
+
+			int end = anInput.position() + 4 + length;
+
+			ByteBuffer frame = anInput.duplicate();
+
+			frame.position(anInput.position() + 4);
+			frame.limit(end);
+
+			aFrames.add(decode(frame, Integer.MAX_VALUE));
+
+			anInput.position(end);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Answers the frame encoded in aFrame with no more than its
+	 * first aFieldCount fields, which saves decoding a message when
+	 * only its exchange and type are needed.
+	 */
+	static SlothFrame decodeLeading(ByteBuffer aFrame, int aFieldCount) {
+		ByteBuffer frame = aFrame.duplicate();
+
+		frame.getInt();
+
+		return decode(frame, aFieldCount);
+	}
+
+	SlothFrame(Command aCommand, String... aFields) {
+		super();
+
+		this.command = aCommand;
+		this.fields = aFields;
+	}
+
+	Command command() {
+		return this.command;
+	}
+
+	ByteBuffer encoded() {
+		byte[][] encodedFields = new byte[this.fields.length][];
+
+		int length = 2;
+
+		for (int idx = 0; idx < this.fields.length; ++idx) {
+			encodedFields[idx] = this.fields[idx].getBytes(UTF_8);
+
+			length += 4 + encodedFields[idx].length;
+		}
+
+		if (length > MAXIMUM_LENGTH) {
+			throw new IllegalArgumentException("Frame is too long: " + length);
+		}
+
+		ByteBuffer encoded = ByteBuffer.allocate(4 + length);
+
+		encoded.putInt(length);
+		encoded.put((byte) this.command.ordinal());
+		encoded.put((byte) encodedFields.length);
+
+		for (byte[] encodedField : encodedFields) {
+			encoded.putInt(encodedField.length);
+			encoded.put(encodedField);
+		}
+
+		encoded.flip();
+
+		return encoded;
+	}
+
+	String field(int anIndex) {
+		return this.fields[anIndex];
+	}
+
+	Set<String> fieldsFrom(int anIndex) {
+		return new HashSet<String>(Arrays.asList(this.fields).subList(anIndex, this.fields.length));
+	}
+
+	int fieldCount() {
+		return this.fields.length;
+	}
+
+	@Override
+	public String toString() {
+		return "SlothFrame [command=" + this.command + ", fields=" + Arrays.toString(this.fields) + "]";
+	}
+
+	private static SlothFrame decode(ByteBuffer anInput, int aMaximumFieldCount) {
+		int ordinal = anInput.get();
+
+		if (ordinal < 0 || ordinal >= Command.values().length) {
+			throw new IllegalStateException("Unknown frame command: " + ordinal);
+		}
+
+		Command command = Command.values()[ordinal];
+
+		String[] fields = new String[Math.min(anInput.get(), aMaximumFieldCount)];
+
+		for (int idx = 0; idx < fields.length; ++idx) {
+			byte[] field = new byte[anInput.getInt()];
+
+			anInput.get(field);
+
+			fields[idx] = new String(field, UTF_8);
+		}
+
+		return new SlothFrame(command, fields);
+	}
+}
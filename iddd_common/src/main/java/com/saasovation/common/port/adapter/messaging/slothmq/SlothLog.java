@@ -0,0 +1,294 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * I am the append-only log of a durable hub. I keep records, each
+ * an encoded frame, in segment files that are memory-mapped, so an
+ * append is a copy into memory and the OS writes it back. A record
+ * is addressed by its offset, the count of bytes logged before it,
+ * which is also the name of the segment it begins.
+ *
+ * Sealed segments older than the retention are deleted, so offsets
+ * before startOffset() are gone. Appends reach the disk on force()
+ * or when the OS writes back, and survive a crash of the process.
+ */
+class SlothLog {
+
+	static final String DIRECTORY_PROPERTY_NAME = "slothmq.log.directory";
+	static final String RETENTION_HOURS_PROPERTY_NAME = "slothmq.log.retention.hours";
+	static final String SEGMENT_SIZE_PROPERTY_NAME = "slothmq.log.segment.size";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private Segment activeSegment;
+	private File directory;
+	private long retentionMillis;
+	private TreeMap<Long,Segment> segments;
+	private int segmentSize;
+
+	/**
+	 * Answers the log of the directory named by the system property
+	 * slothmq.log.directory, or null for a hub that is not durable.
+	 */
+	static SlothLog configured() throws IOException {
+		String directory = System.getProperty(DIRECTORY_PROPERTY_NAME);
+
+		if (directory == null || directory.trim().isEmpty()) {
+			return null;
+		}
+
+		int segmentSize = Integer.parseInt(System.getProperty(SEGMENT_SIZE_PROPERTY_NAME, "67108864"));
+		long retentionHours = Long.parseLong(System.getProperty(RETENTION_HOURS_PROPERTY_NAME, "168"));
+
+		return new SlothLog(new File(directory.trim()), segmentSize, retentionHours * 60L * 60L * 1000L);
+	}
+
+	SlothLog(File aDirectory, int aSegmentSize, long aRetentionMillis) throws IOException {
+		super();
+
+		if (aSegmentSize < 1024) {
+			throw new IllegalArgumentException("The segment size must be at least 1024 bytes.");
+		}
+
+		this.directory = aDirectory;
+		this.retentionMillis = aRetentionMillis;
+		this.segments = new TreeMap<Long,Segment>();
+		this.segmentSize = aSegmentSize;
+
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			throw new IOException("Cannot create log directory: " + this.directory);
+		}
+
+		this.open();
+	}
+
+	/**
+	 * Appends aRecord, an encoded frame, and answers its offset.
+	 */
+	long append(ByteBuffer aRecord) throws IOException {
+		if (aRecord.remaining() > this.activeSegment.capacity() - this.activeSegment.limit) {
+			this.roll(aRecord.remaining());
+		}
+
+		long offset = this.endOffset();
+
+		this.activeSegment.buffer.position(this.activeSegment.limit);
+		this.activeSegment.buffer.put(aRecord);
+		this.activeSegment.limit = this.activeSegment.buffer.position();
+
+		return offset;
+	}
+
+	/**
+	 * Deletes the sealed segments last written before the retention,
+	 * and answers how many.
+	 */
+	int applyRetention(long aNowMillis) {
+		int deleted = 0;
+
+		Iterator<Segment> iterator = this.segments.values().iterator();
+
+		while (iterator.hasNext()) {
+			Segment segment = iterator.next();
+
+			if (segment == this.activeSegment || segment.sealedAt > aNowMillis - this.retentionMillis) {
+				break;
+			}
+
+			iterator.remove();
+
+			if (!segment.file.delete()) {
+				System.out.println("SLOTH SERVER: Cannot delete log segment: " + segment.file);
+			}
+
+			++deleted;
+		}
+
+		return deleted;
+	}
+
+	void close() {
+		this.force();
+
+		this.segments.clear();
+
+		this.activeSegment = null;
+	}
+
+	File directory() {
+		return this.directory;
+	}
+
+	long endOffset() {
+		return this.activeSegment.base + this.activeSegment.limit;
+	}
+
+	void force() {
+		if (this.activeSegment != null) {
+			this.activeSegment.buffer.force();
+		}
+	}
+
+	/**
+	 * Answers the record at anOffset, which must be that of a record
+	 * between startOffset() and endOffset(), as a read-only buffer of
+	 * its encoded frame.
+	 */
+	ByteBuffer read(long anOffset) {
+		Map.Entry<Long,Segment> entry = this.segments.floorEntry(anOffset);
+
+		if (entry == null || anOffset >= this.endOffset()) {
+			throw new IllegalArgumentException("No record at offset: " + anOffset);
+		}
+
+		Segment segment = entry.getValue();
+
+		int position = (int) (anOffset - segment.base);
+
+		if (position >= segment.limit) {
+			throw new IllegalArgumentException("No record at offset: " + anOffset);
+		}
+
+		ByteBuffer record = segment.buffer.asReadOnlyBuffer();
+
+		record.limit(position + 4 + record.getInt(position));
+		record.position(position);
+
+		return record.slice();
+	}
+
+	long startOffset() {
+		return this.segments.firstKey();
+	}
+
+	private void open() throws IOException {
+		File[] files = this.directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File aDirectory, String aName) {
+				return aName.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+
+		Arrays.sort(files);
+
+		for (int idx = 0; idx < files.length; ++idx) {
+			String name = files[idx].getName();
+
+			long base = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+
+			Segment segment = new Segment(files[idx], base, (int) files[idx].length());
+
+			segment.recover();
+
+			this.segments.put(base, segment);
+		}
+
+		if (this.segments.isEmpty()) {
+			this.activeSegment = this.newSegment(0L, this.segmentSize);
+		} else {
+			this.activeSegment = this.segments.lastEntry().getValue();
+		}
+	}
+
+	private Segment newSegment(long aBase, int aCapacity) throws IOException {
+		File file = new File(this.directory, String.format("%020d", aBase) + SEGMENT_SUFFIX);
+
+		Segment segment = new Segment(file, aBase, aCapacity);
+
+		this.segments.put(aBase, segment);
+
+		return segment;
+	}
+
+	private void roll(int aRecordLength) throws IOException {
+		this.activeSegment.buffer.force();
+		this.activeSegment.sealedAt = System.currentTimeMillis();
+
+		this.activeSegment = this.newSegment(this.endOffset(), Math.max(this.segmentSize, aRecordLength));
+	}
+
+	private static class Segment {
+
+		private long base;
+		private MappedByteBuffer buffer;
+		private File file;
+		private int limit;
+		private long sealedAt;
+
+		Segment(File aFile, long aBase, int aCapacity) throws IOException {
+			super();
+
+			this.base = aBase;
+			this.file = aFile;
+			this.sealedAt = aFile.exists() ? aFile.lastModified() : Long.MAX_VALUE;
+
+			RandomAccessFile randomAccessFile = new RandomAccessFile(aFile, "rw");
+
+			try {
+				this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, aCapacity);
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+
+		int capacity() {
+			return this.buffer.capacity();
+		}
+
+		/**
+		 * Finds the end of the records, a length of zero or one
+		 * that runs past the segment, and clears a record torn by a
+		 * crash so that it is not read later.
+		 */
+		void recover() {
+			int position = 0;
+
+			while (position + 4 <= this.capacity()) {
+				int length = this.buffer.getInt(position);
+
+				if (length <= 0 || position + 4 + length > this.capacity()) {
+					break;
+				}
+
+				position += 4 + length;
+			}
+
+			this.limit = position;
+
+			if (position + 4 <= this.capacity() && this.buffer.getInt(position) != 0) {
+				byte[] zeros = new byte[Math.min(64 * 1024, this.capacity() - position)];
+
+				this.buffer.position(position);
+
+				while (this.buffer.hasRemaining()) {
+					this.buffer.put(zeros, 0, Math.min(zeros.length, this.buffer.remaining()));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * I keep the offset each attached client resumes from on each of
+ * its exchanges, that of the record after the last it acknowledged.
+ * I am saved when changed, by writing a new file over the old, so a
+ * crash loses at most the latest acknowledgements, and the records
+ * after them are delivered again.
+ */
+class SlothOffsets {
+
+	private static final String FILE_NAME = "offsets.properties";
+
+	private boolean changed;
+	private File file;
+	private Properties offsets;
+
+	SlothOffsets(File aDirectory) throws IOException {
+		super();
+
+		this.file = new File(aDirectory, FILE_NAME);
+		this.offsets = new Properties();
+
+		if (this.file.exists()) {
+			InputStream input = new FileInputStream(this.file);
+
+			try {
+				this.offsets.load(input);
+			} finally {
+				input.close();
+			}
+		}
+	}
+
+	void acknowledge(String aClientId, String anExchangeName, long aNextOffset) {
+		this.offsets.setProperty(this.keyOf(aClientId, anExchangeName), Long.toString(aNextOffset));
+
+		this.changed = true;
+	}
+
+	/**
+	 * Answers the offset aClientId resumes from on anExchangeName,
+	 * or null if it never acknowledged a record of it.
+	 */
+	Long offsetOf(String aClientId, String anExchangeName) {
+		String offset = this.offsets.getProperty(this.keyOf(aClientId, anExchangeName));
+
+		return offset == null ? null : Long.valueOf(offset);
+	}
+
+	void saveIfChanged() throws IOException {
+		if (!this.changed) {
+			return;
+		}
+
+		File saving = new File(this.file.getParentFile(), FILE_NAME + ".saving");
+
+		OutputStream output = new FileOutputStream(saving);
+
+		try {
+			this.offsets.store(output, "SlothMQ client offsets");
+		} finally {
+			output.close();
+		}
+
+		Files.move(saving.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		this.changed = false;
+	}
+
+	private String keyOf(String aClientId, String anExchangeName) {
+		return aClientId + "/" + anExchangeName;
+	}
+}
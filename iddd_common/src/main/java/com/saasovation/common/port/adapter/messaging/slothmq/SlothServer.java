@@ -14,17 +14,62 @@
 
 package com.saasovation.common.port.adapter.messaging.slothmq;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * I am a simple messaging server.
  *
+ * One Selector loop serves both transports: TEXT clients connect
+ * to the hub port once per message and are sent to on their own
+ * port, while FRAMED clients stay connected to the framed hub port.
+ * Frames for FRAMED clients are flushed once per pass of the loop,
+ * so a burst of publications goes out in few writes.
+ *
+ * Subscriptions are indexed by exchange and type, so a publication
+ * reaches only the clients that take its type.
+ *
+ * When slothmq.log.directory is set I am durable: I append every
+ * publication to a SlothLog before sending it. A FRAMED client that
+ * attaches with an id then resumes each exchange from the record
+ * after the last it acknowledged, catching up from the log before
+ * it is sent new publications. A client that reads too slowly also
+ * falls back to the log, rather than queuing without bound.
+ *
  * @author Vaughn Vernon
  */
 public class SlothServer extends SlothWorker {
 
+	private static final int CATCH_UP_SCAN_BYTES = 1024 * 1024;
+	private static final long FORCE_INTERVAL_MILLIS = 1000L;
+	private static final int MAXIMUM_QUEUED_BYTES = 1024 * 1024;
+	private static final long RETENTION_INTERVAL_MILLIS = 60000L;
+
 	private Map<Integer,ClientRegistration> clientRegistrations;
+	private Map<SlothConnection,ClientRegistration> connectedRegistrations;
+	private ServerSocketChannel framedSocket;
+	private long lastForced;
+	private long lastRetained;
+	private Set<ClientRegistration> laggingRegistrations;
+	private SlothLog log;
+	private SlothOffsets offsets;
+	private Selector selector;
+	private RoutingIndex<ClientRegistration> subscribers;
+	private Set<SlothConnection> unflushedConnections;
 
 	public static void executeInProcessDetachedServer() {
 		Thread serverThread = new Thread() {
@@ -48,20 +93,79 @@ public class SlothServer extends SlothWorker {
 	}
 
 	public SlothServer() {
+		this(configuredLog());
+	}
+
+	SlothServer(SlothLog aLog) {
 		super();
 
 		this.clientRegistrations = new HashMap<Integer,ClientRegistration>();
+		this.connectedRegistrations = new HashMap<SlothConnection,ClientRegistration>();
+		this.laggingRegistrations = new LinkedHashSet<ClientRegistration>();
+		this.log = aLog;
+		this.subscribers = new RoutingIndex<ClientRegistration>();
+		this.unflushedConnections = new LinkedHashSet<SlothConnection>();
+
+		this.openLog();
+		this.openSelector();
 	}
 
 	public void execute() {
+		List<SlothFrame> frames = new ArrayList<SlothFrame>();
 
 		while (!this.isClosed()) {
-		    String receivedData = this.receive();
+			try {
+				if (this.isCatchingUp()) {
+					this.selector.selectNow();
+				} else if (this.log != null) {
+					this.selector.select(FORCE_INTERVAL_MILLIS);
+				} else {
+					this.selector.select();
+				}
+			} catch (IOException e) {
+				System.out.println("SLOTH SERVER: Failed to select because: " + e.getMessage() + ": Closing...");
+
+				this.close();
+
+				break;
+			}
+
+			Iterator<SelectionKey> selectedKeys = this.selector.selectedKeys().iterator();
+
+			while (!this.isClosed() && selectedKeys.hasNext()) {
+				SelectionKey selectionKey = selectedKeys.next();
+
+				selectedKeys.remove();
+
+				if (!selectionKey.isValid()) {
+					continue;
+				}
+
+				if (selectionKey.isAcceptable()) {
+					this.accept(selectionKey);
+				} else {
+					SlothConnection connection = (SlothConnection) selectionKey.attachment();
+
+					if (selectionKey.isReadable()) {
+						this.readFrom(connection, frames);
+					}
+
+					if (selectionKey.isValid() && selectionKey.isWritable()) {
+						this.unflushedConnections.add(connection);
+					}
+				}
+			}
+
+			if (this.log != null) {
+				this.catchUp();
+				this.maintainLog();
+			}
 
-		    if (receivedData != null) {
-		        this.handleMessage(receivedData);
-		    }
+			this.flushConnections();
 		}
+
+		this.closeConnections();
+		this.closeLog();
 	}
 
 	@Override
@@ -69,6 +173,68 @@ public class SlothServer extends SlothWorker {
 	    return true;
 	}
 
+	private void accept(SelectionKey aSelectionKey) {
+		if (aSelectionKey.channel() == this.socket()) {
+			String receivedData = this.receive();
+
+			if (receivedData != null) {
+				this.handleMessage(receivedData);
+			}
+
+			return;
+		}
+
+		try {
+			SocketChannel channel = this.framedSocket.accept();
+
+			if (channel != null) {
+				SlothConnection connection = new SlothConnection(channel, this.selector);
+
+				this.connectedRegistrations.put(connection, new ClientRegistration(connection));
+
+				System.out.println("SLOTH SERVER: Connected: " + connection);
+			}
+		} catch (IOException e) {
+			System.out.println("SLOTH SERVER: Failed to accept because: " + e.getMessage() + ": Continuing...");
+		}
+	}
+
+	private static SlothLog configuredLog() {
+		try {
+			return SlothLog.configured();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot open SlothMQ log because: " + e.getMessage(), e);
+		}
+	}
+
+	private void acknowledge(ClientRegistration aClientRegistration, String anExchangeName, long anOffset) {
+		if (this.log == null || !aClientRegistration.isDurable()) {
+			return;
+		}
+
+		// only a record I sent it, or it would skip records it never took
+
+		if (!aClientRegistration.acknowledge(anExchangeName, anOffset)) {
+			System.out.println("SLOTH SERVER: Rejected acknowledgement of unsent offset: " + anOffset
+					+ ": " + aClientRegistration + " OF: " + anExchangeName);
+
+			return;
+		}
+
+		if (anOffset < this.log.startOffset()) {
+			return;
+		}
+
+		try {
+			long nextOffset = anOffset + this.log.read(anOffset).remaining();
+
+			this.offsets.acknowledge(aClientRegistration.clientId(), anExchangeName, nextOffset);
+
+		} catch (IllegalArgumentException e) {
+			System.out.println("SLOTH SERVER: Cannot acknowledge because: " + e.getMessage() + ": " + aClientRegistration);
+		}
+	}
+
 	private ClientRegistration attach(String aReceivedData) {
 		int port = Integer.parseInt(aReceivedData.substring(7));
 
@@ -86,6 +252,163 @@ public class SlothServer extends SlothWorker {
         return clientRegistration;
     }
 
+	/**
+	 * Sends lagging durable subscribers the records they missed,
+	 * while they are not behind on reading what they were sent.
+	 */
+	private void catchUp() {
+		Iterator<ClientRegistration> iterator = this.laggingRegistrations.iterator();
+
+		while (iterator.hasNext()) {
+			ClientRegistration clientRegistration = iterator.next();
+
+			if (clientRegistration.connection().isClosed()) {
+				iterator.remove();
+
+				continue;
+			}
+
+			boolean caughtUp = true;
+
+			for (String exchangeName : clientRegistration.exchangeNames()) {
+				if (!this.catchUp(clientRegistration, exchangeName)) {
+					caughtUp = false;
+				}
+			}
+
+			if (caughtUp) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private boolean catchUp(ClientRegistration aClientRegistration, String anExchangeName) {
+		Long cursor = aClientRegistration.cursorOf(anExchangeName);
+
+		if (cursor == null) {
+			return true;
+		}
+
+		long offset = cursor;
+
+		if (offset < this.log.startOffset()) {
+			System.out.println("SLOTH SERVER: Records " + offset + " to " + this.log.startOffset()
+					+ " were deleted before sent to: " + aClientRegistration + " OF: " + anExchangeName);
+
+			offset = this.log.startOffset();
+		}
+
+		SlothConnection connection = aClientRegistration.connection();
+
+		long endOffset = this.log.endOffset();
+		long scanEndOffset = offset + CATCH_UP_SCAN_BYTES;
+
+		while (offset < endOffset && offset < scanEndOffset && connection.queuedBytes() < MAXIMUM_QUEUED_BYTES) {
+			ByteBuffer record = this.log.read(offset);
+
+			SlothFrame publication = SlothFrame.decodeLeading(record, 2);
+
+			if (publication.field(0).equals(anExchangeName)
+					&& aClientRegistration.isSubscribedTo(anExchangeName, publication.field(1))) {
+
+				connection.enqueue(record);
+
+				aClientRegistration.sent(anExchangeName, offset);
+			}
+
+			offset += record.remaining();
+		}
+
+		aClientRegistration.moveCursor(anExchangeName, offset);
+
+		this.unflushedConnections.add(connection);
+
+		return offset == endOffset;
+	}
+
+	private void closeConnections() {
+		for (SlothConnection connection : this.connectedRegistrations.keySet()) {
+			connection.close();
+		}
+
+		this.connectedRegistrations.clear();
+		this.unflushedConnections.clear();
+
+		try {
+			if (this.framedSocket != null) {
+				this.framedSocket.close();
+			}
+
+			if (this.selector != null) {
+				this.selector.close();
+			}
+		} catch (IOException e) {
+			System.out.println("SLOTH SERVER: problems closing socket.");
+		}
+	}
+
+	private void disconnect(SlothConnection aConnection) {
+		ClientRegistration clientRegistration = this.connectedRegistrations.remove(aConnection);
+
+		if (clientRegistration == null) {
+			return;
+		}
+
+		this.laggingRegistrations.remove(clientRegistration);
+
+		for (String exchangeName : clientRegistration.exchangeNames()) {
+			this.subscribers.unsubscribe(exchangeName, clientRegistration);
+		}
+
+		this.unflushedConnections.remove(aConnection);
+
+		aConnection.close();
+
+		System.out.println("SLOTH SERVER: Disconnected: " + clientRegistration);
+	}
+
+	private void flushConnections() {
+		while (!this.unflushedConnections.isEmpty()) {
+			SlothConnection connection = this.unflushedConnections.iterator().next();
+
+			this.unflushedConnections.remove(connection);
+
+			try {
+				connection.flush();
+			} catch (IOException e) {
+				System.out.println("SLOTH SERVER: Failed to send because: " + e.getMessage() + ": Disconnecting...");
+
+				this.disconnect(connection);
+			}
+		}
+	}
+
+	private void handleFrame(SlothConnection aConnection, SlothFrame aFrame) {
+		ClientRegistration clientRegistration = this.connectedRegistrations.get(aConnection);
+
+		switch (aFrame.command()) {
+		case ACKNOWLEDGE:
+			this.acknowledge(clientRegistration, aFrame.field(0), Long.parseLong(aFrame.field(1)));
+			break;
+		case ATTACH:
+			clientRegistration.attachAs(aFrame.field(0));
+			System.out.println("SLOTH SERVER: Attached: " + clientRegistration);
+			break;
+		case CLOSE:
+			this.close();
+			break;
+		case PUBLISH:
+			this.publishToClients(aFrame.field(0), aFrame.field(1), aFrame.field(2));
+			break;
+		case SUBSCRIBE:
+			this.subscribe(clientRegistration, aFrame.field(0), aFrame.fieldsFrom(1));
+			break;
+		case UNSUBSCRIBE:
+			this.unsubscribe(clientRegistration, aFrame.field(0));
+			break;
+		}
+	}
+
 	private void handleMessage(String aReceivedData) {
 		System.out.println("SLOTH SERVER: Handling: " + aReceivedData);
 
@@ -108,36 +431,285 @@ public class SlothServer extends SlothWorker {
 
 		int exchangeDivider = anExchangeMessage.indexOf("PUBLISH:");
 		int typeDivider = anExchangeMessage.indexOf("TYPE:", exchangeDivider + 8);
+		int msgDivider = anExchangeMessage.indexOf("MSG:", typeDivider + 5);
 
 		if (exchangeDivider == -1) {
 			System.out.println("SLOTH SERVER: PUBLISH: No exchange name; ignoring: " + anExchangeMessage);
 		} else if (typeDivider == -1) {
 			System.out.println("SLOTH SERVER: PUBLISH: No TYPE; ignoring: " + anExchangeMessage);
+		} else if (msgDivider == -1) {
+			System.out.println("SLOTH SERVER: PUBLISH: No MSG; ignoring: " + anExchangeMessage);
 		} else {
 			String exchangeName = anExchangeMessage.substring(exchangeDivider + 8, typeDivider);
+			String type = anExchangeMessage.substring(typeDivider + 5, msgDivider);
+			String message = anExchangeMessage.substring(msgDivider + 4);
+
+			this.publishToClients(exchangeName, type, message);
+		}
+	}
+
+	private void publishToClients(String anExchangeName, String aType, String aMessage) {
+		RoutingIndex.Routes<ClientRegistration> routes = this.subscribers.routes(anExchangeName);
+
+		String encodedMessage = null;
+		ByteBuffer frame = null;
+		long offset = -1L;
+
+		if (this.log != null) {
+			offset = this.log.endOffset();
+
+			frame = SlothFrame.publish(anExchangeName, aType, aMessage, offset).encoded();
+
+			try {
+				this.log.append(frame.duplicate());
+			} catch (IOException e) {
+				System.out.println("SLOTH SERVER: Failed to log because: " + e.getMessage() + ": Closing...");
+
+				this.close();
+
+				return;
+			}
+		}
+
+		// those taking all types of the exchange, then those taking the type
+
+		for (int pass = 0; pass < 2; ++pass) {
+			List<ClientRegistration> clientRegistrations =
+					pass == 0 ? routes.allTypes() : routes.ofType(aType);
+
+			for (int idx = 0; idx < clientRegistrations.size(); ++idx) {
+				ClientRegistration clientSubscriptions = clientRegistrations.get(idx);
+
+				if (clientSubscriptions.isConnected()) {
+					if (frame == null) {
+						frame = SlothFrame.publish(anExchangeName, aType, aMessage).encoded();
+					}
+
+					if (this.log != null && clientSubscriptions.isDurable()
+							&& !this.sendsLive(clientSubscriptions, anExchangeName, offset)) {
+						continue;
+					}
 
-			for (ClientRegistration clientSubscriptions : this.clientRegistrations.values()) {
-				if (clientSubscriptions.isSubscribedTo(exchangeName)) {
-					this.sendTo(clientSubscriptions.port(), anExchangeMessage);
+					clientSubscriptions.connection().enqueue(frame);
+
+					this.unflushedConnections.add(clientSubscriptions.connection());
+
+					if (this.log != null && clientSubscriptions.isDurable()) {
+						clientSubscriptions.sent(anExchangeName, offset);
+						clientSubscriptions.moveCursor(anExchangeName, offset + frame.remaining());
+					}
+
+				} else {
+					if (encodedMessage == null) {
+						encodedMessage = "PUBLISH:" + anExchangeName + "TYPE:" + aType + "MSG:" + aMessage;
+					}
+
+					this.sendTo(clientSubscriptions.port(), encodedMessage);
 				}
 			}
 		}
 	}
 
+	private void readFrom(SlothConnection aConnection, List<SlothFrame> aFrames) {
+		boolean open = false;
+
+		aFrames.clear();
+
+		try {
+			open = aConnection.read(aFrames);
+		} catch (Exception e) {
+			System.out.println("SLOTH SERVER: Failed to receive because: " + e.getMessage() + ": Disconnecting...");
+		}
+
+		for (SlothFrame frame : aFrames) {
+			this.handleFrame(aConnection, frame);
+		}
+
+		if (!open) {
+			this.disconnect(aConnection);
+		}
+	}
+
+	private boolean isCatchingUp() {
+		for (ClientRegistration clientRegistration : this.laggingRegistrations) {
+			if (clientRegistration.connection().queuedBytes() < MAXIMUM_QUEUED_BYTES) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void closeLog() {
+		if (this.log == null) {
+			return;
+		}
+
+		try {
+			this.offsets.saveIfChanged();
+		} catch (IOException e) {
+			System.out.println("SLOTH SERVER: Failed to save offsets because: " + e.getMessage());
+		}
+
+		this.log.close();
+
+		this.log = null;
+	}
+
+	private void maintainLog() {
+		long now = System.currentTimeMillis();
+
+		if (now - this.lastForced >= FORCE_INTERVAL_MILLIS) {
+			this.log.force();
+
+			try {
+				this.offsets.saveIfChanged();
+			} catch (IOException e) {
+				System.out.println("SLOTH SERVER: Failed to save offsets because: " + e.getMessage() + ": Continuing...");
+			}
+
+			this.lastForced = now;
+		}
+
+		if (now - this.lastRetained >= RETENTION_INTERVAL_MILLIS) {
+			int deleted = this.log.applyRetention(now);
+
+			if (deleted > 0) {
+				System.out.println("SLOTH SERVER: Deleted " + deleted + " log segments; now starts at: " + this.log.startOffset());
+			}
+
+			this.lastRetained = now;
+		}
+	}
+
+	private void openLog() {
+		if (this.log == null) {
+			return;
+		}
+
+		if (this.isClosed()) {
+			this.log.close();
+			this.log = null;
+
+			return;
+		}
+
+		try {
+			this.offsets = new SlothOffsets(this.log.directory());
+
+			System.out.println("SLOTH SERVER: Durable with log: " + this.log.directory()
+					+ " from: " + this.log.startOffset() + " to: " + this.log.endOffset());
+
+		} catch (IOException e) {
+			this.close();
+
+			throw new IllegalStateException("Cannot open SlothMQ offsets because: " + e.getMessage(), e);
+		}
+	}
+
+	private void openSelector() {
+		if (this.isClosed()) {
+			return;
+		}
+
+		try {
+			this.selector = Selector.open();
+
+			this.socket().register(this.selector, SelectionKey.OP_ACCEPT);
+
+			this.framedSocket = ServerSocketChannel.open();
+			this.framedSocket.bind(new InetSocketAddress(FRAMED_HUB_PORT));
+			this.framedSocket.configureBlocking(false);
+			this.framedSocket.register(this.selector, SelectionKey.OP_ACCEPT);
+
+			System.out.println("SLOTH SERVER: Opened FRAMED on port: " + FRAMED_HUB_PORT);
+
+		} catch (IOException e) {
+			System.out.println("SLOTH SERVER: Cannot connect because: " + e.getMessage());
+
+			this.close();
+		}
+	}
+
+	/**
+	 * Answers whether the record at anOffset may be sent to the
+	 * durable aClientRegistration now, which it may not while it is
+	 * catching up or behind on reading. Then it is lagging, and
+	 * will be sent the record from the log.
+	 */
+	private boolean sendsLive(ClientRegistration aClientRegistration, String anExchangeName, long anOffset) {
+		Long cursor = aClientRegistration.cursorOf(anExchangeName);
+
+		if (cursor != null && cursor == anOffset
+				&& aClientRegistration.connection().queuedBytes() < MAXIMUM_QUEUED_BYTES) {
+			return true;
+		}
+
+		this.laggingRegistrations.add(aClientRegistration);
+
+		return false;
+	}
+
+	private void subscribe(ClientRegistration aClientRegistration, String anExchangeName, Set<String> aTypes) {
+		aClientRegistration.addSubscription(anExchangeName, aTypes);
+
+		this.subscribers.subscribe(anExchangeName, aTypes, aClientRegistration);
+
+		System.out.println("SLOTH SERVER: Subscribed: " + aClientRegistration + " TO: " + anExchangeName);
+
+		if (this.log != null && aClientRegistration.isDurable() && aClientRegistration.cursorOf(anExchangeName) == null) {
+			String clientId = aClientRegistration.clientId();
+
+			Long cursor = this.offsets.offsetOf(clientId, anExchangeName);
+
+			if (cursor == null) {
+
+				// from now on, also across restarts of the client
+
+				cursor = this.log.endOffset();
+
+				this.offsets.acknowledge(clientId, anExchangeName, cursor);
+			}
+
+			aClientRegistration.moveCursor(anExchangeName, cursor);
+
+			if (cursor < this.log.endOffset()) {
+				this.laggingRegistrations.add(aClientRegistration);
+
+				System.out.println("SLOTH SERVER: Resuming: " + aClientRegistration + " OF: " + anExchangeName + " FROM: " + cursor);
+			}
+		}
+	}
+
 	private void subscribeClientTo(String aPortWithExchangeName) {
-	    String[] parts = aPortWithExchangeName.split(":");
+
+		// port:exchange, optionally followed by :type,type,...
+
+	    String[] parts = aPortWithExchangeName.split(":", 3);
 		int port = Integer.parseInt(parts[0]);
 		String exchangeName = parts[1];
 
+		Set<String> types = new HashSet<String>();
+
+		if (parts.length > 2 && !parts[2].trim().isEmpty()) {
+			types.addAll(Arrays.asList(parts[2].trim().split(",")));
+		}
+
 		ClientRegistration clientRegistration = this.clientRegistrations.get(port);
 
 		if (clientRegistration == null) {
 			clientRegistration = this.attach(port);
 		}
 
-		clientRegistration.addSubscription(exchangeName);
+		this.subscribe(clientRegistration, exchangeName, types);
+	}
+
+	private void unsubscribe(ClientRegistration aClientRegistration, String anExchangeName) {
+		aClientRegistration.removeSubscription(anExchangeName);
+
+		this.subscribers.unsubscribe(anExchangeName, aClientRegistration);
 
-		System.out.println("SLOTH SERVER: Subscribed: " + clientRegistration + " TO: " + exchangeName);
+		System.out.println("SLOTH SERVER: Unsubscribed: " + aClientRegistration + " FROM: " + anExchangeName);
 	}
 
 	private void unsubscribeClientFrom(String aPortWithExchangeName) {
@@ -148,9 +720,7 @@ public class SlothServer extends SlothWorker {
 		ClientRegistration clientRegistration = this.clientRegistrations.get(port);
 
 		if (clientRegistration != null) {
-			clientRegistration.removeSubscription(exchangeName);
-
-			System.out.println("SLOTH SERVER: Unsubscribed: " + clientRegistration + " FROM: " + exchangeName);
+			this.unsubscribe(clientRegistration, exchangeName);
 		}
 	}
 }
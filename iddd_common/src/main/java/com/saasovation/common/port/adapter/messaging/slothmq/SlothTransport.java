@@ -0,0 +1,39 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+/**
+ * I am the wire mode a SlothClient uses to talk to the hub. The
+ * hub accepts both at once, so clients of either mode interoperate.
+ *
+ * TEXT opens a connection for every message, in either direction,
+ * and delimits messages by their PUBLISH:/TYPE:/MSG: markers.
+ * FRAMED keeps one connection per client open to the hub and
+ * sends length-prefixed frames over it.
+ */
+public enum SlothTransport {
+
+	TEXT,
+
+	FRAMED;
+
+	public static final String PROPERTY_NAME = "slothmq.transport";
+
+	public static SlothTransport configured() {
+		String transport = System.getProperty(PROPERTY_NAME, TEXT.name());
+
+		return SlothTransport.valueOf(transport.trim().toUpperCase());
+	}
+}
@@ -27,38 +27,56 @@ public abstract class SlothWorker {
 
 	private static final int HUB_PORT = 55555;
 
+	static final int FRAMED_HUB_PORT = HUB_PORT - 1;
+
+	private volatile boolean closed;
 	private int port;
-	private ServerSocketChannel socket;
+	private volatile ServerSocketChannel socket;
+	private SlothTransport transport;
 
-	protected SlothWorker() {
+	protected SlothWorker(SlothTransport aTransport) {
 		super();
 
+		this.transport = aTransport;
+
 		this.open();
 	}
 
-	protected void close() {
-	    try {
-            this.socket.close();
-        } catch (IOException e) {
-            System.out.println(this.getClass().getSimpleName() + ": problems closing socket.");
-        }
+	protected SlothWorker() {
+		this(SlothTransport.TEXT);
+	}
 
-	    this.socket = null;
+	protected void close() {
+	    this.closeSocket();
 	}
 
 	protected boolean isClosed() {
-	    return this.socket == null;
+	    return this.closed;
 	}
 
 	protected int port() {
 	    return this.port;
 	}
 
+	protected ServerSocketChannel socket() {
+	    return this.socket;
+	}
+
+	protected SlothTransport transport() {
+	    return this.transport;
+	}
+
     protected String receive() {
+        ServerSocketChannel socket = this.socket;
+
+        if (socket == null) {
+            return null; // if closed
+        }
+
         SocketChannel socketChannel = null;
 
         try {
-            socketChannel = this.socket.accept();
+            socketChannel = socket.accept();
 
             if (socketChannel == null) {
                 return null; // if non-blocking
@@ -142,6 +160,19 @@ public abstract class SlothWorker {
 	    return false;
 	}
 
+    private void closeSocket() {
+        if (this.socket != null) {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                System.out.println(this.getClass().getSimpleName() + ": problems closing socket.");
+            }
+        }
+
+        this.socket = null;
+        this.closed = true;
+    }
+
     private int discoverClientPort() {
         boolean discovered = false;
         int discoveryPort = HUB_PORT + 1;
@@ -168,7 +199,7 @@ public abstract class SlothWorker {
 	private void open() {
 	    if (this.slothHub()) {
 	        this.openHub();
-	    } else {
+	    } else if (this.transport() == SlothTransport.TEXT) {
 	        this.openClient();
 	    }
 	}
@@ -182,6 +213,8 @@ public abstract class SlothWorker {
 
         } catch (Exception e) {
             System.out.println("SLOTH CLIENT: Cannot connect because: " + e.getMessage());
+
+            this.closeSocket();
         }
     }
 
@@ -189,12 +222,14 @@ public abstract class SlothWorker {
         try {
             this.socket = ServerSocketChannel.open();
             this.socket.bind(new InetSocketAddress(HUB_PORT));
-            this.socket.configureBlocking(true);
+            this.socket.configureBlocking(false);
             this.port = HUB_PORT;
             System.out.println("SLOTH SERVER: Opened on port: " + this.port);
 
         } catch (Exception e) {
             System.out.println("SLOTH SERVER: Cannot connect because: " + e.getMessage());
+
+            this.closeSocket();
         }
     }
 }
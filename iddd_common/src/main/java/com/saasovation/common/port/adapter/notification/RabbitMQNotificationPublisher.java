@@ -15,62 +15,129 @@
 package com.saasovation.common.port.adapter.notification;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import com.saasovation.common.domain.model.DomainEvent;
 import com.saasovation.common.event.EventStore;
 import com.saasovation.common.event.StoredEvent;
 import com.saasovation.common.notification.Notification;
+import com.saasovation.common.notification.NotificationBackpressurePolicy;
 import com.saasovation.common.notification.NotificationPublisher;
 import com.saasovation.common.notification.NotificationSerializer;
 import com.saasovation.common.notification.PublishedNotificationTracker;
 import com.saasovation.common.notification.PublishedNotificationTrackerStore;
+import com.saasovation.common.notification.PausingNotificationBackpressurePolicy;
+import com.saasovation.common.port.adapter.messaging.MessageException;
+import com.saasovation.common.port.adapter.messaging.rabbitmq.ConfirmingMessageProducer;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.ConnectionSettings;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.Exchange;
+import com.saasovation.common.port.adapter.messaging.rabbitmq.ExchangeRouting;
 import com.saasovation.common.port.adapter.messaging.rabbitmq.MessageParameters;
-import com.saasovation.common.port.adapter.messaging.rabbitmq.MessageProducer;
 
 public class RabbitMQNotificationPublisher implements NotificationPublisher {
 
+    private static final long CONFIRM_TIMEOUT_MILLIS = 30000L;
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int DEFAULT_WINDOW_SIZE = 256;
+    private static final int MAXIMUM_ATTEMPTS = 3;
+
+    private NotificationBackpressurePolicy backpressurePolicy;
     private EventStore eventStore;
     private String exchangeName;
-
+    private ConfirmingMessageProducer messageProducer;
+    private int pageSize;
     private PublishedNotificationTrackerStore publishedNotificationTrackerStore;
+    private ExchangeRouting routing;
+    private int windowSize;
 
     public RabbitMQNotificationPublisher(
             EventStore anEventStore,
             PublishedNotificationTrackerStore aPublishedNotificationTrackerStore,
             Object aMessagingLocator) {
 
+        this(anEventStore,
+             aPublishedNotificationTrackerStore,
+             aMessagingLocator,
+             DEFAULT_WINDOW_SIZE);
+    }
+
+    public RabbitMQNotificationPublisher(
+            EventStore anEventStore,
+            PublishedNotificationTrackerStore aPublishedNotificationTrackerStore,
+            Object aMessagingLocator,
+            int aWindowSize) {
+
+        this(anEventStore,
+             aPublishedNotificationTrackerStore,
+             aMessagingLocator,
+             aWindowSize,
+             DEFAULT_PAGE_SIZE,
+             PausingNotificationBackpressurePolicy.unbounded());
+    }
+
+    public RabbitMQNotificationPublisher(
+            EventStore anEventStore,
+            PublishedNotificationTrackerStore aPublishedNotificationTrackerStore,
+            Object aMessagingLocator,
+            int aWindowSize,
+            int aPageSize,
+            NotificationBackpressurePolicy aBackpressurePolicy) {
+
         super();
 
+        this.setBackpressurePolicy(aBackpressurePolicy);
         this.setEventStore(anEventStore);
         this.setExchangeName((String) aMessagingLocator);
+        this.setPageSize(aPageSize);
         this.setPublishedNotificationTrackerStore(aPublishedNotificationTrackerStore);
+        this.setRouting(ExchangeRouting.configured());
+        this.setWindowSize(aWindowSize);
     }
 
+    /**
+     * Publishes the unpublished notifications a page at a time,
+     * tracking each page before reading the next, for as long as
+     * my backpressurePolicy lets me.
+     */
     @Override
-    public void publishNotifications() {
+    public synchronized void publishNotifications() {
         PublishedNotificationTracker publishedNotificationTracker =
                 this.publishedNotificationTrackerStore().publishedNotificationTracker();
 
-        List<Notification> notifications =
-            this.listUnpublishedNotifications(
-                    publishedNotificationTracker.mostRecentPublishedNotificationId());
+        long startedAt = System.currentTimeMillis();
+        int publishedNotificationCount = 0;
+        int publishedPageCount = 0;
 
-        MessageProducer messageProducer = this.messageProducer();
+        while (true) {
+            List<Notification> notifications =
+                this.listUnpublishedNotifications(
+                        publishedNotificationTracker.mostRecentPublishedNotificationId());
 
-        try {
-            for (Notification notification : notifications) {
-                this.publish(notification, messageProducer);
+            if (notifications.isEmpty()) {
+                break;
             }
 
-            this.publishedNotificationTrackerStore()
-                .trackMostRecentPublishedNotification(
-                    publishedNotificationTracker,
-                    notifications);
-        } finally {
-            messageProducer.close();
+            this.publishPage(publishedNotificationTracker, notifications);
+
+            publishedNotificationCount += notifications.size();
+            ++publishedPageCount;
+
+            if (notifications.size() < this.pageSize()) {
+                break;
+            }
+
+            boolean continuing =
+                    this.backpressurePolicy().continueAfter(
+                            publishedPageCount,
+                            publishedNotificationCount,
+                            System.currentTimeMillis() - startedAt);
+
+            if (!continuing) {
+                break;
+            }
         }
     }
 
@@ -79,6 +146,132 @@ public class RabbitMQNotificationPublisher implements NotificationPublisher {
         throw new UnsupportedOperationException("Not supported by production implementation.");
     }
 
+    /**
+     * Answers the number of milliseconds to wait for any publisher
+     * confirm before publishing fails.
+     * @return long
+     */
+    protected long confirmTimeoutMillis() {
+        return CONFIRM_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Answers a new ConfirmingMessageProducer of my exchange, which
+     * is created if non-existing.
+     * @return ConfirmingMessageProducer
+     */
+    protected ConfirmingMessageProducer newMessageProducer() {
+        Exchange exchange =
+            this.routing().exchangeInstance(
+                    ConnectionSettings.instance(),
+                    this.exchangeName(),
+                    true);
+
+        return ConfirmingMessageProducer.confirmingInstance(exchange);
+    }
+
+    private NotificationBackpressurePolicy backpressurePolicy() {
+        return this.backpressurePolicy;
+    }
+
+    private void setBackpressurePolicy(NotificationBackpressurePolicy aBackpressurePolicy) {
+        if (aBackpressurePolicy == null) {
+            throw new IllegalArgumentException("The backpressure policy must be provided.");
+        }
+
+        this.backpressurePolicy = aBackpressurePolicy;
+    }
+
+    /**
+     * Publishes aNotifications with publisher confirms, keeping up
+     * to windowSize of them unconfirmed at a time, and sends again
+     * those the broker nacks. The tracker is advanced to the last
+     * notification confirmed with all before it, even when publishing
+     * fails, so the next attempt starts from there.
+     */
+    private void publishPage(
+            PublishedNotificationTracker aPublishedNotificationTracker,
+            List<Notification> aNotifications) {
+
+        int notificationCount = aNotifications.size();
+
+        int confirmedCount = 0;
+
+        try {
+            ConfirmingMessageProducer messageProducer = this.messageProducer();
+
+            int[] attempts = new int[notificationCount];
+            boolean[] confirmed = new boolean[notificationCount];
+            Map<Long, Integer> inFlight = new HashMap<Long, Integer>();
+            LinkedList<Integer> nacked = new LinkedList<Integer>();
+            int nextToSend = 0;
+
+            while (confirmedCount < notificationCount) {
+                while (inFlight.size() < this.windowSize()
+                        && (!nacked.isEmpty() || nextToSend < notificationCount)) {
+
+                    int index = nacked.isEmpty() ? nextToSend++ : nacked.removeFirst();
+
+                    ++attempts[index];
+
+                    long sequenceNumber =
+                            this.publish(aNotifications.get(index), messageProducer);
+
+                    inFlight.put(sequenceNumber, index);
+                }
+
+                Map<Long, Boolean> confirmations =
+                        messageProducer.awaitConfirmations(this.confirmTimeoutMillis());
+
+                if (confirmations.isEmpty()) {
+                    throw new MessageException(
+                            "Timed out waiting for publisher confirms.",
+                            true);
+                }
+
+                for (Map.Entry<Long, Boolean> confirmation : confirmations.entrySet()) {
+                    Integer index = inFlight.remove(confirmation.getKey());
+
+                    if (index == null) {
+                        continue;
+                    }
+
+                    if (confirmation.getValue()) {
+                        confirmed[index] = true;
+                    } else if (attempts[index] < MAXIMUM_ATTEMPTS) {
+                        nacked.add(index);
+                    } else {
+                        throw new MessageException(
+                                "Notification "
+                                    + aNotifications.get(index).notificationId()
+                                    + " was nacked "
+                                    + attempts[index]
+                                    + " times.",
+                                true);
+                    }
+                }
+
+                while (confirmedCount < notificationCount && confirmed[confirmedCount]) {
+                    ++confirmedCount;
+                }
+            }
+        } catch (RuntimeException e) {
+
+            // a producer left with unconfirmed messages would
+            // answer their outcomes to the next publishing
+
+            this.closeMessageProducer();
+
+            throw e;
+
+        } finally {
+            this.publishedNotificationTrackerStore()
+                .trackMostRecentPublishedNotification(
+                    aPublishedNotificationTracker,
+                    aNotifications.subList(0, confirmedCount));
+        }
+    }
+
     private EventStore eventStore() {
         return this.eventStore;
     }
@@ -98,7 +291,7 @@ public class RabbitMQNotificationPublisher implements NotificationPublisher {
     private List<Notification> listUnpublishedNotifications(
             long aMostRecentPublishedMessageId) {
         List<StoredEvent> storedEvents =
-            this.eventStore().allStoredEventsSince(aMostRecentPublishedMessageId);
+            this.eventStore().allStoredEventsSince(aMostRecentPublishedMessageId, this.pageSize());
 
         List<Notification> notifications =
             this.notificationsFrom(storedEvents);
@@ -106,19 +299,27 @@ public class RabbitMQNotificationPublisher implements NotificationPublisher {
         return notifications;
     }
 
-    private MessageProducer messageProducer() {
+    private void closeMessageProducer() {
+        if (this.messageProducer != null) {
+            this.messageProducer.close();
 
-        // creates my exchange if non-existing
-        Exchange exchange =
-            Exchange.fanOutInstance(
-                    ConnectionSettings.instance(),
-                    this.exchangeName(),
-                    true);
+            this.messageProducer = null;
+        }
+    }
 
-        // create a message producer used to forward events
-        MessageProducer messageProducer = MessageProducer.instance(exchange);
+    private ConfirmingMessageProducer messageProducer() {
+        if (this.messageProducer != null && !this.messageProducer.isOpen()) {
+            this.closeMessageProducer();
+        }
+
+        if (this.messageProducer == null) {
 
-        return messageProducer;
+            // create a message producer used to forward events,
+            // kept open across publishing
+            this.messageProducer = this.newMessageProducer();
+        }
+
+        return this.messageProducer;
     }
 
     private List<Notification> notificationsFrom(List<StoredEvent> aStoredEvents) {
@@ -137,9 +338,9 @@ public class RabbitMQNotificationPublisher implements NotificationPublisher {
         return notifications;
     }
 
-    private void publish(
+    private long publish(
             Notification aNotification,
-            MessageProducer aMessageProducer) {
+            ConfirmingMessageProducer aMessageProducer) {
 
         MessageParameters messageParameters =
             MessageParameters.durableTextParameters(
@@ -152,7 +353,22 @@ public class RabbitMQNotificationPublisher implements NotificationPublisher {
                 .instance()
                 .serialize(aNotification);
 
-        aMessageProducer.send(notification, messageParameters);
+        return aMessageProducer.sendConfirmable(
+                this.routing().routingKeyOf(aNotification.typeName()),
+                notification,
+                messageParameters);
+    }
+
+    private int pageSize() {
+        return this.pageSize;
+    }
+
+    private void setPageSize(int aPageSize) {
+        if (aPageSize < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+
+        this.pageSize = aPageSize;
     }
 
     private PublishedNotificationTrackerStore publishedNotificationTrackerStore() {
@@ -162,4 +378,24 @@ public class RabbitMQNotificationPublisher implements NotificationPublisher {
     private void setPublishedNotificationTrackerStore(PublishedNotificationTrackerStore publishedNotificationTrackerStore) {
         this.publishedNotificationTrackerStore = publishedNotificationTrackerStore;
     }
+
+    private ExchangeRouting routing() {
+        return this.routing;
+    }
+
+    private void setRouting(ExchangeRouting aRouting) {
+        this.routing = aRouting;
+    }
+
+    private int windowSize() {
+        return this.windowSize;
+    }
+
+    private void setWindowSize(int aWindowSize) {
+        if (aWindowSize < 1) {
+            throw new IllegalArgumentException("The window size must be at least 1.");
+        }
+
+        this.windowSize = aWindowSize;
+    }
 }
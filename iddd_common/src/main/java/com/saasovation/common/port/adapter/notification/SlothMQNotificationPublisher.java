@@ -21,17 +21,23 @@ import com.saasovation.common.domain.model.DomainEvent;
 import com.saasovation.common.event.EventStore;
 import com.saasovation.common.event.StoredEvent;
 import com.saasovation.common.notification.Notification;
+import com.saasovation.common.notification.NotificationBackpressurePolicy;
 import com.saasovation.common.notification.NotificationPublisher;
 import com.saasovation.common.notification.NotificationSerializer;
 import com.saasovation.common.notification.PublishedNotificationTracker;
 import com.saasovation.common.notification.PublishedNotificationTrackerStore;
+import com.saasovation.common.notification.PausingNotificationBackpressurePolicy;
 import com.saasovation.common.port.adapter.messaging.slothmq.ExchangePublisher;
 
 public class SlothMQNotificationPublisher implements NotificationPublisher {
 
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private NotificationBackpressurePolicy backpressurePolicy;
     private EventStore eventStore;
     private String exchangeName;
     private ExchangePublisher exchangePublisher;
+    private int pageSize;
     private PublishedNotificationTrackerStore publishedNotificationTrackerStore;
 
     public SlothMQNotificationPublisher(
@@ -39,32 +45,80 @@ public class SlothMQNotificationPublisher implements NotificationPublisher {
             PublishedNotificationTrackerStore aPublishedNotificationTrackerStore,
             Object aMessagingLocator) {
 
+        this(anEventStore,
+             aPublishedNotificationTrackerStore,
+             aMessagingLocator,
+             DEFAULT_PAGE_SIZE,
+             PausingNotificationBackpressurePolicy.unbounded());
+    }
+
+    public SlothMQNotificationPublisher(
+            EventStore anEventStore,
+            PublishedNotificationTrackerStore aPublishedNotificationTrackerStore,
+            Object aMessagingLocator,
+            int aPageSize,
+            NotificationBackpressurePolicy aBackpressurePolicy) {
+
         super();
 
+        this.setBackpressurePolicy(aBackpressurePolicy);
         this.setEventStore(anEventStore);
         this.setExchangeName((String) aMessagingLocator);
         this.setExchangePublisher(new ExchangePublisher(this.exchangeName()));
+        this.setPageSize(aPageSize);
         this.setPublishedNotificationTrackerStore(aPublishedNotificationTrackerStore);
     }
 
+    /**
+     * Publishes the unpublished notifications a page at a time,
+     * tracking each page before reading the next, for as long as
+     * my backpressurePolicy lets me.
+     */
     @Override
     public void publishNotifications() {
         PublishedNotificationTracker publishedNotificationTracker =
                 this.publishedNotificationTrackerStore().publishedNotificationTracker();
 
-        List<Notification> notifications =
-            this.listUnpublishedNotifications(
-                    publishedNotificationTracker.mostRecentPublishedNotificationId());
+        long startedAt = System.currentTimeMillis();
+        int publishedNotificationCount = 0;
+        int publishedPageCount = 0;
 
         try {
-            for (Notification notification : notifications) {
-                this.publish(notification);
+            while (true) {
+                List<Notification> notifications =
+                    this.listUnpublishedNotifications(
+                            publishedNotificationTracker.mostRecentPublishedNotificationId());
+
+                if (notifications.isEmpty()) {
+                    break;
+                }
+
+                for (Notification notification : notifications) {
+                    this.publish(notification);
+                }
+
+                this.publishedNotificationTrackerStore()
+                    .trackMostRecentPublishedNotification(
+                        publishedNotificationTracker,
+                        notifications);
+
+                publishedNotificationCount += notifications.size();
+                ++publishedPageCount;
+
+                if (notifications.size() < this.pageSize()) {
+                    break;
+                }
+
+                boolean continuing =
+                        this.backpressurePolicy().continueAfter(
+                                publishedPageCount,
+                                publishedNotificationCount,
+                                System.currentTimeMillis() - startedAt);
+
+                if (!continuing) {
+                    break;
+                }
             }
-
-            this.publishedNotificationTrackerStore()
-                .trackMostRecentPublishedNotification(
-                    publishedNotificationTracker,
-                    notifications);
         } catch (Exception e) {
             System.out.println("SLOTH: NotificationPublisher problem: " + e.getMessage());
         }
@@ -75,6 +129,18 @@ public class SlothMQNotificationPublisher implements NotificationPublisher {
         throw new UnsupportedOperationException("Not supported by production implementation.");
     }
 
+    private NotificationBackpressurePolicy backpressurePolicy() {
+        return this.backpressurePolicy;
+    }
+
+    private void setBackpressurePolicy(NotificationBackpressurePolicy aBackpressurePolicy) {
+        if (aBackpressurePolicy == null) {
+            throw new IllegalArgumentException("The backpressure policy must be provided.");
+        }
+
+        this.backpressurePolicy = aBackpressurePolicy;
+    }
+
     private EventStore eventStore() {
         return this.eventStore;
     }
@@ -102,7 +168,7 @@ public class SlothMQNotificationPublisher implements NotificationPublisher {
     private List<Notification> listUnpublishedNotifications(
             long aMostRecentPublishedMessageId) {
         List<StoredEvent> storedEvents =
-            this.eventStore().allStoredEventsSince(aMostRecentPublishedMessageId);
+            this.eventStore().allStoredEventsSince(aMostRecentPublishedMessageId, this.pageSize());
 
         List<Notification> notifications =
             this.notificationsFrom(storedEvents);
@@ -136,6 +202,18 @@ public class SlothMQNotificationPublisher implements NotificationPublisher {
         this.exchangePublisher().publish(aNotification.typeName(), notification);
     }
 
+    private int pageSize() {
+        return this.pageSize;
+    }
+
+    private void setPageSize(int aPageSize) {
+        if (aPageSize < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+
+        this.pageSize = aPageSize;
+    }
+
     private PublishedNotificationTrackerStore publishedNotificationTrackerStore() {
         return publishedNotificationTrackerStore;
     }
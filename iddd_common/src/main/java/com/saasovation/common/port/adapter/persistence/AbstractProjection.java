@@ -14,14 +14,11 @@
 
 package com.saasovation.common.port.adapter.persistence;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.domain.model.EventHandlerMethods;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventDispatcher;
 
@@ -29,14 +26,32 @@ public abstract class AbstractProjection implements EventDispatcher {
 
     private static final String PROJECTION_METHOD_NAME = "when";
 
-    private static Map<String, Method> projectionMethods =
-            new HashMap<String, Method>();
+    private static final EventHandlerMethods projectionMethods =
+            new EventHandlerMethods(PROJECTION_METHOD_NAME);
 
     protected AbstractProjection() {
         super();
     }
 
     protected void execute(PreparedStatement aStatement) throws Exception {
+        this.execute(aStatement, null);
+    }
+
+    protected void execute(PreparedStatement aStatement, String aRowKey) throws Exception {
+        ProjectionUnitOfWork unitOfWork = ProjectionUnitOfWork.current();
+
+        if (unitOfWork != null) {
+            if (unitOfWork.isBuffered(aStatement)) {
+                unitOfWork.add(aStatement, aRowKey);
+
+                return;
+            }
+
+            // keep the order with the writes buffered so far
+
+            unitOfWork.flush();
+        }
+
         try {
             aStatement.executeUpdate();
         } finally {
@@ -87,6 +102,16 @@ public abstract class AbstractProjection implements EventDispatcher {
         return exists;
     }
 
+    protected PreparedStatement prepare(String aStatement) throws Exception {
+        ProjectionUnitOfWork unitOfWork = ProjectionUnitOfWork.current();
+
+        if (unitOfWork != null) {
+            return unitOfWork.prepare(aStatement);
+        }
+
+        return ConnectionProvider.connection().prepareStatement(aStatement);
+    }
+
     protected void projectWhen(DispatchableDomainEvent aDispatchableDomainEvent) {
 
         if (!this.understands(aDispatchableDomainEvent)) {
@@ -97,52 +122,7 @@ public abstract class AbstractProjection implements EventDispatcher {
 
         DomainEvent domainEvent = aDispatchableDomainEvent.domainEvent();
 
-        Class<? extends AbstractProjection> rootType = this.getClass();
-
-        Class<? extends DomainEvent> eventType = domainEvent.getClass();
-
-        String key = rootType.getName() + ":" + eventType.getName();
-
-        Method mutatorMethod = projectionMethods.get(key);
-
-        if (mutatorMethod == null) {
-            mutatorMethod = this.cacheProjectionMethodFor(key, rootType, eventType);
-        }
-
-        try {
-            mutatorMethod.invoke(this, domainEvent);
-
-        } catch (InvocationTargetException e) {
-            if (e.getCause() != null) {
-                throw new RuntimeException(
-                        "Method "
-                                + PROJECTION_METHOD_NAME
-                                + "("
-                                + eventType.getSimpleName()
-                                + ") failed. See cause: "
-                                + e.getMessage(),
-                        e.getCause());
-            }
-
-            throw new RuntimeException(
-                    "Method "
-                            + PROJECTION_METHOD_NAME
-                            + "("
-                            + eventType.getSimpleName()
-                            + ") failed. See cause: "
-                            + e.getMessage(),
-                    e);
-
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(
-                    "Method "
-                            + PROJECTION_METHOD_NAME
-                            + "("
-                            + eventType.getSimpleName()
-                            + ") failed because of illegal access. See cause: "
-                            + e.getMessage(),
-                    e);
-        }
+        projectionMethods.dispatch(this, domainEvent);
     }
 
     protected boolean understandsAnyOf(
@@ -159,59 +139,4 @@ public abstract class AbstractProjection implements EventDispatcher {
 
         return false;
     }
-
-    private Method cacheProjectionMethodFor(
-            String aKey,
-            Class<? extends AbstractProjection> aRootType,
-            Class<? extends DomainEvent> anEventType) {
-
-        synchronized (projectionMethods) {
-            try {
-                Method method = this.hiddenOrPublicMethod(aRootType, anEventType);
-
-                method.setAccessible(true);
-
-                projectionMethods.put(aKey, method);
-
-                return method;
-
-            } catch (Exception e) {
-                throw new IllegalArgumentException(
-                        "I do not understand "
-                                + PROJECTION_METHOD_NAME
-                                + "("
-                                + anEventType.getSimpleName()
-                                + ") because: "
-                                + e.getClass().getSimpleName() + ">>>" + e.getMessage(),
-                        e);
-            }
-        }
-    }
-
-    private Method hiddenOrPublicMethod(
-            Class<? extends AbstractProjection> aRootType,
-            Class<? extends DomainEvent> anEventType)
-    throws Exception {
-
-        Method method = null;
-
-        try {
-
-            // assume protected or private...
-
-            method = aRootType.getDeclaredMethod(
-                    PROJECTION_METHOD_NAME,
-                    anEventType);
-
-        } catch (Exception e) {
-
-            // then public...
-
-            method = aRootType.getMethod(
-                    PROJECTION_METHOD_NAME,
-                    anEventType);
-        }
-
-        return method;
-    }
 }
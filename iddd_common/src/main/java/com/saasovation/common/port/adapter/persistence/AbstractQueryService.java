@@ -106,8 +106,13 @@ public abstract class AbstractQueryService {
 
             result = selectStatement.executeQuery();
 
+            // one mapper for all rows resolves the columns only once
+
+            ResultSetObjectMapper<T> mapper =
+                    new ResultSetObjectMapper<T>(result, aClass, aJoinOn);
+
             while (result.next()) {
-                T object = this.mapResultToType(result, aClass, aJoinOn);
+                T object = mapper.mapResultToType();
 
                 objects.add(object);
             }
@@ -48,6 +48,25 @@ public class JoinOn {
         }
     }
 
+    public boolean hasCurrentLeftQualifier(ResultSet aResultSet, int aLeftKeyIndex) {
+        try {
+            if (aLeftKeyIndex < 1) {
+                return false;
+            }
+
+            Object columnValue = aResultSet.getObject(aLeftKeyIndex);
+
+            if (columnValue == null) {
+                return false;
+            }
+
+            return columnValue.equals(this.currentLeftQualifier);
+
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     public boolean isJoinedOn(ResultSet aResultSet) {
 
         Object leftColumn = null;
@@ -66,6 +85,24 @@ public class JoinOn {
         return leftColumn != null && rightColumn != null;
     }
 
+    public boolean isJoinedOn(ResultSet aResultSet, int aLeftKeyIndex, int aRightKeyIndex) {
+
+        Object leftColumn = null;
+        Object rightColumn = null;
+
+        try {
+            if (this.isSpecified() && aLeftKeyIndex > 0 && aRightKeyIndex > 0) {
+                leftColumn = aResultSet.getObject(aLeftKeyIndex);
+                rightColumn = aResultSet.getObject(aRightKeyIndex);
+            }
+
+        } catch (Exception e) {
+            // ignore
+        }
+
+        return leftColumn != null && rightColumn != null;
+    }
+
     public boolean isSpecified() {
         return this.leftKey() != null && this.rightKey() != null;
     }
@@ -83,4 +120,12 @@ public class JoinOn {
             this.currentLeftQualifier = aColumnValue;
         }
     }
+
+    public void saveCurrentLeftQualifier(ResultSet aResultSet, int aLeftKeyIndex) {
+        try {
+            this.currentLeftQualifier = aResultSet.getObject(aLeftKeyIndex);
+        } catch (Exception e) {
+            this.currentLeftQualifier = null;
+        }
+    }
 }
@@ -0,0 +1,250 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Buffers the writes of projections on the current thread's
+ * connection, from start() until flush() is called before commit.
+ *
+ * Each statement is prepared once per unit of work and its rows
+ * are added to a JDBC batch. Writes to one row keep their order:
+ * adding a row first executes any other pending batch of the same
+ * table that writes the same row key, or any at all when either
+ * write has no row key. Tables are independent of each other, so
+ * their batches may run in any order.
+ *
+ * Started with table names, the statements of each named table
+ * write to its replacement instead, such as a shadow table that
+ * is being rebuilt while the projection keeps its own SQL.
+ */
+public class ProjectionUnitOfWork {
+
+    private static final int MAXIMUM_BATCH_SIZE = 1000;
+
+    private static final Pattern TABLE_NAME_PATTERN =
+            Pattern.compile(
+                    "^\\s*(?:insert\\s+into|update|delete\\s+from)\\s+(\\w+)",
+                    Pattern.CASE_INSENSITIVE);
+
+    private static final ThreadLocal<ProjectionUnitOfWork> unitOfWorkHolder =
+            new ThreadLocal<ProjectionUnitOfWork>();
+
+    private Connection connection;
+    private Map<String, String> replacementTableNames;
+    private Map<PreparedStatement, PendingRows> pendingRows;
+    private Map<String, Set<PreparedStatement>> pendingStatements;
+    private Map<String, PreparedStatement> statements;
+    private Map<PreparedStatement, String> tableNames;
+
+    public static ProjectionUnitOfWork current() {
+        return unitOfWorkHolder.get();
+    }
+
+    public static void end() {
+        ProjectionUnitOfWork unitOfWork = current();
+
+        unitOfWorkHolder.set(null);
+
+        if (unitOfWork != null) {
+            unitOfWork.closeStatements();
+        }
+    }
+
+    public static ProjectionUnitOfWork start(Connection aConnection) {
+        return start(aConnection, Collections.<String, String>emptyMap());
+    }
+
+    public static ProjectionUnitOfWork start(
+            Connection aConnection,
+            Map<String, String> aReplacementTableNames) {
+
+        end();
+
+        ProjectionUnitOfWork unitOfWork =
+                new ProjectionUnitOfWork(aConnection, aReplacementTableNames);
+
+        unitOfWorkHolder.set(unitOfWork);
+
+        return unitOfWork;
+    }
+
+    public void flush() throws SQLException {
+        for (Set<PreparedStatement> tableStatements : this.pendingStatements.values()) {
+            for (PreparedStatement statement : tableStatements) {
+                this.executeBatch(statement);
+            }
+        }
+
+        this.pendingStatements.clear();
+    }
+
+    private ProjectionUnitOfWork(
+            Connection aConnection,
+            Map<String, String> aReplacementTableNames) {
+
+        super();
+
+        this.connection = aConnection;
+        this.replacementTableNames = aReplacementTableNames;
+        this.pendingRows = new IdentityHashMap<PreparedStatement, PendingRows>();
+        this.pendingStatements = new HashMap<String, Set<PreparedStatement>>();
+        this.statements = new HashMap<String, PreparedStatement>();
+        this.tableNames = new IdentityHashMap<PreparedStatement, String>();
+    }
+
+    void add(PreparedStatement aStatement, String aRowKey) throws SQLException {
+        String tableName = this.tableNames.get(aStatement);
+
+        Set<PreparedStatement> tableStatements = this.pendingStatements.get(tableName);
+
+        if (tableStatements == null) {
+            tableStatements = new LinkedHashSet<PreparedStatement>();
+
+            this.pendingStatements.put(tableName, tableStatements);
+        }
+
+        Iterator<PreparedStatement> iterator = tableStatements.iterator();
+
+        while (iterator.hasNext()) {
+            PreparedStatement pending = iterator.next();
+
+            if (pending != aStatement && this.writesRow(pending, aRowKey)) {
+                this.executeBatch(pending);
+
+                iterator.remove();
+            }
+        }
+
+        aStatement.addBatch();
+
+        PendingRows pendingRows = this.pendingRows.get(aStatement);
+
+        if (pendingRows == null) {
+            pendingRows = new PendingRows();
+
+            this.pendingRows.put(aStatement, pendingRows);
+        }
+
+        pendingRows.add(aRowKey);
+
+        if (pendingRows.count() >= MAXIMUM_BATCH_SIZE) {
+            this.executeBatch(aStatement);
+
+            tableStatements.remove(aStatement);
+        } else {
+            tableStatements.add(aStatement);
+        }
+    }
+
+    boolean isBuffered(PreparedStatement aStatement) {
+        return this.tableNames.containsKey(aStatement);
+    }
+
+    PreparedStatement prepare(String aStatement) throws SQLException {
+        PreparedStatement statement = this.statements.get(aStatement);
+
+        if (statement == null) {
+            Matcher matcher = TABLE_NAME_PATTERN.matcher(aStatement);
+
+            if (!matcher.find()) {
+                throw new IllegalArgumentException(
+                        "Not an insert, update or delete statement: " + aStatement);
+            }
+
+            String tableName = matcher.group(1).toLowerCase();
+
+            String replacementTableName = this.replacementTableNames.get(tableName);
+
+            String preparedStatement =
+                    replacementTableName == null ?
+                            aStatement :
+                            aStatement.substring(0, matcher.start(1))
+                                + replacementTableName
+                                + aStatement.substring(matcher.end(1));
+
+            statement = this.connection.prepareStatement(preparedStatement);
+
+            this.statements.put(aStatement, statement);
+
+            this.tableNames.put(statement, tableName);
+        }
+
+        return statement;
+    }
+
+    private void closeStatements() {
+        for (PreparedStatement statement : this.statements.values()) {
+            try {
+                statement.close();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+
+        this.statements.clear();
+        this.tableNames.clear();
+        this.pendingRows.clear();
+        this.pendingStatements.clear();
+    }
+
+    private void executeBatch(PreparedStatement aStatement) throws SQLException {
+        aStatement.executeBatch();
+
+        this.pendingRows.remove(aStatement);
+    }
+
+    private boolean writesRow(PreparedStatement aStatement, String aRowKey) {
+        PendingRows pendingRows = this.pendingRows.get(aStatement);
+
+        return pendingRows != null && pendingRows.writes(aRowKey);
+    }
+
+    private static class PendingRows {
+
+        private int count;
+        private Set<String> rowKeys = new HashSet<String>();
+
+        void add(String aRowKey) {
+            this.rowKeys.add(aRowKey);
+
+            ++this.count;
+        }
+
+        int count() {
+            return this.count;
+        }
+
+        boolean writes(String aRowKey) {
+
+            // a write without a row key may touch any row
+
+            return aRowKey == null || this.rowKeys.contains(aRowKey) || this.rowKeys.contains(null);
+        }
+    }
+}
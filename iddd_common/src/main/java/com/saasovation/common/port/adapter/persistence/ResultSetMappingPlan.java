@@ -0,0 +1,472 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * How the rows of one result set shape map to one type.
+ *
+ * A plan holds the column index and typed setter of every field
+ * that has a column, and the associations whose prefixed columns
+ * are present. It is computed once per type, column prefix and
+ * column labels and then shared, so mapping a row neither looks
+ * up columns by name nor reflects on the type.
+ */
+class ResultSetMappingPlan {
+
+    private static final MethodType NEW_INSTANCE_TYPE = MethodType.methodType(Object.class);
+
+    private static final ClassValue<ConcurrentMap<String, ResultSetMappingPlan>> plans =
+            new ClassValue<ConcurrentMap<String, ResultSetMappingPlan>>() {
+                @Override
+                protected ConcurrentMap<String, ResultSetMappingPlan> computeValue(Class<?> aType) {
+                    return new ConcurrentHashMap<String, ResultSetMappingPlan>();
+                }
+            };
+
+    private AssociationMapping[] associations;
+    private Map<String, Integer> columnIndexes;
+    private ColumnMapping[] columns;
+    private MethodHandle constructor;
+    private Class<?> type;
+
+    static ResultSetMappingPlan planFor(
+            Class<?> aType,
+            String aColumnPrefix,
+            ResultSet aResultSet)
+    throws SQLException {
+
+        ResultSetMetaData metaData = aResultSet.getMetaData();
+
+        int columnCount = metaData.getColumnCount();
+
+        String[] columnLabels = new String[columnCount];
+
+        StringBuilder shape = new StringBuilder();
+
+        if (aColumnPrefix != null) {
+            shape.append(aColumnPrefix);
+        }
+
+        for (int idx = 0; idx < columnCount; ++idx) {
+            columnLabels[idx] = metaData.getColumnLabel(idx + 1);
+
+            shape.append('|').append(columnLabels[idx]);
+        }
+
+        ConcurrentMap<String, ResultSetMappingPlan> typePlans = plans.get(aType);
+
+        ResultSetMappingPlan plan = typePlans.get(shape.toString());
+
+        if (plan == null) {
+            plan = new ResultSetMappingPlan(aType, aColumnPrefix, columnIndexesOf(columnLabels));
+
+            ResultSetMappingPlan existingPlan = typePlans.putIfAbsent(shape.toString(), plan);
+
+            if (existingPlan != null) {
+                plan = existingPlan;
+            }
+        }
+
+        return plan;
+    }
+
+    AssociationMapping[] associations() {
+        return this.associations;
+    }
+
+    int columnIndexOf(String aColumnLabel) {
+        if (aColumnLabel == null) {
+            return 0;
+        }
+
+        Integer columnIndex = this.columnIndexes.get(aColumnLabel.toLowerCase());
+
+        return columnIndex == null ? 0 : columnIndex.intValue();
+    }
+
+    boolean mapsColumn(String aColumnLabel) {
+        int columnIndex = this.columnIndexOf(aColumnLabel);
+
+        if (columnIndex > 0) {
+            for (ColumnMapping column : this.columns) {
+                if (column.columnIndex() == columnIndex) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    void mapColumns(ResultSet aResultSet, Object anObject) {
+        for (ColumnMapping column : this.columns) {
+            column.map(aResultSet, anObject);
+        }
+    }
+
+    Object newInstance() {
+        try {
+            return this.constructor.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Cannot create instance of: " + this.type.getName());
+        }
+    }
+
+    private ResultSetMappingPlan(
+            Class<?> aType,
+            String aColumnPrefix,
+            Map<String, Integer> aColumnIndexes) {
+
+        super();
+
+        this.columnIndexes = aColumnIndexes;
+        this.type = aType;
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        try {
+            Constructor<?> constructor = aType.getDeclaredConstructor();
+
+            constructor.setAccessible(true);
+
+            this.constructor = lookup.unreflectConstructor(constructor).asType(NEW_INSTANCE_TYPE);
+
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot create instance of: " + aType.getName());
+        }
+
+        List<ColumnMapping> columns = new ArrayList<ColumnMapping>();
+        List<AssociationMapping> associations = new ArrayList<AssociationMapping>();
+
+        for (Field field : aType.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+
+            String columnName = fieldNameToColumnName(aColumnPrefix, field.getName());
+
+            int columnIndex = this.columnIndexOf(columnName);
+
+            if (columnIndex > 0) {
+                columns.add(new ColumnMapping(columnName, columnIndex, field, setterOf(lookup, field)));
+
+            } else {
+                String objectPrefix = "o_" + columnName + "_";
+
+                if (this.hasColumnStartingWith(objectPrefix)) {
+                    associations.add(
+                            new AssociationMapping(
+                                    field,
+                                    setterOf(lookup, field),
+                                    objectPrefix,
+                                    aColumnIndexes));
+                }
+            }
+        }
+
+        this.columns = columns.toArray(new ColumnMapping[columns.size()]);
+        this.associations = associations.toArray(new AssociationMapping[associations.size()]);
+    }
+
+    private static Map<String, Integer> columnIndexesOf(String[] aColumnLabels) {
+        Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+
+        for (int idx = 0; idx < aColumnLabels.length; ++idx) {
+            String columnLabel = aColumnLabels[idx].toLowerCase();
+
+            // as findColumn(), the first of equally labeled columns
+
+            if (!columnIndexes.containsKey(columnLabel)) {
+                columnIndexes.put(columnLabel, idx + 1);
+            }
+        }
+
+        return Collections.unmodifiableMap(columnIndexes);
+    }
+
+    private static String fieldNameToColumnName(String aColumnPrefix, String aFieldName) {
+        StringBuilder buf = new StringBuilder();
+
+        if (aColumnPrefix != null) {
+            buf.append(aColumnPrefix);
+        }
+
+        for (char ch : aFieldName.toCharArray()) {
+            if (Character.isAlphabetic(ch) && Character.isUpperCase(ch)) {
+                buf.append('_').append(Character.toLowerCase(ch));
+            } else {
+                buf.append(ch);
+            }
+        }
+
+        return buf.toString();
+    }
+
+    private static MethodHandle setterOf(MethodHandles.Lookup aLookup, Field aField) {
+        try {
+            aField.setAccessible(true);
+
+            Class<?> valueType = aField.getType().isPrimitive() ? aField.getType() : Object.class;
+
+            return aLookup
+                    .unreflectSetter(aField)
+                    .asType(MethodType.methodType(void.class, Object.class, valueType));
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot map to: "
+                    + aField.getDeclaringClass().getSimpleName()
+                    + "#"
+                    + aField.getName());
+        }
+    }
+
+    private boolean hasColumnStartingWith(String aColumnPrefix) {
+        for (String columnLabel : this.columnIndexes.keySet()) {
+            if (columnLabel.startsWith(aColumnPrefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private enum ColumnType {
+        BOOLEAN, BOOLEAN_OBJECT, BYTE, CHAR, DATE, DOUBLE, DOUBLE_OBJECT,
+        FLOAT, FLOAT_OBJECT, INT, INTEGER_OBJECT, LONG, LONG_OBJECT,
+        SHORT, SHORT_OBJECT, STRING, UNSUPPORTED;
+
+        static ColumnType of(Class<?> aType) {
+            if (aType == String.class) {
+                return STRING;
+            } else if (aType == int.class) {
+                return INT;
+            } else if (aType == long.class) {
+                return LONG;
+            } else if (aType == boolean.class) {
+                return BOOLEAN;
+            } else if (aType == java.util.Date.class) {
+                return DATE;
+            } else if (aType == Integer.class) {
+                return INTEGER_OBJECT;
+            } else if (aType == Long.class) {
+                return LONG_OBJECT;
+            } else if (aType == Boolean.class) {
+                return BOOLEAN_OBJECT;
+            } else if (aType == short.class) {
+                return SHORT;
+            } else if (aType == float.class) {
+                return FLOAT;
+            } else if (aType == double.class) {
+                return DOUBLE;
+            } else if (aType == byte.class) {
+                return BYTE;
+            } else if (aType == char.class) {
+                return CHAR;
+            } else if (aType == Short.class) {
+                return SHORT_OBJECT;
+            } else if (aType == Float.class) {
+                return FLOAT_OBJECT;
+            } else if (aType == Double.class) {
+                return DOUBLE_OBJECT;
+            }
+
+            return UNSUPPORTED;
+        }
+    }
+
+    private static class ColumnMapping {
+
+        private int columnIndex;
+        private String columnName;
+        private ColumnType columnType;
+        private MethodHandle setter;
+
+        ColumnMapping(String aColumnName, int aColumnIndex, Field aField, MethodHandle aSetter) {
+            super();
+
+            this.columnIndex = aColumnIndex;
+            this.columnName = aColumnName;
+            this.columnType = ColumnType.of(aField.getType());
+            this.setter = aSetter;
+        }
+
+        int columnIndex() {
+            return this.columnIndex;
+        }
+
+        void map(ResultSet aResultSet, Object anObject) {
+            int idx = this.columnIndex;
+
+            try {
+                switch (this.columnType) {
+                case STRING:
+                    this.setter.invokeExact(anObject, (Object) aResultSet.getString(idx));
+                    break;
+                case INT:
+                    this.setter.invokeExact(anObject, aResultSet.getInt(idx));
+                    break;
+                case LONG:
+                    this.setter.invokeExact(anObject, aResultSet.getLong(idx));
+                    break;
+                case BOOLEAN:
+                    this.setter.invokeExact(anObject, aResultSet.getInt(idx) == 1);
+                    break;
+                case SHORT:
+                    this.setter.invokeExact(anObject, aResultSet.getShort(idx));
+                    break;
+                case FLOAT:
+                    this.setter.invokeExact(anObject, aResultSet.getFloat(idx));
+                    break;
+                case DOUBLE:
+                    this.setter.invokeExact(anObject, aResultSet.getDouble(idx));
+                    break;
+                case BYTE:
+                    this.setter.invokeExact(anObject, aResultSet.getByte(idx));
+                    break;
+                case CHAR:
+                    String charStr = aResultSet.getString(idx);
+                    this.setter.invokeExact(anObject, charStr == null ? (char) 0 : charStr.charAt(0));
+                    break;
+                case DATE:
+                    java.sql.Timestamp timestamp = aResultSet.getTimestamp(idx);
+                    this.setter.invokeExact(
+                            anObject,
+                            (Object) (timestamp == null ?
+                                    null :
+                                    new java.util.Date(timestamp.getTime() + timestamp.getNanos())));
+                    break;
+                case BOOLEAN_OBJECT:
+                    this.setter.invokeExact(anObject, (Object) Boolean.valueOf(aResultSet.getInt(idx) == 1));
+                    break;
+                case INTEGER_OBJECT:
+                    int intValue = aResultSet.getInt(idx);
+                    this.setter.invokeExact(anObject, (Object) (aResultSet.wasNull() ? null : Integer.valueOf(intValue)));
+                    break;
+                case LONG_OBJECT:
+                    long longValue = aResultSet.getLong(idx);
+                    this.setter.invokeExact(anObject, (Object) (aResultSet.wasNull() ? null : Long.valueOf(longValue)));
+                    break;
+                case SHORT_OBJECT:
+                    short shortValue = aResultSet.getShort(idx);
+                    this.setter.invokeExact(anObject, (Object) (aResultSet.wasNull() ? null : Short.valueOf(shortValue)));
+                    break;
+                case FLOAT_OBJECT:
+                    float floatValue = aResultSet.getFloat(idx);
+                    this.setter.invokeExact(anObject, (Object) (aResultSet.wasNull() ? null : Float.valueOf(floatValue)));
+                    break;
+                case DOUBLE_OBJECT:
+                    double doubleValue = aResultSet.getDouble(idx);
+                    this.setter.invokeExact(anObject, (Object) (aResultSet.wasNull() ? null : Double.valueOf(doubleValue)));
+                    break;
+                default:
+                    this.setter.invokeExact(anObject, (Object) null);
+                    break;
+                }
+
+            } catch (Throwable t) {
+                throw new IllegalArgumentException(
+                        "Cannot map "
+                                + this.columnName
+                                + " because: "
+                                + t.getMessage(),
+                        t);
+            }
+        }
+    }
+
+    static class AssociationMapping {
+
+        private boolean collection;
+        private ResultSetMappingPlan elementPlan;
+        private Class<?> fieldType;
+        private String name;
+        private MethodHandle setter;
+
+        AssociationMapping(
+                Field aField,
+                MethodHandle aSetter,
+                String anObjectPrefix,
+                Map<String, Integer> aColumnIndexes) {
+
+            super();
+
+            this.fieldType = aField.getType();
+            this.name = aField.getName();
+            this.setter = aSetter;
+
+            Class<?> elementType = aField.getType();
+
+            if (Collection.class.isAssignableFrom(aField.getType())) {
+                this.collection = true;
+
+                ParameterizedType parameterizeType = (ParameterizedType) aField.getGenericType();
+
+                elementType = (Class<?>) parameterizeType.getActualTypeArguments()[0];
+            }
+
+            this.elementPlan = new ResultSetMappingPlan(elementType, anObjectPrefix, aColumnIndexes);
+        }
+
+        ResultSetMappingPlan elementPlan() {
+            return this.elementPlan;
+        }
+
+        boolean isCollection() {
+            return this.collection;
+        }
+
+        String name() {
+            return this.name;
+        }
+
+        Collection<Object> newCollection() {
+            Collection<Object> newCollection = null;
+
+            if (List.class.isAssignableFrom(this.fieldType)) {
+                newCollection = new ArrayList<Object>();
+            } else if (Set.class.isAssignableFrom(this.fieldType)) {
+                newCollection = new HashSet<Object>();
+            }
+
+            return newCollection;
+        }
+
+        void set(Object anObject, Object aValue) throws Throwable {
+            this.setter.invokeExact(anObject, aValue);
+        }
+    }
+}
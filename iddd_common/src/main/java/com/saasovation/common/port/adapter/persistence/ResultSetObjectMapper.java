@@ -12,27 +12,31 @@
 //   See the License for the specific language governing permissions and
 //   limitations under the License.
 
+
 package com.saasovation.common.port.adapter.persistence;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
+/**
+ * Maps the current row of a result set to a new instance of a type,
+ * including the rows of its JoinOn associations.
+ *
+ * Columns are resolved through a shared ResultSetMappingPlan when I
+ * map my first row. Reuse me for the further rows of the same result
+ * set to map them without resolving anything again.
+ */
 public class ResultSetObjectMapper<T> {
 
+    private ResultSetObjectMapper<?>[] associationMappers;
     private String columnPrefix;
     private JoinOn joinOn;
+    private int leftKeyIndex;
+    private ResultSetMappingPlan plan;
     private ResultSet resultSet;
     private Class<? extends T> resultType;
+    private int rightKeyIndex;
+    private boolean savesLeftQualifier;
 
     public ResultSetObjectMapper(
             ResultSet aResultSet,
@@ -60,299 +64,142 @@ public class ResultSetObjectMapper<T> {
         this.resultType = aResultType;
     }
 
-    public T mapResultToType() {
-        T object = this.createFrom(this.resultType());
-
-        Set<String> associationsToMap = new HashSet<String>();
-
-        Field[] fields = this.resultType().getDeclaredFields();
-
-        for (Field field : fields) {
-            String columnName = this.fieldNameToColumnName(field.getName());
-
-            if (this.hasColumn(this.resultSet(), columnName)) {
-                Object columnValue = this.columnValueFrom(columnName, field.getType());
-
-                this.joinOn().saveCurrentLeftQualifier(columnName, columnValue);
-
-                try {
-                    field.setAccessible(true);
-                    field.set(object, columnValue);
-                } catch (Exception e) {
-                    throw new IllegalStateException(
-                            "Cannot map to: "
-                            + this.resultType.getSimpleName()
-                            + "#"
-                            + columnName);
-                }
-            } else {
-                String objectPrefix = this.toObjectPrefix(columnName);
-
-                if (!associationsToMap.contains(objectPrefix) &&
-                        this.hasAssociation(this.resultSet(), objectPrefix)) {
-
-                    associationsToMap.add(field.getName());
-                }
-            }
-        }
-
-        if (!associationsToMap.isEmpty()) {
-            this.mapAssociations(object, this.resultSet(), associationsToMap);
-        }
+    private ResultSetObjectMapper(
+            ResultSet aResultSet,
+            ResultSetMappingPlan aPlan,
+            JoinOn aJoinOn) {
 
-        return object;
-    }
+        super();
 
-    private String columnPrefix() {
-        return this.columnPrefix;
-    }
+        this.joinOn = aJoinOn;
+        this.resultSet = aResultSet;
 
-    private boolean hasColumnPrefix() {
-        return this.columnPrefix != null;
+        this.usePlan(aPlan);
     }
 
-    private Object columnValueFrom(String aColumnName, Class<?> aType) {
-
-        Object value = null;
-        String tempStr = null;
-
-        try {
-            String typeName = aType.getName();
-
-            if (aType.isPrimitive()) {
-
-                // boolean, byte, char, short, int, long, float, double
-
-                if (typeName.equals("int")) {
-                    value = new Integer(this.resultSet().getInt(aColumnName));
-                } else if (typeName.equals("long")) {
-                    value = new Long(this.resultSet().getLong(aColumnName));
-                } else if (typeName.equals("boolean")) {
-                    int oneOrZero = this.resultSet().getInt(aColumnName);
-                    value = oneOrZero == 1 ? Boolean.TRUE : Boolean.FALSE;
-                } else if (typeName.equals("short")) {
-                    value = new Short(this.resultSet().getShort(aColumnName));
-                } else if (typeName.equals("float")) {
-                    value = new Float(this.resultSet().getFloat(aColumnName));
-                } else if (typeName.equals("double")) {
-                    value = new Double(this.resultSet().getDouble(aColumnName));
-                } else if (typeName.equals("byte")) {
-                    value = new Byte(this.resultSet().getByte(aColumnName));
-                } else if (typeName.equals("char")) {
-                    String charStr = this.resultSet().getString(aColumnName);
-                    if (charStr == null) {
-                        value = new Character((char) 0);
-                    } else {
-                        value = charStr.charAt(0);
-                    }
-                }
-
-            } else {
-                if (typeName.equals("java.lang.String")) {
-                    value = this.resultSet().getString(aColumnName);
-                } else if (typeName.equals("java.lang.Integer")) {
-                    tempStr = this.resultSet().getString(aColumnName);
-                    value = tempStr == null ? null: Integer.parseInt(tempStr);
-                } else if (typeName.equals("java.lang.Long")) {
-                    tempStr = this.resultSet().getString(aColumnName);
-                    value = tempStr == null ? null : Long.parseLong(tempStr);
-                } else if (typeName.equals("java.lang.Boolean")) {
-                    int oneOrZero = this.resultSet().getInt(aColumnName);
-                    value = oneOrZero == 1 ? Boolean.TRUE : Boolean.FALSE;
-                } else if (typeName.equals("java.util.Date")) {
-                    java.sql.Timestamp timestamp = this.resultSet().getTimestamp(aColumnName);
-                    if (timestamp != null) {
-                        value = new java.util.Date(timestamp.getTime() + timestamp.getNanos());
-                    }
-                } else if (typeName.equals("java.lang.Short")) {
-                    tempStr = this.resultSet().getString(aColumnName);
-                    value = tempStr == null ? null: Short.parseShort(tempStr);
-                } else if (typeName.equals("java.lang.Float")) {
-                    tempStr = this.resultSet().getString(aColumnName);
-                    value = tempStr == null ? null : Float.parseFloat(tempStr);
-                } else if (typeName.equals("java.lang.Double")) {
-                    tempStr = this.resultSet().getString(aColumnName);
-                    value = tempStr == null ? null : Double.parseDouble(tempStr);
-                }
-            }
-
-        } catch (Exception e) {
-            throw new IllegalArgumentException(
-                    "Cannot map "
-                            + aColumnName
-                            + " because: "
-                            + e.getMessage(),
-                    e);
-        }
-
-        return value;
-    }
+    @SuppressWarnings("unchecked")
+    public T mapResultToType() {
+        ResultSetMappingPlan plan = this.plan();
 
-    private Collection<Object> createCollectionFrom(Class<?> aType) {
+        T object = (T) plan.newInstance();
 
-        Collection<Object> newCollection = null;
+        plan.mapColumns(this.resultSet(), object);
 
-        if (List.class.isAssignableFrom(aType)) {
-            newCollection = new ArrayList<Object>();
-        } else if (Set.class.isAssignableFrom(aType)) {
-            newCollection = new HashSet<Object>();
+        if (this.savesLeftQualifier) {
+            this.joinOn().saveCurrentLeftQualifier(this.resultSet(), this.leftKeyIndex);
         }
 
-        return newCollection;
-    }
-
-    private T createFrom(Class<? extends T> aClass) {
-        T object = null;
-
-        try {
-            Constructor<? extends T> ctor = aClass.getDeclaredConstructor();
-
-            object = ctor.newInstance();
+        if (plan.associations().length > 0 &&
+                this.joinOn().isJoinedOn(this.resultSet(), this.leftKeyIndex, this.rightKeyIndex)) {
 
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Cannot create instance of: " + aClass.getName());
+            this.mapAssociations(object);
         }
 
         return object;
     }
 
-    private String fieldNameToColumnName(String aFieldName) {
-        StringBuffer buf = new StringBuffer();
+    private ResultSetObjectMapper<?> associationMapper(int anAssociationIndex) {
+        ResultSetObjectMapper<?> mapper = this.associationMappers[anAssociationIndex];
 
-        if (this.hasColumnPrefix()) {
-            buf.append(this.columnPrefix());
-        }
+        if (mapper == null) {
+            mapper =
+                    new ResultSetObjectMapper<Object>(
+                            this.resultSet(),
+                            this.plan().associations()[anAssociationIndex].elementPlan(),
+                            this.joinOn());
 
-        for (char ch : aFieldName.toCharArray()) {
-            if (Character.isAlphabetic(ch) && Character.isUpperCase(ch)) {
-                buf.append('_').append(Character.toLowerCase(ch));
-            } else {
-                buf.append(ch);
-            }
+            this.associationMappers[anAssociationIndex] = mapper;
         }
 
-        return buf.toString();
-    }
-
-    private boolean hasAssociation(
-            ResultSet aResultSet,
-            String anObjectPrefix) {
-
-        try {
-            ResultSetMetaData metaData = aResultSet.getMetaData();
-            int totalColumns = metaData.getColumnCount();
-
-            for (int idx = 1; idx <= totalColumns; ++idx) {
-                String columnName = metaData.getColumnLabel(idx);
-
-                if (columnName.startsWith(anObjectPrefix) &&
-                        this.joinOn().isJoinedOn(aResultSet)) {
-
-                    return true;
-                }
-            }
-
-        } catch (Exception e) {
-            throw new IllegalStateException(
-                    "Cannot read result metadata because: "
-                            + e.getMessage(),
-                    e);
-        }
-
-        return false;
-    }
-
-    private boolean hasColumn(ResultSet aResultSet, String aColumnName) {
-        try {
-            aResultSet.findColumn(aColumnName);
-
-            return true;
-
-        } catch (Exception e) {
-            return false;
-        }
+        return mapper;
     }
 
     private JoinOn joinOn() {
         return this.joinOn;
     }
 
-    private void mapAssociations(
-            T anObject,
-            ResultSet aResultSet,
-            Set<String> anAssociationsToMap) {
+    private void mapAssociations(T anObject) {
+
+        ResultSetMappingPlan.AssociationMapping[] associations = this.plan().associations();
 
-        Map<String, Collection<Object>> mappedCollections =
-                new HashMap<String, Collection<Object>>();
+        Object[] mappedCollections = new Object[associations.length];
 
         String currentAssociationName = null;
 
         try {
-            for (boolean hasResult = true; hasResult; hasResult = aResultSet.next()) {
+            for (boolean hasResult = true; hasResult; hasResult = this.resultSet().next()) {
 
-                if (!this.joinOn().hasCurrentLeftQualifier(aResultSet)) {
-                    aResultSet.relative(-1);
+                if (!this.joinOn().hasCurrentLeftQualifier(this.resultSet(), this.leftKeyIndex)) {
+                    this.resultSet().relative(-1);
 
                     return;
                 }
 
-                for (String fieldName : anAssociationsToMap) {
+                for (int idx = 0; idx < associations.length; ++idx) {
+                    ResultSetMappingPlan.AssociationMapping association = associations[idx];
 
-                    currentAssociationName = fieldName;
+                    currentAssociationName = association.name();
 
-                    Field associationField = anObject.getClass().getDeclaredField(fieldName);
+                    Object associationObject = this.associationMapper(idx).mapResultToType();
 
-                    associationField.setAccessible(true);
-
-                    Class<?> associationFieldType = null;
-
-                    Collection<Object> collection = null;
-
-                    if (Collection.class.isAssignableFrom(associationField.getType())) {
-                        collection = mappedCollections.get(fieldName);
+                    if (association.isCollection()) {
+                        @SuppressWarnings("unchecked")
+                        Collection<Object> collection = (Collection<Object>) mappedCollections[idx];
 
                         if (collection == null) {
-                            collection = this.createCollectionFrom(associationField.getType());
-                            mappedCollections.put(fieldName, collection);
-                            associationField.set(anObject, collection);
+                            collection = association.newCollection();
+                            mappedCollections[idx] = collection;
+                            association.set(anObject, collection);
                         }
 
-                        ParameterizedType parameterizeType = (ParameterizedType) associationField.getGenericType();
-                        associationFieldType = (Class<?>) parameterizeType.getActualTypeArguments()[0];
-
-                    } else {
-                        associationFieldType = associationField.getType();
-                    }
-
-                    String columnName = this.fieldNameToColumnName(fieldName);
-
-                    ResultSetObjectMapper<Object> mapper =
-                            new ResultSetObjectMapper<Object>(
-                                    aResultSet,
-                                    associationFieldType,
-                                    this.toObjectPrefix(columnName),
-                                    this.joinOn());
-
-                    Object associationObject = mapper.mapResultToType();
-
-                    if (collection != null) {
                         collection.add(associationObject);
+
                     } else {
-                        associationField.set(anObject, associationObject);
+                        association.set(anObject, associationObject);
                     }
                 }
             }
 
-        } catch (Exception e) {
+        } catch (Throwable t) {
             throw new IllegalArgumentException(
                     "Cannot map object association for "
                             + currentAssociationName
                             + " because: "
-                            + e.getMessage(),
-                    e);
+                            + t.getMessage(),
+                    t);
         }
     }
 
+    private ResultSetMappingPlan plan() {
+        if (this.plan == null) {
+            try {
+                this.usePlan(
+                        ResultSetMappingPlan.planFor(
+                                this.resultType(),
+                                this.columnPrefix,
+                                this.resultSet()));
+
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        "Cannot read result metadata because: "
+                                + e.getMessage(),
+                        e);
+            }
+        }
+
+        return this.plan;
+    }
+
+    private void usePlan(ResultSetMappingPlan aPlan) {
+        this.plan = aPlan;
+
+        this.associationMappers = new ResultSetObjectMapper<?>[aPlan.associations().length];
+
+        this.leftKeyIndex = aPlan.columnIndexOf(this.joinOn().leftKey());
+        this.rightKeyIndex = aPlan.columnIndexOf(this.joinOn().rightKey());
+        this.savesLeftQualifier = aPlan.mapsColumn(this.joinOn().leftKey());
+    }
+
     private ResultSet resultSet() {
         return this.resultSet;
     }
@@ -360,10 +207,4 @@ public class ResultSetObjectMapper<T> {
     private Class<? extends T> resultType() {
         return this.resultType;
     }
-
-    private String toObjectPrefix(String aColumnName) {
-        String objectPrefix = "o_"+aColumnName+"_";
-
-        return objectPrefix;
-    }
 }
@@ -0,0 +1,145 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing;
+
+import java.util.NoSuchElementException;
+
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.sourcing.EventStoreException;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
+import com.saasovation.common.event.sourcing.EventStreamId;
+
+/**
+ * I am the base of the store specific EventStreamCursor types. My
+ * subclass positions on each stored event in turn; I deserialize
+ * an event only when it is requested by next(). When the stream
+ * is required to exist, an empty stream fails on the first probe
+ * just as EventStore#eventStreamSince() does.
+ */
+public abstract class AbstractEventStreamCursor implements EventStreamCursor {
+
+    private boolean advanced;
+    private boolean closed;
+    private boolean hasNext;
+    private boolean required;
+    private EventStreamId startingIdentity;
+    private int version;
+
+    @Override
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+
+            try {
+                this.release();
+            } catch (Exception e) {
+                throw new EventStoreException(
+                        "Cannot close event stream cursor for: "
+                            + this.startingIdentity().streamName()
+                            + " because: "
+                            + e.getMessage(),
+                        e);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!this.advanced) {
+            this.hasNext = !this.closed && this.advanceOrFail();
+            this.advanced = true;
+
+            if (!this.hasNext && this.required && this.version() < this.startingIdentity().streamVersion()) {
+                throw new EventStoreException(
+                        "There is no such event stream: "
+                        + this.startingIdentity().streamName()
+                        + " : "
+                        + this.startingIdentity().streamVersion());
+            }
+        }
+
+        return this.hasNext;
+    }
+
+    @Override
+    public DomainEvent next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        this.advanced = false;
+
+        try {
+            this.version = this.currentVersion();
+
+            return this.currentEvent();
+
+        } catch (Exception e) {
+            throw new EventStoreException(
+                    "Cannot read event stream for: "
+                        + this.startingIdentity().streamName()
+                        + " at version: "
+                        + (this.version + 1)
+                        + " because: "
+                        + e.getMessage(),
+                    e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Event streams are append-only.");
+    }
+
+    @Override
+    public int version() {
+        return this.version;
+    }
+
+    protected AbstractEventStreamCursor(EventStreamId aStartingIdentity, boolean isRequired) {
+        super();
+
+        this.required = isRequired;
+        this.startingIdentity = aStartingIdentity;
+        this.version = aStartingIdentity.streamVersion() - 1;
+    }
+
+    protected abstract boolean advance() throws Exception;
+
+    protected abstract DomainEvent currentEvent() throws Exception;
+
+    protected abstract int currentVersion() throws Exception;
+
+    protected abstract void release() throws Exception;
+
+    protected EventStreamId startingIdentity() {
+        return this.startingIdentity;
+    }
+
+    private boolean advanceOrFail() {
+        try {
+            return this.advance();
+
+        } catch (Exception e) {
+            throw new EventStoreException(
+                    "Cannot query event stream for: "
+                        + this.startingIdentity().streamName()
+                        + " since version: "
+                        + (this.version + 1)
+                        + " because: "
+                        + e.getMessage(),
+                    e);
+        }
+    }
+}
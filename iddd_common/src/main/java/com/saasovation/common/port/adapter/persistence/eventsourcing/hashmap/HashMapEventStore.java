@@ -19,6 +19,7 @@ import java.util.*;
 import com.saasovation.common.domain.model.DomainEvent;
 import com.saasovation.common.event.EventSerializer;
 import com.saasovation.common.event.sourcing.*;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.AbstractEventStreamCursor;
 import com.saasovation.common.port.adapter.persistence.eventsourcing.DefaultEventStream;
 
 /**
@@ -87,13 +88,18 @@ public class HashMapEventStore implements EventStore {
 
     @Override
     public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent) {
+        return this.eventsSince(aLastReceivedEvent, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent, int aMaximumEvents) {
 
         List<DispatchableDomainEvent> events = null;
 
         try {
             List<LoggedJournalEntry> entries =
                     this.journal()
-                        .loggedJournalEntriesSince(aLastReceivedEvent);
+                        .loggedJournalEntriesSince(aLastReceivedEvent, aMaximumEvents);
 
             events = this.toDispatchableDomainEvents(entries);
 
@@ -109,6 +115,11 @@ public class HashMapEventStore implements EventStore {
         return events;
     }
 
+    @Override
+    public EventStreamCursor eventStreamCursorSince(EventStreamId anIdentity) {
+        return new JournalEventStreamCursor(anIdentity, false);
+    }
+
     @Override
     public EventStream eventStreamSince(EventStreamId anIdentity) {
         List<DomainEvent> events = null;
@@ -156,11 +167,21 @@ public class HashMapEventStore implements EventStore {
         return new DefaultEventStream(events, version);
     }
 
+    @Override
+    public EventStreamCursor fullEventStreamCursorFor(EventStreamId anIdentity) {
+        return new JournalEventStreamCursor(anIdentity.withStreamVersion(1), true);
+    }
+
     @Override
     public EventStream fullEventStreamFor(EventStreamId anIdentity) {
         return this.eventStreamSince(anIdentity.withStreamVersion(1));
     }
 
+    @Override
+    public long lastEventId() {
+        return this.journal().lastJournalSequence();
+    }
+
     @Override
     public void purge() {
         this.journal().purge();
@@ -206,7 +227,6 @@ public class HashMapEventStore implements EventStore {
         this.serializer = aSerializer;
     }
 
-    @SuppressWarnings("unchecked")
     private List<DomainEvent> toDomainEvents(
             List<LoggedJournalEntry> anEntries)
     throws Exception {
@@ -219,11 +239,8 @@ public class HashMapEventStore implements EventStore {
 
             String eventBody = entry.value();
 
-            Class<DomainEvent> eventClass =
-                    (Class<DomainEvent>) Class.forName(eventClassName);
-
             DomainEvent domainEvent =
-                    this.serializer().deserialize(eventBody, eventClass);
+                    this.serializer().deserialize(eventBody, eventClassName);
 
             events.add(domainEvent);
         }
@@ -231,7 +248,6 @@ public class HashMapEventStore implements EventStore {
         return events;
     }
 
-    @SuppressWarnings("unchecked")
     private List<DispatchableDomainEvent> toDispatchableDomainEvents(
             List<LoggedJournalEntry> anEntries)
     throws Exception {
@@ -244,18 +260,68 @@ public class HashMapEventStore implements EventStore {
 
             String eventBody = entry.value();
 
-            Class<DomainEvent> eventClass =
-                    (Class<DomainEvent>) Class.forName(eventClassName);
-
             DomainEvent domainEvent =
-                    this.serializer().deserialize(eventBody, eventClass);
-
-            events.add(new DispatchableDomainEvent(entry.journalSequence(), domainEvent));
+                    this.serializer().deserialize(eventBody, eventClassName);
+
+            String streamName =
+                    entry.referenceKey() == null ?
+                            null :
+                            JournalKeyProvider.referencedResourceName(entry.referenceKey());
+
+            events.add(
+                    new DispatchableDomainEvent(
+                            entry.journalSequence(),
+                            streamName,
+                            domainEvent));
         }
 
         return events;
     }
 
+    private class JournalEventStreamCursor extends AbstractEventStreamCursor {
+
+        private LoggedJournalEntry entry;
+        private StreamKeyProvider keyProvider;
+
+        JournalEventStreamCursor(EventStreamId aStartingIdentity, boolean isRequired) {
+            super(aStartingIdentity, isRequired);
+
+            this.keyProvider =
+                new StreamKeyProvider(
+                        aStartingIdentity.streamName(),
+                        aStartingIdentity.streamVersion());
+        }
+
+        @Override
+        protected boolean advance() throws Exception {
+            this.entry =
+                    journal()
+                        .referencedLoggedJournalEntry(
+                                this.keyProvider.nextReferenceKey());
+
+            return this.entry != null;
+        }
+
+        @Override
+        protected DomainEvent currentEvent() throws Exception {
+            String eventClassName = this.entry.nextMetadataValue();
+
+            String eventBody = this.entry.value();
+
+            return serializer().deserialize(eventBody, eventClassName);
+        }
+
+        @Override
+        protected int currentVersion() throws Exception {
+            return Integer.parseInt(this.keyProvider.lastKeyPart(this.entry.referenceKey()));
+        }
+
+        @Override
+        protected void release() throws Exception {
+            this.entry = null;
+        }
+    }
+
     private class StreamKeyProvider
             extends JournalKeyProvider {
 
@@ -71,6 +71,10 @@ public class HashMapJournal {
         }
     }
 
+    public long lastJournalSequence() {
+        return this.journalSequence.get();
+    }
+
     public void logEntries(LoggableJournalEntry[] aJournalEntries) {
 
         try {
@@ -112,11 +116,21 @@ public class HashMapJournal {
     public List<LoggedJournalEntry> loggedJournalEntriesSince(
             long aJournalSequence) {
 
+        return this.loggedJournalEntriesSince(aJournalSequence, Integer.MAX_VALUE);
+    }
+
+    public List<LoggedJournalEntry> loggedJournalEntriesSince(
+            long aJournalSequence,
+            int aMaximumEntries) {
+
         List<LoggedJournalEntry> entries = new ArrayList<LoggedJournalEntry>();
 
         boolean done = false;
 
-        for (long journalSequence = aJournalSequence + 1; !done; ++journalSequence) {
+        for (long journalSequence = aJournalSequence + 1;
+                !done && entries.size() < aMaximumEntries;
+                ++journalSequence) {
+
             String journalKey =
                     JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
                     + journalSequence;
@@ -128,10 +142,10 @@ public class HashMapJournal {
                 LoggedJournalEntry loggedJournalEntry =
                     new LoggedJournalEntry(
                             journalSequence,
-                            null,
+                            this.referenceKeyOf(journalValue),
                             journalValue);
 
-                // discard the reference key
+                // skip the reference key, kept above
                 loggedJournalEntry.discardNextMetadataValue();
 
                 entries.add(loggedJournalEntry);
@@ -157,39 +171,49 @@ public class HashMapJournal {
         boolean done = false;
 
         while (!done) {
-            String referenceKey = aReferenceKeyProvider.nextReferenceKey();
+            LoggedJournalEntry loggedJournalEntry =
+                    this.referencedLoggedJournalEntry(
+                            aReferenceKeyProvider.nextReferenceKey());
 
-            String rawJournalSequenceValue =
-                    this.database().get(referenceKey);
+            if (loggedJournalEntry != null) {
+                entries.add(loggedJournalEntry);
+            } else {
+                done = true;
+            }
+        }
 
-            if (rawJournalSequenceValue != null) {
-                long journalSequence =
-                        Long.parseLong(new String(rawJournalSequenceValue));
+        return entries;
+    }
 
-                String journalKey =
-                        JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
-                        + journalSequence;
+    public LoggedJournalEntry referencedLoggedJournalEntry(String aReferenceKey) {
 
-                String rawJournalValue =
-                        this.database().get(journalKey);
+        String rawJournalSequenceValue =
+                this.database().get(aReferenceKey);
 
-                LoggedJournalEntry loggedJournalEntry =
-                    new LoggedJournalEntry(
-                            journalSequence,
-                            referenceKey,
-                            new String(rawJournalValue));
+        if (rawJournalSequenceValue == null) {
+            return null;
+        }
 
-                // discard the stream key
-                loggedJournalEntry.discardNextMetadataValue();
+        long journalSequence =
+                Long.parseLong(new String(rawJournalSequenceValue));
 
-                entries.add(loggedJournalEntry);
+        String journalKey =
+                JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
+                + journalSequence;
 
-            } else {
-                done = true;
-            }
-        }
+        String rawJournalValue =
+                this.database().get(journalKey);
 
-        return entries;
+        LoggedJournalEntry loggedJournalEntry =
+            new LoggedJournalEntry(
+                    journalSequence,
+                    aReferenceKey,
+                    new String(rawJournalValue));
+
+        // discard the stream key
+        loggedJournalEntry.discardNextMetadataValue();
+
+        return loggedJournalEntry;
     }
 
     public String valueWithMetadata(String aValue, String aMetadata) {
@@ -274,6 +298,10 @@ public class HashMapJournal {
         }
     }
 
+    private String referenceKeyOf(String aJournalValue) {
+        return aJournalValue.substring(0, aJournalValue.indexOf(ES_METADATA_DELIMITER));
+    }
+
     private void saveJournalSequence() {
         this.database().put(
                 ES_JOURNAL_SEQUENCE_KEY,
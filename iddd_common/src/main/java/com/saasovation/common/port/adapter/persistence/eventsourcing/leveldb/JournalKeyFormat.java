@@ -0,0 +1,107 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * I am the version 2 physical key encoding of the LevelDBJournal.
+ * Journal sequences are fixed-width big-endian longs and stream
+ * versions fixed-width big-endian ints, so that LevelDB's bytewise
+ * key order is their numeric order and a stream or the journal can
+ * be read with one seek and a sequential scan.
+ *
+ *   journal entry: ES_J2: + sequence(8)            -> reference key # value
+ *   reference:     ES_R2: + stream name + 0 + version(4) -> sequence(8)
+ *
+ * Reference keys keep their logical "ES_R:stream:version" string form
+ * everywhere else, including the journal entry metadata; I translate
+ * them at the database boundary. Version 1 keys were decimal strings,
+ * see LevelDBJournalKeyMigrationTool.
+ */
+public final class JournalKeyFormat {
+
+    public static final int VERSION = 2;
+
+    static final byte[] FORMAT_KEY = "ES_FORMAT".getBytes();
+
+    private static final byte[] JOURNAL_PREFIX = "ES_J2:".getBytes();
+    private static final byte[] REFERENCE_PREFIX = "ES_R2:".getBytes();
+    private static final byte STREAM_NAME_TERMINATOR = 0;
+
+    public static boolean isJournalKey(byte[] aKey) {
+        return aKey.length == JOURNAL_PREFIX.length + 8 && startsWith(aKey, JOURNAL_PREFIX);
+    }
+
+    public static byte[] journalKey(long aJournalSequence) {
+        return ByteBuffer
+                .allocate(JOURNAL_PREFIX.length + 8)
+                .put(JOURNAL_PREFIX)
+                .putLong(aJournalSequence)
+                .array();
+    }
+
+    public static long journalSequenceOf(byte[] aJournalKey) {
+        return ByteBuffer.wrap(aJournalKey, JOURNAL_PREFIX.length, 8).getLong();
+    }
+
+    public static long journalSequenceOfReference(byte[] aReferenceValue) {
+        return ByteBuffer.wrap(aReferenceValue).getLong();
+    }
+
+    public static byte[] referenceKey(String aReferenceKey) {
+        int versionIndex = aReferenceKey.lastIndexOf(JournalKeyProvider.ES_KEY_DELIMITER);
+
+        if (!aReferenceKey.startsWith(JournalKeyProvider.ES_REFERENCE_PREFIX_KEY) || versionIndex == -1) {
+            throw new IllegalArgumentException("Not a stream reference key: " + aReferenceKey);
+        }
+
+        byte[] streamName =
+                aReferenceKey
+                    .substring(JournalKeyProvider.ES_REFERENCE_PREFIX_KEY.length(), versionIndex)
+                    .getBytes();
+
+        int streamVersion = Integer.parseInt(aReferenceKey.substring(versionIndex + 1));
+
+        return ByteBuffer
+                .allocate(REFERENCE_PREFIX.length + streamName.length + 1 + 4)
+                .put(REFERENCE_PREFIX)
+                .put(streamName)
+                .put(STREAM_NAME_TERMINATOR)
+                .putInt(streamVersion)
+                .array();
+    }
+
+    public static byte[] referenceValue(long aJournalSequence) {
+        return ByteBuffer.allocate(8).putLong(aJournalSequence).array();
+    }
+
+    static boolean startsWith(byte[] aKey, byte[] aPrefix) {
+        if (aKey.length < aPrefix.length) {
+            return false;
+        }
+
+        for (int idx = 0; idx < aPrefix.length; ++idx) {
+            if (aKey[idx] != aPrefix[idx]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private JournalKeyFormat() {
+        super();
+    }
+}
@@ -34,6 +34,12 @@ public class JournalKeyProvider {
         return aCompositeKey.substring(0, aCompositeKey.indexOf(ES_KEY_DELIMITER));
     }
 
+    public static String referencedResourceName(String aReferenceKey) {
+        return aReferenceKey.substring(
+                ES_REFERENCE_PREFIX_KEY.length(),
+                aReferenceKey.lastIndexOf(ES_KEY_DELIMITER));
+    }
+
     public String lastKeyPart(String aCompositeKey) {
         return aCompositeKey.substring(aCompositeKey.lastIndexOf(ES_KEY_DELIMITER) + 1);
     }
@@ -18,19 +18,26 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.saasovation.common.domain.model.DomainEvent;
-import com.saasovation.common.event.EventSerializer;
+import com.saasovation.common.event.EventTypeRegistry;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventNotifiable;
 import com.saasovation.common.event.sourcing.EventStore;
 import com.saasovation.common.event.sourcing.EventStoreException;
 import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.AbstractEventStreamCursor;
 import com.saasovation.common.port.adapter.persistence.eventsourcing.DefaultEventStream;
+import com.saasovation.common.serializer.FormattedSerializer;
 
 /**
  * I am an EventStore for LevelDB. I am a pure Java implementation
  * using the org.iq80 (Dain Sundstrom) implementation of LevelDB.
  *
+ * Each event is journaled after its type name, serialized by my
+ * FormattedSerializer, which leads it with the id of its format.
+ * Events journaled before then, as JSON text, are still read.
+ *
  * @author Vaughn Vernon
  */
 public class LevelDBEventStore implements EventStore {
@@ -39,7 +46,7 @@ public class LevelDBEventStore implements EventStore {
 
     private EventNotifiable eventNotifiable;
     private LevelDBJournal journal;
-    private EventSerializer serializer;
+    private FormattedSerializer serializer;
 
     public static synchronized LevelDBEventStore instance(String aDirectoryPath) {
         if (instance == null) {
@@ -69,7 +76,7 @@ public class LevelDBEventStore implements EventStore {
 
             String streamKey = keyProvider.nextReferenceKey();
 
-            String eventValue =
+            byte[] eventValue =
                     this.journal()
                         .valueWithMetadata(
                                 this.serializer().serialize(event),
@@ -94,13 +101,18 @@ public class LevelDBEventStore implements EventStore {
 
     @Override
     public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent) {
+        return this.eventsSince(aLastReceivedEvent, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent, int aMaximumEvents) {
 
         List<DispatchableDomainEvent> events = null;
 
         try {
             List<LoggedJournalEntry> entries =
                     this.journal()
-                        .loggedJournalEntriesSince(aLastReceivedEvent);
+                        .loggedJournalEntriesSince(aLastReceivedEvent, aMaximumEvents);
 
             events = this.toDispatchableDomainEvents(entries);
 
@@ -116,6 +128,11 @@ public class LevelDBEventStore implements EventStore {
         return events;
     }
 
+    @Override
+    public EventStreamCursor eventStreamCursorSince(EventStreamId anIdentity) {
+        return new JournalEventStreamCursor(anIdentity, false);
+    }
+
     @Override
     public EventStream eventStreamSince(EventStreamId anIdentity) {
         List<DomainEvent> events = null;
@@ -163,11 +180,21 @@ public class LevelDBEventStore implements EventStore {
         return new DefaultEventStream(events, version);
     }
 
+    @Override
+    public EventStreamCursor fullEventStreamCursorFor(EventStreamId anIdentity) {
+        return new JournalEventStreamCursor(anIdentity.withStreamVersion(1), true);
+    }
+
     @Override
     public EventStream fullEventStreamFor(EventStreamId anIdentity) {
         return this.eventStreamSince(anIdentity.withStreamVersion(1));
     }
 
+    @Override
+    public long lastEventId() {
+        return this.journal().lastJournalSequence();
+    }
+
     @Override
     public void purge() {
         this.journal().purge();
@@ -182,7 +209,7 @@ public class LevelDBEventStore implements EventStore {
         super();
 
         this.setJournal(LevelDBJournal.initializeInstance(aDirectoryPath));
-        this.setSerializer(EventSerializer.instance());
+        this.setSerializer(FormattedSerializer.instance());
     }
 
     private EventNotifiable eventNotifiable() {
@@ -205,15 +232,22 @@ public class LevelDBEventStore implements EventStore {
         }
     }
 
-    private EventSerializer serializer() {
+    private FormattedSerializer serializer() {
         return this.serializer;
     }
 
-    private void setSerializer(EventSerializer aSerializer) {
+    void setSerializer(FormattedSerializer aSerializer) {
         this.serializer = aSerializer;
     }
 
-    @SuppressWarnings("unchecked")
+    private DomainEvent toDomainEvent(LoggedJournalEntry anEntry) {
+        String eventClassName = anEntry.nextMetadataValue();
+
+        Class<DomainEvent> eventType = EventTypeRegistry.instance().typeOf(eventClassName);
+
+        return this.serializer().deserialize(anEntry.valueBytes(), eventType);
+    }
+
     private List<DomainEvent> toDomainEvents(
             List<LoggedJournalEntry> anEntries)
     throws Exception {
@@ -221,24 +255,12 @@ public class LevelDBEventStore implements EventStore {
         List<DomainEvent> events = new ArrayList<DomainEvent>();
 
         for (LoggedJournalEntry entry : anEntries) {
-
-            String eventClassName = entry.nextMetadataValue();
-
-            String eventBody = entry.value();
-
-            Class<DomainEvent> eventClass =
-                    (Class<DomainEvent>) Class.forName(eventClassName);
-
-            DomainEvent domainEvent =
-                    this.serializer().deserialize(eventBody, eventClass);
-
-            events.add(domainEvent);
+            events.add(this.toDomainEvent(entry));
         }
 
         return events;
     }
 
-    @SuppressWarnings("unchecked")
     private List<DispatchableDomainEvent> toDispatchableDomainEvents(
             List<LoggedJournalEntry> anEntries)
     throws Exception {
@@ -247,20 +269,67 @@ public class LevelDBEventStore implements EventStore {
 
         for (LoggedJournalEntry entry : anEntries) {
 
-            String eventClassName = entry.nextMetadataValue();
+            DomainEvent domainEvent = this.toDomainEvent(entry);
+
+            String streamName =
+                    entry.referenceKey() == null ?
+                            null :
+                            JournalKeyProvider.referencedResourceName(entry.referenceKey());
 
-            String eventBody = entry.value();
+            events.add(
+                    new DispatchableDomainEvent(
+                            entry.journalSequence(),
+                            streamName,
+                            domainEvent));
+        }
+
+        return events;
+    }
+
+    private class JournalEventStreamCursor extends AbstractEventStreamCursor {
 
-            Class<DomainEvent> eventClass =
-                    (Class<DomainEvent>) Class.forName(eventClassName);
+        private LoggedJournalEntry entry;
+        private StreamKeyProvider keyProvider;
+        private ReferencedJournalEntryScan scan;
 
-            DomainEvent domainEvent =
-                    this.serializer().deserialize(eventBody, eventClass);
+        JournalEventStreamCursor(EventStreamId aStartingIdentity, boolean isRequired) {
+            super(aStartingIdentity, isRequired);
 
-            events.add(new DispatchableDomainEvent(entry.journalSequence(), domainEvent));
+            this.keyProvider =
+                new StreamKeyProvider(
+                        aStartingIdentity.streamName(),
+                        aStartingIdentity.streamVersion());
         }
 
-        return events;
+        @Override
+        protected boolean advance() throws Exception {
+            if (this.scan == null) {
+                this.scan = journal().referencedLoggedJournalEntryScan(this.keyProvider);
+            }
+
+            this.entry = this.scan.next();
+
+            return this.entry != null;
+        }
+
+        @Override
+        protected DomainEvent currentEvent() throws Exception {
+            return toDomainEvent(this.entry);
+        }
+
+        @Override
+        protected int currentVersion() throws Exception {
+            return Integer.parseInt(this.keyProvider.lastKeyPart(this.entry.referenceKey()));
+        }
+
+        @Override
+        protected void release() throws Exception {
+            this.entry = null;
+
+            if (this.scan != null) {
+                this.scan.close();
+            }
+        }
     }
 
     private class StreamKeyProvider
@@ -15,11 +15,18 @@
 package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.iq80.leveldb.DB;
@@ -27,6 +34,7 @@ import org.iq80.leveldb.DBFactory;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
 import org.iq80.leveldb.impl.Iq80DBFactory;
 
 import com.saasovation.common.event.sourcing.EventStoreAppendException;
@@ -35,16 +43,21 @@ import com.saasovation.common.event.sourcing.EventStoreException;
 public class LevelDBJournal {
 
     protected static final String ES_METADATA_DELIMITER = "#";
+    protected static final Charset ES_METADATA_CHARSET = Charset.forName("UTF-8");
 
     private static final byte[] ES_JOURNAL_SEQUENCE_KEY =
-            (JournalKeyProvider.ES_JOURNAL_PREFIX_KEY+"0").getBytes();
+            JournalKeyFormat.journalKey(0L);
+
+    private static final int MAX_GROUP_COMMIT_APPENDS = 256;
 
     private static LevelDBJournal instance;
     private static Map<String, Object> lock = new HashMap<String, Object>();
 
     private DB database;
     private String databasePath;
+    private volatile GroupCommitter groupCommitter;
     private AtomicLong journalSequence;
+    private WriteOptions writeOptions;
 
     public static LevelDBJournal initializeInstance(String aDirectoryPath) {
         synchronized (lock) {
@@ -74,6 +87,8 @@ public class LevelDBJournal {
         synchronized (lock) {
             if (instance != null) {
                 try {
+                    this.useGroupCommit(false);
+
                     this.saveJournalSequence();
 
                     this.database().close();
@@ -96,94 +111,74 @@ public class LevelDBJournal {
         return this.databasePath;
     }
 
+    public long lastJournalSequence() {
+        return this.journalSequence().get();
+    }
+
     public void logEntries(LoggableJournalEntry[] aJournalEntries) {
+        GroupCommitter groupCommitter = this.groupCommitter;
 
-        WriteBatch batch = this.database().createWriteBatch();
+        if (groupCommitter != null) {
+            groupCommitter.logEntries(aJournalEntries);
+        } else {
+            this.logEntriesUnderStreamLock(aJournalEntries);
+        }
+    }
 
-        try {
-            synchronized (this.lockFor(aJournalEntries[0].primaryResourceName())) {
-                for (LoggableJournalEntry journalEntry : aJournalEntries) {
+    public List<LoggedJournalEntry> loggedJournalEntriesSince(
+            long aJournalSequence) {
 
-                    long journalSequence = this.nextJournalSequence();
+        return this.loggedJournalEntriesSince(aJournalSequence, Integer.MAX_VALUE);
+    }
 
-                    this.confirmNonExistingReference(journalEntry.referenceKey());
+    public List<LoggedJournalEntry> loggedJournalEntriesSince(
+            long aJournalSequence,
+            int aMaximumEntries) {
 
-                    String jounralKey =
-                            JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
-                            + journalSequence;
+        List<LoggedJournalEntry> entries = new ArrayList<LoggedJournalEntry>();
 
-                    String referenceKey =
-                            journalEntry.referenceKey();
+        DBIterator iterator = this.database().iterator();
 
-                    byte[] journalSequenceBytes = (""+journalSequence).getBytes();
+        try {
+            long journalSequence = aJournalSequence + 1;
 
-                    String journalValue =
-                            this.valueWithMetadata(
-                                    journalEntry.value(),
-                                    referenceKey);
+            iterator.seek(JournalKeyFormat.journalKey(journalSequence));
 
-                    // journal entry points to reference
+            boolean done = false;
 
-                    batch.put(
-                            jounralKey.getBytes(),
-                            journalValue.getBytes());
+            while (!done && entries.size() < aMaximumEntries && iterator.hasNext()) {
+                Entry<byte[],byte[]> entry = iterator.next();
 
-                    // reference points to journal entry
+                // stop at the first missing sequence, as a
+                // key-by-key probe would
 
-                    batch.put(
-                            referenceKey.getBytes(),
-                            journalSequenceBytes);
-                }
+                if (JournalKeyFormat.isJournalKey(entry.getKey())
+                        && JournalKeyFormat.journalSequenceOf(entry.getKey()) == journalSequence) {
+
+                    byte[] journalValue = entry.getValue();
+
+                    LoggedJournalEntry loggedJournalEntry =
+                        new LoggedJournalEntry(
+                                journalSequence++,
+                                this.referenceKeyOf(journalValue),
+                                journalValue);
 
-                this.database().write(batch);
+                    // skip the reference key, kept above
+                    loggedJournalEntry.discardNextMetadataValue();
+
+                    entries.add(loggedJournalEntry);
+                } else {
+                    done = true;
+                }
             }
 
-        } catch (Throwable t) {
-            throw new EventStoreAppendException(
-                    "Could not append to journal because: "
-                            + t.getMessage(),
-                    t);
         } finally {
             try {
-                batch.close();
+                iterator.close();
             } catch (Throwable t) {
                 // ignore
             }
         }
-    }
-
-    public List<LoggedJournalEntry> loggedJournalEntriesSince(
-            long aJournalSequence) {
-
-        List<LoggedJournalEntry> entries = new ArrayList<LoggedJournalEntry>();
-
-        boolean done = false;
-
-        for (long journalSequence = aJournalSequence + 1; !done; ++journalSequence) {
-            String journalKey =
-                    JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
-                    + journalSequence;
-
-            byte[] rawJournalValue =
-                    this.database()
-                        .get(journalKey.getBytes());
-
-            if (rawJournalValue != null) {
-
-                LoggedJournalEntry loggedJournalEntry =
-                    new LoggedJournalEntry(
-                            journalSequence,
-                            null,
-                            new String(rawJournalValue));
-
-                // discard the reference key
-                loggedJournalEntry.discardNextMetadataValue();
-
-                entries.add(loggedJournalEntry);
-            } else {
-                done = true;
-            }
-        }
 
         return entries;
     }
@@ -224,43 +219,65 @@ public class LevelDBJournal {
 
         List<LoggedJournalEntry> entries = new ArrayList<LoggedJournalEntry>();
 
-        boolean done = false;
+        ReferencedJournalEntryScan scan =
+                this.referencedLoggedJournalEntryScan(aReferenceKeyProvider);
 
-        while (!done) {
-            String referenceKey = aReferenceKeyProvider.nextReferenceKey();
+        try {
+            LoggedJournalEntry loggedJournalEntry = scan.next();
 
-            byte[] rawJournalSequenceValue =
-                    this.database().get(referenceKey.getBytes());
+            while (loggedJournalEntry != null) {
+                entries.add(loggedJournalEntry);
 
-            if (rawJournalSequenceValue != null) {
-                long journalSequence =
-                        Long.parseLong(new String(rawJournalSequenceValue));
+                loggedJournalEntry = scan.next();
+            }
 
-                String journalKey =
-                        JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
-                        + journalSequence;
+        } finally {
+            scan.close();
+        }
 
-                byte[] rawJournalValue =
-                        this.database()
-                            .get(journalKey.getBytes());
+        return entries;
+    }
 
-                LoggedJournalEntry loggedJournalEntry =
-                    new LoggedJournalEntry(
-                            journalSequence,
-                            referenceKey,
-                            new String(rawJournalValue));
+    public ReferencedJournalEntryScan referencedLoggedJournalEntryScan(
+            JournalKeyProvider aReferenceKeyProvider) {
 
-                // discard the stream key
-                loggedJournalEntry.discardNextMetadataValue();
+        return new ReferencedJournalEntryScan(this.database(), aReferenceKeyProvider);
+    }
 
-                entries.add(loggedJournalEntry);
+    /**
+     * Switches between group commit, where a single writer thread
+     * merges the appends of all waiting callers into one WriteBatch,
+     * and the per-stream locked write of each caller's own batch,
+     * which is the default. Group commit pays off with synced writes,
+     * as one sync is shared by all appends of a group; otherwise the
+     * hand-off to the writer costs more than the merged write saves.
+     * Only switch while idle.
+     *
+     * @param isGroupCommit whether to use group commit
+     */
+    public void useGroupCommit(boolean isGroupCommit) {
+        synchronized (lock) {
+            if (isGroupCommit && this.groupCommitter == null) {
+                this.groupCommitter = new GroupCommitter();
+                this.groupCommitter.start();
 
-            } else {
-                done = true;
+            } else if (!isGroupCommit && this.groupCommitter != null) {
+                this.groupCommitter.stop();
+                this.groupCommitter = null;
             }
         }
+    }
 
-        return entries;
+    /**
+     * Sets whether each journal write is synced to disk before the
+     * append returns. Synced writes are durable across a machine
+     * crash but cost a sync each; with group commit one sync is
+     * shared by all appends of a group.
+     *
+     * @param isSyncWrites whether to sync each write
+     */
+    public void useSyncWrites(boolean isSyncWrites) {
+        this.writeOptions = new WriteOptions().sync(isSyncWrites);
     }
 
     public String valueWithMetadata(String aValue, String aMetadata) {
@@ -270,10 +287,30 @@ public class LevelDBJournal {
         return valueWithMetadata;
     }
 
+    /**
+     * Answers aValue led by aMetadata, where aValue is bytes, such as
+     * an event serialized with the id of its format, kept as they are.
+     *
+     * @param aValue the byte[] value
+     * @param aMetadata the String metadata
+     * @return byte[]
+     */
+    public byte[] valueWithMetadata(byte[] aValue, String aMetadata) {
+        byte[] metadata = (aMetadata + ES_METADATA_DELIMITER).getBytes(ES_METADATA_CHARSET);
+
+        byte[] valueWithMetadata = Arrays.copyOf(metadata, metadata.length + aValue.length);
+
+        System.arraycopy(aValue, 0, valueWithMetadata, metadata.length, aValue.length);
+
+        return valueWithMetadata;
+    }
+
     private LevelDBJournal(String aDirectoryPath) {
         super();
 
         this.openDatabase(aDirectoryPath);
+
+        this.useSyncWrites(false);
     }
 
     private boolean cacheJournalSequence() {
@@ -304,11 +341,61 @@ public class LevelDBJournal {
     private void confirmNonExistingReference(String aReferenceKey) {
         // this implementation will not stand up to race conditions
 
-        if (this.database().get(aReferenceKey.getBytes()) != null) {
+        if (this.database().get(JournalKeyFormat.referenceKey(aReferenceKey)) != null) {
             throw new EventStoreAppendException("Journal concurrency violation.");
         }
     }
 
+    private void logEntriesUnderStreamLock(LoggableJournalEntry[] aJournalEntries) {
+
+        WriteBatch batch = this.database().createWriteBatch();
+
+        try {
+            synchronized (this.lockFor(aJournalEntries[0].primaryResourceName())) {
+                for (LoggableJournalEntry journalEntry : aJournalEntries) {
+
+                    this.confirmNonExistingReference(journalEntry.referenceKey());
+
+                    long journalSequence = this.nextJournalSequence();
+
+                    String referenceKey =
+                            journalEntry.referenceKey();
+
+                    byte[] journalValue =
+                            this.valueWithMetadata(
+                                    journalEntry.value(),
+                                    referenceKey);
+
+                    // journal entry points to reference
+
+                    batch.put(
+                            JournalKeyFormat.journalKey(journalSequence),
+                            journalValue);
+
+                    // reference points to journal entry
+
+                    batch.put(
+                            JournalKeyFormat.referenceKey(referenceKey),
+                            JournalKeyFormat.referenceValue(journalSequence));
+                }
+
+                this.database().write(batch, this.writeOptions());
+            }
+
+        } catch (Throwable t) {
+            throw new EventStoreAppendException(
+                    "Could not append to journal because: "
+                            + t.getMessage(),
+                    t);
+        } finally {
+            try {
+                batch.close();
+            } catch (Throwable t) {
+                // ignore
+            }
+        }
+    }
+
     private DB database() {
         return this.database;
     }
@@ -338,12 +425,20 @@ public class LevelDBJournal {
         }
     }
 
+    private AtomicLong journalSequence() {
+        return this.journalSequence;
+    }
+
     private long nextJournalSequence() {
         long nextJournalSequence = this.journalSequence.incrementAndGet();
 
         return nextJournalSequence;
     }
 
+    private WriteOptions writeOptions() {
+        return this.writeOptions;
+    }
+
     private void setJournalSequence(long aJournalSequence) {
         this.journalSequence =
                 new AtomicLong(aJournalSequence);
@@ -362,6 +457,8 @@ public class LevelDBJournal {
 
             this.setDatabase(factory.open(new File(aDirectoryPath), options));
 
+            new LevelDBJournalKeyMigrationTool(this.database()).migrateDatabase();
+
             if (!this.cacheJournalSequence()) {
                 this.repair();
             }
@@ -376,6 +473,16 @@ public class LevelDBJournal {
         }
     }
 
+    private String referenceKeyOf(byte[] aJournalValue) {
+        int delimiter = 0;
+
+        while (aJournalValue[delimiter] != ES_METADATA_DELIMITER.charAt(0)) {
+            ++delimiter;
+        }
+
+        return new String(aJournalValue, 0, delimiter, ES_METADATA_CHARSET);
+    }
+
     private void repair() {
         LevelDBJournalRepairTool repairTool =
                 new LevelDBJournalRepairTool(this.database());
@@ -397,4 +504,233 @@ public class LevelDBJournal {
                 ES_JOURNAL_SEQUENCE_KEY,
                 journalSequenceBytes);
     }
+
+    private static class PendingAppend {
+
+        private CountDownLatch completed;
+        private Throwable failure;
+        private LoggableJournalEntry[] journalEntries;
+
+        PendingAppend(LoggableJournalEntry[] aJournalEntries) {
+            super();
+
+            this.completed = new CountDownLatch(1);
+            this.journalEntries = aJournalEntries;
+        }
+
+        void await() {
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    this.completed.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (this.failure != null) {
+                throw new EventStoreAppendException(
+                        "Could not append to journal because: "
+                                + this.failure.getMessage(),
+                        this.failure);
+            }
+        }
+
+        void complete(Throwable aFailure) {
+            this.failure = aFailure;
+            this.completed.countDown();
+        }
+
+        LoggableJournalEntry[] journalEntries() {
+            return this.journalEntries;
+        }
+    }
+
+    /**
+     * I am the single writer of a group committing journal. I take
+     * every append waiting in my queue, confirm each one's references,
+     * and write all of the confirmed appends in one WriteBatch. Since
+     * only I assign journal sequences, and only after an append is
+     * confirmed, the sequence stays gap-free: a rejected append takes
+     * no sequence, and a failed write gives all of its sequences back.
+     */
+    private class GroupCommitter implements Runnable {
+
+        private final PendingAppend stopSignal = new PendingAppend(null);
+
+        private BlockingQueue<PendingAppend> queue;
+        private boolean stopped;
+        private Thread writer;
+
+        GroupCommitter() {
+            super();
+
+            this.queue = new LinkedBlockingQueue<PendingAppend>();
+        }
+
+        void logEntries(LoggableJournalEntry[] aJournalEntries) {
+            PendingAppend pendingAppend = new PendingAppend(aJournalEntries);
+
+            synchronized (this) {
+                if (this.stopped) {
+                    throw new EventStoreAppendException(
+                            "Could not append to journal because: it is closed.");
+                }
+
+                this.queue.add(pendingAppend);
+            }
+
+            pendingAppend.await();
+        }
+
+        @Override
+        public void run() {
+            List<PendingAppend> group = new ArrayList<PendingAppend>();
+
+            boolean done = false;
+
+            while (!done) {
+                try {
+                    group.add(this.queue.take());
+                } catch (InterruptedException e) {
+                    continue;
+                }
+
+                this.queue.drainTo(group, MAX_GROUP_COMMIT_APPENDS - 1);
+
+                done = group.remove(this.stopSignal);
+
+                this.commit(group);
+
+                group.clear();
+            }
+        }
+
+        void start() {
+            this.writer = new Thread(this, "leveldb-journal-group-commit");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        void stop() {
+            synchronized (this) {
+                this.stopped = true;
+
+                this.queue.add(this.stopSignal);
+            }
+
+            try {
+                this.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void commit(List<PendingAppend> aGroup) {
+            if (aGroup.isEmpty()) {
+                return;
+            }
+
+            List<PendingAppend> confirmed = new ArrayList<PendingAppend>(aGroup.size());
+
+            Set<String> batchedReferenceKeys = new HashSet<String>();
+
+            long journalSequence = journalSequence().get();
+
+            WriteBatch batch = database().createWriteBatch();
+
+            try {
+                for (PendingAppend pendingAppend : aGroup) {
+                    try {
+                        this.confirmNonExistingReferences(
+                                pendingAppend.journalEntries(),
+                                batchedReferenceKeys);
+
+                    } catch (Throwable t) {
+                        pendingAppend.complete(t);
+
+                        continue;
+                    }
+
+                    for (LoggableJournalEntry journalEntry : pendingAppend.journalEntries()) {
+                        this.batch(batch, journalEntry, ++journalSequence);
+                    }
+
+                    confirmed.add(pendingAppend);
+                }
+
+                if (!confirmed.isEmpty()) {
+                    database().write(batch, writeOptions());
+
+                    journalSequence().set(journalSequence);
+                }
+
+                for (PendingAppend pendingAppend : confirmed) {
+                    pendingAppend.complete(null);
+                }
+
+            } catch (Throwable t) {
+                for (PendingAppend pendingAppend : confirmed) {
+                    pendingAppend.complete(t);
+                }
+            } finally {
+                try {
+                    batch.close();
+                } catch (Throwable t) {
+                    // ignore
+                }
+            }
+        }
+
+        private void batch(
+                WriteBatch aBatch,
+                LoggableJournalEntry aJournalEntry,
+                long aJournalSequence) {
+
+            String referenceKey = aJournalEntry.referenceKey();
+
+            byte[] journalValue =
+                    valueWithMetadata(
+                            aJournalEntry.value(),
+                            referenceKey);
+
+            // journal entry points to reference
+
+            aBatch.put(
+                    JournalKeyFormat.journalKey(aJournalSequence),
+                    journalValue);
+
+            // reference points to journal entry
+
+            aBatch.put(
+                    JournalKeyFormat.referenceKey(referenceKey),
+                    JournalKeyFormat.referenceValue(aJournalSequence));
+        }
+
+        private void confirmNonExistingReferences(
+                LoggableJournalEntry[] aJournalEntries,
+                Set<String> aBatchedReferenceKeys) {
+
+            // the single writer makes the check race free; references
+            // already in this group's batch are not yet in the database
+
+            for (LoggableJournalEntry journalEntry : aJournalEntries) {
+                if (aBatchedReferenceKeys.contains(journalEntry.referenceKey())) {
+                    throw new EventStoreAppendException("Journal concurrency violation.");
+                }
+
+                confirmNonExistingReference(journalEntry.referenceKey());
+            }
+
+            for (LoggableJournalEntry journalEntry : aJournalEntries) {
+                aBatchedReferenceKeys.add(journalEntry.referenceKey());
+            }
+        }
+    }
 }
@@ -0,0 +1,160 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
+
+import java.util.Map.Entry;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.WriteBatch;
+
+/**
+ * I migrate a journal database from the version 1 decimal string
+ * keys to the version 2 JournalKeyFormat. Each batch of new keys is
+ * written together with the deletion of the old keys it replaces,
+ * so an interrupted migration simply continues on the next open. The
+ * format key is written last; a database that has it is skipped.
+ */
+public class LevelDBJournalKeyMigrationTool {
+
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+
+    private DB database;
+    private long migratedKeys;
+
+    public LevelDBJournalKeyMigrationTool(DB aDatabase) {
+        super();
+
+        this.setDatabase(aDatabase);
+    }
+
+    public long migratedKeys() {
+        return this.migratedKeys;
+    }
+
+    public void migrateDatabase() {
+
+        if (this.isMigrated()) {
+            return;
+        }
+
+        this.migrateKeysWithPrefix(JournalKeyProvider.ES_JOURNAL_PREFIX_KEY);
+        this.migrateKeysWithPrefix(JournalKeyProvider.ES_REFERENCE_PREFIX_KEY);
+
+        this.database().put(
+                JournalKeyFormat.FORMAT_KEY,
+                (""+JournalKeyFormat.VERSION).getBytes());
+
+        if (this.migratedKeys() > 0) {
+            System.out.println(
+                    "MIGRATED EVENT JOURNAL KEYS: " + this.migratedKeys());
+        }
+    }
+
+    private DB database() {
+        return this.database;
+    }
+
+    private void setDatabase(DB aDatabase) {
+        this.database = aDatabase;
+    }
+
+    private boolean isMigrated() {
+        return this.database().get(JournalKeyFormat.FORMAT_KEY) != null;
+    }
+
+    private void migrate(WriteBatch aBatch, String aKey, byte[] aValue) {
+
+        if (aKey.startsWith(JournalKeyProvider.ES_JOURNAL_PREFIX_KEY)) {
+
+            // ES_J:{sequence} -> {reference key}#{value}, and the
+            // saved journal sequence as ES_J:0 -> {sequence}
+
+            long journalSequence =
+                    Long.parseLong(
+                            aKey.substring(JournalKeyProvider.ES_JOURNAL_PREFIX_KEY.length()));
+
+            aBatch.put(JournalKeyFormat.journalKey(journalSequence), aValue);
+
+        } else {
+
+            // ES_R:{stream}:{version} -> {sequence}
+
+            long journalSequence = Long.parseLong(new String(aValue));
+
+            aBatch.put(
+                    JournalKeyFormat.referenceKey(aKey),
+                    JournalKeyFormat.referenceValue(journalSequence));
+        }
+
+        aBatch.delete(aKey.getBytes());
+
+        ++this.migratedKeys;
+    }
+
+    private void migrateKeysWithPrefix(String aPrefix) {
+
+        byte[] prefix = aPrefix.getBytes();
+
+        DBIterator iterator = this.database().iterator();
+
+        try {
+            iterator.seek(prefix);
+
+            boolean done = false;
+
+            while (!done) {
+                WriteBatch batch = this.database().createWriteBatch();
+
+                try {
+                    int batchSize = 0;
+
+                    while (batchSize < MIGRATION_BATCH_SIZE && !done) {
+                        if (iterator.hasNext()) {
+                            Entry<byte[],byte[]> entry = iterator.next();
+
+                            if (JournalKeyFormat.startsWith(entry.getKey(), prefix)) {
+                                this.migrate(batch, new String(entry.getKey()), entry.getValue());
+
+                                ++batchSize;
+                            } else {
+                                done = true;
+                            }
+                        } else {
+                            done = true;
+                        }
+                    }
+
+                    if (batchSize > 0) {
+                        this.database().write(batch);
+                    }
+
+                } finally {
+                    try {
+                        batch.close();
+                    } catch (Throwable t) {
+                        // ignore
+                    }
+                }
+            }
+
+        } finally {
+            try {
+                iterator.close();
+            } catch (Throwable t) {
+                // ignore
+            }
+        }
+    }
+}
@@ -22,8 +22,6 @@ import org.iq80.leveldb.WriteBatch;
 
 public class LevelDBJournalRepairTool {
 
-    private static final int CONTIGUOUS_MISSING_KEY_SAFE_COUNT = 100000;
-
     private DB database;
     private long lastConfirmedSequence;
 
@@ -45,45 +43,45 @@ public class LevelDBJournalRepairTool {
 
         System.out.println("REPAIRING EVENT JOURNAL...");
 
+        // the journal keys sort by sequence, so one scan finds the
+        // contiguous sequence and every entry stranded past a gap
+
         boolean cleanUpMode = false;
-        int contiguousMissingKeys = 0;
-        boolean done = false;
         long lastContiguousConfirmedKey = 0;
 
-        for (long journalSequence = 1; !done; ++journalSequence) {
-            byte[] journalKey =
-                    (JournalKeyProvider.ES_JOURNAL_PREFIX_KEY
-                    + journalSequence).getBytes();
+        DBIterator iterator = this.database().iterator();
+
+        try {
+            iterator.seek(JournalKeyFormat.journalKey(1L));
 
-            byte[] rawJournalValue =
-                    this.database()
-                        .get(journalKey);
+            while (iterator.hasNext()) {
+                Entry<byte[],byte[]> entry = iterator.next();
 
-            if (rawJournalValue == null) {
-                cleanUpMode = true;
+                byte[] journalKey = entry.getKey();
 
-                if (++contiguousMissingKeys >= CONTIGUOUS_MISSING_KEY_SAFE_COUNT) {
-                    done = true;
+                if (!JournalKeyFormat.isJournalKey(journalKey)) {
+                    break;
                 }
 
-            } else {
-                if (!cleanUpMode) {
+                long journalSequence = JournalKeyFormat.journalSequenceOf(journalKey);
+
+                if (!cleanUpMode && journalSequence == lastContiguousConfirmedKey + 1) {
                     lastContiguousConfirmedKey = journalSequence;
                 } else {
-                    contiguousMissingKeys = 0;
+                    cleanUpMode = true;
 
                     LoggedJournalEntry loggedJournalEntry =
                             new LoggedJournalEntry(
                                     journalSequence,
                                     null,
-                                    new String(rawJournalValue));
+                                    entry.getValue());
 
                     String streamKey = loggedJournalEntry.nextMetadataValue();
 
                     WriteBatch batch = this.database().createWriteBatch();
 
                     try {
-                        batch.delete(streamKey.getBytes());
+                        batch.delete(JournalKeyFormat.referenceKey(streamKey));
                         batch.delete(journalKey);
                         this.database().write(batch);
 
@@ -108,6 +106,13 @@ public class LevelDBJournalRepairTool {
                     }
                 }
             }
+
+        } finally {
+            try {
+                iterator.close();
+            } catch (Throwable t) {
+                // ignore
+            }
         }
 
         this.setLastConfirmedSequence(lastContiguousConfirmedKey);
@@ -136,18 +141,27 @@ public class LevelDBJournalRepairTool {
 
         DBIterator iterator = this.database().iterator();
 
-        iterator.seekToFirst();
+        try {
+            iterator.seek(JournalKeyFormat.journalKey(1L));
 
-        if (iterator.hasNext()) {
-            requiresRepair = true;
+            if (iterator.hasNext() && JournalKeyFormat.isJournalKey(iterator.peekNext().getKey())) {
+                requiresRepair = true;
 
-            Entry<byte[],byte[]> entry = iterator.next();
+                System.out.println(
+                        "REPAIR NEEDED: JOURNAL KEY FOUND: "
+                        + JournalKeyFormat.journalSequenceOf(iterator.peekNext().getKey()));
 
-            System.out.println("REPAIR NEEDED: KEY FOUND: " + new String(entry.getKey()));
+            } else {
 
-        } else {
+                System.out.println("NOT REPARING: Journal is empty.");
+            }
 
-            System.out.println("NOT REPARING: Database is empty.");
+        } finally {
+            try {
+                iterator.close();
+            } catch (Throwable t) {
+                // ignore
+            }
         }
 
         return requiresRepair;
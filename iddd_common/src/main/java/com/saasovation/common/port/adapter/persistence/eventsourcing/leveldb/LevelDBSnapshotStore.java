@@ -0,0 +1,137 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
+
+import org.iq80.leveldb.DB;
+
+import com.saasovation.common.event.sourcing.EventStoreException;
+import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.event.sourcing.Snapshot;
+import com.saasovation.common.event.sourcing.SnapshotStore;
+import com.saasovation.common.port.adapter.persistence.leveldb.LevelDBProvider;
+import com.saasovation.common.serializer.ObjectSerializer;
+
+/**
+ * I am a SnapshotStore for LevelDB. I keep only the latest
+ * snapshot of each stream, in a database of my own since the
+ * journal's database is private to the LevelDBJournal.
+ */
+public class LevelDBSnapshotStore implements SnapshotStore {
+
+    private static final String ES_SNAPSHOT_PREFIX_KEY = "ES_S:";
+
+    private static LevelDBSnapshotStore instance;
+
+    private String databasePath;
+    private ObjectSerializer serializer;
+
+    public static synchronized LevelDBSnapshotStore instance(String aDirectoryPath) {
+        if (instance == null) {
+            instance = new LevelDBSnapshotStore(aDirectoryPath);
+        }
+
+        return instance;
+    }
+
+    @Override
+    public void close() {
+        LevelDBProvider.instance().close(this.databasePath());
+    }
+
+    @Override
+    public Snapshot latestSnapshotOf(EventStreamId anIdentity) {
+        try {
+            byte[] rawSnapshot =
+                    this.database().get(this.snapshotKey(anIdentity.streamName()));
+
+            if (rawSnapshot == null) {
+                return null;
+            }
+
+            return this.serializer().deserialize(new String(rawSnapshot), Snapshot.class);
+
+        } catch (Throwable t) {
+            throw new EventStoreException(
+                    "Cannot query snapshot for: "
+                        + anIdentity.streamName()
+                        + " because: "
+                        + t.getMessage(),
+                    t);
+        }
+    }
+
+    @Override
+    public void purge() {
+        LevelDBProvider.instance().purge(this.database());
+    }
+
+    @Override
+    public synchronized void save(Snapshot aSnapshot) {
+        try {
+            byte[] key = this.snapshotKey(aSnapshot.streamName());
+
+            byte[] rawLatest = this.database().get(key);
+
+            if (rawLatest != null) {
+                Snapshot latest =
+                        this.serializer().deserialize(new String(rawLatest), Snapshot.class);
+
+                if (latest.streamVersion() >= aSnapshot.streamVersion()) {
+                    return;
+                }
+            }
+
+            this.database().put(key, this.serializer().serialize(aSnapshot).getBytes());
+
+        } catch (Throwable t) {
+            throw new EventStoreException(
+                    "Cannot save snapshot for: "
+                        + aSnapshot.streamName()
+                        + " because: "
+                        + t.getMessage(),
+                    t);
+        }
+    }
+
+    private LevelDBSnapshotStore(String aDirectoryPath) {
+        super();
+
+        this.setDatabasePath(aDirectoryPath);
+        this.setSerializer(ObjectSerializer.instance());
+    }
+
+    private DB database() {
+        return LevelDBProvider.instance().databaseFrom(this.databasePath());
+    }
+
+    private String databasePath() {
+        return this.databasePath;
+    }
+
+    private void setDatabasePath(String aDatabasePath) {
+        this.databasePath = aDatabasePath;
+    }
+
+    private ObjectSerializer serializer() {
+        return this.serializer;
+    }
+
+    private void setSerializer(ObjectSerializer aSerializer) {
+        this.serializer = aSerializer;
+    }
+
+    private byte[] snapshotKey(String aStreamName) {
+        return (ES_SNAPSHOT_PREFIX_KEY + aStreamName).getBytes();
+    }
+}
@@ -18,13 +18,24 @@ public class LoggableJournalEntry {
 
     private String primaryResourceName;
     private String referenceKey;
-    private String value;
+    private byte[] value;
 
     public LoggableJournalEntry(
             String aValue,
             String aReferenceKey,
             String aPrimaryResourceName) {
 
+        this(
+            aValue.getBytes(LevelDBJournal.ES_METADATA_CHARSET),
+            aReferenceKey,
+            aPrimaryResourceName);
+    }
+
+    public LoggableJournalEntry(
+            byte[] aValue,
+            String aReferenceKey,
+            String aPrimaryResourceName) {
+
         super();
 
         this.setPrimaryResourceName(aPrimaryResourceName);
@@ -40,7 +51,7 @@ public class LoggableJournalEntry {
         return this.referenceKey;
     }
 
-    public String value() {
+    public byte[] value() {
         return this.value;
     }
 
@@ -52,7 +63,7 @@ public class LoggableJournalEntry {
         this.referenceKey = aReferenceKey;
     }
 
-    private void setValue(String aValue) {
+    private void setValue(byte[] aValue) {
         this.value = aValue;
     }
 }
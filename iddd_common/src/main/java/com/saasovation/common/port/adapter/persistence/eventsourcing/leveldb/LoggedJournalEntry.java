@@ -14,17 +14,28 @@
 
 package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
 
+import java.util.Arrays;
+
+/**
+ * I am an entry read from the LevelDBJournal: my metadata values,
+ * each followed by the metadata delimiter, and then my value. My
+ * value is kept as its bytes, since it may be an event serialized
+ * in a binary format.
+ */
 public class LoggedJournalEntry {
 
+    private static final byte METADATA_DELIMITER =
+            (byte) LevelDBJournal.ES_METADATA_DELIMITER.charAt(0);
+
     private int currentMetadataIndex;
     private long journalSequence;
     private String referenceKey;
-    private String value;
+    private byte[] value;
 
     public LoggedJournalEntry(
             long aJournalSequence,
             String aReferenceKey,
-            String aValue) {
+            byte[] aValue) {
 
         super();
 
@@ -45,17 +56,21 @@ public class LoggedJournalEntry {
     public String nextMetadataValue() {
         String metadataValue = null;
 
-        String value = this.value();
+        int index = this.currentMetadataIndex();
 
-        int nextIndex =
-                value.indexOf(
-                        LevelDBJournal.ES_METADATA_DELIMITER,
-                        0);
+        for (int nextIndex = index; nextIndex < this.value.length; ++nextIndex) {
+            if (this.value[nextIndex] == METADATA_DELIMITER) {
+                metadataValue =
+                        new String(
+                                this.value,
+                                index,
+                                nextIndex - index,
+                                LevelDBJournal.ES_METADATA_CHARSET);
 
-        if (nextIndex != -1) {
-            metadataValue = value.substring(0, nextIndex);
+                this.setCurrentMetadataIndex(nextIndex + 1);
 
-            this.setCurrentMetadataIndex(nextIndex + 1);
+                break;
+            }
         }
 
         return metadataValue;
@@ -68,11 +83,15 @@ public class LoggedJournalEntry {
     public String value() {
         int index = this.currentMetadataIndex();
 
-        this.setValue(this.value.substring(index));
-
-        this.setCurrentMetadataIndex(0);
+        return new String(
+                this.value,
+                index,
+                this.value.length - index,
+                LevelDBJournal.ES_METADATA_CHARSET);
+    }
 
-        return this.value;
+    public byte[] valueBytes() {
+        return Arrays.copyOfRange(this.value, this.currentMetadataIndex(), this.value.length);
     }
 
     private int currentMetadataIndex() {
@@ -91,7 +110,7 @@ public class LoggedJournalEntry {
         this.referenceKey = aReferenceKey;
     }
 
-    private void setValue(String aValue) {
+    private void setValue(byte[] aValue) {
         this.value = aValue;
     }
 }
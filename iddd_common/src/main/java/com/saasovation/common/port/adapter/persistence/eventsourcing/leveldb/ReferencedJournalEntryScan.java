@@ -0,0 +1,104 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+
+/**
+ * I read the journal entries of the references given by my key
+ * provider, in order, with one seek and a scan of the reference
+ * keys. I end at the first reference that is not stored, just as
+ * a key-by-key probe would. I must be closed when done.
+ */
+public class ReferencedJournalEntryScan {
+
+    private DB database;
+    private DBIterator iterator;
+    private JournalKeyProvider referenceKeyProvider;
+
+    public void close() {
+        if (this.iterator != null) {
+            try {
+                this.iterator.close();
+            } catch (Throwable t) {
+                // ignore
+            } finally {
+                this.iterator = null;
+            }
+        }
+    }
+
+    public LoggedJournalEntry next() {
+        if (this.referenceKeyProvider == null) {
+            return null;
+        }
+
+        String referenceKey = this.referenceKeyProvider.nextReferenceKey();
+
+        byte[] expectedKey = JournalKeyFormat.referenceKey(referenceKey);
+
+        if (this.iterator == null) {
+            this.iterator = this.database.iterator();
+            this.iterator.seek(expectedKey);
+        }
+
+        if (!this.iterator.hasNext()) {
+            return this.end();
+        }
+
+        Entry<byte[],byte[]> reference = this.iterator.peekNext();
+
+        if (!Arrays.equals(reference.getKey(), expectedKey)) {
+            return this.end();
+        }
+
+        this.iterator.next();
+
+        long journalSequence =
+                JournalKeyFormat.journalSequenceOfReference(reference.getValue());
+
+        byte[] rawJournalValue =
+                this.database.get(JournalKeyFormat.journalKey(journalSequence));
+
+        LoggedJournalEntry loggedJournalEntry =
+            new LoggedJournalEntry(
+                    journalSequence,
+                    referenceKey,
+                    rawJournalValue);
+
+        // discard the stream key
+        loggedJournalEntry.discardNextMetadataValue();
+
+        return loggedJournalEntry;
+    }
+
+    ReferencedJournalEntryScan(DB aDatabase, JournalKeyProvider aReferenceKeyProvider) {
+        super();
+
+        this.database = aDatabase;
+        this.referenceKeyProvider = aReferenceKeyProvider;
+    }
+
+    private LoggedJournalEntry end() {
+        this.referenceKeyProvider = null;
+
+        this.close();
+
+        return null;
+    }
+}
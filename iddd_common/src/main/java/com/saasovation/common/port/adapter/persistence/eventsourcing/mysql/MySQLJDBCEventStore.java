@@ -35,7 +35,9 @@ import com.saasovation.common.event.sourcing.EventStore;
 import com.saasovation.common.event.sourcing.EventStoreAppendException;
 import com.saasovation.common.event.sourcing.EventStoreException;
 import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.AbstractEventStreamCursor;
 import com.saasovation.common.port.adapter.persistence.eventsourcing.DefaultEventStream;
 
 public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware {
@@ -64,14 +66,16 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
         // consisting of {stream_name}:{streamVersion} so that
         // appending a stale version will fail the pk constraint
 
+        // all events of the append are sent as a single JDBC batch
+        // using one prepared statement; with the driver property
+        // rewriteBatchedStatements=true the batch is further rewritten
+        // as one multi-row INSERT, so a stale version still fails the
+        // whole batch on the pk constraint
+
         Connection connection = this.connection();
 
         try {
-            int index = 0;
-
-            for (DomainEvent event : anEvents) {
-                this.appendEventStore(connection, aStartingIdentity, index++, event);
-            }
+            this.appendEventStore(connection, aStartingIdentity, anEvents);
 
             connection.commit();
 
@@ -79,7 +83,7 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
 
         } catch (Throwable t1) {
             try {
-                this.connection().rollback();
+                connection.rollback();
             } catch (Throwable t2) {
                 // ignore
             }
@@ -104,6 +108,11 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
 
     @Override
     public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent) {
+        return this.eventsSince(aLastReceivedEvent, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<DispatchableDomainEvent> eventsSince(long aLastReceivedEvent, int aMaximumEvents) {
 
         Connection connection = this.connection();
 
@@ -113,11 +122,13 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
             PreparedStatement statement =
                     connection
                         .prepareStatement(
-                                "SELECT event_id, event_body, event_type FROM tbl_es_event_store "
+                                "SELECT event_id, event_body, event_type, stream_name FROM tbl_es_event_store "
                                 + "WHERE event_id > ? "
-                                + "ORDER BY event_id");
+                                + "ORDER BY event_id "
+                                + "LIMIT ?");
 
             statement.setLong(1, aLastReceivedEvent);
+            statement.setInt(2, aMaximumEvents);
 
             result = statement.executeQuery();
 
@@ -150,6 +161,11 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
         }
     }
 
+    @Override
+    public EventStreamCursor eventStreamCursorSince(EventStreamId anIdentity) {
+        return this.openEventStreamCursor(anIdentity, false);
+    }
+
     @Override
     public EventStream eventStreamSince(EventStreamId anIdentity) {
 
@@ -209,6 +225,11 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
         }
     }
 
+    @Override
+    public EventStreamCursor fullEventStreamCursorFor(EventStreamId anIdentity) {
+        return this.openEventStreamCursor(anIdentity.withStreamVersion(1), true);
+    }
+
     @Override
     public EventStream fullEventStreamFor(EventStreamId anIdentity) {
 
@@ -255,6 +276,48 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
         }
     }
 
+    @Override
+    public long lastEventId() {
+
+        Connection connection = this.connection();
+
+        ResultSet result = null;
+
+        try {
+            PreparedStatement statement =
+                    connection
+                        .prepareStatement(
+                                "SELECT MAX(event_id) FROM tbl_es_event_store");
+
+            result = statement.executeQuery();
+
+            long lastEventId = result.next() ? result.getLong(1) : 0L;
+
+            connection.commit();
+
+            return lastEventId;
+
+        } catch (Throwable t) {
+            throw new EventStoreException(
+                    "Cannot query last event id because: "
+                        + t.getMessage(),
+                    t);
+        } finally {
+            if (result != null) {
+                try {
+                    result.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
     @Override
     public void purge() {
         Connection connection = this.connection();
@@ -285,9 +348,8 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
 
     private void appendEventStore(
             Connection aConnection,
-            EventStreamId anIdentity,
-            int anIndex,
-            DomainEvent aDomainEvent)
+            EventStreamId aStartingIdentity,
+            List<DomainEvent> anEvents)
     throws Exception {
 
         PreparedStatement statement =
@@ -295,16 +357,40 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
                     .prepareStatement(
                             "INSERT INTO tbl_es_event_store VALUES(?, ?, ?, ?, ?)");
 
-        statement.setLong(1, 0);
-        statement.setString(2, this.serializer().serialize(aDomainEvent));
-        statement.setString(3, aDomainEvent.getClass().getName());
-        statement.setString(4, anIdentity.streamName());
-        statement.setInt(5, anIdentity.streamVersion() + anIndex);
+        try {
+            int index = 0;
+
+            for (DomainEvent event : anEvents) {
+                this.appendEventStore(statement, aStartingIdentity, index++, event);
+            }
+
+            statement.executeBatch();
 
-        statement.executeUpdate();
+        } finally {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void appendEventStore(
+            PreparedStatement aStatement,
+            EventStreamId anIdentity,
+            int anIndex,
+            DomainEvent aDomainEvent)
+    throws Exception {
+
+        aStatement.setLong(1, 0);
+        aStatement.setString(2, this.serializer().serialize(aDomainEvent));
+        aStatement.setString(3, aDomainEvent.getClass().getName());
+        aStatement.setString(4, anIdentity.streamName());
+        aStatement.setInt(5, anIdentity.streamVersion() + anIndex);
+
+        aStatement.addBatch();
     }
 
-    @SuppressWarnings("unchecked")
     private List<DispatchableDomainEvent> buildEventSequence(ResultSet aResultSet) throws Exception {
 
         List<DispatchableDomainEvent> events = new ArrayList<DispatchableDomainEvent>();
@@ -316,17 +402,16 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
 
             String eventBody = aResultSet.getString("event_body");
 
-            Class<DomainEvent> eventClass = (Class<DomainEvent>) Class.forName(eventClassName);
+            DomainEvent domainEvent = this.serializer().deserialize(eventBody, eventClassName);
 
-            DomainEvent domainEvent = this.serializer().deserialize(eventBody, eventClass);
+            String streamName = aResultSet.getString("stream_name");
 
-            events.add(new DispatchableDomainEvent(eventId, domainEvent));
+            events.add(new DispatchableDomainEvent(eventId, streamName, domainEvent));
         }
 
         return events;
     }
 
-    @SuppressWarnings("unchecked")
     private EventStream buildEventStream(ResultSet aResultSet) throws Exception {
 
         List<DomainEvent> events = new ArrayList<DomainEvent>();
@@ -340,9 +425,7 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
 
             String eventBody = aResultSet.getString("event_body");
 
-            Class<DomainEvent> eventClass = (Class<DomainEvent>) Class.forName(eventClassName);
-
-            DomainEvent domainEvent = this.serializer().deserialize(eventBody, eventClass);
+            DomainEvent domainEvent = this.serializer().deserialize(eventBody, eventClassName);
 
             events.add(domainEvent);
         }
@@ -350,6 +433,54 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
         return new DefaultEventStream(events, version);
     }
 
+    private EventStreamCursor openEventStreamCursor(EventStreamId anIdentity, boolean isRequired) {
+
+        Connection connection = this.connection();
+
+        try {
+            // a forward-only, read-only statement with a fetch size
+            // of Integer.MIN_VALUE makes Connector/J stream the rows
+            // one at a time rather than buffer the whole result; the
+            // connection is held by the cursor until it is closed
+
+            PreparedStatement statement =
+                    connection
+                        .prepareStatement(
+                                "SELECT stream_version, event_type, event_body FROM tbl_es_event_store "
+                                + "WHERE stream_name = ? AND stream_version >= ? "
+                                + "ORDER BY stream_version",
+                                ResultSet.TYPE_FORWARD_ONLY,
+                                ResultSet.CONCUR_READ_ONLY);
+
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setString(1, anIdentity.streamName());
+            statement.setInt(2, anIdentity.streamVersion());
+
+            return new ResultSetEventStreamCursor(
+                    anIdentity,
+                    isRequired,
+                    connection,
+                    statement,
+                    statement.executeQuery());
+
+        } catch (Throwable t) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+
+            throw new EventStoreException(
+                    "Cannot open event stream cursor for: "
+                        + anIdentity.streamName()
+                        + " since version: "
+                        + anIdentity.streamVersion()
+                        + " because: "
+                        + t.getMessage(),
+                    t);
+        }
+    }
+
     private DataSource collaborationDataSource() {
         return this.collaborationDataSource;
     }
@@ -397,4 +528,55 @@ public class MySQLJDBCEventStore implements EventStore, ApplicationContextAware
         instance = (MySQLJDBCEventStore)
                 anApplicationContext.getBean("mysqlJdbcEventStore");
     }
+
+    private class ResultSetEventStreamCursor extends AbstractEventStreamCursor {
+
+        private Connection connection;
+        private ResultSet result;
+        private PreparedStatement statement;
+
+        ResultSetEventStreamCursor(
+                EventStreamId aStartingIdentity,
+                boolean isRequired,
+                Connection aConnection,
+                PreparedStatement aStatement,
+                ResultSet aResultSet) {
+
+            super(aStartingIdentity, isRequired);
+
+            this.connection = aConnection;
+            this.result = aResultSet;
+            this.statement = aStatement;
+        }
+
+        @Override
+        protected boolean advance() throws Exception {
+            return this.result.next();
+        }
+
+        @Override
+        protected DomainEvent currentEvent() throws Exception {
+            String eventClassName = this.result.getString("event_type");
+
+            String eventBody = this.result.getString("event_body");
+
+            return serializer().deserialize(eventBody, eventClassName);
+        }
+
+        @Override
+        protected int currentVersion() throws Exception {
+            return this.result.getInt("stream_version");
+        }
+
+        @Override
+        protected void release() throws Exception {
+            try {
+                this.result.close();
+                this.statement.close();
+                this.connection.commit();
+            } finally {
+                this.connection.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,210 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import com.saasovation.common.event.sourcing.EventStoreException;
+import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.event.sourcing.Snapshot;
+import com.saasovation.common.event.sourcing.SnapshotStore;
+
+public class MySQLJDBCSnapshotStore implements SnapshotStore, ApplicationContextAware {
+
+    private static MySQLJDBCSnapshotStore instance;
+
+    private DataSource dataSource;
+
+    public synchronized static MySQLJDBCSnapshotStore instance() {
+        return instance;
+    }
+
+    public MySQLJDBCSnapshotStore(DataSource aDataSource) {
+        super();
+
+        this.setDataSource(aDataSource);
+    }
+
+    @Override
+    public void close() {
+        // no-op
+    }
+
+    @Override
+    public Snapshot latestSnapshotOf(EventStreamId anIdentity) {
+
+        Connection connection = this.connection();
+
+        ResultSet result = null;
+
+        try {
+            PreparedStatement statement =
+                    connection
+                        .prepareStatement(
+                                "SELECT stream_version, snapshot_type, snapshot_state FROM tbl_es_snapshot_store "
+                                + "WHERE stream_name = ?");
+
+            statement.setString(1, anIdentity.streamName());
+
+            result = statement.executeQuery();
+
+            Snapshot snapshot = null;
+
+            if (result.next()) {
+                snapshot =
+                        new Snapshot(
+                                anIdentity.streamName(),
+                                result.getInt("stream_version"),
+                                result.getString("snapshot_type"),
+                                result.getString("snapshot_state"));
+            }
+
+            connection.commit();
+
+            return snapshot;
+
+        } catch (Throwable t) {
+            throw new EventStoreException(
+                    "Cannot query snapshot for: "
+                        + anIdentity.streamName()
+                        + " because: "
+                        + t.getMessage(),
+                    t);
+        } finally {
+            if (result != null) {
+                try {
+                    result.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    @Override
+    public void purge() {
+        Connection connection = this.connection();
+
+        try {
+            connection.createStatement().execute("delete from tbl_es_snapshot_store");
+
+            connection.commit();
+
+        } catch (Throwable t) {
+            throw new EventStoreException(
+                    "Problem purging snapshot store because: "
+                        + t.getMessage(),
+                    t);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    @Override
+    public void save(Snapshot aSnapshot) {
+
+        // a snapshot only replaces an older one; the state
+        // columns must be assigned before stream_version
+
+        Connection connection = this.connection();
+
+        try {
+            PreparedStatement statement =
+                    connection
+                        .prepareStatement(
+                                "INSERT INTO tbl_es_snapshot_store VALUES(?, ?, ?, ?) "
+                                + "ON DUPLICATE KEY UPDATE "
+                                + "snapshot_type = IF(VALUES(stream_version) > stream_version, VALUES(snapshot_type), snapshot_type), "
+                                + "snapshot_state = IF(VALUES(stream_version) > stream_version, VALUES(snapshot_state), snapshot_state), "
+                                + "stream_version = GREATEST(VALUES(stream_version), stream_version)");
+
+            statement.setString(1, aSnapshot.streamName());
+            statement.setInt(2, aSnapshot.streamVersion());
+            statement.setString(3, aSnapshot.snapshotType());
+            statement.setString(4, aSnapshot.snapshotState());
+
+            statement.executeUpdate();
+
+            statement.close();
+
+            connection.commit();
+
+        } catch (Throwable t1) {
+            try {
+                connection.rollback();
+            } catch (Throwable t2) {
+                // ignore
+            }
+
+            throw new EventStoreException(
+                    "Cannot save snapshot for: "
+                        + aSnapshot.streamName()
+                        + " because: "
+                        + t1.getMessage(),
+                    t1);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    private Connection connection() {
+        Connection connection = null;
+
+        try {
+            connection = this.dataSource().getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot acquire database connection.");
+        }
+
+        return connection;
+    }
+
+    private DataSource dataSource() {
+        return this.dataSource;
+    }
+
+    private void setDataSource(DataSource aDataSource) {
+        this.dataSource = aDataSource;
+    }
+
+    @Override
+    public synchronized void setApplicationContext(
+            ApplicationContext anApplicationContext)
+    throws BeansException {
+        instance = (MySQLJDBCSnapshotStore)
+                anApplicationContext.getBean("mysqlJdbcSnapshotStore");
+    }
+}
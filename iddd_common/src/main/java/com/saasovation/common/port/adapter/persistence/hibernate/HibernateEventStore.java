@@ -75,6 +75,30 @@ public class HibernateEventStore
         return storedEvents;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount) {
+        Query query =
+                this.session().createQuery(
+                        "from StoredEvent as _obj_ "
+                        + "where _obj_.eventId > ? "
+                        + "order by _obj_.eventId");
+
+        query.setParameter(0, aStoredEventId);
+        query.setMaxResults(aMaximumCount);
+        query.setReadOnly(true);
+
+        List<StoredEvent> storedEvents = query.list();
+
+        // the session need not hold on to the pages already read
+
+        for (StoredEvent storedEvent : storedEvents) {
+            this.session().evict(storedEvent);
+        }
+
+        return storedEvents;
+    }
+
     @Override
     public StoredEvent append(DomainEvent aDomainEvent) {
         String eventSerialization =
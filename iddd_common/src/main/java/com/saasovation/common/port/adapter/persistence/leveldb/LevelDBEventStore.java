@@ -14,55 +14,61 @@
 
 package com.saasovation.common.port.adapter.persistence.leveldb;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.iq80.leveldb.DB;
 
 import com.saasovation.common.domain.model.DomainEvent;
-import com.saasovation.common.event.EventSerializer;
 import com.saasovation.common.event.EventStore;
+import com.saasovation.common.event.EventTypeRegistry;
 import com.saasovation.common.event.StoredEvent;
-
+import com.saasovation.common.serializer.FormattedSerializer;
+
+/**
+ * I am an EventStore for LevelDB. I keep each event as its type
+ * name, followed by the event serialized by my FormattedSerializer,
+ * which leads it with the id of its format. Events are thus kept
+ * in the configured format, binary or JSON, and need not be read
+ * through a JSON body. Events stored before then, as whole JSON
+ * StoredEvents, are still read.
+ */
 public class LevelDBEventStore
         extends AbstractLevelDBRepository
         implements EventStore {
 
+    public static final String LEASE_PROPERTY_NAME = "leveldb.eventStore.leaseMillis";
+
     private static final String PRIMARY = "ES_EVT_PK:";
     private static final byte[] INTERNAL_EVENT_ID = "ES_EVT_EID".getBytes();
+    private static final byte TYPE_NAME_DELIMITER = '#';
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
-    private AtomicLong storedEventIdSequence = new AtomicLong();
+    private FormattedSerializer serializer;
+    private StoredEventIdSequence storedEventIdSequence;
 
     public LevelDBEventStore(String aDirectoryPath) {
+        this(aDirectoryPath, FormattedSerializer.instance());
+    }
+
+    public LevelDBEventStore(String aDirectoryPath, FormattedSerializer aSerializer) {
         super(aDirectoryPath);
 
+        this.serializer = aSerializer;
+
         this.prepareDatabase();
     }
 
     @Override
     public List<StoredEvent> allStoredEventsBetween(long aLowStoredEventId, long aHighStoredEventId) {
-        int elements = (int) (aHighStoredEventId - aLowStoredEventId + 1);
-
-        List<StoredEvent> storedEvents = new ArrayList<StoredEvent>(elements);
-
-        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
-
-        boolean done = false;
-        for (long idSequence = aLowStoredEventId; !done && idSequence <= aHighStoredEventId; ++idSequence) {
-            StoredEvent storedEvent =
-                    uow.readObject(
-                            (PRIMARY + idSequence).getBytes(),
-                            StoredEvent.class);
-
-            if (storedEvent != null) {
-                storedEvents.add(storedEvent);
-            } else {
-                done = true;
-            }
-        }
-
-        return storedEvents;
+        return this.readStoredEvents(aLowStoredEventId, aHighStoredEventId, Integer.MAX_VALUE);
     }
 
     @Override
@@ -71,33 +77,57 @@ public class LevelDBEventStore
     }
 
     @Override
-    public StoredEvent append(DomainEvent aDomainEvent) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY);
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount) {
+
+        // the ids of rolled back and abandoned events leave gaps, so
+        // the scan continues past them to the committed watermark
+        // until aMaximumCount events are found. a shorter page then
+        // means there is nothing more to read, not just a gap.
 
+        return this.readStoredEvents(aStoredEventId + 1, Long.MAX_VALUE, aMaximumCount);
+    }
+
+    @Override
+    public StoredEvent append(DomainEvent aDomainEvent) {
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
 
-        uow.lock(lockKey.key());
+        // the id is reserved without a lock and settled when the
+        // unit of work commits or rolls back, whichever comes. it
+        // is leased, so one never settled is given up in time, and
+        // the commit then fails rather than write it after readers
+        // have passed it by
+
+        final StoredEventIdSequence sequence = this.storedEventIdSequence();
+        final long storedEventId = sequence.reserve(Long.getLong(LEASE_PROPERTY_NAME, 60000L));
 
-        String eventSerialization =
-                EventSerializer.instance().serialize(aDomainEvent);
+        uow.beforeCommit(new Runnable() {
+            @Override
+            public void run() {
+                sequence.claim(storedEventId);
+            }
+        });
 
-        StoredEvent storedEvent =
-                new StoredEvent(
-                        aDomainEvent.getClass().getName(),
-                        aDomainEvent.occurredOn(),
-                        eventSerialization,
-                        this.nextStoredEventIdSequence());
+        uow.afterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                sequence.settle(storedEventId);
+            }
+        });
 
-        this.save(storedEvent, uow);
+        uow.writeObjectAsBytes((PRIMARY + storedEventId).getBytes(), this.recordOf(aDomainEvent));
 
-        return storedEvent;
+        return new StoredEvent(aDomainEvent, storedEventId);
     }
 
     @Override
     public void close() {
+
+        // ids reserved but never committed are saved as used, so
+        // none is reserved again for an event committed after them
+
         this.database().put(
                 INTERNAL_EVENT_ID,
-                ("" + this.currentStoredEventIdSequence()).getBytes());
+                ("" + this.storedEventIdSequence().reservedThrough()).getBytes());
     }
 
     @Override
@@ -129,15 +159,9 @@ public class LevelDBEventStore
     }
 
     private long currentStoredEventIdSequence() {
-        long nextStoredEventIdSequence = this.storedEventIdSequence.get();
+        long currentStoredEventIdSequence = this.storedEventIdSequence().committedThrough();
 
-        return nextStoredEventIdSequence;
-    }
-
-    private long nextStoredEventIdSequence() {
-        long nextStoredEventIdSequence = this.storedEventIdSequence.incrementAndGet();
-
-        return nextStoredEventIdSequence;
+        return currentStoredEventIdSequence;
     }
 
     private void prepareDatabase() {
@@ -154,12 +178,79 @@ public class LevelDBEventStore
         }
     }
 
-    private void setStoredEventIdSequence(long aStoredEventIdSequence) {
-        this.storedEventIdSequence = new AtomicLong(aStoredEventIdSequence);
+    private List<StoredEvent> readStoredEvents(
+            long aLowStoredEventId,
+            long aHighStoredEventId,
+            int aMaximumCount) {
+
+        // events are read only through the committed watermark, below
+        // which every id was either committed or abandoned by a rollback,
+        // so a missing event is skipped rather than awaited
+
+        long highStoredEventId = Math.min(aHighStoredEventId, this.currentStoredEventIdSequence());
+
+        long elements = Math.max(0L, Math.min(aMaximumCount, highStoredEventId - aLowStoredEventId + 1));
+
+        List<StoredEvent> storedEvents = new ArrayList<StoredEvent>((int) elements);
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.readOnly(this.database());
+
+        for (long idSequence = aLowStoredEventId;
+                idSequence <= highStoredEventId && storedEvents.size() < aMaximumCount;
+                ++idSequence) {
+
+            byte[] record = uow.readObjectAsBytes((PRIMARY + idSequence).getBytes());
+
+            if (record != null) {
+                storedEvents.add(this.storedEventOf(idSequence, record));
+            }
+        }
+
+        return storedEvents;
     }
 
-    private void save(StoredEvent aStoredEvent, LevelDBUnitOfWork aUoW) {
-        aUoW.write((PRIMARY + aStoredEvent.eventId()).getBytes(), aStoredEvent);
+    private byte[] recordOf(DomainEvent aDomainEvent) {
+        byte[] typeName = aDomainEvent.getClass().getName().getBytes(UTF_8);
+        byte[] serialization = this.serializer.serialize(aDomainEvent);
+
+        byte[] record = Arrays.copyOf(typeName, typeName.length + 1 + serialization.length);
+
+        record[typeName.length] = TYPE_NAME_DELIMITER;
+
+        System.arraycopy(serialization, 0, record, typeName.length + 1, serialization.length);
+
+        return record;
+    }
+
+    private StoredEvent storedEventOf(long aStoredEventId, byte[] aRecord) {
+
+        // a record stored before events were kept by type name is a
+        // whole StoredEvent, as JSON text or led by its format id
+
+        if (aRecord[0] == '{' || FormattedSerializer.isFormatted(aRecord)) {
+            return this.serializer.deserialize(aRecord, StoredEvent.class);
+        }
+
+        int delimiter = 0;
+
+        while (aRecord[delimiter] != TYPE_NAME_DELIMITER) {
+            ++delimiter;
+        }
+
+        Class<DomainEvent> eventType =
+                EventTypeRegistry.instance().typeOf(new String(aRecord, 0, delimiter, UTF_8));
+
+        DomainEvent domainEvent = this.serializer.deserialize(aRecord, delimiter + 1, eventType);
+
+        return new StoredEvent(domainEvent, aStoredEventId);
+    }
+
+    private StoredEventIdSequence storedEventIdSequence() {
+        return this.storedEventIdSequence;
+    }
+
+    private void setStoredEventIdSequence(long aStoredEventIdSequence) {
+        this.storedEventIdSequence = new StoredEventIdSequence(aStoredEventIdSequence);
     }
 
     public class RepairTool {
@@ -184,10 +275,14 @@ public class LevelDBEventStore
 
             System.out.println("REPAIRING EVENT STORE...");
 
-            boolean cleanUpMode = false;
+            // units of work commit their events out of id order, so
+            // a missing id is one that was abandoned, or reserved by a
+            // unit of work that never committed, and the events after
+            // it are kept. readers skip it as they skip rolled back ids.
+
             int contiguousMissingKeys = 0;
             boolean done = false;
-            long lastContiguousConfirmedKey = 0;
+            long lastConfirmedKey = 0;
 
             for (long idSequence = 1; !done; ++idSequence) {
                 byte[] sequenceKey = (PRIMARY + idSequence).getBytes();
@@ -195,31 +290,26 @@ public class LevelDBEventStore
                 byte[] rawSequenceValue = database().get(sequenceKey);
 
                 if (rawSequenceValue == null) {
-                    cleanUpMode = true;
-
                     if (++contiguousMissingKeys >= CONTIGUOUS_MISSING_KEY_SAFE_COUNT) {
                         done = true;
                     }
 
                 } else {
-                    if (!cleanUpMode) {
-                        lastContiguousConfirmedKey = idSequence;
-                    } else {
-                        contiguousMissingKeys = 0;
-
-                        try {
-                            database().delete(sequenceKey);
+                    if (contiguousMissingKeys > 0) {
+                        System.out.println(
+                                "Abandoned journal entries: "
+                                + (idSequence - contiguousMissingKeys)
+                                + " through "
+                                + (idSequence - 1));
+                    }
 
-                            System.out.println("Repaired journal entry: " + idSequence);
+                    contiguousMissingKeys = 0;
 
-                        } catch (Throwable t) {
-                            System.out.println("Could not repair journal entry: " + idSequence);
-                        }
-                    }
+                    lastConfirmedKey = idSequence;
                 }
             }
 
-            this.setLastConfirmedSequence(lastContiguousConfirmedKey);
+            this.setLastConfirmedSequence(lastConfirmedKey);
         }
 
         private void setLastConfirmedSequence(long aLastConfirmedSequence) {
@@ -251,4 +341,111 @@ public class LevelDBEventStore
             return requiresRepairProbe;
         }
     }
+
+    /**
+     * I reserve stored event ids, each with a single atomic increment,
+     * and answer the watermark through which every id reserved has
+     * been settled, by the commit or the rollback of the unit of work
+     * that reserved it. Ids are settled out of order, so those beyond
+     * the watermark wait until the run before them is settled.
+     *
+     * Each id is leased until its unit of work claims it to commit.
+     * An id whose lease runs out unclaimed, as that of a unit of work
+     * abandoned without a rollback, is settled as abandoned, and its
+     * claim then fails, so a watermark passed is never written below.
+     */
+    private static class StoredEventIdSequence {
+
+        /** My id through which all ids reserved are settled. */
+        private long committedThrough;
+
+        /** My ids reserved and not yet claimed, by their lease expiry time. */
+        private ConcurrentMap<Long, Long> leases;
+
+        /** My highest id reserved. */
+        private AtomicLong reservedThrough;
+
+        /** My ids settled beyond committedThrough. */
+        private NavigableSet<Long> settled;
+
+        StoredEventIdSequence(long aStoredEventIdSequence) {
+            super();
+
+            this.committedThrough = aStoredEventIdSequence;
+            this.leases = new ConcurrentHashMap<Long, Long>();
+            this.reservedThrough = new AtomicLong(aStoredEventIdSequence);
+            this.settled = new TreeSet<Long>();
+        }
+
+        /**
+         * Claims aStoredEventId to be committed, which it must be
+         * before its lease runs out.
+         * @param aStoredEventId the long id reserved
+         * @throws IllegalStateException if its lease ran out
+         */
+        synchronized void claim(long aStoredEventId) {
+            if (this.leases.remove(aStoredEventId) == null) {
+                throw new IllegalStateException(
+                        "The lease of stored event id "
+                            + aStoredEventId
+                            + " ran out before its unit of work committed.");
+            }
+        }
+
+        synchronized long committedThrough() {
+            long committedThrough = this.committedThrough;
+
+            long now = System.currentTimeMillis();
+
+            while (true) {
+                long next = committedThrough + 1L;
+
+                if (this.settled.remove(next)) {
+                    ++committedThrough;
+                    continue;
+                }
+
+                // an id neither leased nor settled is being committed,
+                // or is reserved but not yet leased, and is waited on
+
+                Long leaseExpiry = this.leases.get(next);
+
+                if (leaseExpiry == null || leaseExpiry > now) {
+                    break;
+                }
+
+                this.leases.remove(next);
+
+                ++committedThrough;
+            }
+
+            this.committedThrough = committedThrough;
+
+            return committedThrough;
+        }
+
+        long reservedThrough() {
+            return this.reservedThrough.get();
+        }
+
+        long reserve(long aLeaseMillis) {
+            long storedEventId = this.reservedThrough.incrementAndGet();
+
+            this.leases.put(storedEventId, System.currentTimeMillis() + aLeaseMillis);
+
+            return storedEventId;
+        }
+
+        synchronized void settle(long aStoredEventId) {
+            this.leases.remove(aStoredEventId);
+
+            // an id given up when its lease ran out was settled then
+
+            if (aStoredEventId > this.committedThrough) {
+                this.settled.add(aStoredEventId);
+            }
+
+            this.committedThrough();
+        }
+    }
 }
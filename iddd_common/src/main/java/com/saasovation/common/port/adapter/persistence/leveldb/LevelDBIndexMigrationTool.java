@@ -0,0 +1,188 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.WriteBatch;
+
+import com.google.gson.reflect.TypeToken;
+import com.saasovation.common.serializer.BinarySerializationFormat;
+import com.saasovation.common.serializer.FormattedSerializer;
+import com.saasovation.common.serializer.JSONSerializationFormat;
+
+/**
+ * I migrate the indexes of the given categories from a single key
+ * holding the set of all primary keys indexed to one key per entry,
+ * as written by LevelDBUnitOfWork.updateIndexEntry(). Each batch of
+ * entries is written together with the deletion of the sets it
+ * replaces, so an interrupted migration simply continues on the next
+ * open. A marker key is written for each category migrated; such a
+ * category is skipped.
+ */
+public class LevelDBIndexMigrationTool {
+
+    private static final String MIGRATED_PREFIX_KEY = "LEVELDB#INDEX:";
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+
+    private static final Type REFERENCE_SET_TYPE = new TypeToken<HashSet<Object>>() { }.getType();
+
+    private String[] categories;
+    private DB database;
+    private long migratedKeys;
+
+    public LevelDBIndexMigrationTool(DB aDatabase, String... aCategories) {
+        super();
+
+        this.setCategories(aCategories);
+        this.setDatabase(aDatabase);
+    }
+
+    public long migratedKeys() {
+        return this.migratedKeys;
+    }
+
+    public void migrateDatabase() {
+
+        for (String category : this.categories()) {
+            byte[] migratedKey = (MIGRATED_PREFIX_KEY + category).getBytes();
+
+            if (this.database().get(migratedKey) == null) {
+                this.migrateKeysWithPrefix(category + ':');
+
+                this.database().put(migratedKey, new byte[0]);
+            }
+        }
+
+        if (this.migratedKeys() > 0) {
+            LevelDBValueCache.of(this.database()).clear();
+
+            System.out.println(
+                    "MIGRATED LEVELDB INDEX KEYS: " + this.migratedKeys());
+        }
+    }
+
+    private String[] categories() {
+        return this.categories;
+    }
+
+    private void setCategories(String[] aCategories) {
+        this.categories = aCategories;
+    }
+
+    private DB database() {
+        return this.database;
+    }
+
+    private void setDatabase(DB aDatabase) {
+        this.database = aDatabase;
+    }
+
+    private boolean isReferenceSet(byte[] aValue) {
+
+        // a set is a JSON array, possibly preceded by the id of
+        // its serialization format; an entry holds a primary key
+
+        return aValue.length > 0
+                && (aValue[0] == '['
+                    || aValue[0] == JSONSerializationFormat.FORMAT_ID
+                    || aValue[0] == BinarySerializationFormat.FORMAT_ID);
+    }
+
+    private void migrate(WriteBatch aBatch, String aKey, byte[] aValue) {
+
+        // {index key} -> [{primary key}, ...] becomes
+        // {index key}:{last primary key segment} -> {primary key}
+
+        Set<Object> primaryKeys =
+                FormattedSerializer.instance().deserialize(aValue, REFERENCE_SET_TYPE);
+
+        for (Object primaryKey : primaryKeys) {
+            String primaryKeyValue = primaryKey.toString();
+
+            aBatch.put(
+                    (aKey + ':' + LevelDBKey.lastSegmentOf(primaryKeyValue)).getBytes(),
+                    primaryKeyValue.getBytes());
+        }
+
+        aBatch.delete(aKey.getBytes());
+
+        ++this.migratedKeys;
+    }
+
+    private void migrateKeysWithPrefix(String aPrefix) {
+
+        byte[] prefix = aPrefix.getBytes();
+
+        DBIterator iterator =
+                this.database().iterator(
+                        LevelDBProvider.instance().tuningProfileOf(this.database()).scanReadOptions());
+
+        try {
+            iterator.seek(prefix);
+
+            boolean done = false;
+
+            while (!done) {
+                WriteBatch batch = this.database().createWriteBatch();
+
+                try {
+                    int batchSize = 0;
+
+                    while (batchSize < MIGRATION_BATCH_SIZE && !done) {
+                        if (iterator.hasNext()) {
+                            Entry<byte[],byte[]> entry = iterator.next();
+
+                            String key = new String(entry.getKey());
+
+                            if (!key.startsWith(aPrefix)) {
+                                done = true;
+                            } else if (this.isReferenceSet(entry.getValue())) {
+                                this.migrate(batch, key, entry.getValue());
+
+                                ++batchSize;
+                            }
+                        } else {
+                            done = true;
+                        }
+                    }
+
+                    if (batchSize > 0) {
+                        this.database().write(batch);
+                    }
+
+                } finally {
+                    try {
+                        batch.close();
+                    } catch (Throwable t) {
+                        // ignore
+                    }
+                }
+            }
+
+        } finally {
+            try {
+                iterator.close();
+            } catch (Throwable t) {
+                // ignore
+            }
+        }
+    }
+}
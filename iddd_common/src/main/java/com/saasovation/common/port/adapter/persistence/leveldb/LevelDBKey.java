@@ -69,6 +69,24 @@ public class LevelDBKey {
         return this.cachedKey;
     }
 
+    /**
+     * Answers the key of my entry in the index I name, which is my
+     * key followed by the last segment of my primary key. All entries
+     * of my index share the prefix answered by indexPrefix().
+     * @return String
+     */
+    public String indexEntryKey() {
+        return this.indexPrefix() + lastSegmentOf(this.primaryKeyValue());
+    }
+
+    /**
+     * Answers the prefix shared by all entries of the index I name.
+     * @return String
+     */
+    public String indexPrefix() {
+        return this.key() + ':';
+    }
+
     public byte[] keyAsBytes() {
         if (this.cachedKeyBytes == null) {
             this.cachedKeyBytes = this.key().getBytes();
@@ -96,6 +114,10 @@ public class LevelDBKey {
         this.segments().add(aSegment);
     }
 
+    static String lastSegmentOf(String aKey) {
+        return aKey.substring(aKey.lastIndexOf(':') + 1);
+    }
+
     private String category() {
         return this.category;
     }
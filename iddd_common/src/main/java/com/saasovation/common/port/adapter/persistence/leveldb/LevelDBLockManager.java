@@ -0,0 +1,181 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.util.NavigableSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * I lock the keys of LevelDB units of work, such as the primary key
+ * of an aggregate being saved or the key of an index being rewritten,
+ * with a fixed number of lock stripes. Each key locks the stripe of
+ * its hash, so my memory is bounded however many keys are locked, at
+ * the cost of unrelated keys sharing a stripe now and then.
+ *
+ * A unit of work holds its stripes until it commits or rolls back.
+ * A stripe above all those held is waited for, but one below them is
+ * waited for only so long, as two units of work taking stripes in
+ * opposite orders could otherwise wait on each other forever. If it
+ * stays busy the unit of work fails rather than releasing what it
+ * holds, which would let another change what it has already read.
+ *
+ * The number of stripes is given by the system property
+ * leveldb.lock.stripes, 1024 by default, the wait for a lower stripe
+ * by leveldb.lock.timeoutMillis, 1000 by default, and optimistic
+ * concurrency version checks are made at commit when
+ * leveldb.lock.versionChecked is true.
+ */
+public class LevelDBLockManager {
+
+    public static final String STRIPES_PROPERTY_NAME = "leveldb.lock.stripes";
+    public static final String TIMEOUT_PROPERTY_NAME = "leveldb.lock.timeoutMillis";
+    public static final String VERSION_CHECKED_PROPERTY_NAME = "leveldb.lock.versionChecked";
+
+    private static LevelDBLockManager instance;
+
+    private int mask;
+    private ReentrantLock[] stripes;
+
+    public static synchronized LevelDBLockManager instance() {
+        if (instance == null) {
+            instance = new LevelDBLockManager(Integer.getInteger(STRIPES_PROPERTY_NAME, 1024));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Constructs my default state of at least aStripeCount stripes,
+     * rounded up to a power of two.
+     * @param aStripeCount the int minimum number of stripes
+     */
+    public LevelDBLockManager(int aStripeCount) {
+        super();
+
+        if (aStripeCount < 1) {
+            throw new IllegalArgumentException("The stripe count must be at least 1.");
+        }
+
+        int stripeCount = Integer.highestOneBit(aStripeCount);
+
+        if (stripeCount < aStripeCount) {
+            stripeCount <<= 1;
+        }
+
+        this.mask = stripeCount - 1;
+        this.stripes = new ReentrantLock[stripeCount];
+
+        for (int idx = 0; idx < stripeCount; ++idx) {
+            this.stripes[idx] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Answers whether or not units of work check the concurrency
+     * versions of what they write before they commit.
+     * @return boolean
+     */
+    public boolean isVersionChecked() {
+        return Boolean.getBoolean(VERSION_CHECKED_PROPERTY_NAME);
+    }
+
+    /**
+     * Locks the stripe of aLockKey, adding it to aHeldStripes, which
+     * are those held by the calling unit of work.
+     * @param aHeldStripes the NavigableSet<Integer> of stripes held
+     * @param aLockKey the String key to lock
+     * @throws IllegalStateException if a stripe below those held stays busy
+     */
+    public void lock(NavigableSet<Integer> aHeldStripes, String aLockKey) {
+        int stripe = this.stripeOf(aLockKey);
+
+        if (aHeldStripes.contains(stripe)) {
+            return;
+        }
+
+        if (aHeldStripes.isEmpty() || stripe > aHeldStripes.last()) {
+            this.stripes[stripe].lock();
+
+        } else if (!this.tryLock(stripe)) {
+            throw new IllegalStateException(
+                    "Concurrency Violation: Lock of "
+                        + aLockKey
+                        + " is held by another unit of work.");
+        }
+
+        aHeldStripes.add(stripe);
+    }
+
+    /**
+     * Answers the number of my stripes.
+     * @return int
+     */
+    public int stripeCount() {
+        return this.stripes.length;
+    }
+
+    /**
+     * Answers the stripe that locks aLockKey.
+     * @param aLockKey the String key
+     * @return int
+     */
+    public int stripeOf(String aLockKey) {
+        int hash = aLockKey.hashCode();
+
+        // spreads the higher bits into the lower ones kept by my mask
+
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+        return hash & this.mask;
+    }
+
+    /**
+     * Answers the number of milliseconds a stripe below those held is
+     * waited for.
+     * @return long
+     */
+    public long timeoutMillis() {
+        return Long.getLong(TIMEOUT_PROPERTY_NAME, 1000L);
+    }
+
+    /**
+     * Unlocks aHeldStripes, which remain in the set.
+     * @param aHeldStripes the NavigableSet<Integer> of stripes held
+     */
+    public void unlock(NavigableSet<Integer> aHeldStripes) {
+        for (int stripe : aHeldStripes.descendingSet()) {
+            this.stripes[stripe].unlock();
+        }
+    }
+
+    /**
+     * Answers whether or not aStripe was locked within my timeoutMillis.
+     * @param aStripe the int stripe to lock
+     * @return boolean
+     */
+    private boolean tryLock(int aStripe) {
+        try {
+            return this.stripes[aStripe].tryLock(this.timeoutMillis(), TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+}
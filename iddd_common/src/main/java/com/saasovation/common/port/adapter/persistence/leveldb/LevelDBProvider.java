@@ -23,10 +23,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.iq80.leveldb.DB;
-import org.iq80.leveldb.DBFactory;
 import org.iq80.leveldb.DBIterator;
-import org.iq80.leveldb.Options;
-import org.iq80.leveldb.impl.Iq80DBFactory;
 
 import com.saasovation.common.event.sourcing.EventStoreException;
 
@@ -35,6 +32,7 @@ public class LevelDBProvider {
     private static LevelDBProvider instance;
 
     private Map<String,DB> databases;
+    private Map<DB,LevelDBTuningProfile> tuningProfiles;
 
     public static synchronized LevelDBProvider instance() {
         if (instance == null) {
@@ -50,6 +48,9 @@ public class LevelDBProvider {
 
             if (db != null) {
                 this.databases.remove(aDirectoryPath);
+                this.tuningProfiles.remove(db);
+
+                LevelDBValueCache.discard(db);
 
                 try {
                     db.close();
@@ -75,15 +76,33 @@ public class LevelDBProvider {
     }
 
     public DB databaseFrom(String aDirectoryPath) {
+        return this.databaseFrom(aDirectoryPath, null);
+    }
+
+    /**
+     * Answers the database in aDirectoryPath, opened with
+     * aTuningProfile if not yet open, or with its configured
+     * profile if aTuningProfile is null.
+     * @param aDirectoryPath the String path of the database directory
+     * @param aTuningProfile the LevelDBTuningProfile to open it with, or null
+     * @return DB
+     */
+    public DB databaseFrom(String aDirectoryPath, LevelDBTuningProfile aTuningProfile) {
         DB db = null;
 
         synchronized (this.databases) {
             db = this.databases.get(aDirectoryPath);
 
             if (db == null) {
-                db = this.openDatabase(aDirectoryPath);
+                LevelDBTuningProfile tuningProfile =
+                        aTuningProfile == null
+                            ? LevelDBTuningProfile.configured(aDirectoryPath)
+                            : aTuningProfile;
+
+                db = this.openDatabase(aDirectoryPath, tuningProfile);
 
                 this.databases.put(aDirectoryPath, db);
+                this.tuningProfiles.put(db, tuningProfile);
             }
         }
 
@@ -92,7 +111,7 @@ public class LevelDBProvider {
 
     public void purge(DB aDatabase) {
 
-        DBIterator iterator = aDatabase.iterator();
+        DBIterator iterator = aDatabase.iterator(this.tuningProfileOf(aDatabase).scanReadOptions());
 
         try {
             iterator.seekToFirst();
@@ -103,6 +122,8 @@ public class LevelDBProvider {
                 aDatabase.delete(entry.getKey());
             }
 
+            LevelDBValueCache.of(aDatabase).clear();
+
         } catch (Throwable t) {
             throw new EventStoreException(
                     "Cannot purge LevelDB database: because: "
@@ -117,22 +138,40 @@ public class LevelDBProvider {
         }
     }
 
+    /**
+     * Answers the tuning profile that aDatabase was opened with, or
+     * the defaults if it was not opened by me.
+     * @param aDatabase the DB whose profile is answered
+     * @return LevelDBTuningProfile
+     */
+    public LevelDBTuningProfile tuningProfileOf(DB aDatabase) {
+        LevelDBTuningProfile tuningProfile = null;
+
+        synchronized (this.databases) {
+            tuningProfile = this.tuningProfiles.get(aDatabase);
+        }
+
+        if (tuningProfile == null) {
+            tuningProfile = LevelDBTuningProfile.defaults();
+        }
+
+        return tuningProfile;
+    }
+
     private LevelDBProvider() {
         super();
 
         this.databases = new HashMap<String,DB>();
+        this.tuningProfiles = new HashMap<DB,LevelDBTuningProfile>();
     }
 
-    private DB openDatabase(String aDirectoryPath) {
+    private DB openDatabase(String aDirectoryPath, LevelDBTuningProfile aTuningProfile) {
 
         try {
-            DBFactory factory = new Iq80DBFactory();
-
-            Options options = new Options();
-
-            options.createIfMissing(true);
-
-            DB db = factory.open(new File(aDirectoryPath), options);
+            DB db =
+                    aTuningProfile.dbFactory().open(
+                            new File(aDirectoryPath),
+                            aTuningProfile.options());
 
             return db;
 
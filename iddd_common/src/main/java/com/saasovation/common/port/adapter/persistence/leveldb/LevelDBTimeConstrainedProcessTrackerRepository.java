@@ -66,12 +66,8 @@ public class LevelDBTimeConstrainedProcessTrackerRepository
 
     @Override
     public void save(TimeConstrainedProcessTracker aTimeConstrainedProcessTracker) {
-        LevelDBKey lockKey = new LevelDBKey(PRIMARY);
-
         LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
 
-        uow.lock(lockKey.key());
-
         this.save(aTimeConstrainedProcessTracker, uow);
     }
 
@@ -161,6 +157,8 @@ public class LevelDBTimeConstrainedProcessTrackerRepository
                         aTimeConstrainedProcessTracker.tenantId(),
                         aTimeConstrainedProcessTracker.processId().id());
 
+        aUoW.lock(primaryKey.key());
+
         aUoW.write(primaryKey, aTimeConstrainedProcessTracker);
 
         LevelDBKey allTrackers =
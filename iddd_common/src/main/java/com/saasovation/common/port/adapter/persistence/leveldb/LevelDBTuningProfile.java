@@ -0,0 +1,312 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.io.File;
+
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.DBFactory;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+
+/**
+ * I am the tuning of one LevelDB database: the Options it is opened
+ * with, the ReadOptions it is read with, and the DBFactory that opens
+ * it. Scans, such as reading all entries of an index, may be kept
+ * from filling the block cache so that they do not evict what single
+ * reads keep hot.
+ *
+ * A configured profile takes each setting from the system property
+ * leveldb.options.{database}.{setting}, where {database} is the name
+ * of the database directory, else from leveldb.options.{setting},
+ * else the LevelDB default. The settings are cacheSize, writeBufferSize
+ * and blockSize in bytes, compression (NONE or SNAPPY), and the
+ * booleans verifyChecksums, fillCacheOnScans and paranoidChecks.
+ *
+ * The factory is given the same way by leveldb.factory: iq80 for the
+ * pure Java implementation, jni for the native leveldbjni, or the name
+ * of any DBFactory class. By default, auto, leveldbjni is used when it
+ * is on the classpath and iq80 otherwise. The iq80 implementation has
+ * no block cache, so it ignores cacheSize and fillCacheOnScans.
+ */
+public class LevelDBTuningProfile {
+
+    public static final String FACTORY_PROPERTY_NAME = "leveldb.factory";
+    public static final String OPTIONS_PROPERTY_PREFIX = "leveldb.options.";
+
+    public static final String AUTO_FACTORY = "auto";
+    public static final String IQ80_FACTORY = "iq80";
+    public static final String JNI_FACTORY = "jni";
+
+    private static final String JNI_FACTORY_CLASS_NAME = "org.fusesource.leveldbjni.JniDBFactory";
+
+    private int blockSize;
+    private long cacheSize;
+    private CompressionType compressionType;
+    private String factoryName;
+    private boolean fillCacheOnScans;
+    private boolean paranoidChecks;
+    private boolean verifyChecksums;
+    private int writeBufferSize;
+
+    /**
+     * Answers the profile of the database in aDirectoryPath as
+     * configured by system properties.
+     * @param aDirectoryPath the String path of the database directory
+     * @return LevelDBTuningProfile
+     */
+    public static LevelDBTuningProfile configured(String aDirectoryPath) {
+        String database = new File(aDirectoryPath).getName();
+
+        LevelDBTuningProfile defaults = defaults();
+
+        return new LevelDBTuningProfile(
+                Long.parseLong(setting(database, "cacheSize", Long.toString(defaults.cacheSize()))),
+                Integer.parseInt(setting(database, "writeBufferSize", Integer.toString(defaults.writeBufferSize()))),
+                Integer.parseInt(setting(database, "blockSize", Integer.toString(defaults.blockSize()))),
+                CompressionType.valueOf(setting(database, "compression", defaults.compressionType().name()).toUpperCase()),
+                Boolean.parseBoolean(setting(database, "verifyChecksums", Boolean.toString(defaults.isVerifyingChecksums()))),
+                Boolean.parseBoolean(setting(database, "fillCacheOnScans", Boolean.toString(defaults.isFillingCacheOnScans()))),
+                Boolean.parseBoolean(setting(database, "paranoidChecks", Boolean.toString(defaults.isParanoidChecking()))),
+                System.getProperty(FACTORY_PROPERTY_NAME, AUTO_FACTORY).trim());
+    }
+
+    /**
+     * Answers the profile of LevelDB's own defaults, with the factory
+     * chosen automatically.
+     * @return LevelDBTuningProfile
+     */
+    public static LevelDBTuningProfile defaults() {
+        Options options = new Options();
+
+        return new LevelDBTuningProfile(
+                options.cacheSize(),
+                options.writeBufferSize(),
+                options.blockSize(),
+                options.compressionType(),
+                options.verifyChecksums(),
+                true,
+                options.paranoidChecks(),
+                AUTO_FACTORY);
+    }
+
+    public LevelDBTuningProfile(
+            long aCacheSize,
+            int aWriteBufferSize,
+            int aBlockSize,
+            CompressionType aCompressionType,
+            boolean isVerifyingChecksums,
+            boolean isFillingCacheOnScans,
+            boolean isParanoidChecking,
+            String aFactoryName) {
+
+        super();
+
+        this.setBlockSize(aBlockSize);
+        this.setCacheSize(aCacheSize);
+        this.setCompressionType(aCompressionType);
+        this.setFactoryName(aFactoryName);
+        this.setFillingCacheOnScans(isFillingCacheOnScans);
+        this.setParanoidChecking(isParanoidChecking);
+        this.setVerifyingChecksums(isVerifyingChecksums);
+        this.setWriteBufferSize(aWriteBufferSize);
+    }
+
+    public int blockSize() {
+        return this.blockSize;
+    }
+
+    public long cacheSize() {
+        return this.cacheSize;
+    }
+
+    public CompressionType compressionType() {
+        return this.compressionType;
+    }
+
+    /**
+     * Answers a new instance of the DBFactory named by my factoryName.
+     * @return DBFactory
+     */
+    public DBFactory dbFactory() {
+        String factoryName = this.factoryName();
+
+        if (IQ80_FACTORY.equalsIgnoreCase(factoryName)) {
+            return new Iq80DBFactory();
+        }
+
+        if (JNI_FACTORY.equalsIgnoreCase(factoryName)) {
+            return this.dbFactoryOf(JNI_FACTORY_CLASS_NAME);
+        }
+
+        if (AUTO_FACTORY.equalsIgnoreCase(factoryName)) {
+            try {
+                Class.forName(JNI_FACTORY_CLASS_NAME);
+
+                return this.dbFactoryOf(JNI_FACTORY_CLASS_NAME);
+
+            } catch (ClassNotFoundException e) {
+                return new Iq80DBFactory();
+            }
+        }
+
+        return this.dbFactoryOf(factoryName);
+    }
+
+    public String factoryName() {
+        return this.factoryName;
+    }
+
+    public boolean isFillingCacheOnScans() {
+        return this.fillCacheOnScans;
+    }
+
+    public boolean isParanoidChecking() {
+        return this.paranoidChecks;
+    }
+
+    public boolean isVerifyingChecksums() {
+        return this.verifyChecksums;
+    }
+
+    /**
+     * Answers new Options to open a database with, which is created
+     * if missing.
+     * @return Options
+     */
+    public Options options() {
+        return new Options()
+                .createIfMissing(true)
+                .cacheSize(this.cacheSize())
+                .writeBufferSize(this.writeBufferSize())
+                .blockSize(this.blockSize())
+                .compressionType(this.compressionType())
+                .verifyChecksums(this.isVerifyingChecksums())
+                .paranoidChecks(this.isParanoidChecking());
+    }
+
+    /**
+     * Answers new ReadOptions for reading single values.
+     * @return ReadOptions
+     */
+    public ReadOptions readOptions() {
+        return new ReadOptions()
+                .verifyChecksums(this.isVerifyingChecksums());
+    }
+
+    /**
+     * Answers new ReadOptions for scanning many entries.
+     * @return ReadOptions
+     */
+    public ReadOptions scanReadOptions() {
+        return new ReadOptions()
+                .verifyChecksums(this.isVerifyingChecksums())
+                .fillCache(this.isFillingCacheOnScans());
+    }
+
+    @Override
+    public String toString() {
+        return "LevelDBTuningProfile [cacheSize=" + this.cacheSize()
+                + ", writeBufferSize=" + this.writeBufferSize()
+                + ", blockSize=" + this.blockSize()
+                + ", compressionType=" + this.compressionType()
+                + ", verifyChecksums=" + this.isVerifyingChecksums()
+                + ", fillCacheOnScans=" + this.isFillingCacheOnScans()
+                + ", paranoidChecks=" + this.isParanoidChecking()
+                + ", factoryName=" + this.factoryName() + "]";
+    }
+
+    public int writeBufferSize() {
+        return this.writeBufferSize;
+    }
+
+    private static String setting(String aDatabase, String aSetting, String aDefaultValue) {
+        String value = System.getProperty(OPTIONS_PROPERTY_PREFIX + aDatabase + "." + aSetting);
+
+        if (value == null) {
+            value = System.getProperty(OPTIONS_PROPERTY_PREFIX + aSetting, aDefaultValue);
+        }
+
+        return value.trim();
+    }
+
+    private DBFactory dbFactoryOf(String aClassName) {
+        try {
+            return (DBFactory) Class.forName(aClassName).getDeclaredConstructor().newInstance();
+
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Cannot create LevelDB factory: "
+                        + aClassName
+                        + " because: "
+                        + e.getMessage(),
+                    e);
+        }
+    }
+
+    private void setBlockSize(int aBlockSize) {
+        if (aBlockSize < 1) {
+            throw new IllegalArgumentException("The block size must be at least 1.");
+        }
+
+        this.blockSize = aBlockSize;
+    }
+
+    private void setCacheSize(long aCacheSize) {
+        if (aCacheSize < 0L) {
+            throw new IllegalArgumentException("The cache size must not be negative.");
+        }
+
+        this.cacheSize = aCacheSize;
+    }
+
+    private void setCompressionType(CompressionType aCompressionType) {
+        if (aCompressionType == null) {
+            throw new IllegalArgumentException("The compression type must be provided.");
+        }
+
+        this.compressionType = aCompressionType;
+    }
+
+    private void setFactoryName(String aFactoryName) {
+        if (aFactoryName == null || aFactoryName.isEmpty()) {
+            throw new IllegalArgumentException("The factory name must be provided.");
+        }
+
+        this.factoryName = aFactoryName;
+    }
+
+    private void setFillingCacheOnScans(boolean isFillingCacheOnScans) {
+        this.fillCacheOnScans = isFillingCacheOnScans;
+    }
+
+    private void setParanoidChecking(boolean isParanoidChecking) {
+        this.paranoidChecks = isParanoidChecking;
+    }
+
+    private void setVerifyingChecksums(boolean isVerifyingChecksums) {
+        this.verifyChecksums = isVerifyingChecksums;
+    }
+
+    private void setWriteBufferSize(int aWriteBufferSize) {
+        if (aWriteBufferSize < 1) {
+            throw new IllegalArgumentException("The write buffer size must be at least 1.");
+        }
+
+        this.writeBufferSize = aWriteBufferSize;
+    }
+}
@@ -14,22 +14,28 @@
 
 package com.saasovation.common.port.adapter.persistence.leveldb;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.TreeSet;
 
 import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 
 import com.google.gson.reflect.TypeToken;
-import com.saasovation.common.serializer.ObjectSerializer;
+import com.saasovation.common.serializer.FormattedSerializer;
 
 /**
  *<h3>工作单元</h3>
@@ -38,15 +44,21 @@ import com.saasovation.common.serializer.ObjectSerializer;
  */
 public class LevelDBUnitOfWork {
 
-    private static Map<String,ReentrantLock> keyLocks = new ConcurrentHashMap<String,ReentrantLock>();
-
     private static ThreadLocal<LevelDBUnitOfWork> unitsOfWork =  new ThreadLocal<LevelDBUnitOfWork>();
 
     private WriteBatch batch;
+    private List<Runnable> commitActions;
+    private List<Runnable> committedActions;
+    private List<Runnable> completionActions;
     private DB database;
-    private List<ReentrantLock> locks;
+    private Map<ByteBuffer,Integer> expectedVersions;
+    private Map<ByteBuffer,IdentityEntry> identityMap;
+    private LevelDBLockManager lockManager;
+    private NavigableSet<Integer> lockedStripes;
     private Map<String,Set<Object>> referenceKeys;
-    private ObjectSerializer serializer;
+    private FormattedSerializer serializer;
+    private LevelDBTuningProfile tuningProfile;
+    private LevelDBValueCache valueCache;
 
 
     /**
@@ -100,22 +112,112 @@ public class LevelDBUnitOfWork {
         return uow;
     }
 
+    /**
+     *<h3>登记完成后的动作</h3>
+     *<p>动作在工作单元提交或回滚并释放锁之后执行一次，按登记的顺序。</p>
+     *@param anAction 完成后执行的动作
+     */
+    public void afterCompletion(Runnable anAction) {
+        if (this.completionActions == null) {
+            this.completionActions = new ArrayList<Runnable>();
+        }
+
+        this.completionActions.add(anAction);
+    }
+
+    /**
+     *<h3>登记提交后的动作</h3>
+     *<p>动作仅在批次写入成功、工作单元关闭并执行完成后的动作之后执行一次，按登记的顺序。
+     *回滚时不执行。</p>
+     *@param anAction 提交后执行的动作
+     */
+    public void afterCommit(Runnable anAction) {
+        if (this.committedActions == null) {
+            this.committedActions = new ArrayList<Runnable>();
+        }
+
+        this.committedActions.add(anAction);
+    }
+
+    /**
+     *<h3>登记提交前的动作</h3>
+     *<p>动作在写入批次之前执行，按登记的顺序。动作抛出异常时本工作单元被回滚，
+     *异常被重新抛出。</p>
+     *@param anAction 提交前执行的动作
+     */
+    public void beforeCommit(Runnable anAction) {
+        if (this.commitActions == null) {
+            this.commitActions = new ArrayList<Runnable>();
+        }
+
+        this.commitActions.add(anAction);
+    }
+
     public void commit() {
-        this.database.write(this.batch);
+        boolean written = false;
+
+        try {
+            if (this.expectedVersions != null && this.lockManager.isVersionChecked()) {
+                this.failWhenConcurrencyViolation();
+            }
+
+            if (this.commitActions != null) {
+                for (Runnable action : this.commitActions) {
+                    action.run();
+                }
+            }
+
+            this.database.write(this.batch);
+
+            written = true;
+
+        } finally {
+
+            // a failed commit is rolled back, so that what waits on
+            // its completion is not left waiting on a unit of work
+            // that its owner may abandon
+
+            if (!written) {
+                this.close();
+            }
+        }
+
+        List<Runnable> committedActions = this.committedActions;
+
+        this.valueCache.invalidate(this.stagedKeys());
 
         this.close();
+
+        if (committedActions != null) {
+            for (Runnable action : committedActions) {
+                action.run();
+            }
+        }
     }
 
+    /**
+     *<h3>锁定键</h3>
+     *<p>锁定键所在的条带，直到提交或回滚。低于已持有条带的条带在超时后仍被占用时，
+     *本工作单元被回滚，并抛出异常。</p>
+     *@param aLockKey 锁定的键，通常为聚合的主键
+     */
     public void lock(String aLockKey) {
-        ReentrantLock lock = this.findKeyLock(aLockKey);
+        try {
+            this.lockManager.lock(this.lockedStripes, aLockKey);
 
-        this.locks.add(lock);
+        } catch (IllegalStateException e) {
+            this.close();
 
-        lock.lock();
+            throw e;
+        }
     }
 
     public byte[] readObjectAsBytes(LevelDBKey aKey) {
-        return this.database.get(aKey.keyAsBytes());
+        return this.readObjectAsBytes(aKey.keyAsBytes());
+    }
+
+    public byte[] readObjectAsBytes(byte[] aKey) {
+        return this.read(aKey);
     }
 
     public <T> T readObject(LevelDBKey aKey, Class<T> aType) {
@@ -123,15 +225,65 @@ public class LevelDBUnitOfWork {
     }
 
     public <T> T readObject(byte[] aKey, Class<T> aType) {
-        byte[] objectBytes = this.database.get(aKey);
+        IdentityEntry entry = this.identityEntryOf(aKey);
 
-        T object = null;
+        if (entry != null) {
+            return this.objectOf(entry, aType);
+        }
+
+        return this.mapObject(aKey, this.valueCache.get(this.database, aKey), aType);
+    }
+
+    /**
+     *<h3>读取索引的全部对象</h3>
+     *<p>按前缀遍历索引{@link LevelDBKey#indexPrefix()}的每个条目，再读取条目所指的对象，
+     *两者读自同一个快照。本工作单元写入批次的条目与对象也可读到。</p>
+     *@param anIndexKey 索引的键
+     *@param aType 对象的类型
+     *@return
+     */
+    public <T> List<T> readIndexedObjects(LevelDBKey anIndexKey, Class<T> aType) {
+        Snapshot snapshot = this.database.getSnapshot();
+
+        long invalidationCount = this.valueCache.invalidationCount();
 
-        if (objectBytes != null) {
-            object = this.serializer.deserialize(new String(objectBytes), aType);
+        try {
+            ReadOptions readOptions = this.tuningProfile.scanReadOptions().snapshot(snapshot);
+
+            return this.readObjects(
+                    this.readIndex(anIndexKey, readOptions),
+                    aType,
+                    readOptions,
+                    invalidationCount);
+
+        } finally {
+            this.closeQuietly(snapshot);
         }
+    }
 
-        return object;
+    /**
+     *<h3>批量读取对象</h3>
+     *<p>从同一个快照读取全部键的对象，不存在的键被略过。快照之后尚无提交时，
+     *共享缓存的值即快照的值，可以使用。</p>
+     *@param aKeys 对象的键
+     *@param aType 对象的类型
+     *@return
+     */
+    public <T> List<T> readObjects(List<byte[]> aKeys, Class<T> aType) {
+        Snapshot snapshot = this.database.getSnapshot();
+
+        long invalidationCount = this.valueCache.invalidationCount();
+
+        try {
+            return this.readObjects(
+                    aKeys,
+                    aType,
+                    this.tuningProfile.scanReadOptions().snapshot(snapshot),
+                    invalidationCount);
+
+        } finally {
+            this.closeQuietly(snapshot);
+        }
     }
 
     public Object readKey(LevelDBKey aKey) {
@@ -152,18 +304,40 @@ public class LevelDBUnitOfWork {
 
     public void remove(LevelDBKey aPrimaryKey) {
         this.batch.delete(aPrimaryKey.keyAsBytes());
+
+        this.stage(aPrimaryKey.keyAsBytes(), null, null);
+
+        byte[] versionKey = versionKeyOf(aPrimaryKey);
+
+        this.batch.delete(versionKey);
+
+        this.stage(versionKey, null, null);
+    }
+
+    /**
+     *<h3>删除索引条目</h3>
+     *@param anIndexKey 带有主键的索引的键
+     */
+    public void removeIndexEntry(LevelDBKey anIndexKey) {
+        byte[] entryKey = anIndexKey.indexEntryKey().getBytes();
+
+        this.batch.delete(entryKey);
+
+        this.stage(entryKey, null, null);
     }
 
     public void removeKeyReference(LevelDBKey aKey) {
+        this.lock(aKey.key());
+
         Set<Object> allValues = this.loadReferenceKeyValues(aKey);
 
         if (allValues.remove(aKey.primaryKeyValue())) {
             if (allValues.isEmpty()) {
                 this.batch.delete(aKey.keyAsBytes());
-            } else {
-                String serializedValue = this.serializer.serialize(allValues);
 
-                this.batch.put(aKey.keyAsBytes(), serializedValue.getBytes());
+                this.stage(aKey.keyAsBytes(), null, null);
+            } else {
+                this.write(aKey.keyAsBytes(), allValues);
             }
         }
     }
@@ -172,26 +346,85 @@ public class LevelDBUnitOfWork {
         this.close();
     }
 
+    /**
+     *<h3>写入索引条目</h3>
+     *<p>条目的键为{@link LevelDBKey#indexEntryKey()}，值为主键，
+     *因此写入一个条目不必读取和重写整个索引。</p>
+     *@param anIndexKey 带有主键的索引的键
+     */
+    public void updateIndexEntry(LevelDBKey anIndexKey) {
+        byte[] entryKey = anIndexKey.indexEntryKey().getBytes();
+        byte[] primaryKey = anIndexKey.primaryKeyValue().getBytes();
+
+        this.batch.put(entryKey, primaryKey);
+
+        this.stage(entryKey, primaryKey, null);
+    }
+
     public void updateKeyReference(LevelDBKey aKey) {
+        this.lock(aKey.key());
+
         Set<Object> allValues = this.loadReferenceKeyValues(aKey);
 
         allValues.add(aKey.primaryKeyValue());
 
-        String serializedValue = this.serializer.serialize(allValues);
-
-        this.batch.put(aKey.keyAsBytes(), serializedValue.getBytes());
+        this.write(aKey.keyAsBytes(), allValues);
     }
 
     public void write(LevelDBKey aKey, Object aValue) {
-        String serializedValue = this.serializer.serialize(aValue);
-
-        this.batch.put(aKey.keyAsBytes(), serializedValue.getBytes());
+        this.write(aKey.keyAsBytes(), aValue);
     }
 
     public void write(byte[] aKey, Object aValue) {
-        String serializedValue = this.serializer.serialize(aValue);
+        byte[] serializedValue = this.serializer.serialize(aValue);
+
+        this.batch.put(aKey, serializedValue);
 
-        this.batch.put(aKey, serializedValue.getBytes());
+        this.stage(aKey, serializedValue, aValue);
+    }
+
+    /**
+     *<h3>写入已序列化的对象</h3>
+     *<p>字节原样写入批次，不经本工作单元的序列化器，供自行编码其值的存储使用，
+     *以{@link #readObjectAsBytes(byte[])}读回。</p>
+     *@param aKey 对象的键
+     *@param anObjectBytes 对象已序列化的字节
+     */
+    public void writeObjectAsBytes(byte[] aKey, byte[] anObjectBytes) {
+        this.batch.put(aKey, anObjectBytes);
+
+        this.stage(aKey, anObjectBytes, null);
+    }
+
+    /**
+     *<h3>写入带并发版本的对象</h3>
+     *<p>对象的并发版本另存于主键之后加"#V"的键中。开启版本检查时，提交前确认
+     *其已提交的版本仍是本工作单元首次写入时读到的版本，否则提交失败。</p>
+     *@param aPrimaryKey 已锁定的主键
+     *@param aValue 以新并发版本写入的对象
+     *@param aReadVersion 读取对象时的并发版本
+     *@param aNewVersion 提交后对象的并发版本
+     */
+    public void writeVersioned(LevelDBKey aPrimaryKey, Object aValue, int aReadVersion, int aNewVersion) {
+        this.write(aPrimaryKey, aValue);
+
+        byte[] versionKey = versionKeyOf(aPrimaryKey);
+
+        if (this.expectedVersions == null) {
+            this.expectedVersions = new HashMap<ByteBuffer,Integer>();
+        }
+
+        ByteBuffer expectedVersionKey = ByteBuffer.wrap(versionKey);
+
+        if (!this.expectedVersions.containsKey(expectedVersionKey)) {
+            this.expectedVersions.put(expectedVersionKey, aReadVersion);
+        }
+
+        byte[] version = Integer.toString(aNewVersion).getBytes();
+
+        this.batch.put(versionKey, version);
+
+        this.stage(versionKey, version, null);
     }
 
     private LevelDBUnitOfWork(DB aDatabase) {
@@ -206,64 +439,85 @@ public class LevelDBUnitOfWork {
         }
 
         this.database = aDatabase;
-        this.locks = new ArrayList<ReentrantLock>(1);
+        this.lockManager = LevelDBLockManager.instance();
+        this.lockedStripes = new TreeSet<Integer>();
         this.referenceKeys = new HashMap<String,Set<Object>>();
-        this.serializer = ObjectSerializer.instance();
+        this.serializer = FormattedSerializer.instance();
+        this.tuningProfile = LevelDBProvider.instance().tuningProfileOf(aDatabase);
+        this.valueCache = LevelDBValueCache.of(aDatabase);
     }
 
     private void createWriteBatch(DB aDatabase) {
         if (this.batch == null) {
             this.batch = aDatabase.createWriteBatch();
+            this.identityMap = new HashMap<ByteBuffer,IdentityEntry>();
         }
     }
 
     private void close() {
         unitsOfWork.set(null);
 
-        if (this.batch != null) {
-            try {
-                this.batch.close();
-                this.batch = null;
-            } catch (IOException e) {
-                throw new IllegalStateException("Cannot close unit of work.");
+        this.commitActions = null;
+        this.committedActions = null;
+        this.expectedVersions = null;
+        this.identityMap = null;
+
+        try {
+            if (this.batch != null) {
+                try {
+                    this.batch.close();
+                    this.batch = null;
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot close unit of work.");
+                }
             }
-        }
+        } finally {
+            if (!this.lockedStripes.isEmpty()) {
+                this.lockManager.unlock(this.lockedStripes);
 
-        if (!this.locks.isEmpty()) {
-            for (ReentrantLock lock : this.locks) {
-                while (lock.getHoldCount() > 0) {
-                    lock.unlock();
-                }
+                this.lockedStripes.clear();
             }
 
-            this.locks.clear();
+            if (this.completionActions != null) {
+                List<Runnable> actions = this.completionActions;
+
+                this.completionActions = null;
+
+                for (Runnable action : actions) {
+                    action.run();
+                }
+            }
         }
     }
 
-    private ReentrantLock findKeyLock(String aLockKey) {
-        ReentrantLock lock = keyLocks.get(aLockKey);
+    private void failWhenConcurrencyViolation() {
+        for (Map.Entry<ByteBuffer,Integer> expectedVersion : this.expectedVersions.entrySet()) {
+            byte[] committedVersion = this.database.get(expectedVersion.getKey().array());
 
-        if (lock == null) {
-            lock = new ReentrantLock();
+            // an object without a committed version has not been
+            // written since it was new or versions were first kept
 
-            keyLocks.put(aLockKey, lock);
-        }
+            if (committedVersion != null
+                    && Integer.parseInt(new String(committedVersion)) != expectedVersion.getValue()) {
 
-        return lock;
+                throw new IllegalStateException(
+                        "Concurrency Violation: Stale data detected. Entity was already modified.");
+            }
+        }
     }
 
     private Set<Object> loadReferenceKeyValues(LevelDBKey aKey) {
         Set<Object> allValues = this.referenceKeys.get(aKey.key());
 
         if (allValues == null) {
-            byte[] currentValues = this.database.get(aKey.keyAsBytes());
+            byte[] currentValues = this.read(aKey.keyAsBytes());
 
             if (currentValues == null) {
                 allValues = new HashSet<Object>();
             } else {
                 Type listType = new TypeToken<HashSet<Object>>() { }.getType();
 
-                allValues = this.serializer.deserialize(new String(currentValues), listType);
+                allValues = this.serializer.deserialize(currentValues, listType);
             }
 
             this.referenceKeys.put(aKey.key(), allValues);
@@ -271,4 +525,193 @@ public class LevelDBUnitOfWork {
 
         return allValues;
     }
+
+    private void closeQuietly(Closeable aCloseable) {
+        try {
+            aCloseable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private IdentityEntry identityEntryOf(byte[] aKey) {
+        if (this.identityMap == null) {
+            return null;
+        }
+
+        return this.identityMap.get(ByteBuffer.wrap(aKey));
+    }
+
+    private <T> T mapObject(byte[] aKey, byte[] anObjectBytes, Class<T> aType) {
+        T object = null;
+
+        if (anObjectBytes != null) {
+            object = this.serializer.deserialize(anObjectBytes, aType);
+        }
+
+        if (this.identityMap != null) {
+            this.identityMap.put(ByteBuffer.wrap(aKey), new IdentityEntry(anObjectBytes, object, false));
+        }
+
+        return object;
+    }
+
+    private <T> T objectOf(IdentityEntry anEntry, Class<T> aType) {
+        this.valueCache.recordIdentityMapHit();
+
+        if (anEntry.bytes == null) {
+            return null;
+        }
+
+        if (!aType.isInstance(anEntry.object)) {
+            anEntry.object = this.serializer.deserialize(anEntry.bytes, aType);
+        }
+
+        return aType.cast(anEntry.object);
+    }
+
+    private byte[] read(byte[] aKey) {
+        IdentityEntry entry = this.identityEntryOf(aKey);
+
+        if (entry != null) {
+            this.valueCache.recordIdentityMapHit();
+
+            return entry.bytes;
+        }
+
+        return this.valueCache.get(this.database, aKey);
+    }
+
+    private List<byte[]> readIndex(LevelDBKey anIndexKey, ReadOptions aReadOptions) {
+        byte[] prefix = anIndexKey.indexPrefix().getBytes();
+
+        List<Map.Entry<byte[],byte[]>> storedEntries = new ArrayList<Map.Entry<byte[],byte[]>>();
+
+        DBIterator iterator = this.database.iterator(aReadOptions);
+
+        try {
+            for (iterator.seek(prefix); iterator.hasNext(); ) {
+                Map.Entry<byte[],byte[]> entry = iterator.next();
+
+                if (!startsWith(entry.getKey(), prefix)) {
+                    break;
+                }
+
+                storedEntries.add(entry);
+            }
+        } finally {
+            this.closeQuietly(iterator);
+        }
+
+        if (this.identityMap == null || this.identityMap.isEmpty()) {
+            List<byte[]> primaryKeys = new ArrayList<byte[]>(storedEntries.size());
+
+            for (Map.Entry<byte[],byte[]> entry : storedEntries) {
+                primaryKeys.add(entry.getValue());
+            }
+
+            return primaryKeys;
+        }
+
+        // entries staged by me replace those stored
+
+        Map<ByteBuffer,byte[]> entries = new LinkedHashMap<ByteBuffer,byte[]>();
+
+        for (Map.Entry<byte[],byte[]> entry : storedEntries) {
+            entries.put(ByteBuffer.wrap(entry.getKey()), entry.getValue());
+        }
+
+        for (Map.Entry<ByteBuffer,IdentityEntry> entry : this.identityMap.entrySet()) {
+            if (entry.getValue().staged && startsWith(entry.getKey().array(), prefix)) {
+                if (entry.getValue().bytes == null) {
+                    entries.remove(entry.getKey());
+                } else {
+                    entries.put(entry.getKey(), entry.getValue().bytes);
+                }
+            }
+        }
+
+        return new ArrayList<byte[]>(entries.values());
+    }
+
+    private <T> List<T> readObjects(
+            List<byte[]> aKeys,
+            Class<T> aType,
+            ReadOptions aReadOptions,
+            long anInvalidationCount) {
+
+        List<T> objects = new ArrayList<T>(aKeys.size());
+
+        for (byte[] key : aKeys) {
+            IdentityEntry entry = this.identityEntryOf(key);
+
+            T object =
+                    entry != null
+                        ? this.objectOf(entry, aType)
+                        : this.mapObject(
+                            key,
+                            this.valueCache.get(this.database, key, aReadOptions, anInvalidationCount),
+                            aType);
+
+            if (object != null) {
+                objects.add(object);
+            }
+        }
+
+        return objects;
+    }
+
+    private void stage(byte[] aKey, byte[] aBytes, Object anObject) {
+        this.identityMap.put(ByteBuffer.wrap(aKey), new IdentityEntry(aBytes, anObject, true));
+    }
+
+    private List<ByteBuffer> stagedKeys() {
+        List<ByteBuffer> stagedKeys = new ArrayList<ByteBuffer>();
+
+        for (Map.Entry<ByteBuffer,IdentityEntry> entry : this.identityMap.entrySet()) {
+            if (entry.getValue().staged) {
+                stagedKeys.add(entry.getKey());
+            }
+        }
+
+        return stagedKeys;
+    }
+
+    private static byte[] versionKeyOf(LevelDBKey aPrimaryKey) {
+        return (aPrimaryKey.key() + "#V").getBytes();
+    }
+
+    private static boolean startsWith(byte[] aKey, byte[] aPrefix) {
+        if (aKey.length < aPrefix.length) {
+            return false;
+        }
+
+        for (int idx = 0; idx < aPrefix.length; ++idx) {
+            if (aKey[idx] != aPrefix[idx]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     *<h3>身份映射的条目</h3>
+     *<p>一个键在本工作单元中读到或写入的值，包括其字节与对象。
+     *字节为null表示该键不存在或已被删除。staged表示已写入批次。</p>
+     */
+    private static class IdentityEntry {
+
+        private byte[] bytes;
+        private Object object;
+        private boolean staged;
+
+        IdentityEntry(byte[] aBytes, Object anObject, boolean isStaged) {
+            super();
+
+            this.bytes = aBytes;
+            this.object = anObject;
+            this.staged = isStaged;
+        }
+    }
 }
@@ -0,0 +1,275 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.ReadOptions;
+
+/**
+ * I am the shared read cache of one DB, holding the committed values
+ * of keys read through any LevelDBUnitOfWork, and that a key is absent.
+ * I hold values as their stored bytes, as the objects deserialized
+ * from them belong to the unit of work that read them and may be
+ * changed by it.
+ *
+ * I am bounded by the total bytes of my keys and values, evicting
+ * those least recently read. A unit of work invalidates the keys it
+ * wrote once it commits. A value read from the DB before such an
+ * invalidation but not yet cached is discarded rather than cached,
+ * so I never hold a value older than one committed.
+ *
+ * The size of each cache is given by the system property
+ * leveldb.cache.bytes, 16 MB by default, and 0 disables caching.
+ * Values not held are read with the ReadOptions of the tuning profile
+ * that the DB was opened with.
+ */
+public class LevelDBValueCache {
+
+    public static final String PROPERTY_NAME = "leveldb.cache.bytes";
+
+    private static final byte[] ABSENT = new byte[0];
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private static final ConcurrentMap<DB, LevelDBValueCache> caches =
+            new ConcurrentHashMap<DB, LevelDBValueCache>();
+
+    private long capacity;
+    private AtomicLong evictionCount;
+    private AtomicLong hitCount;
+    private AtomicLong identityMapHitCount;
+    private long invalidationCount;
+    private AtomicLong missCount;
+    private ReadOptions readOptions;
+    private long size;
+    private Map<ByteBuffer, byte[]> values;
+
+    /**
+     * Answers the cache of aDatabase, created on first use.
+     * @param aDatabase the DB whose values are cached
+     * @return LevelDBValueCache
+     */
+    public static LevelDBValueCache of(DB aDatabase) {
+        LevelDBValueCache cache = caches.get(aDatabase);
+
+        if (cache == null) {
+            cache = new LevelDBValueCache(
+                    Long.getLong(PROPERTY_NAME, 16L * 1024L * 1024L),
+                    LevelDBProvider.instance().tuningProfileOf(aDatabase).readOptions());
+
+            LevelDBValueCache existingCache = caches.putIfAbsent(aDatabase, cache);
+
+            if (existingCache != null) {
+                cache = existingCache;
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Discards the cache of aDatabase, which is being closed.
+     * @param aDatabase the DB whose cache is discarded
+     */
+    public static void discard(DB aDatabase) {
+        caches.remove(aDatabase);
+    }
+
+    public synchronized void clear() {
+        ++this.invalidationCount;
+
+        this.values.clear();
+        this.size = 0L;
+    }
+
+    public long evictionCount() {
+        return this.evictionCount.get();
+    }
+
+    public long hitCount() {
+        return this.hitCount.get();
+    }
+
+    public double hitRatio() {
+        long hits = this.hitCount();
+        long reads = hits + this.missCount();
+
+        return reads == 0L ? 0.0d : (double) hits / reads;
+    }
+
+    /**
+     * Answers the number of reads answered by the identity map of a
+     * unit of work without asking me, counted here so that both
+     * levels of caching are measured together.
+     * @return long
+     */
+    public long identityMapHitCount() {
+        return this.identityMapHitCount.get();
+    }
+
+    public long missCount() {
+        return this.missCount.get();
+    }
+
+    public synchronized long size() {
+        return this.size;
+    }
+
+    @Override
+    public String toString() {
+        return "LevelDBValueCache [size=" + this.size() + ", capacity=" + this.capacity
+                + ", hitCount=" + this.hitCount() + ", missCount=" + this.missCount()
+                + ", identityMapHitCount=" + this.identityMapHitCount()
+                + ", evictionCount=" + this.evictionCount() + "]";
+    }
+
+    /**
+     * Answers the committed value of aKey in aDatabase, or null if
+     * it has none, from me if I hold it or else read from aDatabase.
+     * @param aDatabase the DB that I cache
+     * @param aKey the byte[] key to read
+     * @return byte[]
+     */
+    byte[] get(DB aDatabase, byte[] aKey) {
+        return this.get(aDatabase, aKey, null, 0L);
+    }
+
+    /**
+     * Answers the value of aKey in aDatabase as of the snapshot of
+     * aReadOptions, or null if it had none. My values answer it only
+     * while no commit has invalidated any since anInvalidationCount,
+     * taken once the snapshot was, as until then they are those of
+     * the snapshot.
+     * @param aDatabase the DB that I cache
+     * @param aKey the byte[] key to read
+     * @param aReadOptions the ReadOptions of the snapshot, or null for the latest value
+     * @param anInvalidationCount the long answered by invalidationCount() after the snapshot was taken
+     * @return byte[]
+     */
+    byte[] get(DB aDatabase, byte[] aKey, ReadOptions aReadOptions, long anInvalidationCount) {
+        ByteBuffer cacheKey = ByteBuffer.wrap(aKey);
+
+        long invalidationCount;
+
+        synchronized (this) {
+            invalidationCount = aReadOptions == null ? this.invalidationCount : anInvalidationCount;
+
+            if (invalidationCount == this.invalidationCount) {
+                byte[] value = this.values.get(cacheKey);
+
+                if (value != null) {
+                    this.hitCount.incrementAndGet();
+
+                    return value == ABSENT ? null : value;
+                }
+            }
+        }
+
+        this.missCount.incrementAndGet();
+
+        byte[] value =
+                aDatabase.get(
+                        aKey,
+                        aReadOptions == null ? this.readOptions : aReadOptions);
+
+        synchronized (this) {
+            if (invalidationCount == this.invalidationCount) {
+                this.put(cacheKey, value == null ? ABSENT : value);
+            }
+        }
+
+        return value;
+    }
+
+    synchronized long invalidationCount() {
+        return this.invalidationCount;
+    }
+
+    /**
+     * Invalidates aKeys, which a unit of work has just committed.
+     * @param aKeys the Collection<ByteBuffer> of keys written or removed
+     */
+    synchronized void invalidate(Collection<ByteBuffer> aKeys) {
+        ++this.invalidationCount;
+
+        for (ByteBuffer key : aKeys) {
+            byte[] value = this.values.remove(key);
+
+            if (value != null) {
+                this.size -= this.sizeOf(key, value);
+            }
+        }
+    }
+
+    void recordIdentityMapHit() {
+        this.identityMapHitCount.incrementAndGet();
+    }
+
+    private LevelDBValueCache(long aCapacity, ReadOptions aReadOptions) {
+        super();
+
+        this.capacity = aCapacity;
+        this.evictionCount = new AtomicLong();
+        this.hitCount = new AtomicLong();
+        this.identityMapHitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.readOptions = aReadOptions;
+        this.values = new LinkedHashMap<ByteBuffer, byte[]>(256, 0.75f, true);
+    }
+
+    /**
+     * Caches aValue of aKey and evicts the least recently read values
+     * beyond my capacity. Called while holding my lock.
+     */
+    private void put(ByteBuffer aKey, byte[] aValue) {
+        long valueSize = this.sizeOf(aKey, aValue);
+
+        if (valueSize > this.capacity / 8) {
+            return;
+        }
+
+        byte[] replaced = this.values.put(aKey, aValue);
+
+        this.size += valueSize;
+
+        if (replaced != null) {
+            this.size -= this.sizeOf(aKey, replaced);
+        }
+
+        Iterator<Map.Entry<ByteBuffer, byte[]>> iterator = this.values.entrySet().iterator();
+
+        while (this.size > this.capacity && iterator.hasNext()) {
+            Map.Entry<ByteBuffer, byte[]> eldest = iterator.next();
+
+            this.size -= this.sizeOf(eldest.getKey(), eldest.getValue());
+
+            iterator.remove();
+
+            this.evictionCount.incrementAndGet();
+        }
+    }
+
+    private long sizeOf(ByteBuffer aKey, byte[] aValue) {
+        return aKey.capacity() + aValue.length + ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,57 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.serializer;
+
+import java.lang.reflect.Type;
+
+import com.saasovation.common.media.canonical.CanonicalDataFormatter;
+
+/**
+ * I serialize objects in the compact binary form of the
+ * CanonicalDataFormatter, which omits field names and encodes
+ * numbers and dates by value rather than as text.
+ */
+public class BinarySerializationFormat implements SerializationFormat {
+
+    public static final byte FORMAT_ID = 0x02;
+
+    private CanonicalDataFormatter formatter;
+
+    public BinarySerializationFormat() {
+        super();
+
+        this.formatter = new CanonicalDataFormatter();
+    }
+
+    @Override
+    public byte formatId() {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public byte[] serialize(Object anObject) {
+        return this.formatter.format(anObject);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] aSerialization, int anOffset, Type aType) {
+        return this.formatter.parse(aSerialization, anOffset, aType);
+    }
+}
@@ -0,0 +1,156 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.serializer;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * I serialize objects in one SerializationFormat, leading each
+ * serialization with the id of its format, and deserialize those
+ * of any registered format by that id. Stored serializations may
+ * therefore be of mixed formats, such as JSON written before the
+ * binary format was configured and binary written after.
+ *
+ * The format written is named by the system property
+ * serialization.format, json by default. A serialization led by
+ * no registered id is taken as JSON written before ids were.
+ */
+public class FormattedSerializer {
+
+    public static final String PROPERTY_NAME = "serialization.format";
+
+    private static volatile SerializationFormat[] formats = new SerializationFormat[256];
+
+    private static FormattedSerializer formattedSerializer;
+
+    static {
+        register(new JSONSerializationFormat());
+        register(new BinarySerializationFormat());
+    }
+
+    private SerializationFormat format;
+
+    public static synchronized FormattedSerializer instance() {
+        if (FormattedSerializer.formattedSerializer == null) {
+            String name = System.getProperty(PROPERTY_NAME, "json");
+
+            FormattedSerializer.formattedSerializer = new FormattedSerializer(formatNamed(name));
+        }
+
+        return FormattedSerializer.formattedSerializer;
+    }
+
+    /**
+     * Answers whether aSerialization is led by the id of a registered
+     * format, rather than being JSON written before ids were.
+     * @param aSerialization the byte[] holding the serialization
+     * @return boolean
+     */
+    public static boolean isFormatted(byte[] aSerialization) {
+        return formatOf(aSerialization, 0) != null;
+    }
+
+    /**
+     * Registers aFormat so that its serializations may be read,
+     * and so that it may be configured as the format written.
+     * @param aFormat the SerializationFormat to register
+     */
+    public static synchronized void register(SerializationFormat aFormat) {
+        int formatId = aFormat.formatId() & 0xff;
+
+        SerializationFormat registered = formats[formatId];
+
+        if (registered != null && registered.getClass() != aFormat.getClass()) {
+            throw new IllegalArgumentException(
+                    "The format id " + formatId + " is registered to: " + registered.name());
+        }
+
+        SerializationFormat[] registeredFormats = Arrays.copyOf(formats, formats.length);
+
+        registeredFormats[formatId] = aFormat;
+
+        formats = registeredFormats;
+    }
+
+    public FormattedSerializer(SerializationFormat aFormat) {
+        super();
+
+        if (aFormat == null) {
+            throw new IllegalArgumentException("The format must be provided.");
+        }
+
+        this.format = aFormat;
+    }
+
+    public <T> T deserialize(byte[] aSerialization, Class<T> aType) {
+        return this.deserialize(aSerialization, (Type) aType);
+    }
+
+    public <T> T deserialize(byte[] aSerialization, Type aType) {
+        return this.deserialize(aSerialization, 0, aType);
+    }
+
+    /**
+     * Answers the object of aType deserialized from the bytes of
+     * aSerialization starting at anOffset, as when they follow a
+     * store's own metadata.
+     * @param aSerialization the byte[] holding the serialization
+     * @param anOffset the int offset where the serialization starts
+     * @param aType the Type of the object
+     * @return T
+     */
+    public <T> T deserialize(byte[] aSerialization, int anOffset, Type aType) {
+        SerializationFormat format = formatOf(aSerialization, anOffset);
+
+        if (format == null) {
+            return ObjectSerializer.instance().deserialize(
+                    new String(aSerialization, anOffset, aSerialization.length - anOffset),
+                    aType);
+        }
+
+        return format.deserialize(aSerialization, anOffset + 1, aType);
+    }
+
+    public SerializationFormat format() {
+        return this.format;
+    }
+
+    public byte[] serialize(Object anObject) {
+        byte[] serialization = this.format.serialize(anObject);
+
+        byte[] formatted = new byte[serialization.length + 1];
+
+        formatted[0] = this.format.formatId();
+
+        System.arraycopy(serialization, 0, formatted, 1, serialization.length);
+
+        return formatted;
+    }
+
+    private static SerializationFormat formatNamed(String aName) {
+        for (SerializationFormat format : formats) {
+            if (format != null && format.name().equalsIgnoreCase(aName.trim())) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException("No serialization format is named: " + aName);
+    }
+
+    private static SerializationFormat formatOf(byte[] aSerialization, int anOffset) {
+        return anOffset >= aSerialization.length ? null : formats[aSerialization[anOffset] & 0xff];
+    }
+}
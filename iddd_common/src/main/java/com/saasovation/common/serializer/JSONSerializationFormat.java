@@ -0,0 +1,55 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.serializer;
+
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+/**
+ * I serialize objects as the UTF-8 text of their ObjectSerializer JSON.
+ */
+public class JSONSerializationFormat implements SerializationFormat {
+
+    public static final byte FORMAT_ID = 0x01;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public JSONSerializationFormat() {
+        super();
+    }
+
+    @Override
+    public byte formatId() {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public byte[] serialize(Object anObject) {
+        return ObjectSerializer.instance().serialize(anObject).getBytes(UTF_8);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] aSerialization, int anOffset, Type aType) {
+        String serialization =
+                new String(aSerialization, anOffset, aSerialization.length - anOffset, UTF_8);
+
+        return ObjectSerializer.instance().deserialize(serialization, aType);
+    }
+}
@@ -0,0 +1,57 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.serializer;
+
+import java.lang.reflect.Type;
+
+/**
+ * I am one format in which the FormattedSerializer stores objects.
+ * My formatId leads each serialization I produce so that it can be
+ * read back in my format even after another has become the one
+ * written.
+ */
+public interface SerializationFormat {
+
+    /**
+     * Answers my byte id, which must be unique among the
+     * registered formats and never reassigned.
+     * @return byte
+     */
+    public byte formatId();
+
+    /**
+     * Answers my name, by which I may be configured as the
+     * format written.
+     * @return String
+     */
+    public String name();
+
+    /**
+     * Answers anObject serialized in my format.
+     * @param anObject the Object to serialize
+     * @return byte[]
+     */
+    public byte[] serialize(Object anObject);
+
+    /**
+     * Answers the object of aType deserialized from the bytes
+     * of aSerialization starting at anOffset.
+     * @param aSerialization the byte[] holding the serialization
+     * @param anOffset the int offset where the serialization starts
+     * @param aType the Type of the object
+     * @return T
+     */
+    public <T> T deserialize(byte[] aSerialization, int anOffset, Type aType);
+}
@@ -0,0 +1,54 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.domain.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.saasovation.common.event.TestableDomainEvent;
+
+public class TestableEventSourcedRootEntity extends EventSourcedRootEntity {
+
+    private List<String> names;
+    private long sumOfIds;
+
+    public TestableEventSourcedRootEntity() {
+        super();
+    }
+
+    public TestableEventSourcedRootEntity(List<DomainEvent> anEventStream, int aStreamVersion) {
+        super(anEventStream, aStreamVersion);
+    }
+
+    public void happen(long anId, String aName) {
+        this.apply(new TestableDomainEvent(anId, aName));
+    }
+
+    public List<String> names() {
+        return this.names;
+    }
+
+    public long sumOfIds() {
+        return this.sumOfIds;
+    }
+
+    protected void when(TestableDomainEvent anEvent) {
+        if (this.names == null) {
+            this.names = new ArrayList<String>();
+        }
+
+        this.names.add(anEvent.name());
+        this.sumOfIds += anEvent.id();
+    }
+}
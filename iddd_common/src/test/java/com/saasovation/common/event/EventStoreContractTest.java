@@ -14,6 +14,8 @@
 
 package com.saasovation.common.event;
 
+import java.util.List;
+
 import com.saasovation.common.CommonTestCase;
 import com.saasovation.common.persistence.PersistenceManagerProvider;
 
@@ -45,6 +47,30 @@ public class EventStoreContractTest extends CommonTestCase {
         assertEquals(10, eventStore.allStoredEventsSince(totalEvents - 10).size());
     }
 
+    public void testAllStoredEventsSinceInPages() throws Exception {
+        EventStore eventStore = this.eventStore();
+
+        long totalEvents = eventStore.countStoredEvents();
+
+        long lastStoredEventId = 0;
+        long readEvents = 0;
+
+        List<StoredEvent> page = eventStore.allStoredEventsSince(lastStoredEventId, 7);
+
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 7);
+            assertEquals(lastStoredEventId + 1, page.get(0).eventId());
+
+            readEvents += page.size();
+            lastStoredEventId = page.get(page.size() - 1).eventId();
+
+            page = eventStore.allStoredEventsSince(lastStoredEventId, 7);
+        }
+
+        assertEquals(totalEvents, readEvents);
+        assertEquals(totalEvents, lastStoredEventId);
+    }
+
     public void testAppend() throws Exception {
         EventStore eventStore = this.eventStore();
 
@@ -0,0 +1,83 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.event;
+
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+public class EventTypeRegistryTest extends TestCase {
+
+    public EventTypeRegistryTest() {
+        super();
+    }
+
+    public void testRegisterAll() throws Exception {
+        EventTypeRegistry registry = EventTypeRegistry.instance();
+
+        assertTrue(registry.registerAll("com.saasovation.common.event") >= 3);
+
+        assertTrue(registry.isRegistered(TestableDomainEvent.class.getName()));
+        assertTrue(registry.isRegistered(AnotherTestableDomainEvent.class.getName()));
+        assertTrue(registry.isRegistered(TestableNavigableDomainEvent.class.getName()));
+        assertFalse(registry.isRegistered(EventTypeRegistryTest.class.getName()));
+    }
+
+    public void testTypeOf() throws Exception {
+        EventTypeRegistry registry = EventTypeRegistry.instance();
+
+        Class<TestableDomainEvent> type = registry.typeOf(TestableDomainEvent.class.getName());
+
+        assertSame(TestableDomainEvent.class, type);
+        assertTrue(registry.isRegistered(TestableDomainEvent.class.getName()));
+        assertSame(type, registry.typeOf(TestableDomainEvent.class.getName()));
+
+        try {
+            registry.typeOf("com.saasovation.common.event.NoSuchEvent");
+
+            fail("An unknown type must not resolve.");
+
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        try {
+            registry.typeOf(EventTypeRegistryTest.class.getName());
+
+            fail("A type other than a DomainEvent must not resolve.");
+
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testStoredEventToDomainEvent() throws Exception {
+        TestableDomainEvent domainEvent = new TestableDomainEvent(100L, "name");
+
+        StoredEvent storedEvent =
+                new StoredEvent(
+                        TestableDomainEvent.class.getName(),
+                        new Date(),
+                        EventSerializer.instance().serialize(domainEvent));
+
+        TestableDomainEvent rehydrated = storedEvent.toDomainEvent();
+
+        assertEquals(100L, rehydrated.id());
+        assertEquals("name", rehydrated.name());
+        assertEquals(domainEvent.occurredOn(), rehydrated.occurredOn());
+
+        assertNull(EventSerializer.instance().deserialize("", TestableDomainEvent.class));
+    }
+}
@@ -73,6 +73,11 @@ public class MockEventStore extends AssertionConcern implements EventStore {
         return this.allStoredEventsBetween(aStoredEventId + 1, this.countStoredEvents());
     }
 
+    @Override
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount) {
+        return this.allStoredEventsBetween(aStoredEventId + 1, aStoredEventId + aMaximumCount);
+    }
+
     @Override
     public StoredEvent append(DomainEvent aDomainEvent) {
         String eventSerialization =
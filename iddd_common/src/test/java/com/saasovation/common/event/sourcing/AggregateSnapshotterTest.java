@@ -0,0 +1,166 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.event.sourcing;
+
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import com.saasovation.common.domain.model.DomainEventPublisher;
+import com.saasovation.common.domain.model.TestableEventSourcedRootEntity;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.hashmap.HashMapEventStore;
+import com.saasovation.common.port.adapter.persistence.eventsourcing.hashmap.HashMapSnapshotStore;
+
+public class AggregateSnapshotterTest extends TestCase {
+
+    private EventStore eventStore;
+    private SnapshotStore snapshotStore;
+
+    public AggregateSnapshotterTest() {
+        super();
+    }
+
+    public void testNoSnapshotBeforeInterval() throws Exception {
+        AggregateSnapshotter snapshotter = new AggregateSnapshotter(this.snapshotStore, 10);
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        TestableEventSourcedRootEntity aggregate = new TestableEventSourcedRootEntity();
+
+        for (int idx = 1; idx <= 9; ++idx) {
+            aggregate.happen(idx, "Name: " + idx);
+        }
+
+        this.save(snapshotter, eventId, aggregate);
+
+        snapshotter.close();
+
+        assertNull(this.snapshotStore.latestSnapshotOf(eventId));
+
+        assertNull(snapshotter.aggregateFromLatestSnapshot(
+                TestableEventSourcedRootEntity.class, this.eventStore, eventId));
+    }
+
+    public void testSnapshotAndTailEqualsFullReplay() throws Exception {
+        AggregateSnapshotter snapshotter = new AggregateSnapshotter(this.snapshotStore, 10);
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        TestableEventSourcedRootEntity aggregate = new TestableEventSourcedRootEntity();
+
+        int id = 0;
+
+        for (int command = 1; command <= 6; ++command) {
+            if (command > 1) {
+                aggregate = this.load(snapshotter, eventId);
+            }
+
+            for (int idx = 1; idx <= 7; ++idx) {
+                ++id;
+                aggregate.happen(id, "Name: " + id);
+            }
+
+            this.save(snapshotter, eventId, aggregate);
+        }
+
+        snapshotter.close();
+
+        Snapshot snapshot = this.snapshotStore.latestSnapshotOf(eventId);
+
+        assertNotNull(snapshot);
+        assertEquals(42, snapshot.streamVersion());
+
+        // append a tail past the snapshot
+
+        aggregate = new AggregateSnapshotter(this.snapshotStore, 100)
+                .aggregateFromLatestSnapshot(TestableEventSourcedRootEntity.class, this.eventStore, eventId);
+
+        assertNotNull(aggregate);
+        assertEquals(42, aggregate.unmutatedVersion());
+
+        for (int idx = 1; idx <= 5; ++idx) {
+            ++id;
+            aggregate.happen(id, "Name: " + id);
+        }
+
+        this.eventStore.appendWith(eventId.withStreamVersion(aggregate.mutatedVersion()), aggregate.mutatingEvents());
+
+        TestableEventSourcedRootEntity fromSnapshot =
+                new AggregateSnapshotter(this.snapshotStore, 100)
+                    .aggregateFromLatestSnapshot(TestableEventSourcedRootEntity.class, this.eventStore, eventId);
+
+        EventStream eventStream = this.eventStore.fullEventStreamFor(eventId);
+
+        TestableEventSourcedRootEntity fromFullReplay =
+                new TestableEventSourcedRootEntity(eventStream.events(), eventStream.version());
+
+        assertEquals(47, fromFullReplay.unmutatedVersion());
+        assertEquals(fromFullReplay.unmutatedVersion(), fromSnapshot.unmutatedVersion());
+        assertEquals(fromFullReplay.names(), fromSnapshot.names());
+        assertEquals(fromFullReplay.sumOfIds(), fromSnapshot.sumOfIds());
+        assertTrue(fromSnapshot.mutatingEvents().isEmpty());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        this.eventStore = HashMapEventStore.instance();
+        this.snapshotStore = HashMapSnapshotStore.instance();
+
+        DomainEventPublisher.instance().reset();
+
+        super.setUp();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.snapshotStore.purge();
+
+        this.eventStore.purge();
+
+        this.eventStore.close();
+
+        super.tearDown();
+    }
+
+    private TestableEventSourcedRootEntity load(
+            AggregateSnapshotter aSnapshotter,
+            EventStreamId anEventId) {
+
+        TestableEventSourcedRootEntity aggregate =
+                aSnapshotter.aggregateFromLatestSnapshot(
+                        TestableEventSourcedRootEntity.class,
+                        this.eventStore,
+                        anEventId);
+
+        if (aggregate == null) {
+            EventStream eventStream = this.eventStore.eventStreamSince(anEventId);
+
+            aggregate = new TestableEventSourcedRootEntity(eventStream.events(), eventStream.version());
+        }
+
+        return aggregate;
+    }
+
+    private void save(
+            AggregateSnapshotter aSnapshotter,
+            EventStreamId anEventId,
+            TestableEventSourcedRootEntity anAggregate) {
+
+        EventStreamId eventId = anEventId.withStreamVersion(anAggregate.mutatedVersion());
+
+        this.eventStore.appendWith(eventId, anAggregate.mutatingEvents());
+
+        aSnapshotter.snapshotIfDue(eventId, anAggregate);
+    }
+}
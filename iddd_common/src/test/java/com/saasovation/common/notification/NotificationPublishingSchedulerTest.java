@@ -0,0 +1,280 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.notification;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+public class NotificationPublishingSchedulerTest extends TestCase {
+
+    private CountingNotificationPublisher publisher;
+    private NotificationPublishingScheduler scheduler;
+
+    public NotificationPublishingSchedulerTest() {
+        super();
+    }
+
+    public void testBurstOfAppendsIsCoalesced() throws Exception {
+        this.scheduler = new NotificationPublishingScheduler(this.publisher, this.publisher, 20L, 60000L);
+
+        this.scheduler.start();
+
+        this.publisher.publishableThrough(100);
+
+        for (long eventId = 1; eventId <= 100; ++eventId) {
+            this.scheduler.eventAppended(eventId);
+            this.scheduler.eventCommitted(eventId);
+        }
+
+        this.awaitRuns(1);
+
+        // the first run and the settling run after it
+
+        Thread.sleep(200L);
+
+        assertTrue(this.publisher.runs() <= 3);
+        assertEquals(100, this.scheduler.metrics().appendedEventId());
+        assertEquals(0, this.scheduler.metrics().lag());
+        assertEquals(0, this.scheduler.metrics().lagMillis());
+        assertTrue(this.scheduler.metrics().isHealthy());
+    }
+
+    public void testLagUntilPublished() throws Exception {
+        this.scheduler = new NotificationPublishingScheduler(this.publisher, this.publisher, 0L, 60000L);
+
+        this.scheduler.start();
+
+        // the publisher reaches only part of the committed events
+
+        this.publisher.publishableThrough(5);
+
+        for (long eventId = 1; eventId <= 10; ++eventId) {
+            this.scheduler.eventCommitted(eventId);
+        }
+
+        this.awaitRuns(1);
+
+        NotificationPublishingMetrics metrics = this.scheduler.metrics();
+
+        for (int wait = 0; wait < 100 && metrics.publishedThroughEventId() < 5; ++wait) {
+            Thread.sleep(10L);
+        }
+
+        assertEquals(5, metrics.publishedThroughEventId());
+        assertEquals(5, metrics.lag());
+        assertTrue(metrics.lagMillis() >= 0);
+
+        this.publisher.publishableThrough(10);
+
+        this.scheduler.wake();
+
+        for (int wait = 0; wait < 100 && metrics.lag() > 0; ++wait) {
+            Thread.sleep(10L);
+        }
+
+        assertEquals(10, metrics.publishedThroughEventId());
+        assertEquals(0, metrics.lag());
+        assertEquals(0, metrics.lagMillis());
+    }
+
+    public void testInterruptStopsPublishing() throws Exception {
+        this.scheduler = new NotificationPublishingScheduler(this.publisher, this.publisher, 0L, 50L);
+
+        this.publisher.interruptNext();
+
+        this.scheduler.start();
+        this.scheduler.wake();
+
+        this.awaitRuns(1);
+
+        for (int wait = 0; wait < 100 && this.scheduler.metrics().isRunning(); ++wait) {
+            Thread.sleep(10L);
+        }
+
+        // interrupted, the publisher thread neither spins nor goes on
+
+        Thread.sleep(200L);
+
+        assertEquals(1, this.publisher.runs());
+        assertFalse(this.scheduler.metrics().isRunning());
+    }
+
+    public void testPublishesWhenIdle() throws Exception {
+        this.scheduler = new NotificationPublishingScheduler(this.publisher, this.publisher, 0L, 50L);
+
+        this.scheduler.start();
+
+        Thread.sleep(300L);
+
+        assertTrue(this.publisher.runs() >= 3);
+        assertEquals(0, this.scheduler.metrics().signals());
+    }
+
+    public void testFailedRunIsRetried() throws Exception {
+        this.scheduler = new NotificationPublishingScheduler(this.publisher, this.publisher, 0L, 60000L);
+
+        this.publisher.failNext(2);
+
+        this.scheduler.start();
+        this.scheduler.eventAppended(1);
+
+        this.awaitRuns(3);
+
+        NotificationPublishingMetrics metrics = this.scheduler.metrics();
+
+        for (int wait = 0; wait < 100 && metrics.consecutiveFailures() > 0; ++wait) {
+            Thread.sleep(10L);
+        }
+
+        assertEquals(2, metrics.failedRuns());
+        assertEquals(0, metrics.consecutiveFailures());
+        assertEquals(0, metrics.lag());
+        assertNotNull(metrics.lastFailure());
+        assertTrue(metrics.isHealthy());
+    }
+
+    public void testCloseStopsPublishing() throws Exception {
+        this.scheduler = new NotificationPublishingScheduler(this.publisher, this.publisher, 0L, 60000L);
+
+        this.scheduler.start();
+
+        assertTrue(this.scheduler.metrics().isRunning());
+
+        this.scheduler.close();
+
+        int runs = this.publisher.runs();
+
+        this.scheduler.eventAppended(1);
+
+        Thread.sleep(100L);
+
+        assertEquals(runs, this.publisher.runs());
+        assertFalse(this.scheduler.metrics().isRunning());
+        assertFalse(this.scheduler.metrics().isHealthy());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        this.publisher = new CountingNotificationPublisher();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.scheduler.close();
+
+        super.tearDown();
+    }
+
+    private void awaitRuns(int aRuns) throws InterruptedException {
+        for (int wait = 0; wait < 200 && this.publisher.runs() < aRuns; ++wait) {
+            Thread.sleep(10L);
+        }
+
+        assertTrue(this.publisher.runs() >= aRuns);
+    }
+
+    /**
+     * Counts its runs, and publishes through the id it is told,
+     * tracking it as the id most recently published.
+     */
+    private static class CountingNotificationPublisher
+            implements NotificationPublisher, PublishedNotificationTrackerStore {
+
+        private AtomicInteger failures;
+        private AtomicBoolean interrupting;
+        private AtomicLong publishable;
+        private AtomicLong published;
+        private AtomicInteger runs;
+
+        CountingNotificationPublisher() {
+            super();
+
+            this.failures = new AtomicInteger();
+            this.interrupting = new AtomicBoolean();
+            this.publishable = new AtomicLong();
+            this.published = new AtomicLong();
+            this.runs = new AtomicInteger();
+        }
+
+        @Override
+        public void publishNotifications() {
+            this.runs.incrementAndGet();
+
+            if (this.interrupting.getAndSet(false)) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (this.failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Broker unavailable.");
+            }
+
+            this.published.set(this.publishable.get());
+        }
+
+        @Override
+        public boolean internalOnlyTestConfirmation() {
+            return false;
+        }
+
+        @Override
+        public PublishedNotificationTracker publishedNotificationTracker() {
+            return this.publishedNotificationTracker(this.typeName());
+        }
+
+        @Override
+        public PublishedNotificationTracker publishedNotificationTracker(String aTypeName) {
+            PublishedNotificationTracker tracker = new PublishedNotificationTracker(aTypeName);
+
+            tracker.setMostRecentPublishedNotificationId(this.published.get());
+
+            return tracker;
+        }
+
+        @Override
+        public void trackMostRecentPublishedNotification(
+                PublishedNotificationTracker aPublishedNotificationTracker,
+                List<Notification> aNotifications) {
+            throw new UnsupportedOperationException("Tracked when published.");
+        }
+
+        @Override
+        public String typeName() {
+            return "counting";
+        }
+
+        void failNext(int aFailures) {
+            this.failures.set(aFailures);
+        }
+
+        void interruptNext() {
+            this.interrupting.set(true);
+        }
+
+        void publishableThrough(long anEventId) {
+            this.publishable.set(anEventId);
+        }
+
+        int runs() {
+            return this.runs.get();
+        }
+    }
+}
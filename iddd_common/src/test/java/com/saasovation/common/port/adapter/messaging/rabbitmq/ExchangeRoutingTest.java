@@ -0,0 +1,68 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ExchangeRoutingTest extends TestCase {
+
+    private static final String[] TYPES = {
+        "com.saasovation.identityaccess.domain.model.access.UserAssignedToRole",
+        "com.saasovation.identityaccess.domain.model.identity.PersonNameChanged"
+    };
+
+    public ExchangeRoutingTest() {
+        super();
+    }
+
+    public void testConfigured() throws Exception {
+        System.clearProperty(ExchangeRouting.PROPERTY_NAME);
+
+        assertEquals(ExchangeRouting.FANOUT, ExchangeRouting.configured());
+
+        System.setProperty(ExchangeRouting.PROPERTY_NAME, " topic");
+
+        try {
+            assertEquals(ExchangeRouting.TOPIC, ExchangeRouting.configured());
+        } finally {
+            System.clearProperty(ExchangeRouting.PROPERTY_NAME);
+        }
+    }
+
+    public void testBindingKeys() throws Exception {
+        assertEquals(Arrays.asList(""), Arrays.asList(ExchangeRouting.FANOUT.bindingKeysFor(TYPES)));
+        assertEquals(Arrays.asList(TYPES), Arrays.asList(ExchangeRouting.DIRECT.bindingKeysFor(TYPES)));
+        assertEquals(Arrays.asList(TYPES), Arrays.asList(ExchangeRouting.TOPIC.bindingKeysFor(TYPES)));
+        assertEquals(Arrays.asList("#"), Arrays.asList(ExchangeRouting.TOPIC.bindingKeysFor(new String[0])));
+
+        try {
+            ExchangeRouting.DIRECT.bindingKeysFor(null);
+
+            fail("A direct binding must have message types.");
+
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testRoutingKeyIsMessageType() throws Exception {
+        for (ExchangeRouting routing : ExchangeRouting.values()) {
+            assertEquals(TYPES[0], routing.routingKeyOf(TYPES[0]));
+            assertEquals("", routing.routingKeyOf(null));
+        }
+    }
+}
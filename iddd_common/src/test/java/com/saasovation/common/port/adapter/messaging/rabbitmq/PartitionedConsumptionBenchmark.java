@@ -0,0 +1,136 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * Consumes bursts of deliveries from a stand-in Channel, handling
+ * each for handlerMicros, as a listener waiting on its store would.
+ * inline() handles and acknowledges each one on the delivering
+ * thread, as a MessageConsumer does by default; partitioned()
+ * dispatches them by key, among 64 keys, to partitions threads
+ * and acknowledges them cumulatively in batches of a quarter of
+ * the prefetch window. Each reports deliveries per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartitionedConsumptionBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int KEYS = 64;
+
+    @Param({ "0", "50" })
+    public int handlerMicros;
+
+    @Param({ "4", "16" })
+    public int partitions;
+
+    @Param({ "64" })
+    public int prefetch;
+
+    private RecordingChannel channel;
+    private PartitionedDispatcher dispatcher;
+    private String[] keys;
+    private long nextDeliveryTag;
+
+    @Setup
+    public void setUp() {
+        this.channel = new RecordingChannel(false);
+
+        this.dispatcher =
+                new PartitionedDispatcher(
+                        this.channel.channel(),
+                        "benchmark",
+                        this.partitions,
+                        Math.max(1, this.prefetch / 4));
+
+        this.keys = new String[KEYS];
+
+        for (int idx = 0; idx < KEYS; ++idx) {
+            this.keys[idx] = "tenant:" + idx;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.dispatcher.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void inline() throws Exception {
+        Channel channel = this.channel.channel();
+
+        for (int idx = 0; idx < BATCH; ++idx) {
+            this.handle();
+
+            channel.basicAck(++this.nextDeliveryTag, false);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void partitioned() throws Exception {
+        for (int idx = 0; idx < BATCH; ++idx) {
+            final long deliveryTag = ++this.nextDeliveryTag;
+
+            // the broker delivers no more than the prefetch
+            // window beyond what has been acknowledged
+
+            if (deliveryTag > this.prefetch) {
+                this.channel.awaitAcknowledgedThrough(deliveryTag - this.prefetch, 10000L);
+            }
+
+            this.dispatcher.dispatch(deliveryTag, this.keys[idx % KEYS], new Runnable() {
+                @Override
+                public void run() {
+                    handle();
+
+                    dispatcher.acknowledge(deliveryTag);
+                }
+            });
+        }
+
+        this.channel.awaitAcknowledgedThrough(this.nextDeliveryTag, 10000L);
+    }
+
+    private void handle() {
+        if (this.handlerMicros > 0) {
+            LockSupport.parkNanos(this.handlerMicros * 1000L);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class PartitionedDispatcherTest extends TestCase {
+
+    private RecordingChannel channel;
+    private PartitionedDispatcher dispatcher;
+
+    public PartitionedDispatcherTest() {
+        super();
+    }
+
+    public void testAcknowledgesOnlyContiguousDeliveries() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 1, 10);
+
+        for (long tag = 1L; tag <= 3L; ++tag) {
+            this.dispatcher.dispatch(tag, null, new Runnable() {
+                @Override
+                public void run() { }
+            });
+        }
+
+        this.dispatcher.acknowledge(3L);
+        this.dispatcher.acknowledge(2L);
+
+        assertTrue(this.channel.settlements().isEmpty());
+
+        this.dispatcher.acknowledge(1L);
+
+        assertEquals(Arrays.asList("ack:3:true"), this.channel.settlements());
+    }
+
+    public void testAcknowledgesThroughLastDeliveryUndispatched() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 1, 10);
+
+        for (long tag = 1L; tag <= 2L; ++tag) {
+            this.dispatcher.dispatch(tag, null, new Runnable() {
+                @Override
+                public void run() { }
+            });
+        }
+
+        this.dispatcher.acknowledge(1L);
+        this.dispatcher.acknowledge(2L);
+
+        assertEquals(Arrays.asList("ack:2:true"), this.channel.settlements());
+
+        // the last delivery is filtered out, and not held pending
+
+        this.dispatcher.acknowledgeUndispatched(3L);
+
+        assertEquals(Arrays.asList("ack:2:true", "ack:3:true"), this.channel.settlements());
+    }
+
+    public void testAcknowledgesUndispatchedFirstDelivery() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 1, 10);
+
+        // a reused channel whose first delivery to me is filtered out
+
+        this.dispatcher.acknowledgeUndispatched(41L);
+
+        this.dispatcher.dispatch(42L, null, new Runnable() {
+            @Override
+            public void run() { }
+        });
+
+        this.dispatcher.acknowledge(42L);
+
+        assertEquals(Arrays.asList("ack:41:true", "ack:42:true"), this.channel.settlements());
+    }
+
+    public void testAcknowledgesInBatches() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 1, 4);
+
+        for (long tag = 11L; tag <= 20L; ++tag) {
+            this.dispatcher.dispatch(tag, null, new Runnable() {
+                @Override
+                public void run() { }
+            });
+        }
+
+        for (long tag = 11L; tag <= 20L; ++tag) {
+            this.dispatcher.acknowledge(tag);
+        }
+
+        assertEquals(
+                Arrays.asList("ack:14:true", "ack:18:true", "ack:20:true"),
+                this.channel.settlements());
+    }
+
+    public void testRejectsBeforeAcknowledgingPast() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 1, 10);
+
+        for (long tag = 1L; tag <= 4L; ++tag) {
+            this.dispatcher.dispatch(tag, null, new Runnable() {
+                @Override
+                public void run() { }
+            });
+        }
+
+        this.dispatcher.acknowledge(4L);
+        this.dispatcher.reject(2L, true);
+        this.dispatcher.acknowledge(1L);
+        this.dispatcher.reject(3L, false);
+
+        assertEquals(
+                Arrays.asList("nack:2:true", "nack:3:false", "ack:4:true"),
+                this.channel.settlements());
+    }
+
+    public void testHandlesEachKeyInOrder() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 4, 16);
+
+        int deliveryCount = 2000;
+
+        final Map<String, List<Long>> handled = new HashMap<String, List<Long>>();
+
+        for (int key = 0; key < 25; ++key) {
+            handled.put("key-" + key, Collections.synchronizedList(new ArrayList<Long>()));
+        }
+
+        for (long tag = 1L; tag <= deliveryCount; ++tag) {
+            final long deliveryTag = tag;
+            final String key = "key-" + (tag % 25);
+
+            this.dispatcher.dispatch(deliveryTag, key, new Runnable() {
+                @Override
+                public void run() {
+                    handled.get(key).add(deliveryTag);
+
+                    dispatcher.acknowledge(deliveryTag);
+                }
+            });
+        }
+
+        this.channel.awaitAcknowledgedThrough(deliveryCount, 10000L);
+
+        int handledCount = 0;
+
+        for (List<Long> deliveryTags : handled.values()) {
+            List<Long> ordered = new ArrayList<Long>(deliveryTags);
+
+            Collections.sort(ordered);
+
+            assertEquals(ordered, deliveryTags);
+
+            handledCount += deliveryTags.size();
+        }
+
+        assertEquals(deliveryCount, handledCount);
+
+        for (String settlement : this.channel.settlements()) {
+            assertTrue(settlement.endsWith(":true"));
+        }
+    }
+
+    public void testPartitionsByKey() throws Exception {
+        this.dispatcher = new PartitionedDispatcher(this.channel.channel(), "test", 8, 1);
+
+        assertEquals(0, this.dispatcher.partitionOf(null));
+        assertEquals(this.dispatcher.partitionOf("t1:jdoe"), this.dispatcher.partitionOf("t1:jdoe"));
+
+        for (int key = 0; key < 100; ++key) {
+            int partition = this.dispatcher.partitionOf("t" + key + ":jdoe");
+
+            assertTrue(partition >= 0 && partition < 8);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        this.channel = new RecordingChannel();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.dispatcher != null) {
+            this.dispatcher.close();
+        }
+
+        super.tearDown();
+    }
+}
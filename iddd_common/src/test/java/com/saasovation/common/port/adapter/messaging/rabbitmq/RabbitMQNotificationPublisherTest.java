@@ -53,6 +53,15 @@ public class RabbitMQNotificationPublisherTest extends CommonTestCase {
         assertNotNull(notificationPublisher);
 
         notificationPublisher.publishNotifications();
+
+        // every confirmed notification is tracked as published
+
+        long mostRecentPublishedNotificationId =
+                publishedNotificationTrackerStore
+                    .publishedNotificationTracker()
+                    .mostRecentPublishedNotificationId();
+
+        assertTrue(eventStore.allStoredEventsSince(mostRecentPublishedNotificationId).isEmpty());
     }
 
     @Override
@@ -0,0 +1,113 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.rabbitmq;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * A stand-in for a broker Channel that records the acks and nacks
+ * sent on it, as "ack:tag:multiple" and "nack:tag:requeue", unless
+ * told not to, and answers null or zero to anything else.
+ */
+class RecordingChannel implements InvocationHandler {
+
+    private long acknowledgedThrough;
+    private Channel channel;
+    private boolean recording;
+    private List<String> settlements;
+
+    RecordingChannel() {
+        this(true);
+    }
+
+    RecordingChannel(boolean isRecording) {
+        super();
+
+        this.recording = isRecording;
+        this.settlements = new ArrayList<String>();
+
+        this.channel =
+                (Channel) Proxy.newProxyInstance(
+                        Channel.class.getClassLoader(),
+                        new Class<?>[] { Channel.class },
+                        this);
+    }
+
+    synchronized void awaitAcknowledgedThrough(long aDeliveryTag, long aTimeoutMillis)
+    throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + aTimeoutMillis;
+
+        while (this.acknowledgedThrough < aDeliveryTag) {
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (remaining <= 0) {
+                throw new IllegalStateException(
+                        "Acknowledged through " + this.acknowledgedThrough
+                        + " rather than " + aDeliveryTag + ".");
+            }
+
+            this.wait(remaining);
+        }
+    }
+
+    Channel channel() {
+        return this.channel;
+    }
+
+    synchronized List<String> settlements() {
+        return new ArrayList<String>(this.settlements);
+    }
+
+    @Override
+    public synchronized Object invoke(Object aProxy, Method aMethod, Object[] anArguments) {
+        String name = aMethod.getName();
+
+        if (name.equals("basicAck")) {
+            long deliveryTag = (Long) anArguments[0];
+
+            if (this.recording) {
+                this.settlements.add("ack:" + deliveryTag + ":" + anArguments[1]);
+            }
+
+            if ((Boolean) anArguments[1]) {
+                this.acknowledgedThrough = Math.max(this.acknowledgedThrough, deliveryTag);
+            }
+
+            this.notifyAll();
+
+        } else if (name.equals("basicNack") && this.recording) {
+            this.settlements.add("nack:" + anArguments[0] + ":" + anArguments[2]);
+        }
+
+        Class<?> returnType = aMethod.getReturnType();
+
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        }
+
+        return null;
+    }
+}
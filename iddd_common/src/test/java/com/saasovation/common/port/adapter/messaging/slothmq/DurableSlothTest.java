@@ -0,0 +1,221 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class DurableSlothTest extends TestCase {
+
+	private File directory;
+	private SlothServer server;
+
+	public DurableSlothTest() {
+		super();
+	}
+
+	public void testReconnectingClientResumesFromItsOffset() throws Exception {
+		System.setProperty(SlothClient.CLIENT_ID_PROPERTY_NAME, "durable");
+
+		DurableExchangeListener listener = new DurableExchangeListener();
+
+		SlothClient.instance().register(listener);
+		SlothClient.instance().publish("DurableExchange", "my.test.type", "message 1");
+
+		assertTrue(listener.awaitMessages(1));
+
+		// give the hub time to take the acknowledgement
+
+		Thread.sleep(500L);
+
+		SlothClient.instance().close();
+
+		System.setProperty(SlothClient.CLIENT_ID_PROPERTY_NAME, "publisher");
+
+		SlothClient.instance().publish("DurableExchange", "my.test.type", "message 2");
+		SlothClient.instance().publish("DurableExchange", "my.test.type", "message 3");
+
+		Thread.sleep(500L);
+
+		SlothClient.instance().close();
+
+		System.setProperty(SlothClient.CLIENT_ID_PROPERTY_NAME, "durable");
+
+		DurableExchangeListener resumedListener = new DurableExchangeListener();
+
+		SlothClient.instance().register(resumedListener);
+
+		assertTrue(resumedListener.awaitMessages(2));
+
+		Thread.sleep(200L);
+
+		List<String> messages = resumedListener.receivedMessages();
+
+		assertEquals(2, messages.size());
+		assertEquals("message 2", messages.get(0));
+		assertEquals("message 3", messages.get(1));
+	}
+
+	public void testRejectsAcknowledgementOfRecordNotSent() throws Exception {
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", SlothWorker.FRAMED_HUB_PORT));
+
+		try {
+			this.write(channel, SlothFrame.attach("forger"));
+			this.write(channel, SlothFrame.subscribe("DurableExchange", Collections.singleton("other.type")));
+
+			Thread.sleep(500L);
+
+			System.setProperty(SlothClient.CLIENT_ID_PROPERTY_NAME, "publisher");
+
+			SlothClient.instance().publish("DurableExchange", "my.test.type", "message 1");
+			SlothClient.instance().publish("DurableExchange", "my.test.type", "message 2");
+
+			Thread.sleep(500L);
+
+			// the record of message 2, which was filtered out for it
+
+			long unsentOffset = SlothFrame.publish("DurableExchange", "my.test.type", "message 1", 0L).encoded().remaining();
+
+			this.write(channel, SlothFrame.acknowledge("DurableExchange", unsentOffset));
+			this.write(channel, SlothFrame.acknowledge("DurableExchange", unsentOffset + 7L));
+
+			// give the hub time to take the acknowledgements and save offsets
+
+			Thread.sleep(1500L);
+
+		} finally {
+			channel.close();
+		}
+
+		assertEquals(Long.valueOf(0L), new SlothOffsets(this.directory).offsetOf("forger", "DurableExchange"));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		System.setProperty(SlothTransport.PROPERTY_NAME, SlothTransport.FRAMED.name());
+
+		// give a hub closed by a previous test time to let go of its ports
+
+		Thread.sleep(500L);
+
+		this.directory = File.createTempFile("slothlog", "");
+
+		this.directory.delete();
+
+		this.server = new SlothServer(new SlothLog(this.directory, 1024 * 1024, Long.MAX_VALUE));
+
+		Thread serverThread = new Thread() {
+			@Override
+			public void run() {
+				server.execute();
+			}
+		};
+
+		serverThread.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		SlothClient.instance().closeAll();
+
+		System.clearProperty(SlothClient.CLIENT_ID_PROPERTY_NAME);
+		System.clearProperty(SlothTransport.PROPERTY_NAME);
+
+		Thread.sleep(500L);
+
+		File[] files = this.directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		this.directory.delete();
+
+		super.tearDown();
+	}
+
+	private void write(SocketChannel aChannel, SlothFrame aFrame) throws Exception {
+		ByteBuffer encoded = aFrame.encoded();
+
+		while (encoded.hasRemaining()) {
+			aChannel.write(encoded);
+		}
+	}
+
+	private static class DurableExchangeListener extends ExchangeListener {
+
+		private List<String> receivedMessages;
+
+		DurableExchangeListener() {
+			super();
+
+			this.receivedMessages = new ArrayList<String>();
+		}
+
+		synchronized boolean awaitMessages(int aCount) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000L;
+
+			while (this.receivedMessages.size() < aCount) {
+				long remaining = deadline - System.currentTimeMillis();
+
+				if (remaining <= 0) {
+					return false;
+				}
+
+				this.wait(remaining);
+			}
+
+			return true;
+		}
+
+		synchronized List<String> receivedMessages() {
+			return new ArrayList<String>(this.receivedMessages);
+		}
+
+		@Override
+		protected String exchangeName() {
+			return "DurableExchange";
+		}
+
+		@Override
+		protected synchronized void filteredDispatch(String aType, String aTextMessage) {
+			this.receivedMessages.add(aTextMessage);
+
+			this.notifyAll();
+		}
+
+		@Override
+		protected String[] listensTo() {
+			return new String[] { "my.test.type" };
+		}
+
+		@Override
+		protected String name() {
+			return this.getClass().getName();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+public class FramedSlothTest extends SlothTest {
+
+	public FramedSlothTest() {
+		super();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		System.setProperty(SlothTransport.PROPERTY_NAME, SlothTransport.FRAMED.name());
+
+		// give a hub closed by a previous test time to let go of its ports
+
+		Thread.sleep(500L);
+
+		super.setUp();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		System.clearProperty(SlothTransport.PROPERTY_NAME);
+	}
+}
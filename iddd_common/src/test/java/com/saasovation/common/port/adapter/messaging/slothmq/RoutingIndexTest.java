@@ -0,0 +1,122 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class RoutingIndexTest extends TestCase {
+
+	private RoutingIndex<String> index;
+
+	public RoutingIndexTest() {
+		super();
+	}
+
+	public void testRoutesByExchangeAndType() throws Exception {
+		this.index.subscribe("exchange1", this.types(), "all1");
+		this.index.subscribe("exchange1", this.types("type1"), "typed1");
+		this.index.subscribe("exchange1", this.types("type1", "type2"), "typed12");
+		this.index.subscribe("exchange2", this.types(), "all2");
+
+		RoutingIndex.Routes<String> routes = this.index.routes("exchange1");
+
+		assertEquals(Arrays.asList("all1"), routes.allTypes());
+		assertEquals(Arrays.asList("typed1", "typed12"), routes.ofType("type1"));
+		assertEquals(Arrays.asList("typed12"), routes.ofType("type2"));
+		assertTrue(routes.ofType("type3").isEmpty());
+
+		assertEquals(Arrays.asList("all2"), this.index.routes("exchange2").allTypes());
+		assertTrue(this.index.routes("exchange3").allTypes().isEmpty());
+	}
+
+	public void testInterestIn() throws Exception {
+		assertNull(this.index.interestIn("exchange1"));
+
+		this.index.subscribe("exchange1", this.types("type1"), "typed1");
+		this.index.subscribe("exchange1", this.types("type2"), "typed2");
+
+		assertEquals(this.types("type1", "type2"), this.index.interestIn("exchange1"));
+
+		this.index.subscribe("exchange1", this.types(), "all1");
+
+		assertTrue(this.index.interestIn("exchange1").isEmpty());
+
+		this.index.unsubscribe("exchange1", "all1");
+		this.index.unsubscribe("exchange1", "typed2");
+
+		assertEquals(this.types("type1"), this.index.interestIn("exchange1"));
+
+		this.index.unsubscribe("exchange1", "typed1");
+
+		assertNull(this.index.interestIn("exchange1"));
+	}
+
+	public void testSubscribeReplacesTypes() throws Exception {
+		this.index.subscribe("exchange1", this.types("type1"), "subscriber");
+		this.index.subscribe("exchange1", this.types("type2"), "subscriber");
+
+		RoutingIndex.Routes<String> routes = this.index.routes("exchange1");
+
+		assertTrue(routes.ofType("type1").isEmpty());
+		assertEquals(Arrays.asList("subscriber"), routes.ofType("type2"));
+
+		this.index.subscribe("exchange1", this.types(), "subscriber");
+
+		routes = this.index.routes("exchange1");
+
+		assertEquals(Arrays.asList("subscriber"), routes.allTypes());
+		assertTrue(routes.ofType("type2").isEmpty());
+	}
+
+	public void testRoutesAreUnchangedBySubscriptions() throws Exception {
+		this.index.subscribe("exchange1", this.types(), "all1");
+
+		List<String> allTypes = this.index.routes("exchange1").allTypes();
+
+		this.index.subscribe("exchange1", this.types(), "all2");
+		this.index.unsubscribe("exchange1", "all1");
+
+		assertEquals(Arrays.asList("all1"), allTypes);
+		assertEquals(Arrays.asList("all2"), this.index.routes("exchange1").allTypes());
+
+		try {
+			allTypes.add("all3");
+
+			fail("Routes should be unmodifiable.");
+
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		this.index = new RoutingIndex<String>();
+	}
+
+	private Set<String> types(String... aTypes) {
+		return aTypes.length == 0 ?
+				Collections.<String>emptySet() :
+				new HashSet<String>(Arrays.asList(aTypes));
+	}
+}
@@ -0,0 +1,107 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SlothFrameTest extends TestCase {
+
+	public SlothFrameTest() {
+		super();
+	}
+
+	public void testDecodesEncodedFrames() throws Exception {
+		ByteBuffer input = ByteBuffer.allocate(1024);
+
+		input.put(SlothFrame.publish("TestExchange", "my.test.type", "Ein schönes Grüßchen.").encoded());
+		input.put(SlothFrame.subscribe("TestExchange", new HashSet<String>(Arrays.asList("my.test.type", "my.test.type1"))).encoded());
+		input.put(SlothFrame.close().encoded());
+		input.flip();
+
+		List<SlothFrame> frames = new ArrayList<SlothFrame>();
+
+		assertEquals(0, SlothFrame.decodeAll(input, frames));
+		assertFalse(input.hasRemaining());
+		assertEquals(3, frames.size());
+
+		assertEquals(SlothFrame.Command.PUBLISH, frames.get(0).command());
+		assertEquals("TestExchange", frames.get(0).field(0));
+		assertEquals("my.test.type", frames.get(0).field(1));
+		assertEquals("Ein schönes Grüßchen.", frames.get(0).field(2));
+
+		assertEquals(SlothFrame.Command.SUBSCRIBE, frames.get(1).command());
+		assertEquals("TestExchange", frames.get(1).field(0));
+		assertEquals(new HashSet<String>(Arrays.asList("my.test.type", "my.test.type1")), frames.get(1).fieldsFrom(1));
+
+		assertEquals(SlothFrame.Command.CLOSE, frames.get(2).command());
+		assertEquals(0, frames.get(2).fieldCount());
+	}
+
+	public void testLeavesPartialFrameUnread() throws Exception {
+		ByteBuffer encoded = SlothFrame.publish("TestExchange", "my.test.type", "A tiny little message.").encoded();
+
+		int frameLength = encoded.remaining();
+
+		ByteBuffer input = ByteBuffer.allocate(1024);
+
+		List<SlothFrame> frames = new ArrayList<SlothFrame>();
+
+		// deliver the frame in chunks, as a socket may
+
+		for (int chunk = 0; chunk < frameLength; chunk += 7) {
+			ByteBuffer part = encoded.duplicate();
+
+			part.position(chunk);
+			part.limit(Math.min(chunk + 7, frameLength));
+
+			input.put(part);
+			input.flip();
+
+			int requiredCapacity = SlothFrame.decodeAll(input, frames);
+
+			if (frames.isEmpty()) {
+				assertEquals(input.remaining() < 4 ? 0 : frameLength, requiredCapacity);
+			}
+
+			input.compact();
+		}
+
+		assertEquals(1, frames.size());
+		assertEquals("A tiny little message.", frames.get(0).field(2));
+		assertEquals(0, input.position());
+	}
+
+	public void testRejectsInvalidLength() throws Exception {
+		ByteBuffer input = ByteBuffer.allocate(8);
+
+		input.putInt(SlothFrame.MAXIMUM_LENGTH + 1);
+		input.flip();
+
+		try {
+			SlothFrame.decodeAll(input, new ArrayList<SlothFrame>());
+
+			fail("Should have rejected the frame length.");
+
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,182 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SlothLogTest extends TestCase {
+
+	private File directory;
+
+	public SlothLogTest() {
+		super();
+	}
+
+	public void testAppendAndRead() throws Exception {
+		SlothLog log = new SlothLog(this.directory, 1024, Long.MAX_VALUE);
+
+		assertEquals(0L, log.startOffset());
+		assertEquals(0L, log.endOffset());
+
+		long offset1 = log.append(this.recordOf("message 1"));
+		long offset2 = log.append(this.recordOf("message 2"));
+
+		assertEquals(0L, offset1);
+		assertEquals(offset2 + this.recordOf("message 2").remaining(), log.endOffset());
+
+		assertEquals("message 1", this.messageOf(log.read(offset1)));
+		assertEquals("message 2", this.messageOf(log.read(offset2)));
+		assertEquals(offset2, offset1 + log.read(offset1).remaining());
+
+		try {
+			log.read(log.endOffset());
+
+			fail("Should not read past the end.");
+
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		log.close();
+	}
+
+	public void testRollsSegmentsWithContiguousOffsets() throws Exception {
+		SlothLog log = new SlothLog(this.directory, 1024, Long.MAX_VALUE);
+
+		List<Long> offsets = this.appendMessages(log, 100);
+
+		assertTrue(this.segmentFiles().length > 1);
+
+		for (int idx = 0; idx < offsets.size(); ++idx) {
+			assertEquals("message " + idx, this.messageOf(log.read(offsets.get(idx))));
+
+			if (idx > 0) {
+				assertEquals(offsets.get(idx).longValue(), offsets.get(idx - 1) + log.read(offsets.get(idx - 1)).remaining());
+			}
+		}
+
+		log.close();
+	}
+
+	public void testRecoversAfterReopen() throws Exception {
+		SlothLog log = new SlothLog(this.directory, 1024, Long.MAX_VALUE);
+
+		List<Long> offsets = this.appendMessages(log, 50);
+
+		long endOffset = log.endOffset();
+
+		log.close();
+
+		log = new SlothLog(this.directory, 1024, Long.MAX_VALUE);
+
+		assertEquals(0L, log.startOffset());
+		assertEquals(endOffset, log.endOffset());
+		assertEquals("message 49", this.messageOf(log.read(offsets.get(49))));
+
+		long offset = log.append(this.recordOf("message 50"));
+
+		assertEquals(endOffset, offset);
+		assertEquals("message 50", this.messageOf(log.read(offset)));
+
+		log.close();
+	}
+
+	public void testRetentionDeletesOldSealedSegments() throws Exception {
+		SlothLog log = new SlothLog(this.directory, 1024, 60000L);
+
+		this.appendMessages(log, 100);
+
+		int segments = this.segmentFiles().length;
+
+		assertEquals(0, log.applyRetention(System.currentTimeMillis()));
+
+		int deleted = log.applyRetention(System.currentTimeMillis() + 120000L);
+
+		// all but the active segment
+
+		assertEquals(segments - 1, deleted);
+		assertEquals(1, this.segmentFiles().length);
+		assertTrue(log.startOffset() > 0L);
+
+		long offset = log.append(this.recordOf("message 100"));
+
+		assertEquals("message 100", this.messageOf(log.read(offset)));
+
+		log.close();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		this.directory = File.createTempFile("slothlog", "");
+
+		this.directory.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = this.directory.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		this.directory.delete();
+
+		super.tearDown();
+	}
+
+	private List<Long> appendMessages(SlothLog aLog, int aCount) throws Exception {
+		List<Long> offsets = new ArrayList<Long>();
+
+		for (int idx = 0; idx < aCount; ++idx) {
+			offsets.add(aLog.append(this.recordOf("message " + idx)));
+		}
+
+		return offsets;
+	}
+
+	private String messageOf(ByteBuffer aRecord) {
+		List<SlothFrame> frames = new ArrayList<SlothFrame>();
+
+		SlothFrame.decodeAll(aRecord.duplicate(), frames);
+
+		assertEquals(1, frames.size());
+
+		return frames.get(0).field(2);
+	}
+
+	private ByteBuffer recordOf(String aMessage) {
+		return SlothFrame.publish("TestExchange", "my.test.type", aMessage).encoded();
+	}
+
+	private File[] segmentFiles() {
+		return this.directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File aDirectory, String aName) {
+				return aName.endsWith(".log");
+			}
+		});
+	}
+}
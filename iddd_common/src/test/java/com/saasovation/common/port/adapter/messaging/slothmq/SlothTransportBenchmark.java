@@ -0,0 +1,206 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.messaging.slothmq;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Publishes through an in-process hub to a listener of the same
+ * client, with either transport. publishBatch() reports messages
+ * per second of a burst of publications; roundTrip() samples the
+ * latency of one message, reported with its percentiles (p0.99).
+ * The client may also have otherListeners listeners for other types
+ * of the exchange, and as many for other exchanges, that are not
+ * dispatched to. A durable hub, which needs the FRAMED transport,
+ * appends every publication to a log in a temporary directory and
+ * the client attaches with an id, acknowledging what it receives.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlothTransportBenchmark {
+
+	private static final int BATCH = 100;
+	private static final String EXCHANGE_NAME = "BenchmarkExchange";
+	private static final String TYPE = "benchmark.type";
+
+	private static String nextExchangeName;
+	private static String nextType;
+
+	@Param({ "false" })
+	public boolean durable;
+
+	@Param({ "0" })
+	public int otherListeners;
+
+	@Param({ "TEXT", "FRAMED" })
+	public String transport;
+
+	private File directory;
+	private BenchmarkListener listener;
+	private List<BenchmarkListener> others;
+	private ExchangePublisher publisher;
+	private Semaphore received;
+
+	@Setup
+	public void setUp() throws Exception {
+		System.setProperty(SlothTransport.PROPERTY_NAME, this.transport);
+
+		if (this.durable) {
+			this.directory = File.createTempFile("slothlog", "");
+
+			this.directory.delete();
+
+			System.setProperty(SlothLog.DIRECTORY_PROPERTY_NAME, this.directory.getPath());
+			System.setProperty(SlothClient.CLIENT_ID_PROPERTY_NAME, "benchmark");
+		}
+
+		SlothServer.executeInProcessDetachedServer();
+
+		Thread.sleep(500L);
+
+		this.received = new Semaphore(0);
+		this.listener = newListener(EXCHANGE_NAME, TYPE, this.received);
+
+		this.others = new ArrayList<BenchmarkListener>();
+
+		for (int idx = 0; idx < this.otherListeners; ++idx) {
+			this.others.add(newListener(EXCHANGE_NAME, TYPE + ".other" + idx, null));
+			this.others.add(newListener("Other" + EXCHANGE_NAME + idx, TYPE, null));
+		}
+		this.publisher = new ExchangePublisher(EXCHANGE_NAME);
+
+		// the subscription is in place once a probe comes back
+
+		do {
+			this.publisher.publish(TYPE, "probe");
+		} while (!this.received.tryAcquire(100L, TimeUnit.MILLISECONDS));
+
+		Thread.sleep(1000L);
+
+		this.received.drainPermits();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		this.listener.close();
+
+		for (BenchmarkListener other : this.others) {
+			other.close();
+		}
+
+		SlothClient.instance().closeAll();
+
+		if (this.durable) {
+			System.clearProperty(SlothLog.DIRECTORY_PROPERTY_NAME);
+			System.clearProperty(SlothClient.CLIENT_ID_PROPERTY_NAME);
+
+			Thread.sleep(500L);
+
+			for (File file : this.directory.listFiles()) {
+				file.delete();
+			}
+
+			this.directory.delete();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(BATCH)
+	public void publishBatch() throws Exception {
+		for (int idx = 0; idx < BATCH; ++idx) {
+			this.publisher.publish(TYPE, "A tiny little message.");
+		}
+
+		this.received.acquire(BATCH);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void roundTrip() throws Exception {
+		this.publisher.publish(TYPE, "A tiny little message.");
+
+		this.received.acquire();
+	}
+
+	private static BenchmarkListener newListener(String anExchangeName, String aType, Semaphore aReceived) {
+		nextExchangeName = anExchangeName;
+		nextType = aType;
+
+		return new BenchmarkListener(aReceived);
+	}
+
+	private static class BenchmarkListener extends ExchangeListener {
+
+		private String exchangeName = nextExchangeName;
+		private Semaphore received;
+		private String type = nextType;
+
+		BenchmarkListener(Semaphore aReceived) {
+			super();
+
+			this.received = aReceived;
+		}
+
+		// ExchangeListener asks for these while constructing,
+		// before the fields are assigned
+
+		@Override
+		protected String exchangeName() {
+			return this.exchangeName == null ? nextExchangeName : this.exchangeName;
+		}
+
+		@Override
+		protected void filteredDispatch(String aType, String aTextMessage) {
+			if (this.received == null) {
+				throw new IllegalStateException("Not subscribed to: " + aType);
+			}
+
+			this.received.release();
+		}
+
+		@Override
+		protected String[] listensTo() {
+			return new String[] { this.type == null ? nextType : this.type };
+		}
+
+		@Override
+		protected String name() {
+			return this.exchangeName() + "#" + this.listensTo()[0];
+		}
+	}
+}
@@ -0,0 +1,171 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.notification;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+
+/**
+ * A stand-in for a broker Channel in confirm mode that answers an
+ * ack or nack for each message published on it, in publish order
+ * and on a thread of its own as a broker would. Messages are told
+ * apart by their message id. Some can be nacked a number of times
+ * before being acked, and the channel can fall silent after a
+ * number of confirms.
+ */
+class ConfirmingChannel implements InvocationHandler {
+
+    private Channel channel;
+    private int confirmCount;
+    private int confirmLimit;
+    private ExecutorService confirmer;
+    private ConfirmListener confirmListener;
+    private Map<String, Integer> nacksRemaining;
+    private long nextPublishSeqNo;
+    private List<String> publishedMessageIds;
+
+    ConfirmingChannel() {
+        this(Integer.MAX_VALUE);
+    }
+
+    ConfirmingChannel(int aConfirmLimit) {
+        super();
+
+        this.confirmLimit = aConfirmLimit;
+        this.nacksRemaining = new HashMap<String, Integer>();
+        this.nextPublishSeqNo = 1L;
+        this.publishedMessageIds = new ArrayList<String>();
+
+        this.confirmer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable aRunnable) {
+                Thread thread = new Thread(aRunnable, "confirming-channel");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        this.channel =
+                (Channel) Proxy.newProxyInstance(
+                        Channel.class.getClassLoader(),
+                        new Class<?>[] { Channel.class },
+                        this);
+    }
+
+    Channel channel() {
+        return this.channel;
+    }
+
+    synchronized void nack(String aMessageId, int aTimes) {
+        this.nacksRemaining.put(aMessageId, aTimes);
+    }
+
+    synchronized List<String> publishedMessageIds() {
+        return new ArrayList<String>(this.publishedMessageIds);
+    }
+
+    void shutdown() {
+        this.confirmer.shutdownNow();
+    }
+
+    @Override
+    public synchronized Object invoke(Object aProxy, Method aMethod, Object[] anArguments) {
+        String name = aMethod.getName();
+
+        if (name.equals("addConfirmListener")) {
+            this.confirmListener = (ConfirmListener) anArguments[0];
+
+        } else if (name.equals("getNextPublishSeqNo")) {
+            return this.nextPublishSeqNo;
+
+        } else if (name.equals("isOpen")) {
+            return true;
+
+        } else if (name.equals("basicPublish")) {
+            this.published(this.messageIdOf(anArguments));
+        }
+
+        Class<?> returnType = aMethod.getReturnType();
+
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        }
+
+        return null;
+    }
+
+    private String messageIdOf(Object[] anArguments) {
+        for (Object argument : anArguments) {
+            if (argument instanceof BasicProperties) {
+                return ((BasicProperties) argument).getMessageId();
+            }
+        }
+
+        return null;
+    }
+
+    private void published(String aMessageId) {
+        final long deliveryTag = this.nextPublishSeqNo++;
+
+        this.publishedMessageIds.add(aMessageId);
+
+        if (this.confirmCount >= this.confirmLimit) {
+            return;
+        }
+
+        ++this.confirmCount;
+
+        Integer nacks = this.nacksRemaining.get(aMessageId);
+
+        final boolean ack = nacks == null || nacks == 0;
+
+        if (!ack) {
+            this.nacksRemaining.put(aMessageId, nacks - 1);
+        }
+
+        final ConfirmListener listener = this.confirmListener;
+
+        this.confirmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (ack) {
+                        listener.handleAck(deliveryTag, false);
+                    } else {
+                        listener.handleNack(deliveryTag, false);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+}
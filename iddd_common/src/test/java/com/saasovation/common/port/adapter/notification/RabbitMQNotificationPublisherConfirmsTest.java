@@ -0,0 +1,253 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.EventSerializer;
+import com.saasovation.common.event.EventStore;
+import com.saasovation.common.event.StoredEvent;
+import com.saasovation.common.event.TestableDomainEvent;
+import com.saasovation.common.notification.Notification;
+import com.saasovation.common.notification.PublishedNotificationTracker;
+import com.saasovation.common.notification.PublishedNotificationTrackerStore;
+import com.saasovation.common.port.adapter.messaging.MessageException;
+import com.saasovation.common.port.adapter.messaging.rabbitmq.BrokerChannel;
+import com.saasovation.common.port.adapter.messaging.rabbitmq.ConfirmingMessageProducer;
+
+public class RabbitMQNotificationPublisherConfirmsTest extends TestCase {
+
+    private static final int NOTIFICATION_COUNT = 1000;
+
+    private ConfirmingChannel channel;
+    private TrackerStore trackerStore;
+
+    public RabbitMQNotificationPublisherConfirmsTest() {
+        super();
+    }
+
+    public void testNackedNotificationsRepublished() throws Exception {
+        this.channel = new ConfirmingChannel();
+        this.channel.nack("17", 1);
+        this.channel.nack("256", 2);
+        this.channel.nack("901", 1);
+
+        this.publisherOf(30000L).publishNotifications();
+
+        assertEquals(NOTIFICATION_COUNT, this.trackedThrough());
+
+        List<String> published = this.channel.publishedMessageIds();
+
+        assertEquals(NOTIFICATION_COUNT + 4, published.size());
+        assertEquals(3, this.countOf("256", published));
+    }
+
+    public void testAlwaysNackedNotificationStopsTracking() throws Exception {
+        this.channel = new ConfirmingChannel();
+        this.channel.nack("500", Integer.MAX_VALUE);
+
+        try {
+            this.publisherOf(30000L).publishNotifications();
+
+            fail("Should have failed on notification 500.");
+
+        } catch (MessageException e) {
+            // expected
+        }
+
+        assertEquals(499, this.trackedThrough());
+        assertEquals(3, this.countOf("500", this.channel.publishedMessageIds()));
+    }
+
+    public void testConfirmTimeoutTracksConfirmed() throws Exception {
+        this.channel = new ConfirmingChannel(300);
+
+        long startedAt = System.currentTimeMillis();
+
+        try {
+            this.publisherOf(200L).publishNotifications();
+
+            fail("Should have timed out waiting for confirms.");
+
+        } catch (MessageException e) {
+            // expected
+        }
+
+        assertTrue(System.currentTimeMillis() - startedAt < 10000L);
+        assertEquals(300, this.trackedThrough());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        this.trackerStore = new TrackerStore();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.channel != null) {
+            this.channel.shutdown();
+        }
+
+        super.tearDown();
+    }
+
+    private int countOf(String aMessageId, List<String> aMessageIds) {
+        int count = 0;
+
+        for (String messageId : aMessageIds) {
+            if (messageId.equals(aMessageId)) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    private RabbitMQNotificationPublisher publisherOf(final long aConfirmTimeoutMillis) {
+        return new RabbitMQNotificationPublisher(
+                new StoredEvents(NOTIFICATION_COUNT),
+                this.trackerStore,
+                "unit.test.notifications") {
+
+            @Override
+            protected long confirmTimeoutMillis() {
+                return aConfirmTimeoutMillis;
+            }
+
+            @Override
+            protected ConfirmingMessageProducer newMessageProducer() {
+                return ConfirmingMessageProducer.confirmingInstance(
+                        new FakeExchange(channel));
+            }
+        };
+    }
+
+    private long trackedThrough() {
+        return this.trackerStore
+                .publishedNotificationTracker()
+                .mostRecentPublishedNotificationId();
+    }
+
+    private static class FakeExchange extends BrokerChannel {
+
+        FakeExchange(ConfirmingChannel aChannel) {
+            super(aChannel.channel(), "unit.test.notifications");
+
+            this.setDurable(true);
+        }
+
+        @Override
+        protected boolean isExchange() {
+            return true;
+        }
+    }
+
+    private static class StoredEvents implements EventStore {
+
+        private List<StoredEvent> storedEvents;
+
+        StoredEvents(int aCount) {
+            super();
+
+            this.storedEvents = new ArrayList<StoredEvent>();
+
+            for (int idx = 1; idx <= aCount; ++idx) {
+                DomainEvent event = new TestableDomainEvent(idx, "name" + idx);
+
+                this.storedEvents.add(
+                        new StoredEvent(
+                                event.getClass().getName(),
+                                event.occurredOn(),
+                                EventSerializer.instance().serialize(event),
+                                idx));
+            }
+        }
+
+        @Override
+        public List<StoredEvent> allStoredEventsBetween(long aLowStoredEventId, long aHighStoredEventId) {
+            int low = (int) Math.max(aLowStoredEventId, 1L);
+            int high = (int) Math.min(aHighStoredEventId, this.storedEvents.size());
+
+            if (low > high) {
+                return new ArrayList<StoredEvent>();
+            }
+
+            return new ArrayList<StoredEvent>(this.storedEvents.subList(low - 1, high));
+        }
+
+        @Override
+        public List<StoredEvent> allStoredEventsSince(long aStoredEventId) {
+            return this.allStoredEventsBetween(aStoredEventId + 1, this.storedEvents.size());
+        }
+
+        @Override
+        public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount) {
+            return this.allStoredEventsBetween(aStoredEventId + 1, aStoredEventId + aMaximumCount);
+        }
+
+        @Override
+        public StoredEvent append(DomainEvent aDomainEvent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+
+        @Override
+        public long countStoredEvents() {
+            return this.storedEvents.size();
+        }
+    }
+
+    private static class TrackerStore implements PublishedNotificationTrackerStore {
+
+        private PublishedNotificationTracker tracker =
+                new PublishedNotificationTracker("unit.test.notifications");
+
+        @Override
+        public PublishedNotificationTracker publishedNotificationTracker() {
+            return this.tracker;
+        }
+
+        @Override
+        public PublishedNotificationTracker publishedNotificationTracker(String aTypeName) {
+            return this.tracker;
+        }
+
+        @Override
+        public void trackMostRecentPublishedNotification(
+                PublishedNotificationTracker aPublishedNotificationTracker,
+                List<Notification> aNotifications) {
+
+            if (!aNotifications.isEmpty()) {
+                aPublishedNotificationTracker.setMostRecentPublishedNotificationId(
+                        aNotifications.get(aNotifications.size() - 1).notificationId());
+            }
+        }
+
+        @Override
+        public String typeName() {
+            return "unit.test.notifications";
+        }
+    }
+}
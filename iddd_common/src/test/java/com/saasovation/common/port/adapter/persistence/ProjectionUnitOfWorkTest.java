@@ -0,0 +1,212 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ProjectionUnitOfWorkTest extends TestCase {
+
+    private static final String CLOSE = "update tbl_vw_forum set closed=1 where forum_id = ?";
+    private static final String REOPEN = "update tbl_vw_forum set closed=0 where forum_id = ?";
+    private static final String START = "insert into tbl_vw_forum(forum_id) values(?)";
+
+    private Connection connection;
+    private List<String> executedBatches;
+    private int preparedStatements;
+    private ProjectionUnitOfWork unitOfWork;
+
+    public ProjectionUnitOfWorkTest() {
+        super();
+    }
+
+    public void testRowsOfOneStatementAreBatched() throws Exception {
+        this.write(START, "f1");
+        this.write(START, "f2");
+        this.write(START, "f3");
+
+        assertTrue(this.executedBatches.isEmpty());
+
+        this.unitOfWork.flush();
+
+        assertEquals(1, this.executedBatches.size());
+        assertEquals(START + " [f1, f2, f3]", this.executedBatches.get(0));
+        assertEquals(1, this.preparedStatements);
+    }
+
+    public void testWritesToOneRowKeepTheirOrder() throws Exception {
+        this.write(CLOSE, "f1");
+        this.write(REOPEN, "f1");
+        this.write(CLOSE, "f1");
+
+        this.unitOfWork.flush();
+
+        assertEquals(3, this.executedBatches.size());
+        assertEquals(CLOSE + " [f1]", this.executedBatches.get(0));
+        assertEquals(REOPEN + " [f1]", this.executedBatches.get(1));
+        assertEquals(CLOSE + " [f1]", this.executedBatches.get(2));
+    }
+
+    public void testWritesToOtherRowsShareBatches() throws Exception {
+        this.write(CLOSE, "f1");
+        this.write(REOPEN, "f2");
+        this.write(CLOSE, "f3");
+        this.write(REOPEN, "f4");
+        this.write(CLOSE, "f5");
+
+        this.unitOfWork.flush();
+
+        assertEquals(2, this.executedBatches.size());
+        assertTrue(this.executedBatches.contains(CLOSE + " [f1, f3, f5]"));
+        assertTrue(this.executedBatches.contains(REOPEN + " [f2, f4]"));
+    }
+
+    public void testWriteWithoutRowKeyKeepsTableOrder() throws Exception {
+        this.write(CLOSE, "f1");
+        this.write(REOPEN, null);
+        this.write(CLOSE, "f2");
+
+        this.unitOfWork.flush();
+
+        assertEquals(3, this.executedBatches.size());
+        assertEquals(CLOSE + " [f1]", this.executedBatches.get(0));
+        assertEquals(REOPEN + " [null]", this.executedBatches.get(1));
+        assertEquals(CLOSE + " [f2]", this.executedBatches.get(2));
+    }
+
+    public void testOtherTablesAreIndependent() throws Exception {
+        String startDiscussion = "insert into tbl_vw_discussion(discussion_id) values(?)";
+
+        this.write(START, "f1");
+        this.write(startDiscussion, "f1");
+        this.write(START, "f2");
+        this.write(startDiscussion, "f2");
+
+        this.unitOfWork.flush();
+
+        assertEquals(2, this.executedBatches.size());
+    }
+
+    public void testReplacementTableNames() throws Exception {
+        ProjectionUnitOfWork.end();
+
+        this.unitOfWork =
+                ProjectionUnitOfWork.start(
+                        this.connection,
+                        Collections.singletonMap("tbl_vw_forum", "tbl_vw_forum_rebuild"));
+
+        this.write(CLOSE, "f1");
+        this.write("update tbl_vw_discussion set closed=1 where discussion_id = ?", "d1");
+
+        this.unitOfWork.flush();
+
+        assertTrue(this.executedBatches.contains(
+                "update tbl_vw_forum_rebuild set closed=1 where forum_id = ? [f1]"));
+        assertTrue(this.executedBatches.contains(
+                "update tbl_vw_discussion set closed=1 where discussion_id = ? [d1]"));
+    }
+
+    public void testNotAWrite() throws Exception {
+        try {
+            this.unitOfWork.prepare("select forum_id from tbl_vw_forum");
+
+            fail("Should have thrown exception.");
+
+        } catch (IllegalArgumentException e) {
+            // good
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        this.executedBatches = new ArrayList<String>();
+
+        this.connection =
+                (Connection) Proxy.newProxyInstance(
+                        this.getClass().getClassLoader(),
+                        new Class<?>[] { Connection.class },
+                        new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object aProxy, Method aMethod, Object[] anArguments) {
+                                if (aMethod.getName().equals("prepareStatement")) {
+                                    ++preparedStatements;
+
+                                    return recordingStatement((String) anArguments[0]);
+                                }
+
+                                return null;
+                            }
+                        });
+
+        this.unitOfWork = ProjectionUnitOfWork.start(this.connection);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ProjectionUnitOfWork.end();
+
+        super.tearDown();
+    }
+
+    private PreparedStatement recordingStatement(final String aStatement) {
+        final List<String> parameters = new ArrayList<String>();
+        final List<String> batch = new ArrayList<String>();
+
+        return (PreparedStatement) Proxy.newProxyInstance(
+                this.getClass().getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object aProxy, Method aMethod, Object[] anArguments) {
+                        String name = aMethod.getName();
+
+                        if (name.equals("setString")) {
+                            parameters.add((String) anArguments[1]);
+                        } else if (name.equals("addBatch")) {
+                            batch.addAll(parameters);
+                            parameters.clear();
+                        } else if (name.equals("executeBatch")) {
+                            executedBatches.add(aStatement + " " + batch);
+                            batch.clear();
+                            return new int[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(aProxy);
+                        } else if (name.equals("equals")) {
+                            return aProxy == anArguments[0];
+                        }
+
+                        return null;
+                    }
+                });
+    }
+
+    private void write(String aStatement, String aRowKey) throws Exception {
+        PreparedStatement statement = this.unitOfWork.prepare(aStatement);
+
+        statement.setString(1, aRowKey);
+
+        this.unitOfWork.add(statement, aRowKey);
+    }
+}
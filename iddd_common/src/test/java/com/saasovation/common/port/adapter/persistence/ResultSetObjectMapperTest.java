@@ -0,0 +1,220 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import junit.framework.TestCase;
+
+public class ResultSetObjectMapperTest extends TestCase {
+
+    private static final String[] ENTRY_COLUMNS = {
+        "entry_id", "units", "closed", "reply_count", "begins"
+    };
+
+    private static final int[] ENTRY_COLUMN_TYPES = {
+        Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.BIGINT, Types.TIMESTAMP
+    };
+
+    private static final String[] JOINED_COLUMNS = {
+        "entry_id", "units", "closed", "reply_count", "begins",
+        "o_invitees_entry_id", "o_invitees_name"
+    };
+
+    private static final int[] JOINED_COLUMN_TYPES = {
+        Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.BIGINT, Types.TIMESTAMP,
+        Types.VARCHAR, Types.VARCHAR
+    };
+
+    public ResultSetObjectMapperTest() {
+        super();
+    }
+
+    public void testMapsColumnsOfEachRow() throws Exception {
+        Timestamp begins = new Timestamp(System.currentTimeMillis());
+
+        ResultSet result =
+                this.resultSetOf(
+                        ENTRY_COLUMNS,
+                        ENTRY_COLUMN_TYPES,
+                        new Object[][] {
+                            { "e1", 10, 1, 5L, begins },
+                            { "e2", 20, 0, null, null }
+                        });
+
+        List<EntryData> entries = this.mapAll(result, new JoinOn());
+
+        assertEquals(2, entries.size());
+
+        EntryData first = entries.get(0);
+
+        assertEquals("e1", first.entryId);
+        assertEquals(10, first.units);
+        assertTrue(first.closed);
+        assertEquals(Long.valueOf(5L), first.replyCount);
+        assertEquals(begins.getTime() + begins.getNanos(), first.begins.getTime());
+        assertTrue(first.invitees.isEmpty());
+
+        EntryData second = entries.get(1);
+
+        assertEquals("e2", second.entryId);
+        assertEquals(20, second.units);
+        assertFalse(second.closed);
+        assertNull(second.replyCount);
+        assertNull(second.begins);
+    }
+
+    public void testMapsJoinedAssociations() throws Exception {
+
+        // a CachedRowSet cannot move next() once after its last row,
+        // so the last row here has no associations to map
+
+        ResultSet result =
+                this.resultSetOf(
+                        JOINED_COLUMNS,
+                        JOINED_COLUMN_TYPES,
+                        new Object[][] {
+                            { "e1", 1, 0, 0L, null, "e1", "zoe" },
+                            { "e1", 1, 0, 0L, null, "e1", "joe" },
+                            { "e3", 3, 0, 0L, null, "e3", "jdoe" },
+                            { "e2", 2, 0, 0L, null, null, null }
+                        });
+
+        List<EntryData> entries =
+                this.mapAll(result, new JoinOn("entry_id", "o_invitees_entry_id"));
+
+        assertEquals(3, entries.size());
+
+        assertEquals("e1", entries.get(0).entryId);
+        assertEquals(2, entries.get(0).invitees.size());
+        assertEquals("e3", entries.get(1).entryId);
+        assertEquals(1, entries.get(1).invitees.size());
+        assertEquals("e2", entries.get(2).entryId);
+        assertTrue(entries.get(2).invitees.isEmpty());
+
+        InviteeData invitee = entries.get(1).invitees.iterator().next();
+
+        assertEquals("e3", invitee.entryId);
+        assertEquals("jdoe", invitee.name);
+    }
+
+    public void testPlanIsSharedByResultsOfOneShape() throws Exception {
+        ResultSet result1 = this.resultSetOf(ENTRY_COLUMNS, ENTRY_COLUMN_TYPES, new Object[0][]);
+        ResultSet result2 = this.resultSetOf(ENTRY_COLUMNS, ENTRY_COLUMN_TYPES, new Object[0][]);
+        ResultSet result3 = this.resultSetOf(JOINED_COLUMNS, JOINED_COLUMN_TYPES, new Object[0][]);
+
+        ResultSetMappingPlan plan = ResultSetMappingPlan.planFor(EntryData.class, null, result1);
+
+        assertSame(plan, ResultSetMappingPlan.planFor(EntryData.class, null, result2));
+        assertNotSame(plan, ResultSetMappingPlan.planFor(EntryData.class, null, result3));
+        assertEquals(0, plan.associations().length);
+        assertEquals(1, ResultSetMappingPlan.planFor(EntryData.class, null, result3).associations().length);
+    }
+
+    private List<EntryData> mapAll(ResultSet aResultSet, JoinOn aJoinOn) throws Exception {
+        List<EntryData> entries = new ArrayList<EntryData>();
+
+        ResultSetObjectMapper<EntryData> mapper =
+                new ResultSetObjectMapper<EntryData>(aResultSet, EntryData.class, aJoinOn);
+
+        while (aResultSet.next()) {
+            entries.add(mapper.mapResultToType());
+        }
+
+        return entries;
+    }
+
+    private ResultSet resultSetOf(
+            String[] aColumnLabels,
+            int[] aColumnTypes,
+            Object[][] aRows)
+    throws Exception {
+
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+
+        metaData.setColumnCount(aColumnLabels.length);
+
+        for (int idx = 0; idx < aColumnLabels.length; ++idx) {
+            metaData.setColumnName(idx + 1, aColumnLabels[idx]);
+            metaData.setColumnLabel(idx + 1, aColumnLabels[idx]);
+            metaData.setColumnType(idx + 1, aColumnTypes[idx]);
+            metaData.setNullable(idx + 1, ResultSetMetaData.columnNullable);
+        }
+
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+
+        rowSet.setMetaData(metaData);
+
+        for (Object[] row : aRows) {
+            rowSet.moveToInsertRow();
+
+            for (int idx = 0; idx < row.length; ++idx) {
+                if (row[idx] == null) {
+                    rowSet.updateNull(idx + 1);
+                } else {
+                    rowSet.updateObject(idx + 1, row[idx]);
+                }
+            }
+
+            // rows are inserted after the current row
+
+            rowSet.insertRow();
+            rowSet.moveToCurrentRow();
+            rowSet.last();
+        }
+
+        rowSet.beforeFirst();
+
+        return rowSet;
+    }
+
+    private static class EntryData {
+
+        private Date begins;
+        private boolean closed;
+        private String entryId;
+        private Set<InviteeData> invitees;
+        private Long replyCount;
+        private int units;
+
+        EntryData() {
+            super();
+
+            this.invitees = new HashSet<InviteeData>(0);
+        }
+    }
+
+    private static class InviteeData {
+
+        private String entryId;
+        private String name;
+
+        InviteeData() {
+            super();
+        }
+    }
+}
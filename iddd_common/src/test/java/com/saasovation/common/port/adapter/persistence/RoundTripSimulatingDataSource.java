@@ -0,0 +1,192 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A local JDBC stand-in for benchmarks. No SQL is executed; every
+ * call that would cross the wire to a real server (statement
+ * preparation, execution, commit and rollback) is counted and
+ * delayed by the configured round trip latency. Queries answer
+ * an empty result.
+ */
+public class RoundTripSimulatingDataSource implements DataSource {
+
+    private long roundTripNanos;
+    private AtomicLong roundTrips;
+
+    public RoundTripSimulatingDataSource(long aRoundTripNanos) {
+        super();
+
+        this.roundTripNanos = aRoundTripNanos;
+        this.roundTrips = new AtomicLong();
+    }
+
+    public long roundTrips() {
+        return this.roundTrips.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return (Connection) this.proxy(Connection.class, new ConnectionHandler());
+    }
+
+    @Override
+    public Connection getConnection(String aUsername, String aPassword) throws SQLException {
+        return this.getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter aWriter) throws SQLException {
+    }
+
+    @Override
+    public void setLoginTimeout(int aSeconds) throws SQLException {
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return 0;
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> anInterface) throws SQLException {
+        throw new SQLException("Not a wrapper.");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> anInterface) throws SQLException {
+        return false;
+    }
+
+    private Object proxy(Class<?> anInterface, InvocationHandler aHandler) {
+        return Proxy.newProxyInstance(
+                this.getClass().getClassLoader(),
+                new Class<?>[] { anInterface },
+                aHandler);
+    }
+
+    private void roundTrip() {
+        this.roundTrips.incrementAndGet();
+
+        if (this.roundTripNanos > 0) {
+            LockSupport.parkNanos(this.roundTripNanos);
+        }
+    }
+
+    private static Object defaultValueFor(Class<?> aType) {
+        if (aType == boolean.class) {
+            return Boolean.FALSE;
+        } else if (aType == int.class) {
+            return Integer.valueOf(0);
+        } else if (aType == long.class) {
+            return Long.valueOf(0L);
+        }
+
+        return null;
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object aProxy, Method aMethod, Object[] anArguments) throws Throwable {
+            String name = aMethod.getName();
+
+            if (name.equals("prepareStatement")) {
+                roundTrip();
+
+                return proxy(PreparedStatement.class, new StatementHandler());
+
+            } else if (name.equals("createStatement")) {
+                return proxy(Statement.class, new StatementHandler());
+
+            } else if (name.equals("commit") || name.equals("rollback")) {
+                roundTrip();
+            }
+
+            return defaultValueFor(aMethod.getReturnType());
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private int batchCount;
+
+        @Override
+        public Object invoke(Object aProxy, Method aMethod, Object[] anArguments) throws Throwable {
+            String name = aMethod.getName();
+
+            if (name.equals("addBatch")) {
+                ++this.batchCount;
+
+            } else if (name.equals("executeBatch")) {
+                roundTrip();
+
+                int[] counts = new int[this.batchCount];
+
+                this.batchCount = 0;
+
+                return counts;
+
+            } else if (name.equals("executeUpdate")) {
+                roundTrip();
+
+                return Integer.valueOf(1);
+
+            } else if (name.equals("execute")) {
+                roundTrip();
+
+            } else if (name.equals("executeQuery")) {
+                roundTrip();
+
+                return proxy(ResultSet.class, new EmptyResultSetHandler());
+            }
+
+            return defaultValueFor(aMethod.getReturnType());
+        }
+    }
+
+    private static class EmptyResultSetHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object aProxy, Method aMethod, Object[] anArguments) throws Throwable {
+            return defaultValueFor(aMethod.getReturnType());
+        }
+    }
+}
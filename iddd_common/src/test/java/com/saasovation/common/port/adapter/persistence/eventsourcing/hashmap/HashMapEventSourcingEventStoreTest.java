@@ -114,6 +114,32 @@ public class HashMapEventSourcingEventStoreTest extends TestCase {
         assertEquals(8, loggedEvents.size());
     }
 
+    public void testBoundedEventsSince() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 10; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        List<DispatchableDomainEvent> loggedEvents = this.eventStore.eventsSince(2, 5);
+
+        assertEquals(5, loggedEvents.size());
+        assertEquals(3, loggedEvents.get(0).eventId());
+        assertEquals(7, loggedEvents.get(4).eventId());
+
+        for (DispatchableDomainEvent loggedEvent : loggedEvents) {
+            assertEquals(eventId.streamName(), loggedEvent.streamName());
+        }
+
+        assertEquals(3, this.eventStore.eventsSince(7, 5).size());
+    }
+
     public void testEventStreamSince() throws Exception {
         assertNotNull(this.eventStore);
 
@@ -183,6 +209,92 @@ public class HashMapEventSourcingEventStoreTest extends TestCase {
         }
     }
 
+    public void testEventStreamCursorSince() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 10; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        EventStreamCursor cursor = this.eventStore.eventStreamCursorSince(eventId.withStreamVersion(4));
+
+        try {
+            assertEquals(3, cursor.version());
+
+            for (int idx = 4; idx <= 10; ++idx) {
+                assertTrue(cursor.hasNext());
+
+                DomainEvent domainEvent = cursor.next();
+
+                assertEquals(idx, ((TestableDomainEvent) domainEvent).id());
+                assertEquals(idx, cursor.version());
+            }
+
+            assertFalse(cursor.hasNext());
+
+        } finally {
+            cursor.close();
+        }
+
+        cursor = this.eventStore.eventStreamCursorSince(eventId.withStreamVersion(11));
+
+        try {
+            assertFalse(cursor.hasNext());
+            assertEquals(10, cursor.version());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testFullEventStreamCursorFor() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 3; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        EventStreamCursor cursor = this.eventStore.fullEventStreamCursorFor(eventId.withStreamVersion(3));
+
+        try {
+            int count = 0;
+
+            while (cursor.hasNext()) {
+                assertEquals(++count, ((TestableDomainEvent) cursor.next()).id());
+            }
+
+            assertEquals(3, count);
+            assertEquals(3, cursor.version());
+
+        } finally {
+            cursor.close();
+        }
+
+        cursor = this.eventStore.fullEventStreamCursorFor(new EventStreamId(UUID.randomUUID().toString()));
+
+        try {
+            cursor.hasNext();
+
+            fail("Should have thrown an exception.");
+
+        } catch (EventStoreException e) {
+            // good
+        } finally {
+            cursor.close();
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         this.eventStore = HashMapEventStore.instance();
@@ -17,6 +17,8 @@ package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
@@ -28,7 +30,11 @@ import com.saasovation.common.event.sourcing.EventStore;
 import com.saasovation.common.event.sourcing.EventStoreAppendException;
 import com.saasovation.common.event.sourcing.EventStoreException;
 import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamCursor;
 import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.serializer.BinarySerializationFormat;
+import com.saasovation.common.serializer.FormattedSerializer;
+import com.saasovation.common.serializer.JSONSerializationFormat;
 
 public class LevelDBEventSourcingEventStoreTest extends TestCase {
 
@@ -69,6 +75,56 @@ public class LevelDBEventSourcingEventStoreTest extends TestCase {
         }
     }
 
+    public void testAppendsOfEveryFormatAreRead() throws Exception {
+        LevelDBEventStore levelDBEventStore = (LevelDBEventStore) this.eventStore;
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        events.add(new TestableDomainEvent(1, "Name: 1"));
+
+        levelDBEventStore.setSerializer(new FormattedSerializer(new JSONSerializationFormat()));
+
+        this.eventStore.appendWith(eventId, events);
+
+        events.clear();
+
+        events.add(new TestableDomainEvent(2, "Name: 2"));
+
+        levelDBEventStore.setSerializer(new FormattedSerializer(new BinarySerializationFormat()));
+
+        try {
+            this.eventStore.appendWith(eventId.withStreamVersion(2), events);
+        } finally {
+            levelDBEventStore.setSerializer(FormattedSerializer.instance());
+        }
+
+        List<LoggedJournalEntry> entries = LevelDBJournal.instance().loggedJournalEntriesSince(0);
+
+        assertEquals(2, entries.size());
+
+        byte[] formatIds = { JSONSerializationFormat.FORMAT_ID, BinarySerializationFormat.FORMAT_ID };
+
+        for (int idx = 0; idx < formatIds.length; ++idx) {
+            LoggedJournalEntry entry = entries.get(idx);
+
+            assertEquals(TestableDomainEvent.class.getName(), entry.nextMetadataValue());
+            assertEquals(formatIds[idx], entry.valueBytes()[0]);
+        }
+
+        EventStream eventStream = this.eventStore.fullEventStreamFor(eventId);
+
+        assertEquals(2, eventStream.version());
+
+        for (int idx = 1; idx <= 2; ++idx) {
+            TestableDomainEvent domainEvent = (TestableDomainEvent) eventStream.events().get(idx - 1);
+
+            assertEquals(idx, domainEvent.id());
+            assertEquals("Name: " + idx, domainEvent.name());
+        }
+    }
+
     public void testAppendWrongVersion() throws Exception {
         assertNotNull(this.eventStore);
 
@@ -124,6 +180,32 @@ public class LevelDBEventSourcingEventStoreTest extends TestCase {
         assertEquals(8, loggedEvents.size());
     }
 
+    public void testBoundedEventsSince() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 10; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        List<DispatchableDomainEvent> loggedEvents = this.eventStore.eventsSince(2, 5);
+
+        assertEquals(5, loggedEvents.size());
+        assertEquals(3, loggedEvents.get(0).eventId());
+        assertEquals(7, loggedEvents.get(4).eventId());
+
+        for (DispatchableDomainEvent loggedEvent : loggedEvents) {
+            assertEquals(eventId.streamName(), loggedEvent.streamName());
+        }
+
+        assertEquals(3, this.eventStore.eventsSince(7, 5).size());
+    }
+
     public void testEventStreamSince() throws Exception {
         assertNotNull(this.eventStore);
 
@@ -193,6 +275,165 @@ public class LevelDBEventSourcingEventStoreTest extends TestCase {
         }
     }
 
+    public void testEventStreamCursorSince() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 10; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        EventStreamCursor cursor = this.eventStore.eventStreamCursorSince(eventId.withStreamVersion(4));
+
+        try {
+            assertEquals(3, cursor.version());
+
+            for (int idx = 4; idx <= 10; ++idx) {
+                assertTrue(cursor.hasNext());
+
+                DomainEvent domainEvent = cursor.next();
+
+                assertEquals(idx, ((TestableDomainEvent) domainEvent).id());
+                assertEquals(idx, cursor.version());
+            }
+
+            assertFalse(cursor.hasNext());
+
+        } finally {
+            cursor.close();
+        }
+
+        cursor = this.eventStore.eventStreamCursorSince(eventId.withStreamVersion(11));
+
+        try {
+            assertFalse(cursor.hasNext());
+            assertEquals(10, cursor.version());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testFullEventStreamCursorFor() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 3; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        EventStreamCursor cursor = this.eventStore.fullEventStreamCursorFor(eventId.withStreamVersion(3));
+
+        try {
+            int count = 0;
+
+            while (cursor.hasNext()) {
+                assertEquals(++count, ((TestableDomainEvent) cursor.next()).id());
+            }
+
+            assertEquals(3, count);
+            assertEquals(3, cursor.version());
+
+        } finally {
+            cursor.close();
+        }
+
+        cursor = this.eventStore.fullEventStreamCursorFor(new EventStreamId(UUID.randomUUID().toString()));
+
+        try {
+            cursor.hasNext();
+
+            fail("Should have thrown an exception.");
+
+        } catch (EventStoreException e) {
+            // good
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testGroupCommitAppendsAreGapFree() throws Exception {
+        assertNotNull(this.eventStore);
+
+        LevelDBJournal.instance().useGroupCommit(true);
+
+        final int writers = 8;
+        final int appendsPerWriter = 25;
+
+        final EventStreamId contendedId = new EventStreamId(UUID.randomUUID().toString());
+        final AtomicInteger rejectedAppends = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int writer = 0; writer < writers; ++writer) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+                    for (int idx = 1; idx <= appendsPerWriter; ++idx) {
+                        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+                        events.add(new TestableDomainEvent(idx, "Name: " + idx));
+
+                        eventStore.appendWith(eventId.withStreamVersion(idx), events);
+                    }
+
+                    // every writer races for the same version of one stream
+
+                    try {
+                        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+                        events.add(new TestableDomainEvent(0, "Contended"));
+
+                        eventStore.appendWith(contendedId, events);
+
+                    } catch (EventStoreAppendException e) {
+                        rejectedAppends.incrementAndGet();
+                    }
+                }
+            };
+
+            thread.start();
+
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(writers - 1, rejectedAppends.get());
+
+        List<DispatchableDomainEvent> loggedEvents = this.eventStore.eventsSince(0);
+
+        assertEquals(writers * appendsPerWriter + 1, loggedEvents.size());
+
+        for (int idx = 0; idx < loggedEvents.size(); ++idx) {
+            assertEquals(idx + 1, loggedEvents.get(idx).eventId());
+        }
+
+        LevelDBJournal.instance().useGroupCommit(false);
+    }
+
     @Override
     protected void setUp() throws Exception {
         this.eventStore = LevelDBEventStore.instance(TEST_DATABASE);
@@ -0,0 +1,132 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures LevelDBJournal append throughput with group commit and
+ * with the per-stream locked write, for 1 to 64 writer threads and
+ * with and without synced writes.
+ * Each invocation lets every writer append appendsPerWriter single
+ * entry appends to its own stream; the reported time per invocation
+ * covers writerThreads * appendsPerWriter appends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelDBJournalGroupCommitBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean groupCommit;
+
+    @Param({ "false", "true" })
+    public boolean syncWrites;
+
+    @Param({ "1", "4", "16", "64" })
+    public int writerThreads;
+
+    @Param({ "50" })
+    public int appendsPerWriter;
+
+    private ExecutorService executor;
+    private LevelDBJournal journal;
+    private List<Callable<Void>> writers;
+
+    @Setup
+    public void setUp() throws Exception {
+        File directory = File.createTempFile("journal", "");
+        directory.delete();
+
+        this.journal = LevelDBJournal.initializeInstance(directory.getPath());
+        this.journal.useGroupCommit(this.groupCommit);
+        this.journal.useSyncWrites(this.syncWrites);
+
+        this.executor = Executors.newFixedThreadPool(this.writerThreads);
+
+        this.writers = new ArrayList<Callable<Void>>();
+
+        for (int idx = 0; idx < this.writerThreads; ++idx) {
+            this.writers.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    appendToNewStream();
+
+                    return null;
+                }
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+
+        this.journal.purge();
+        this.journal.close();
+    }
+
+    @Benchmark
+    public void concurrentAppends() throws Exception {
+        for (Future<Void> future : this.executor.invokeAll(this.writers)) {
+            future.get();
+        }
+    }
+
+    private void appendToNewStream() {
+        String streamName = UUID.randomUUID().toString();
+
+        for (int version = 1; version <= this.appendsPerWriter; ++version) {
+            String referenceKey =
+                    JournalKeyProvider.ES_REFERENCE_PREFIX_KEY
+                    + streamName
+                    + JournalKeyProvider.ES_KEY_DELIMITER
+                    + version;
+
+            LoggableJournalEntry entry =
+                    new LoggableJournalEntry(
+                            this.journal.valueWithMetadata(
+                                    "{\"id\":" + version + ",\"name\":\"Name: " + version + "\"}",
+                                    "com.saasovation.common.event.TestableDomainEvent"),
+                            referenceKey,
+                            streamName);
+
+            this.journal.logEntries(new LoggableJournalEntry[] { entry });
+        }
+    }
+}
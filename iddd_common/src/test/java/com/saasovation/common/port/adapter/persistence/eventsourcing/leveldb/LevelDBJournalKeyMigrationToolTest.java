@@ -0,0 +1,159 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+package com.saasovation.common.port.adapter.persistence.eventsourcing.leveldb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.domain.model.DomainEventPublisher;
+import com.saasovation.common.event.EventSerializer;
+import com.saasovation.common.event.TestableDomainEvent;
+import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
+import com.saasovation.common.event.sourcing.EventStore;
+import com.saasovation.common.event.sourcing.EventStream;
+import com.saasovation.common.event.sourcing.EventStreamId;
+
+public class LevelDBJournalKeyMigrationToolTest extends TestCase {
+
+    protected static final String TEST_DATABASE = LevelDBJournalKeyMigrationToolTest.class.getResource("/").getPath() + "/data/leveldb/esMigratedEventStore";
+
+    private EventStore eventStore;
+
+    public LevelDBJournalKeyMigrationToolTest() {
+        super();
+    }
+
+    public void testMigrateVersion1Keys() throws Exception {
+        this.writeVersion1Journal("migrated_stream", 12);
+
+        this.eventStore = LevelDBEventStore.instance(TEST_DATABASE);
+
+        EventStream eventStream =
+                this.eventStore.fullEventStreamFor(new EventStreamId("migrated_stream"));
+
+        assertEquals(12, eventStream.version());
+        assertEquals(12, eventStream.events().size());
+
+        for (int idx = 1; idx <= 12; ++idx) {
+            DomainEvent domainEvent = eventStream.events().get(idx - 1);
+
+            assertEquals(idx, ((TestableDomainEvent) domainEvent).id());
+        }
+
+        List<DispatchableDomainEvent> loggedEvents = this.eventStore.eventsSince(9);
+
+        assertEquals(3, loggedEvents.size());
+        assertEquals(10, loggedEvents.get(0).eventId());
+
+        // the saved journal sequence carries over
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+        events.add(new TestableDomainEvent(13, "Name: 13"));
+
+        this.eventStore.appendWith(new EventStreamId("migrated_stream", 13), events);
+
+        assertEquals(13, this.eventStore.eventsSince(12).get(0).eventId());
+
+        // a second open finds nothing left to migrate
+
+        this.eventStore.close();
+
+        this.eventStore = LevelDBEventStore.instance(TEST_DATABASE);
+
+        assertEquals(13, this.eventStore.fullEventStreamFor(new EventStreamId("migrated_stream")).version());
+    }
+
+    public void testKeyOrderIsNumericOrder() throws Exception {
+        assertTrue(this.compare(JournalKeyFormat.journalKey(9L), JournalKeyFormat.journalKey(10L)) < 0);
+        assertTrue(this.compare(JournalKeyFormat.journalKey(255L), JournalKeyFormat.journalKey(256L)) < 0);
+
+        assertTrue(this.compare(
+                JournalKeyFormat.referenceKey("ES_R:stream:9"),
+                JournalKeyFormat.referenceKey("ES_R:stream:10")) < 0);
+
+        // a stream's keys are not interleaved with a longer stream name's
+
+        assertTrue(this.compare(
+                JournalKeyFormat.referenceKey("ES_R:stream:1000"),
+                JournalKeyFormat.referenceKey("ES_R:stream0:1")) < 0);
+
+        assertEquals(10L, JournalKeyFormat.journalSequenceOf(JournalKeyFormat.journalKey(10L)));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        DomainEventPublisher.instance().reset();
+
+        super.setUp();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.eventStore != null) {
+            this.eventStore.purge();
+
+            this.eventStore.close();
+        }
+
+        super.tearDown();
+    }
+
+    private int compare(byte[] aKey1, byte[] aKey2) {
+        for (int idx = 0; idx < Math.min(aKey1.length, aKey2.length); ++idx) {
+            int difference = (aKey1[idx] & 0xff) - (aKey2[idx] & 0xff);
+
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return aKey1.length - aKey2.length;
+    }
+
+    private void writeVersion1Journal(String aStreamName, int aCount) throws Exception {
+        DB database =
+                new Iq80DBFactory().open(
+                        new File(TEST_DATABASE),
+                        new Options().createIfMissing(true));
+
+        try {
+            for (int idx = 1; idx <= aCount; ++idx) {
+                TestableDomainEvent event = new TestableDomainEvent(idx, "Name: " + idx);
+
+                String referenceKey = "ES_R:" + aStreamName + ":" + idx;
+
+                String journalValue =
+                        referenceKey
+                        + "#" + event.getClass().getName()
+                        + "#" + EventSerializer.instance().serialize(event);
+
+                database.put(("ES_J:" + idx).getBytes(), journalValue.getBytes());
+                database.put(referenceKey.getBytes(), ("" + idx).getBytes());
+            }
+
+            database.put("ES_J:0".getBytes(), ("" + aCount).getBytes());
+
+        } finally {
+            database.close();
+        }
+    }
+}
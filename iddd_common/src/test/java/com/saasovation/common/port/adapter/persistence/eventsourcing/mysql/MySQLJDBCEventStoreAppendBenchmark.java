@@ -0,0 +1,114 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence.eventsourcing.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.EventSerializer;
+import com.saasovation.common.event.TestableDomainEvent;
+import com.saasovation.common.event.sourcing.EventStreamId;
+import com.saasovation.common.port.adapter.persistence.RoundTripSimulatingDataSource;
+
+/**
+ * Compares the batched append of MySQLJDBCEventStore with the
+ * former one-statement-per-event append, using a JDBC stand-in
+ * that charges a simulated round trip per server call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MySQLJDBCEventStoreAppendBenchmark {
+
+    @Param({ "1", "5", "50" })
+    public int eventCount;
+
+    @Param({ "100000" })
+    public long roundTripNanos;
+
+    private RoundTripSimulatingDataSource dataSource;
+    private List<DomainEvent> events;
+    private MySQLJDBCEventStore eventStore;
+    private EventStreamId streamId;
+
+    @Setup
+    public void setUp() {
+        this.dataSource = new RoundTripSimulatingDataSource(this.roundTripNanos);
+
+        this.eventStore = new MySQLJDBCEventStore(this.dataSource);
+
+        this.events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= this.eventCount; ++idx) {
+            this.events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        this.streamId = new EventStreamId(UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public void batchedAppend() {
+        this.eventStore.appendWith(this.streamId, this.events);
+    }
+
+    @Benchmark
+    public void perEventAppend() throws Exception {
+        Connection connection = this.dataSource.getConnection();
+
+        try {
+            int index = 0;
+
+            for (DomainEvent event : this.events) {
+                PreparedStatement statement =
+                        connection
+                            .prepareStatement(
+                                    "INSERT INTO tbl_es_event_store VALUES(?, ?, ?, ?, ?)");
+
+                statement.setLong(1, 0);
+                statement.setString(2, EventSerializer.instance().serialize(event));
+                statement.setString(3, event.getClass().getName());
+                statement.setString(4, this.streamId.streamName());
+                statement.setInt(5, this.streamId.streamVersion() + index++);
+
+                statement.executeUpdate();
+            }
+
+            connection.commit();
+
+        } finally {
+            connection.close();
+        }
+    }
+}
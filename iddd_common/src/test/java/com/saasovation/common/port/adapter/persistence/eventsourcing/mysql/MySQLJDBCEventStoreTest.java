@@ -30,6 +30,7 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 import com.saasovation.common.domain.model.DomainEvent;
 import com.saasovation.common.domain.model.DomainEventPublisher;
+import com.saasovation.common.event.EventSerializer;
 import com.saasovation.common.event.TestableDomainEvent;
 import com.saasovation.common.event.sourcing.DispatchableDomainEvent;
 import com.saasovation.common.event.sourcing.EventStore;
@@ -76,6 +77,102 @@ public class MySQLJDBCEventStoreTest extends TestCase {
         }
     }
 
+    public void testAppendBatchDuplicateVersionRollsBack() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 3; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        events.clear();
+        events.add(new TestableDomainEvent(7, "Name: " + 7));
+
+        this.eventStore.appendWith(eventId.withStreamVersion(7), events);
+
+        // versions 4, 5 and 6 are free but 7 is taken, so the
+        // duplicate is the fourth row of the batch, not the first
+
+        events.clear();
+
+        for (int idx = 4; idx <= 8; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        try {
+            this.eventStore.appendWith(eventId.withStreamVersion(4), events);
+
+            fail("Should have thrown an exception.");
+
+        } catch (EventStoreAppendException e) {
+            // good
+        }
+
+        List<TestableDomainEvent> storedEvents = new ArrayList<TestableDomainEvent>();
+        List<Integer> streamVersions = this.storedStreamVersions(eventId, storedEvents);
+
+        assertEquals(4, streamVersions.size());
+        assertEquals(1, streamVersions.get(0).intValue());
+        assertEquals(2, streamVersions.get(1).intValue());
+        assertEquals(3, streamVersions.get(2).intValue());
+        assertEquals(7, streamVersions.get(3).intValue());
+        assertEquals(7, storedEvents.get(3).id());
+
+        // nothing of the failed batch is left behind
+
+        events.clear();
+
+        for (int idx = 4; idx <= 6; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        this.eventStore.appendWith(eventId.withStreamVersion(4), events);
+
+        assertEquals(7, this.storedStreamVersions(eventId, null).size());
+    }
+
+    public void testAppendBatchInStreamVersionOrder() throws Exception {
+        assertNotNull(this.eventStore);
+
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+
+        for (int idx = 1; idx <= 25; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        EventStreamId eventId = new EventStreamId(UUID.randomUUID().toString());
+
+        this.eventStore.appendWith(eventId, events);
+
+        events.clear();
+
+        for (int idx = 26; idx <= 30; ++idx) {
+            events.add(new TestableDomainEvent(idx, "Name: " + idx));
+        }
+
+        this.eventStore.appendWith(eventId.withStreamVersion(26), events);
+
+        List<TestableDomainEvent> storedEvents = new ArrayList<TestableDomainEvent>();
+        List<Integer> streamVersions = this.storedStreamVersions(eventId, storedEvents);
+
+        assertEquals(30, streamVersions.size());
+
+        for (int idx = 1; idx <= 30; ++idx) {
+            assertEquals(idx, streamVersions.get(idx - 1).intValue());
+            assertEquals(idx, storedEvents.get(idx - 1).id());
+        }
+
+        EventStream eventStream = this.eventStore.fullEventStreamFor(eventId);
+
+        assertEquals(30, eventStream.version());
+        assertEquals(30, eventStream.events().size());
+    }
+
     public void testAppendWrongVersion() throws Exception {
         assertNotNull(this.eventStore);
 
@@ -261,4 +358,56 @@ public class MySQLJDBCEventStoreTest extends TestCase {
 
         return greatestEventId;
     }
+
+    private List<Integer> storedStreamVersions(
+            EventStreamId anEventStreamId,
+            List<TestableDomainEvent> aStoredEvents)
+    throws Exception {
+
+        List<Integer> streamVersions = new ArrayList<Integer>();
+
+        DataSource dataSource = (DataSource) applicationContext.getBean("eventStoreDataSource");
+        Connection connection = dataSource.getConnection();
+        ResultSet result = null;
+
+        try {
+            PreparedStatement statement =
+                    connection
+                        .prepareStatement(
+                                "SELECT stream_version, event_body FROM tbl_es_event_store "
+                                + "WHERE stream_name = ? "
+                                + "ORDER BY event_id");
+
+            statement.setString(1, anEventStreamId.streamName());
+
+            result = statement.executeQuery();
+
+            while (result.next()) {
+                streamVersions.add(result.getInt(1));
+
+                if (aStoredEvents != null) {
+                    aStoredEvents.add(
+                            EventSerializer
+                                .instance()
+                                .deserialize(result.getString(2), TestableDomainEvent.class));
+                }
+            }
+
+        } finally {
+            if (result != null) {
+                try {
+                    result.close();
+                } catch (Throwable t) {
+                    // ignore
+                }
+            }
+            try {
+                connection.close();
+            } catch (Throwable t) {
+                // ignore
+            }
+        }
+
+        return streamVersions;
+    }
 }
@@ -0,0 +1,101 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.iq80.leveldb.DB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.saasovation.common.event.EventStore;
+import com.saasovation.common.event.TestableDomainEvent;
+
+/**
+ * Appends domain events from several threads at once, each unit of
+ * work appending eventsPerUnitOfWork of them. With an appendLock of
+ * "global" each unit of work also locks the whole event store until
+ * it commits, as every append did before, so that the two may be
+ * compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(8)
+@Fork(1)
+public class LevelDBEventStoreAppendBenchmark {
+
+    private static final String TEST_DATABASE =
+            LevelDBEventStoreAppendBenchmark.class.getResource("/").getPath()
+            + "/data/leveldb/iddd_common_benchmark";
+
+    @Param({ "global", "none" })
+    public String appendLock;
+
+    @Param({ "1", "10" })
+    public int eventsPerUnitOfWork;
+
+    private DB database;
+    private EventStore eventStore;
+
+    @Setup
+    public void setUp() {
+        this.database = LevelDBProvider.instance().databaseFrom(TEST_DATABASE);
+
+        LevelDBProvider.instance().purge(this.database);
+
+        this.eventStore = new LevelDBEventStore(TEST_DATABASE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        LevelDBProvider.instance().purge(this.database);
+    }
+
+    @Benchmark
+    public long appendEvents() {
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database);
+
+        if ("global".equals(this.appendLock)) {
+            uow.lock(new LevelDBKey("ES_EVT_PK:").key());
+        }
+
+        long lastStoredEventId = 0;
+
+        for (int idx = 0; idx < this.eventsPerUnitOfWork; ++idx) {
+            lastStoredEventId =
+                    this.eventStore.append(
+                            new TestableDomainEvent(idx, "benchmarkDomainEvent")).eventId();
+        }
+
+        uow.commit();
+
+        return lastStoredEventId;
+    }
+}
@@ -14,11 +14,24 @@
 
 package com.saasovation.common.port.adapter.persistence.leveldb;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.saasovation.common.event.EventSerializer;
 import com.saasovation.common.event.EventStore;
 import com.saasovation.common.event.StoredEvent;
 import com.saasovation.common.event.TestableDomainEvent;
+import com.saasovation.common.notification.MockPublishedNotificationTrackerStore;
+import com.saasovation.common.notification.NotificationPublisher;
+import com.saasovation.common.notification.NotificationPublishingScheduler;
+import com.saasovation.common.notification.SignalingEventStore;
+import com.saasovation.common.serializer.BinarySerializationFormat;
+import com.saasovation.common.serializer.FormattedSerializer;
+import com.saasovation.common.serializer.ObjectSerializer;
 
 public class LevelDBEventStoreTest extends LevelDBTest {
 
@@ -50,6 +63,68 @@ public class LevelDBEventStoreTest extends LevelDBTest {
         assertEquals(10, eventStore.allStoredEventsSince(totalEvents - 10).size());
     }
 
+    public void testAllStoredEventsSinceInPages() throws Exception {
+        EventStore eventStore = this.eventStore();
+
+        long totalEvents = eventStore.countStoredEvents();
+
+        long lastStoredEventId = 0;
+        long readEvents = 0;
+
+        List<StoredEvent> page = eventStore.allStoredEventsSince(lastStoredEventId, 7);
+
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 7);
+            assertEquals(lastStoredEventId + 1, page.get(0).eventId());
+
+            readEvents += page.size();
+            lastStoredEventId = page.get(page.size() - 1).eventId();
+
+            page = eventStore.allStoredEventsSince(lastStoredEventId, 7);
+        }
+
+        assertEquals(totalEvents, readEvents);
+        assertEquals(totalEvents, lastStoredEventId);
+    }
+
+    public void testAllStoredEventsSinceInPagesSkipsRolledBackIds() throws Exception {
+        EventStore eventStore = this.eventStore();
+
+        long numberOfEvents = eventStore.countStoredEvents();
+
+        // a gap within a page, then a gap wider than a whole page
+
+        this.appendEvents(3, false);
+        this.appendEvents(2, true);
+        this.appendEvents(7, false);
+        this.appendEvents(6, true);
+
+        assertEquals(numberOfEvents + 18, eventStore.countStoredEvents());
+
+        List<StoredEvent> page = eventStore.allStoredEventsSince(numberOfEvents, 5);
+
+        assertEquals(5, page.size());
+        assertEquals(numberOfEvents + 4, page.get(0).eventId());
+        assertEquals(numberOfEvents + 5, page.get(1).eventId());
+        assertEquals(numberOfEvents + 13, page.get(2).eventId());
+        assertEquals(numberOfEvents + 15, page.get(4).eventId());
+
+        page = eventStore.allStoredEventsSince(numberOfEvents + 15, 5);
+
+        assertEquals(3, page.size());
+        assertEquals(numberOfEvents + 16, page.get(0).eventId());
+        assertEquals(numberOfEvents + 18, page.get(2).eventId());
+
+        // a page starting inside the wide gap is not empty
+
+        page = eventStore.allStoredEventsSince(numberOfEvents + 5, 5);
+
+        assertEquals(5, page.size());
+        assertEquals(numberOfEvents + 13, page.get(0).eventId());
+
+        assertTrue(eventStore.allStoredEventsSince(numberOfEvents + 18, 5).isEmpty());
+    }
+
     public void testAppend() throws Exception {
         EventStore eventStore = this.eventStore();
 
@@ -59,6 +134,10 @@ public class LevelDBEventStoreTest extends LevelDBTest {
 
         StoredEvent storedEvent = eventStore.append(domainEvent);
 
+        assertEquals(numberOfEvents, eventStore.countStoredEvents());
+
+        LevelDBUnitOfWork.current().commit();
+
         assertTrue(eventStore.countStoredEvents() > numberOfEvents);
         assertEquals(numberOfEvents + 1, eventStore.countStoredEvents());
 
@@ -72,6 +151,200 @@ public class LevelDBEventStoreTest extends LevelDBTest {
         assertEquals(domainEvent.occurredOn(), reconstitutedDomainEvent.occurredOn());
     }
 
+    public void testAppendRolledBack() throws Exception {
+        EventStore eventStore = this.eventStore();
+
+        long numberOfEvents = eventStore.countStoredEvents();
+
+        eventStore.append(new TestableDomainEvent(10001, "testRolledBack"));
+
+        LevelDBUnitOfWork.current().rollback();
+
+        StoredEvent storedEvent = eventStore.append(new TestableDomainEvent(10002, "testCommitted"));
+
+        LevelDBUnitOfWork.current().commit();
+
+        assertEquals(numberOfEvents + 2, storedEvent.eventId());
+        assertEquals(numberOfEvents + 2, eventStore.countStoredEvents());
+
+        List<StoredEvent> storedEvents = eventStore.allStoredEventsSince(numberOfEvents);
+
+        assertEquals(1, storedEvents.size());
+        assertEquals(storedEvent.eventId(), storedEvents.get(0).eventId());
+    }
+
+    public void testAppendCommittedOutOfOrder() throws Exception {
+        final EventStore eventStore = this.eventStore();
+
+        long numberOfEvents = eventStore.countStoredEvents();
+
+        final CountDownLatch appended = new CountDownLatch(1);
+        final CountDownLatch committing = new CountDownLatch(1);
+
+        Thread earlierAppender = new Thread() {
+            @Override
+            public void run() {
+                eventStore.append(new TestableDomainEvent(10001, "testEarlier"));
+
+                appended.countDown();
+
+                try {
+                    committing.await();
+                } catch (InterruptedException e) {
+                    // fall through
+                }
+
+                LevelDBUnitOfWork.current().commit();
+            }
+        };
+
+        earlierAppender.start();
+
+        appended.await();
+
+        StoredEvent laterEvent = eventStore.append(new TestableDomainEvent(10002, "testLater"));
+
+        LevelDBUnitOfWork.current().commit();
+
+        assertEquals(numberOfEvents + 2, laterEvent.eventId());
+
+        // the later event is committed but not visible before the earlier
+
+        assertEquals(numberOfEvents, eventStore.countStoredEvents());
+        assertTrue(eventStore.allStoredEventsSince(numberOfEvents).isEmpty());
+        assertTrue(eventStore.allStoredEventsBetween(numberOfEvents + 1, numberOfEvents + 2).isEmpty());
+
+        committing.countDown();
+
+        earlierAppender.join();
+
+        assertEquals(numberOfEvents + 2, eventStore.countStoredEvents());
+        assertEquals(2, eventStore.allStoredEventsSince(numberOfEvents).size());
+    }
+
+    public void testAppendAbandonedUnitOfWork() throws Exception {
+        final EventStore eventStore = this.eventStore();
+
+        long numberOfEvents = eventStore.countStoredEvents();
+
+        final CountDownLatch appended = new CountDownLatch(1);
+        final CountDownLatch committing = new CountDownLatch(1);
+        final List<Exception> commitFailures = new ArrayList<Exception>();
+
+        System.setProperty(LevelDBEventStore.LEASE_PROPERTY_NAME, "100");
+
+        Thread abandoningAppender = new Thread() {
+            @Override
+            public void run() {
+                eventStore.append(new TestableDomainEvent(10001, "testAbandoned"));
+
+                appended.countDown();
+
+                try {
+                    committing.await();
+
+                    LevelDBUnitOfWork.current().commit();
+
+                } catch (Exception e) {
+                    commitFailures.add(e);
+                }
+            }
+        };
+
+        try {
+            abandoningAppender.start();
+
+            appended.await();
+
+        } finally {
+            System.clearProperty(LevelDBEventStore.LEASE_PROPERTY_NAME);
+        }
+
+        StoredEvent laterEvent = eventStore.append(new TestableDomainEvent(10002, "testLater"));
+
+        LevelDBUnitOfWork.current().commit();
+
+        assertEquals(numberOfEvents, eventStore.countStoredEvents());
+
+        // the abandoned id's lease runs out, and the later event is readable
+
+        Thread.sleep(200L);
+
+        assertEquals(numberOfEvents + 2, eventStore.countStoredEvents());
+
+        List<StoredEvent> storedEvents = eventStore.allStoredEventsSince(numberOfEvents);
+
+        assertEquals(1, storedEvents.size());
+        assertEquals(laterEvent.eventId(), storedEvents.get(0).eventId());
+
+        // the unit of work whose lease ran out cannot commit below the watermark
+
+        committing.countDown();
+
+        abandoningAppender.join();
+
+        assertEquals(1, commitFailures.size());
+        assertTrue(commitFailures.get(0) instanceof IllegalStateException);
+        assertEquals(1, eventStore.allStoredEventsSince(numberOfEvents).size());
+        assertTrue(eventStore.allStoredEventsBetween(numberOfEvents + 1, numberOfEvents + 1).isEmpty());
+    }
+
+    public void testAppendSignaledAfterCommit() throws Exception {
+        final EventStore eventStore = this.eventStore();
+
+        final long numberOfEvents = eventStore.countStoredEvents();
+
+        // each run records how many of the new events it could read
+
+        final List<Integer> readableByRun = new CopyOnWriteArrayList<Integer>();
+
+        NotificationPublishingScheduler scheduler =
+                new NotificationPublishingScheduler(new NotificationPublisher() {
+                    @Override
+                    public void publishNotifications() {
+                        readableByRun.add(eventStore.allStoredEventsSince(numberOfEvents).size());
+                    }
+
+                    @Override
+                    public boolean internalOnlyTestConfirmation() {
+                        return false;
+                    }
+                }, new MockPublishedNotificationTrackerStore(), 0L, 60000L);
+
+        EventStore signalingEventStore = new SignalingEventStore(eventStore, scheduler) {
+            @Override
+            protected void afterCommit(Runnable aSignal) {
+                LevelDBUnitOfWork.current().afterCommit(aSignal);
+            }
+        };
+
+        try {
+            scheduler.start();
+
+            signalingEventStore.append(new TestableDomainEvent(10001, "testSignaled"));
+
+            // the unit of work outlasts the runs that follow the append
+
+            Thread.sleep(200L);
+
+            int runsBeforeCommit = readableByRun.size();
+
+            assertFalse(readableByRun.contains(1));
+
+            LevelDBUnitOfWork.current().commit();
+
+            for (int wait = 0; wait < 100 && readableByRun.size() == runsBeforeCommit; ++wait) {
+                Thread.sleep(10L);
+            }
+
+            assertTrue(readableByRun.size() > runsBeforeCommit);
+            assertEquals(1, readableByRun.get(runsBeforeCommit).intValue());
+
+        } finally {
+            scheduler.close();
+        }
+    }
+
     public void testCountStoredEvents() throws Exception {
         EventStore eventStore = this.eventStore();
 
@@ -124,6 +397,107 @@ public class LevelDBEventStoreTest extends LevelDBTest {
         assertEquals(domainEvent.occurredOn(), reconstitutedDomainEvent.occurredOn());
     }
 
+    public void testStoredEventsOfEveryFormat() throws Exception {
+        long numberOfEvents = this.eventStore().countStoredEvents();
+
+        // a whole StoredEvent of JSON text, as stored before events were
+        // kept by type name, replaces the record of the event appended
+
+        TestableDomainEvent legacyDomainEvent = new TestableDomainEvent(30001, "testLegacy");
+
+        StoredEvent legacyStoredEvent = this.eventStore().append(legacyDomainEvent);
+
+        String legacyRecord =
+                ObjectSerializer.instance().serialize(
+                        new StoredEvent(
+                                TestableDomainEvent.class.getName(),
+                                new Date(),
+                                EventSerializer.instance().serialize(legacyDomainEvent),
+                                legacyStoredEvent.eventId()));
+
+        LevelDBUnitOfWork.current().writeObjectAsBytes(
+                ("ES_EVT_PK:" + legacyStoredEvent.eventId()).getBytes(),
+                legacyRecord.getBytes());
+
+        LevelDBUnitOfWork.current().commit();
+
+        this.eventStore().close();
+
+        this.eventStore =
+                new LevelDBEventStore(
+                        TEST_DATABASE,
+                        new FormattedSerializer(new BinarySerializationFormat()));
+
+        this.eventStore().append(new TestableDomainEvent(30002, "testBinary"));
+
+        LevelDBUnitOfWork.current().commit();
+
+        byte[] binaryRecord = this.database().get(("ES_EVT_PK:" + (numberOfEvents + 2)).getBytes());
+
+        assertEquals(
+                BinarySerializationFormat.FORMAT_ID,
+                binaryRecord[TestableDomainEvent.class.getName().length() + 1]);
+
+        List<StoredEvent> storedEvents = this.eventStore().allStoredEventsSince(numberOfEvents - 1);
+
+        assertEquals(3, storedEvents.size());
+
+        String[] names = { "testDomainEvent" + (numberOfEvents - 1), "testLegacy", "testBinary" };
+
+        for (int idx = 0; idx < names.length; ++idx) {
+            StoredEvent storedEvent = storedEvents.get(idx);
+
+            TestableDomainEvent domainEvent = storedEvent.toDomainEvent();
+
+            assertEquals(numberOfEvents + idx, storedEvent.eventId());
+            assertEquals(TestableDomainEvent.class.getName(), storedEvent.typeName());
+            assertEquals(names[idx], domainEvent.name());
+        }
+    }
+
+    public void testRepairAfterCrash() throws Exception {
+        EventStore eventStore = this.eventStore();
+
+        long numberOfEvents = eventStore.countStoredEvents();
+
+        eventStore.append(new TestableDomainEvent(10001, "testAbandoned"));
+
+        LevelDBUnitOfWork.current().rollback();
+
+        eventStore.append(new TestableDomainEvent(10002, "testCommitted1"));
+        eventStore.append(new TestableDomainEvent(10003, "testCommitted2"));
+
+        LevelDBUnitOfWork.current().commit();
+
+        // not closed, as after a crash, so its sequence was not saved
+
+        EventStore repairedEventStore = new LevelDBEventStore(TEST_DATABASE);
+
+        assertEquals(numberOfEvents + 3, repairedEventStore.countStoredEvents());
+        assertEquals(numberOfEvents + 2, repairedEventStore.allStoredEventsSince(0).size());
+        assertEquals(2, repairedEventStore.allStoredEventsSince(numberOfEvents).size());
+
+        StoredEvent storedEvent =
+                repairedEventStore.append(new TestableDomainEvent(10004, "testAfterRepair"));
+
+        LevelDBUnitOfWork.current().commit();
+
+        assertEquals(numberOfEvents + 4, storedEvent.eventId());
+    }
+
+    public void testReopenAfterClose() throws Exception {
+        EventStore eventStore = this.eventStore();
+
+        long numberOfEvents = eventStore.countStoredEvents();
+
+        eventStore.close();
+
+        EventStore reopenedEventStore = new LevelDBEventStore(TEST_DATABASE);
+
+        assertEquals(numberOfEvents, reopenedEventStore.countStoredEvents());
+        assertEquals(numberOfEvents, reopenedEventStore.allStoredEventsSince(0).size());
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
@@ -146,6 +520,18 @@ public class LevelDBEventStoreTest extends LevelDBTest {
         super.tearDown();
     }
 
+    private void appendEvents(int aNumberOfEvents, boolean isCommitted) {
+        for (int idx = 0; idx < aNumberOfEvents; ++idx) {
+            this.eventStore().append(new TestableDomainEvent(20001 + idx, "testAppended" + idx));
+        }
+
+        if (isCommitted) {
+            LevelDBUnitOfWork.current().commit();
+        } else {
+            LevelDBUnitOfWork.current().rollback();
+        }
+    }
+
     private EventStore eventStore() {
         return this.eventStore;
     }
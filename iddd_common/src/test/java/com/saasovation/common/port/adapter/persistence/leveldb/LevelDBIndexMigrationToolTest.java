@@ -0,0 +1,123 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.util.List;
+
+public class LevelDBIndexMigrationToolTest extends LevelDBTest {
+
+    public LevelDBIndexMigrationToolTest() {
+        super();
+    }
+
+    public void testMigrateReferenceSets() throws Exception {
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+
+        for (int idx = 1; idx <= 3; ++idx) {
+            LevelDBKey primaryKey = new LevelDBKey("ITEM#PK", "T1", "" + idx);
+            uow.write(primaryKey, new Item("" + idx));
+
+            LevelDBKey itemsOfTenant = new LevelDBKey(primaryKey, "ITEM#T", "T1");
+            uow.updateKeyReference(itemsOfTenant);
+        }
+
+        uow.commit();
+
+        LevelDBIndexMigrationTool migrationTool =
+                new LevelDBIndexMigrationTool(this.database(), "ITEM#T");
+
+        migrationTool.migrateDatabase();
+
+        assertEquals(1, migrationTool.migratedKeys());
+        assertNull(this.database().get("ITEM#T:T1".getBytes()));
+        assertEquals("ITEM#PK:T1:2", new String(this.database().get("ITEM#T:T1:2".getBytes())));
+
+        List<Item> items =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(new LevelDBKey("ITEM#T", "T1"), Item.class);
+
+        assertEquals(3, items.size());
+        assertEquals("1", items.get(0).id);
+        assertEquals("3", items.get(2).id);
+
+        // a second run finds the category migrated
+
+        migrationTool = new LevelDBIndexMigrationTool(this.database(), "ITEM#T");
+
+        migrationTool.migrateDatabase();
+
+        assertEquals(0, migrationTool.migratedKeys());
+    }
+
+    public void testReadIndexedObjectsOfUnitOfWork() throws Exception {
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+
+        this.save(uow, "1");
+        this.save(uow, "2");
+
+        uow.commit();
+
+        uow = LevelDBUnitOfWork.start(this.database());
+
+        this.save(uow, "3");
+
+        LevelDBKey primaryKey = new LevelDBKey("ITEM#PK", "T1", "1");
+        uow.remove(primaryKey);
+        uow.removeIndexEntry(new LevelDBKey(primaryKey, "ITEM#T", "T1"));
+
+        LevelDBKey itemsOfTenant = new LevelDBKey("ITEM#T", "T1");
+
+        List<Item> items = uow.readIndexedObjects(itemsOfTenant, Item.class);
+
+        assertEquals(2, items.size());
+        assertEquals("2", items.get(0).id);
+        assertEquals("3", items.get(1).id);
+
+        uow.rollback();
+
+        items =
+                LevelDBUnitOfWork.readOnly(this.database())
+                    .readIndexedObjects(itemsOfTenant, Item.class);
+
+        assertEquals(2, items.size());
+        assertEquals("1", items.get(0).id);
+
+        // another tenant's index shares no entries
+
+        assertTrue(LevelDBUnitOfWork.readOnly(this.database())
+                .readIndexedObjects(new LevelDBKey("ITEM#T", "T"), Item.class)
+                .isEmpty());
+    }
+
+    private void save(LevelDBUnitOfWork aUoW, String anId) {
+        LevelDBKey primaryKey = new LevelDBKey("ITEM#PK", "T1", anId);
+        aUoW.write(primaryKey, new Item(anId));
+
+        LevelDBKey itemsOfTenant = new LevelDBKey(primaryKey, "ITEM#T", "T1");
+        aUoW.updateIndexEntry(itemsOfTenant);
+    }
+
+    private static class Item {
+
+        private String id;
+
+        Item(String anId) {
+            super();
+
+            this.id = anId;
+        }
+    }
+}
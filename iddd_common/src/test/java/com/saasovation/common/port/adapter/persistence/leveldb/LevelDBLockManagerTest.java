@@ -0,0 +1,229 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+public class LevelDBLockManagerTest extends LevelDBTest {
+
+    public LevelDBLockManagerTest() {
+        super();
+    }
+
+    public void testStripesAreBounded() throws Exception {
+        LevelDBLockManager lockManager = new LevelDBLockManager(1000);
+
+        assertEquals(1024, lockManager.stripeCount());
+
+        for (int idx = 0; idx < 10000; ++idx) {
+            int stripe = lockManager.stripeOf("BLI#PK:T12345:" + idx);
+
+            assertTrue(stripe >= 0 && stripe < 1024);
+        }
+
+        assertEquals(lockManager.stripeOf("BLI#PK:T12345:1"), lockManager.stripeOf("BLI#PK:T12345:1"));
+    }
+
+    public void testOpposingLockOrdersDoNotDeadlock() throws Exception {
+        final LevelDBLockManager lockManager = new LevelDBLockManager(2);
+
+        final String lowKey = this.keyOfStripe(lockManager, 0);
+        final String highKey = this.keyOfStripe(lockManager, 1);
+
+        System.setProperty(LevelDBLockManager.TIMEOUT_PROPERTY_NAME, "1");
+
+        Thread[] threads = new Thread[2];
+
+        for (int idx = 0; idx < threads.length; ++idx) {
+            final boolean isHighFirst = idx == 0;
+
+            threads[idx] = new Thread() {
+                @Override
+                public void run() {
+                    for (int count = 0; count < 10000; ++count) {
+                        NavigableSet<Integer> heldStripes = new TreeSet<Integer>();
+
+                        try {
+                            lockManager.lock(heldStripes, isHighFirst ? highKey : lowKey);
+                            lockManager.lock(heldStripes, isHighFirst ? lowKey : highKey);
+
+                            // a key already held is not locked again
+
+                            lockManager.lock(heldStripes, lowKey);
+
+                        } catch (IllegalStateException e) {
+                            // failed as a unit of work would, and rolled back
+                        } finally {
+                            lockManager.unlock(heldStripes);
+                        }
+                    }
+                }
+            };
+
+            threads[idx].setDaemon(true);
+            threads[idx].start();
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.join(30000L);
+
+                assertFalse(thread.isAlive());
+            }
+        } finally {
+            System.clearProperty(LevelDBLockManager.TIMEOUT_PROPERTY_NAME);
+        }
+    }
+
+    public void testOpposingUnitsOfWorkLoseNoUpdate() throws Exception {
+        LevelDBLockManager lockManager = LevelDBLockManager.instance();
+
+        final String lowKey = this.keyOfStripe(lockManager, 0);
+        final String highKey = this.keyOfStripe(lockManager, 1);
+
+        final CountDownLatch lowLocked = new CountDownLatch(1);
+        final CountDownLatch highLocked = new CountDownLatch(1);
+
+        System.setProperty(LevelDBLockManager.TIMEOUT_PROPERTY_NAME, "200");
+
+        try {
+            Thread lowFirst = new Thread() {
+                @Override
+                public void run() {
+                    LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(database());
+                    uow.lock(lowKey);
+
+                    lowLocked.countDown();
+
+                    try {
+                        highLocked.await();
+                    } catch (InterruptedException e) {
+                        // fall through
+                    }
+
+                    // waits until the other unit of work fails
+
+                    uow.lock(highKey);
+                    increment(uow, highKey);
+                    uow.commit();
+                }
+            };
+
+            lowFirst.start();
+
+            lowLocked.await();
+
+            LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+            uow.lock(highKey);
+
+            int readCount = this.countOf(uow, highKey);
+
+            highLocked.countDown();
+
+            try {
+                uow.lock(lowKey);
+
+                fail("Should have failed while the lower stripe is held.");
+
+            } catch (IllegalStateException e) {
+                // expected, and rolled back
+            }
+
+            lowFirst.join(10000L);
+
+            assertFalse(lowFirst.isAlive());
+            assertEquals(readCount + 1, this.countOf(LevelDBUnitOfWork.readOnly(this.database()), highKey));
+
+            LevelDBUnitOfWork.current().rollback();
+
+            // the failed unit of work is done again
+
+            uow = LevelDBUnitOfWork.start(this.database());
+            uow.lock(highKey);
+            uow.lock(lowKey);
+            this.increment(uow, highKey);
+            uow.commit();
+
+            assertEquals(readCount + 2, this.countOf(LevelDBUnitOfWork.readOnly(this.database()), highKey));
+
+            LevelDBUnitOfWork.current().rollback();
+
+        } finally {
+            System.clearProperty(LevelDBLockManager.TIMEOUT_PROPERTY_NAME);
+        }
+    }
+
+    public void testStaleVersionFailsCommit() throws Exception {
+        LevelDBKey key = new LevelDBKey("VERSIONED#PK", "1");
+
+        System.setProperty(LevelDBLockManager.VERSION_CHECKED_PROPERTY_NAME, "true");
+
+        try {
+            LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+            uow.lock(key.key());
+            uow.writeVersioned(key, "one", 0, 1);
+            uow.commit();
+
+            uow = LevelDBUnitOfWork.start(this.database());
+            uow.lock(key.key());
+            uow.writeVersioned(key, "stale", 0, 1);
+
+            try {
+                uow.commit();
+
+                fail("Should have detected a concurrency violation.");
+
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            uow = LevelDBUnitOfWork.start(this.database());
+            uow.lock(key.key());
+            uow.writeVersioned(key, "two", 1, 2);
+            uow.writeVersioned(key, "three", 2, 3);
+            uow.commit();
+
+            assertEquals(
+                    "three",
+                    LevelDBUnitOfWork.readOnly(this.database()).readObject(key, String.class));
+
+            LevelDBUnitOfWork.current().rollback();
+
+        } finally {
+            System.clearProperty(LevelDBLockManager.VERSION_CHECKED_PROPERTY_NAME);
+        }
+    }
+
+    private int countOf(LevelDBUnitOfWork aUoW, String aKey) {
+        Integer count = aUoW.readObject(aKey.getBytes(), Integer.class);
+
+        return count == null ? 0 : count;
+    }
+
+    private void increment(LevelDBUnitOfWork aUoW, String aKey) {
+        aUoW.write(aKey.getBytes(), this.countOf(aUoW, aKey) + 1);
+    }
+
+    private String keyOfStripe(LevelDBLockManager aLockManager, int aStripe) {
+        for (int idx = 0; ; ++idx) {
+            if (aLockManager.stripeOf("KEY:" + idx) == aStripe) {
+                return "KEY:" + idx;
+            }
+        }
+    }
+}
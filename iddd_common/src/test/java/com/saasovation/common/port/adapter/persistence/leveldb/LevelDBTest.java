@@ -38,6 +38,11 @@ public abstract class LevelDBTest extends TestCase {
     protected void setUp() throws Exception {
         this.database = LevelDBProvider.instance().databaseFrom(TEST_DATABASE);
 
+        // a unit of work left uncommitted on this thread by an earlier
+        // test, perhaps of another database, would otherwise be reused
+
+        LevelDBUnitOfWork.readOnly(this.database).rollback();
+
         DomainEventPublisher.instance().reset();
 
         super.setUp();
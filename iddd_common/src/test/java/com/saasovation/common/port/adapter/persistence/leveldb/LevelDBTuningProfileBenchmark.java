@@ -0,0 +1,184 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.DB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes, reads and scans a database opened with each of several
+ * tuning profiles. The shared value cache is disabled so that reads
+ * reach LevelDB itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LevelDBTuningProfileBenchmark {
+
+    private static final String TEST_DATABASE =
+            LevelDBTuningProfileBenchmark.class.getResource("/").getPath()
+            + "/data/leveldb/iddd_common_tuning";
+
+    private static final int INDEXED_OBJECT_COUNT = 1000;
+    private static final String INDEX = "TUNED#IDX";
+    private static final String PRIMARY = "TUNED#PK";
+
+    @Param({ "default", "uncompressed", "largeBuffers", "unverified" })
+    public String profile;
+
+    @Param({ "20000" })
+    public int objectCount;
+
+    @Param({ "512" })
+    public int objectSize;
+
+    private DB database;
+    private String value;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(LevelDBValueCache.PROPERTY_NAME, "0");
+
+        this.database = LevelDBProvider.instance().databaseFrom(TEST_DATABASE, this.tuningProfile());
+
+        LevelDBProvider.instance().purge(this.database);
+
+        StringBuilder builder = new StringBuilder(this.objectSize);
+
+        for (int idx = 0; idx < this.objectSize; ++idx) {
+            builder.append((char) ('a' + idx % 26));
+        }
+
+        this.value = builder.toString();
+
+        for (int idx = 0; idx < this.objectCount; idx += 1000) {
+            LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database);
+
+            for (int key = idx; key < idx + 1000 && key < this.objectCount; ++key) {
+                uow.write(new LevelDBKey(PRIMARY, Integer.toString(key)), this.value);
+
+                if (key < INDEXED_OBJECT_COUNT) {
+                    uow.updateIndexEntry(
+                            new LevelDBKey(
+                                    new LevelDBKey(PRIMARY, Integer.toString(key)),
+                                    INDEX));
+                }
+            }
+
+            uow.commit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        LevelDBProvider.instance().purge(this.database);
+        LevelDBProvider.instance().close(TEST_DATABASE);
+
+        System.clearProperty(LevelDBValueCache.PROPERTY_NAME);
+    }
+
+    @Benchmark
+    public String readObject() {
+        int key = ThreadLocalRandom.current().nextInt(this.objectCount);
+
+        return LevelDBUnitOfWork
+                .readOnly(this.database)
+                .readObject(new LevelDBKey(PRIMARY, Integer.toString(key)), String.class);
+    }
+
+    @Benchmark
+    public List<String> scanIndexedObjects() {
+        return LevelDBUnitOfWork
+                .readOnly(this.database)
+                .readIndexedObjects(new LevelDBKey(INDEX), String.class);
+    }
+
+    @Benchmark
+    public void writeObjects() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database);
+
+        for (int idx = 0; idx < 10; ++idx) {
+            int key = random.nextInt(this.objectCount);
+
+            uow.write(new LevelDBKey(PRIMARY, Integer.toString(key)), this.value);
+        }
+
+        uow.commit();
+    }
+
+    private LevelDBTuningProfile tuningProfile() {
+        LevelDBTuningProfile defaults = LevelDBTuningProfile.defaults();
+
+        if ("uncompressed".equals(this.profile)) {
+            return new LevelDBTuningProfile(
+                    defaults.cacheSize(),
+                    defaults.writeBufferSize(),
+                    defaults.blockSize(),
+                    CompressionType.NONE,
+                    defaults.isVerifyingChecksums(),
+                    defaults.isFillingCacheOnScans(),
+                    defaults.isParanoidChecking(),
+                    defaults.factoryName());
+        }
+
+        if ("largeBuffers".equals(this.profile)) {
+            return new LevelDBTuningProfile(
+                    64L * 1024L * 1024L,
+                    32 * 1024 * 1024,
+                    16 * 1024,
+                    defaults.compressionType(),
+                    defaults.isVerifyingChecksums(),
+                    false,
+                    defaults.isParanoidChecking(),
+                    defaults.factoryName());
+        }
+
+        if ("unverified".equals(this.profile)) {
+            return new LevelDBTuningProfile(
+                    defaults.cacheSize(),
+                    defaults.writeBufferSize(),
+                    defaults.blockSize(),
+                    defaults.compressionType(),
+                    false,
+                    defaults.isFillingCacheOnScans(),
+                    false,
+                    defaults.factoryName());
+        }
+
+        return defaults;
+    }
+}
@@ -0,0 +1,137 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+import junit.framework.TestCase;
+
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+
+public class LevelDBTuningProfileTest extends TestCase {
+
+    private static final String DATABASE_PATH = "/tmp/leveldb/tuned_db";
+
+    public LevelDBTuningProfileTest() {
+        super();
+    }
+
+    public void testConfiguredDatabaseSettingOverridesGeneral() throws Exception {
+        System.setProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "cacheSize", "1024");
+        System.setProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "tuned_db.cacheSize", "2048");
+        System.setProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "compression", "none");
+        System.setProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "tuned_db.fillCacheOnScans", "false");
+
+        try {
+            LevelDBTuningProfile tuningProfile = LevelDBTuningProfile.configured(DATABASE_PATH);
+
+            assertEquals(2048L, tuningProfile.cacheSize());
+            assertEquals(CompressionType.NONE, tuningProfile.compressionType());
+            assertFalse(tuningProfile.isFillingCacheOnScans());
+            assertEquals(LevelDBTuningProfile.defaults().writeBufferSize(), tuningProfile.writeBufferSize());
+
+            LevelDBTuningProfile otherTuningProfile = LevelDBTuningProfile.configured("/tmp/leveldb/other_db");
+
+            assertEquals(1024L, otherTuningProfile.cacheSize());
+            assertTrue(otherTuningProfile.isFillingCacheOnScans());
+
+        } finally {
+            System.clearProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "cacheSize");
+            System.clearProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "tuned_db.cacheSize");
+            System.clearProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "compression");
+            System.clearProperty(LevelDBTuningProfile.OPTIONS_PROPERTY_PREFIX + "tuned_db.fillCacheOnScans");
+        }
+    }
+
+    public void testOptions() throws Exception {
+        LevelDBTuningProfile tuningProfile =
+                new LevelDBTuningProfile(
+                        64L * 1024L * 1024L,
+                        16 * 1024 * 1024,
+                        16 * 1024,
+                        CompressionType.NONE,
+                        false,
+                        false,
+                        true,
+                        LevelDBTuningProfile.IQ80_FACTORY);
+
+        Options options = tuningProfile.options();
+
+        assertTrue(options.createIfMissing());
+        assertEquals(64L * 1024L * 1024L, options.cacheSize());
+        assertEquals(16 * 1024 * 1024, options.writeBufferSize());
+        assertEquals(16 * 1024, options.blockSize());
+        assertEquals(CompressionType.NONE, options.compressionType());
+        assertFalse(options.verifyChecksums());
+        assertTrue(options.paranoidChecks());
+
+        ReadOptions readOptions = tuningProfile.readOptions();
+
+        assertTrue(readOptions.fillCache());
+        assertFalse(readOptions.verifyChecksums());
+
+        assertFalse(tuningProfile.scanReadOptions().fillCache());
+    }
+
+    public void testDBFactory() throws Exception {
+        LevelDBTuningProfile namedTuningProfile = this.tuningProfileOf(Iq80DBFactory.class.getName());
+
+        assertTrue(namedTuningProfile.dbFactory() instanceof Iq80DBFactory);
+
+        try {
+            this.tuningProfileOf("com.saasovation.MissingDBFactory").dbFactory();
+
+            fail("Should not create a factory missing from the classpath.");
+
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testDBFactoryAutomaticallyChosen() throws Exception {
+        boolean isJniAvailable = true;
+
+        try {
+            Class.forName("org.fusesource.leveldbjni.JniDBFactory");
+        } catch (ClassNotFoundException e) {
+            isJniAvailable = false;
+        }
+
+        String factoryClassName =
+                LevelDBTuningProfile.defaults().dbFactory().getClass().getName();
+
+        if (isJniAvailable) {
+            assertEquals("org.fusesource.leveldbjni.JniDBFactory", factoryClassName);
+        } else {
+            assertEquals(Iq80DBFactory.class.getName(), factoryClassName);
+        }
+    }
+
+    private LevelDBTuningProfile tuningProfileOf(String aFactoryName) {
+        LevelDBTuningProfile defaults = LevelDBTuningProfile.defaults();
+
+        return new LevelDBTuningProfile(
+                defaults.cacheSize(),
+                defaults.writeBufferSize(),
+                defaults.blockSize(),
+                defaults.compressionType(),
+                defaults.isVerifyingChecksums(),
+                defaults.isFillingCacheOnScans(),
+                defaults.isParanoidChecking(),
+                aFactoryName);
+    }
+}
@@ -0,0 +1,117 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.port.adapter.persistence.leveldb;
+
+public class LevelDBValueCacheTest extends LevelDBTest {
+
+    public LevelDBValueCacheTest() {
+        super();
+    }
+
+    public void testReadsOwnStagedWrites() throws Exception {
+        LevelDBKey key = new LevelDBKey("CACHE#PK", "1");
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+
+        assertNull(uow.readObject(key, Entry.class));
+
+        Entry entry = new Entry("1", "staged");
+
+        uow.write(key, entry);
+
+        assertSame(entry, uow.readObject(key, Entry.class));
+
+        uow.remove(key);
+
+        assertNull(uow.readObject(key, Entry.class));
+
+        uow.rollback();
+
+        assertNull(LevelDBUnitOfWork.readOnly(this.database()).readObject(key, Entry.class));
+    }
+
+    public void testIdentityMapAnswersSameInstance() throws Exception {
+        LevelDBKey key = new LevelDBKey("CACHE#PK", "1");
+
+        this.commit(key, new Entry("1", "one"));
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+
+        long identityMapHitCount = this.cache().identityMapHitCount();
+
+        Entry entry = uow.readObject(key, Entry.class);
+
+        assertSame(entry, uow.readObject(key, Entry.class));
+        assertEquals(identityMapHitCount + 1, this.cache().identityMapHitCount());
+
+        uow.rollback();
+    }
+
+    public void testCommitInvalidatesSharedValues() throws Exception {
+        LevelDBKey key = new LevelDBKey("CACHE#PK", "1");
+
+        this.commit(key, new Entry("1", "one"));
+
+        long hitCount = this.cache().hitCount();
+
+        assertEquals("one", this.readCommitted(key).name);
+        assertEquals("one", this.readCommitted(key).name);
+        assertEquals(hitCount + 1, this.cache().hitCount());
+
+        this.commit(key, new Entry("1", "uno"));
+
+        assertEquals("uno", this.readCommitted(key).name);
+
+        LevelDBProvider.instance().purge(this.database());
+
+        assertNull(this.readCommitted(key));
+    }
+
+    private LevelDBValueCache cache() {
+        return LevelDBValueCache.of(this.database());
+    }
+
+    private void commit(LevelDBKey aKey, Entry anEntry) {
+        LevelDBUnitOfWork.start(this.database()).write(aKey, anEntry);
+        LevelDBUnitOfWork.current().commit();
+    }
+
+    private Entry readCommitted(LevelDBKey aKey) {
+
+        // each read is of a new unit of work, so only
+        // the shared cache can answer it without the DB
+
+        LevelDBUnitOfWork uow = LevelDBUnitOfWork.start(this.database());
+
+        Entry entry = uow.readObject(aKey, Entry.class);
+
+        uow.rollback();
+
+        return entry;
+    }
+
+    private static class Entry {
+
+        private String id;
+        private String name;
+
+        Entry(String anId, String aName) {
+            super();
+
+            this.id = anId;
+            this.name = aName;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.common.serializer;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.google.gson.reflect.TypeToken;
+import com.saasovation.common.event.TestableDomainEvent;
+
+public class FormattedSerializerTest extends TestCase {
+
+    public FormattedSerializerTest() {
+        super();
+    }
+
+    public void testBinaryRoundTrip() throws Exception {
+        FormattedSerializer serializer =
+                new FormattedSerializer(new BinarySerializationFormat());
+
+        TestableDomainEvent event = new TestableDomainEvent(12345678901L, "binary");
+
+        byte[] serialization = serializer.serialize(event);
+
+        assertEquals(BinarySerializationFormat.FORMAT_ID, serialization[0]);
+
+        TestableDomainEvent deserialized =
+                serializer.deserialize(serialization, TestableDomainEvent.class);
+
+        assertEquals(event.eventVersion(), deserialized.eventVersion());
+        assertEquals(event.id(), deserialized.id());
+        assertEquals(event.name(), deserialized.name());
+        assertEquals(event.occurredOn(), deserialized.occurredOn());
+
+        assertTrue(serialization.length
+                < new JSONSerializationFormat().serialize(event).length);
+    }
+
+    public void testBinaryRoundTripOfGraph() throws Exception {
+        FormattedSerializer serializer =
+                new FormattedSerializer(new BinarySerializationFormat());
+
+        Entry entry = new Entry();
+
+        entry.amount = new BigDecimal("1234.5678");
+        entry.kind = Kind.Credit;
+        entry.lines.add(new Line("one", -1, 0.5f));
+        entry.lines.add(new Line("two", 70000, -2.25f));
+        entry.lines.add(null);
+        entry.tags.put("\u00fc", 3.5d);
+        entry.tags.put("none", null);
+        entry.values = new long[] { Long.MIN_VALUE, 0L, 128L };
+
+        Entry deserialized =
+                serializer.deserialize(serializer.serialize(entry), Entry.class);
+
+        assertEquals(entry.amount, deserialized.amount);
+        assertEquals(Kind.Credit, deserialized.kind);
+        assertNull(deserialized.note);
+        assertEquals(3, deserialized.lines.size());
+        assertEquals("two", deserialized.lines.get(1).name);
+        assertEquals(70000, deserialized.lines.get(1).quantity);
+        assertEquals(-2.25f, deserialized.lines.get(1).weight);
+        assertNull(deserialized.lines.get(2));
+        assertEquals(entry.tags, deserialized.tags);
+        assertEquals(Long.MIN_VALUE, deserialized.values[0]);
+        assertEquals(128L, deserialized.values[2]);
+    }
+
+    public void testMixedFormatsAreRead() throws Exception {
+        FormattedSerializer binary = new FormattedSerializer(new BinarySerializationFormat());
+        FormattedSerializer json = new FormattedSerializer(new JSONSerializationFormat());
+
+        Type setType = new TypeToken<HashSet<Object>>() { }.getType();
+
+        Set<Object> keys = new HashSet<Object>();
+
+        keys.add("key1");
+        keys.add("key2");
+
+        byte[] legacy = ObjectSerializer.instance().serialize(keys).getBytes();
+
+        Set<Object> fromLegacy = binary.deserialize(legacy, setType);
+        Set<Object> fromJSON = binary.deserialize(json.serialize(keys), setType);
+        Set<Object> fromBinary = json.deserialize(binary.serialize(keys), setType);
+
+        assertEquals(keys, fromLegacy);
+        assertEquals(keys, fromJSON);
+        assertEquals(keys, fromBinary);
+    }
+
+    public void testAddedFieldKeepsItsValue() throws Exception {
+        FormattedSerializer serializer =
+                new FormattedSerializer(new BinarySerializationFormat());
+
+        byte[] serialization = serializer.serialize(new Line("one", 7, 1.5f));
+
+        WiderLine deserialized = serializer.deserialize(serialization, WiderLine.class);
+
+        assertEquals("one", deserialized.name);
+        assertEquals(7, deserialized.quantity);
+        assertEquals("each", deserialized.unit);
+        assertEquals(1.5f, deserialized.weight);
+    }
+
+    public void testRemovedFieldsAreSkipped() throws Exception {
+        FormattedSerializer serializer =
+                new FormattedSerializer(new BinarySerializationFormat());
+
+        Entry entry = new Entry();
+
+        entry.amount = new BigDecimal("10.01");
+        entry.kind = Kind.Debit;
+        entry.lines.add(new Line("one", 1, 1.0f));
+        entry.lines.add(null);
+        entry.note = new Date();
+        entry.tags.put("tag", 2.0d);
+        entry.values = new long[] { 1L, 2L };
+
+        NarrowerEntry deserialized =
+                serializer.deserialize(serializer.serialize(entry), NarrowerEntry.class);
+
+        assertEquals(Kind.Debit, deserialized.kind);
+        assertEquals(2L, deserialized.values[1]);
+    }
+
+    public void testRenamedFieldIsNotSwapped() throws Exception {
+        FormattedSerializer serializer =
+                new FormattedSerializer(new BinarySerializationFormat());
+
+        byte[] serialization = serializer.serialize(new Line("one", 7, 1.5f));
+
+        RenamedLine deserialized = serializer.deserialize(serialization, RenamedLine.class);
+
+        assertNull(deserialized.title);
+        assertEquals(7, deserialized.quantity);
+        assertEquals(1.5f, deserialized.weight);
+    }
+
+    private enum Kind {
+        Credit,
+        Debit
+    }
+
+    private static class Entry {
+
+        private BigDecimal amount;
+        private Kind kind;
+        private List<Line> lines = new ArrayList<Line>();
+        private Date note;
+        private Map<String, Double> tags = new LinkedHashMap<String, Double>();
+        private long[] values;
+    }
+
+    private static class NarrowerEntry {
+
+        private Kind kind;
+        private long[] values;
+    }
+
+    private static class Line {
+
+        private String name;
+        private int quantity;
+        private float weight;
+
+        Line(String aName, int aQuantity, float aWeight) {
+            this.name = aName;
+            this.quantity = aQuantity;
+            this.weight = aWeight;
+        }
+    }
+
+    private static class RenamedLine {
+
+        private int quantity;
+        private String title;
+        private float weight;
+    }
+
+    private static class WiderLine {
+
+        private String name;
+        private int quantity;
+        private String unit = "each";
+        private float weight;
+
+        WiderLine() {
+            super();
+        }
+    }
+}
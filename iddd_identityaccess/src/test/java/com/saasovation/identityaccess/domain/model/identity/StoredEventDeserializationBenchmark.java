@@ -0,0 +1,140 @@
+//   Copyright 2012,2013 Vaughn Vernon
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package com.saasovation.identityaccess.domain.model.identity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.saasovation.common.domain.model.DomainEvent;
+import com.saasovation.common.event.EventSerializer;
+import com.saasovation.common.event.EventTypeRegistry;
+import com.saasovation.common.event.StoredEvent;
+import com.saasovation.common.serializer.AbstractSerializer;
+import com.saasovation.identityaccess.domain.model.access.UserAssignedToRole;
+
+/**
+ * Rehydrates a mixed batch of stored identity and access events,
+ * as the notification publishers and event stores do. byClassName()
+ * loads each event's class by name and has Gson look up its adapter,
+ * as toDomainEvent() used to; toDomainEvent() resolves both from the
+ * EventTypeRegistry and the EventSerializer's adapters, warmed in setUp().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StoredEventDeserializationBenchmark {
+
+    @Param({ "10000" })
+    public int eventCount;
+
+    private List<StoredEvent> storedEvents;
+    private ByClassNameSerializer byClassNameSerializer;
+
+    @Setup
+    public void setUp() {
+        TenantId tenantId = new TenantId("8c1f9e5a-6c2b-4b5e-9d3f-0e1a2b3c4d5e");
+        FullName name = new FullName("Zoe", "Doe");
+        EmailAddress emailAddress = new EmailAddress("zoe@saasovation.com");
+
+        this.byClassNameSerializer = new ByClassNameSerializer();
+        this.storedEvents = new ArrayList<StoredEvent>(this.eventCount);
+
+        for (int idx = 0; idx < this.eventCount; ++idx) {
+            String username = "user" + (idx % 500);
+
+            DomainEvent domainEvent = null;
+
+            switch (idx % 6) {
+            case 0:
+                domainEvent = new UserRegistered(tenantId, username, name, emailAddress);
+                break;
+            case 1:
+                domainEvent = new PersonNameChanged(tenantId, username, name);
+                break;
+            case 2:
+                domainEvent = new GroupUserAdded(tenantId, "Scrum Team", username);
+                break;
+            case 3:
+                domainEvent = new UserEnablementChanged(tenantId, username, new Enablement(true, null, null));
+                break;
+            case 4:
+                domainEvent = new TenantProvisioned(tenantId);
+                break;
+            default:
+                domainEvent =
+                    new UserAssignedToRole(
+                            tenantId, "ScrumTeamMember", username,
+                            "Zoe", "Doe", "zoe@saasovation.com");
+                break;
+            }
+
+            this.storedEvents.add(
+                    new StoredEvent(
+                            domainEvent.getClass().getName(),
+                            domainEvent.occurredOn(),
+                            EventSerializer.instance().serialize(domainEvent),
+                            idx + 1));
+        }
+
+        EventTypeRegistry.instance().registerAll("com.saasovation.identityaccess.domain.model");
+
+        this.storedEvents.get(0).toDomainEvent();
+    }
+
+    @Benchmark
+    public void byClassName(Blackhole aBlackhole) throws Exception {
+        for (StoredEvent storedEvent : this.storedEvents) {
+            aBlackhole.consume(
+                    this.byClassNameSerializer.deserialize(
+                            storedEvent.eventBody(),
+                            Class.forName(storedEvent.typeName())));
+        }
+    }
+
+    @Benchmark
+    public void toDomainEvent(Blackhole aBlackhole) {
+        for (StoredEvent storedEvent : this.storedEvents) {
+            aBlackhole.consume(storedEvent.toDomainEvent());
+        }
+    }
+
+    private static class ByClassNameSerializer extends AbstractSerializer {
+
+        ByClassNameSerializer() {
+            super(false, false);
+        }
+
+        Object deserialize(String aSerialization, Class<?> aType) {
+            return this.gson().fromJson(aSerialization, aType);
+        }
+    }
+}
@@ -61,6 +61,23 @@ public class InMemoryEventStore implements EventStore, CleanableStore {
         return events;
     }
 
+    @Override
+    public List<StoredEvent> allStoredEventsSince(long aStoredEventId, int aMaximumCount) {
+        List<StoredEvent> events = new ArrayList<StoredEvent>();
+
+        for (StoredEvent storedEvent : this.storedEvents) {
+            if (events.size() == aMaximumCount) {
+                break;
+            }
+
+            if (storedEvent.eventId() > aStoredEventId) {
+                events.add(storedEvent);
+            }
+        }
+
+        return events;
+    }
+
     @Override
     public synchronized StoredEvent append(DomainEvent aDomainEvent) {
         String eventSerialization =